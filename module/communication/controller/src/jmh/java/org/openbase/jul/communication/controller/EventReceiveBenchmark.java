@@ -0,0 +1,117 @@
+package org.openbase.jul.communication.controller;
+
+/*
+ * #%L
+ * JUL Extension Controller
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.protobuf.Any;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
+import org.openbase.jul.communication.mqtt.CommunicatorImpl;
+import org.openbase.jul.communication.mqtt.CommunicatorImplKt;
+import org.openbase.type.communication.EventType.Event;
+import org.openbase.type.domotic.state.PowerStateType.PowerState;
+import org.openbase.type.domotic.unit.dal.PowerSwitchDataType.PowerSwitchData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the receive pipeline of remote events before and after it was reduced to a single parse path.
+ * Each benchmark handles one received event by all registered handlers, while every handler unpacks the payload
+ * and validates the event timestamp like {@link AbstractRemoteClient} does.
+ * <p>
+ * Run via {@code ./gradlew :jul.communication.controller:jmh}, adding {@code -prof gc} to the jmh arguments reveals the allocation rate per event.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventReceiveBenchmark {
+
+    @Param({"1", "4"})
+    public int handlerCount;
+
+    private byte[] payload;
+    private Mqtt5UserProperties userProperties;
+
+    @Setup
+    public void setup() {
+        final PowerSwitchData data = PowerSwitchData.newBuilder()
+                .setPowerState(PowerState.newBuilder().setValue(PowerState.State.ON))
+                .build();
+        payload = Event.newBuilder().setPayload(Any.pack(data)).build().toByteArray();
+
+        final Instant now = Instant.now();
+        userProperties = Mqtt5UserProperties.builder()
+                .add(CommunicatorImpl.TIMESTAMP_KEY_MS, Long.toString(now.getEpochSecond()))
+                .add(CommunicatorImpl.TIMESTAMP_KEY_NANO, Integer.toString(now.getNano()))
+                .build();
+    }
+
+    /**
+     * The previous pipeline converted the user properties for each handler and unpacked the payload twice per handler.
+     */
+    @Benchmark
+    public void legacyReceive(final Blackhole blackhole) throws InvalidProtocolBufferException {
+        final Event event = Event.parseFrom(payload);
+        for (int i = 0; i < handlerCount; i++) {
+            final Map<String, String> properties = new HashMap<>();
+            for (final Mqtt5UserProperty property : userProperties.asList()) {
+                properties.put(property.getName().toString(), property.getValue().toString());
+            }
+            if (event.getPayload().unpack(PowerSwitchData.class) != null) {
+                blackhole.consume(properties.get(CommunicatorImpl.TIMESTAMP_KEY_MS));
+                blackhole.consume(event.getPayload().unpack(PowerSwitchData.class));
+            }
+        }
+    }
+
+    @Benchmark
+    public void singleParseReceive(final Blackhole blackhole) throws InvalidProtocolBufferException {
+        final Event event = Event.parseFrom(payload);
+        final Map<String, String> properties = CommunicatorImplKt.toLazyMap(userProperties);
+        for (int i = 0; i < handlerCount; i++) {
+            final PowerSwitchData data = event.getPayload().unpack(PowerSwitchData.class);
+            blackhole.consume(properties.get(CommunicatorImpl.TIMESTAMP_KEY_MS));
+            blackhole.consume(data);
+        }
+    }
+}
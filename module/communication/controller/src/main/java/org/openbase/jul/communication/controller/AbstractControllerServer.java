@@ -25,6 +25,7 @@ package org.openbase.jul.communication.controller;
 import com.google.protobuf.AbstractMessage;
 import com.google.protobuf.Any;
 import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
 import kr.pe.kwonnam.slf4jlambda.LambdaLogger;
 import kr.pe.kwonnam.slf4jlambda.LambdaLoggerFactory;
 import org.openbase.jul.annotation.RPCMethod;
@@ -40,12 +41,14 @@ import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.extension.protobuf.*;
 import org.openbase.jul.extension.protobuf.BuilderSyncSetup.NotificationStrategy;
+import org.openbase.jul.extension.protobuf.processing.ProtoBufDeltaProcessor;
 import org.openbase.jul.extension.type.iface.ScopeProvider;
 import org.openbase.jul.extension.type.iface.TransactionIdProvider;
 import org.openbase.jul.extension.type.processing.ScopeProcessor;
 import org.openbase.jul.iface.Pingable;
 import org.openbase.jul.iface.Readyable;
 import org.openbase.jul.pattern.Observer;
+import org.openbase.jul.pattern.VersionChangeDetector;
 import org.openbase.jul.pattern.controller.MessageController;
 import org.openbase.jul.pattern.provider.DataProvider;
 import org.openbase.jul.schedule.*;
@@ -54,9 +57,13 @@ import org.openbase.type.communication.EventType.Event;
 import org.openbase.type.communication.ScopeType.Scope;
 import org.openbase.type.domotic.state.AvailabilityStateType.AvailabilityState;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.openbase.jul.iface.Shutdownable.registerShutdownHook;
@@ -81,6 +88,23 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
 
     public final static String RPC_REQUEST_STATUS = "requestStatus";
 
+    public final static String RPC_REQUEST_DELTA_KEYFRAME = "requestDeltaKeyframe";
+
+    /**
+     * User property containing the sequence number of a data update published in delta mode.
+     */
+    public final static String USER_PROPERTY_SEQUENCE_NUMBER = "SEQUENCE_NUMBER";
+
+    /**
+     * User property containing the field mask of a delta update. Updates without this property contain the full data.
+     */
+    public final static String USER_PROPERTY_DELTA_FIELD_MASK = "DELTA_FIELD_MASK";
+
+    /**
+     * Default number of publications after which the full data is published again in delta mode.
+     */
+    public final static int DEFAULT_DELTA_KEYFRAME_INTERVAL = 20;
+
     protected final LambdaLogger logger = LambdaLoggerFactory.getLogger(getClass());
 
     private final ShutdownDaemon shutdownDaemon;
@@ -113,6 +137,34 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
 
     private final CommunicatorFactory factory = CommunicatorFactoryImpl.Companion.getInstance();
 
+    private volatile boolean deltaPublishing = false;
+    private volatile int deltaKeyframeInterval = DEFAULT_DELTA_KEYFRAME_INTERVAL;
+
+    /**
+     * The last data published in delta mode, guarded by the manage write lock.
+     */
+    private M lastPublishedData;
+    private long publishSequenceNumber = 0;
+
+    /**
+     * Sequence number of the last full update published in delta mode, guarded by the manage write lock.
+     */
+    private long keyframeSequenceNumber = 0;
+
+    /**
+     * Filter used to coalesce data change notifications. The filter is only available if the coalescing mode is enabled.
+     */
+    private volatile RecurrenceEventFilter<Void> notificationFilter;
+    private final AtomicLong requestedNotificationCounter = new AtomicLong();
+    private final AtomicLong performedNotificationCounter = new AtomicLong();
+    private final AtomicLong publishedNotificationCounter = new AtomicLong();
+
+    /**
+     * Timestamp of the oldest notification delayed by the coalescing mode, or 0 if no notification is pending.
+     */
+    private final AtomicLong pendingNotificationTimestamp = new AtomicLong();
+    private final LatencyHistogram notificationLatencyHistogram = new LatencyHistogram();
+
     /**
      * Create a communication service.
      *
@@ -130,7 +182,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
             }
 
             this.availabilityState = AvailabilityState.State.OFFLINE;
-            this.dataLock = new ReentrantReadWriteLock();
+            this.dataLock = new InstrumentedReentrantReadWriteLock(InstrumentedReentrantReadWriteLock.getLockName(getClass(), "dataLock"));
             this.dataBuilderReadLock = dataLock.readLock();
             this.dataBuilderWriteLock = dataLock.writeLock();
             this.manageLock = new BundledReentrantReadWriteLock(dataLock, true, this);
@@ -211,7 +263,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
             // init new instances.
             logger.debug("Init AbstractControllerServer for component " + getClass().getSimpleName() + " on " + scopeStringRep);
             publisher = factory.createPublisher(ScopeProcessor.concat(internalScope, SCOPE_SUFFIX_STATUS), internalCommunicatorConfig);
-            publisherWatchDog = new WatchDog(publisher, "Publisher[" + ScopeProcessor.generateStringRep(publisher.getScope()) + "]");
+            publisherWatchDog = new WatchDog(publisher, "Publisher[" + ScopeProcessor.generateStringRep(publisher.getScope()) + "]", HashedWheelTimer.getInstance());
 
             // get rpc server object which allows to expose remotely callable methods.
             server = factory.createRPCServer(ScopeProcessor.concat(internalScope, SCOPE_SUFFIX_CONTROL), internalCommunicatorConfig);
@@ -231,7 +283,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
                 // if already registered then everything is fine, and we can continue...
             }
 
-            serverWatchDog = new WatchDog(server, "RPCServer[" + ScopeProcessor.generateStringRep(server.getScope()) + "]");
+            serverWatchDog = new WatchDog(server, "RPCServer[" + ScopeProcessor.generateStringRep(server.getScope()) + "]", HashedWheelTimer.getInstance());
 
             this.publisherWatchDog.addObserver((final WatchDog source, WatchDog.ServiceState data) -> {
                 if (data == WatchDog.ServiceState.RUNNING) {
@@ -250,7 +302,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
                             // mark controller as online.
                             setAvailabilityState(ONLINE);
 
-                            notifyChange();
+                            notifyChange(true);
                         } catch (InterruptedException ex) {
                             Thread.currentThread().interrupt();
                         } catch (CouldNotPerformException ex) {
@@ -368,6 +420,15 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
                 publisherWatchDog.deactivate();
             }
             setAvailabilityState(OFFLINE);
+
+            // pending coalesced notifications are obsolete since the initial sync after reactivation publishes the latest data anyway
+            final RecurrenceEventFilter<Void> filter = notificationFilter;
+            if (filter != null) {
+                filter.cancel();
+            }
+
+            // make sure the first publication after reactivation contains the full data
+            lastPublishedData = null;
         } finally {
             manageLock.unlockWrite(this);
         }
@@ -389,6 +450,14 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
                 publisherWatchDog.shutdown();
                 publisherWatchDog = null;
             }
+
+            // release the shared connections
+            if (server != null) {
+                server.shutdown();
+            }
+            if (publisher != null) {
+                publisher.shutdown();
+            }
         } finally {
             manageLock.unlockWrite(this);
         }
@@ -634,7 +703,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
      * @return a new builder wrapper which already locks the manage lock.
      */
     protected CloseableWriteLockWrapper getManageWriteLock(final Object consumer) {
-        return new CloseableWriteLockWrapper(new BundledReentrantReadWriteLock(manageLock, true, consumer));
+        return new CloseableWriteLockWrapper(manageLock.forConsumer(consumer));
     }
 
     /**
@@ -663,7 +732,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
      * @return a new builder wrapper which already locks the manage lock.
      */
     protected CloseableReadLockWrapper getManageReadLock(final Object consumer) {
-        return new CloseableReadLockWrapper(new BundledReentrantReadWriteLock(manageLock, true, consumer));
+        return new CloseableReadLockWrapper(manageLock.forConsumer(consumer));
     }
 
     /**
@@ -694,7 +763,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
      * @throws InterruptedException in case the thread was externally interrupted during the locking.
      */
     protected CloseableWriteLockWrapper getManageWriteLockInterruptible(final Object consumer) throws InterruptedException {
-        return new CloseableInterruptibleWriteLockWrapper(new BundledReentrantReadWriteLock(manageLock, true, consumer));
+        return new CloseableInterruptibleWriteLockWrapper(manageLock.forConsumer(consumer));
     }
 
     /**
@@ -725,7 +794,7 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
      * @throws InterruptedException in case the thread was externally interrupted during the locking.
      */
     protected CloseableReadLockWrapper getManageReadLockInterruptible(final Object consumer) throws InterruptedException {
-        return new CloseableInterruptibleReadLockWrapper(new BundledReentrantReadWriteLock(manageLock, true, consumer));
+        return new CloseableInterruptibleReadLockWrapper(manageLock.forConsumer(consumer));
     }
 
     /**
@@ -778,7 +847,49 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
      */
     @Override
     public void notifyChange() throws CouldNotPerformException, InterruptedException {
+        notifyChange(false);
+    }
+
+    /**
+     * Synchronize all registered remote instances about a data change.
+     * <p>
+     * In case the coalescing mode is enabled, the first notification after an idle period is published directly while all further notifications
+     * requested until the notification interval has passed are merged, so only the latest data is published.
+     * The {@code immediately} flag can be used to flush the data e.g. at the end of a transaction, which also covers all pending notifications.
+     *
+     * @param immediately flag to bypass the coalescing mode and to notify the change before returning.
+     *
+     * @throws CouldNotPerformException
+     * @throws java.lang.InterruptedException
+     */
+    public void notifyChange(final boolean immediately) throws CouldNotPerformException, InterruptedException {
+        requestedNotificationCounter.incrementAndGet();
+
+        // the latency of merged notifications is measured from the oldest one.
+        pendingNotificationTimestamp.compareAndSet(0, System.nanoTime());
+
+        final RecurrenceEventFilter<Void> filter = notificationFilter;
+        if (filter != null) {
+            if (!immediately) {
+                // publish directly if the filter is idle, otherwise the notification is merged into the pending one.
+                if (!filter.triggerWithoutRelay()) {
+                    return;
+                }
+            } else {
+                // pending notifications are covered by this one
+                filter.cancel();
+            }
+        }
+        internalNotifyChange();
+    }
+
+    private void internalNotifyChange() throws CouldNotPerformException, InterruptedException {
         logger.debug("Notify data change of {}", this);
+        performedNotificationCounter.incrementAndGet();
+        final long requestTimestamp = pendingNotificationTimestamp.getAndSet(0);
+        if (requestTimestamp != 0) {
+            notificationLatencyHistogram.record(System.nanoTime() - requestTimestamp);
+        }
         // synchronized by manageable lock to prevent reinit between validateInitialization and publish
         M newData;
         manageLock.lockWriteInterruptibly(this);
@@ -795,15 +906,13 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
 
             // update the current data builder before updating to allow implementations to change data beforehand
             newData = updateDataToPublish(cloneDataBuilder());
-            final Event event = Event.newBuilder()
-                    .setPayload(Any.pack(newData))
-                    .build();
 
             // only publish if controller is active
             if (isActive()) {
                 try {
                     waitForMiddleware(NOTIFICATION_TIMEOUT, TimeUnit.MILLISECONDS);
-                    publisher.publish(event, true);
+                    publishDataUpdate(newData);
+                    publishedNotificationCounter.incrementAndGet();
                 } catch (TimeoutException ex) {
                     if (ExceptionProcessor.isCausedBySystemShutdown(ex)) {
                         throw ex;
@@ -837,6 +946,205 @@ public abstract class AbstractControllerServer<M extends AbstractMessage, MB ext
         }
     }
 
+    /**
+     * Publish the given data via the publisher. In delta mode only the fields changed since the last publication
+     * are published together with a field mask, while every {@code deltaKeyframeInterval} publication contains the
+     * full data. Each publication carries a sequence number so that remotes can detect lost updates.
+     *
+     * @param newData the data to publish.
+     *
+     * @throws CouldNotPerformException if the publication fails.
+     * @throws InterruptedException     if the thread was externally interrupted.
+     */
+    private void publishDataUpdate(final M newData) throws CouldNotPerformException, InterruptedException {
+        publishDataUpdate(newData, false);
+    }
+
+    private void publishDataUpdate(final M newData, final boolean keyframe) throws CouldNotPerformException, InterruptedException {
+        if (!deltaPublishing) {
+            publisher.publish(Event.newBuilder().setPayload(Any.pack(newData)).build(), true);
+            return;
+        }
+
+        final Map<String, String> userProperties = new HashMap<>();
+        final long sequenceNumber = ++publishSequenceNumber;
+        userProperties.put(USER_PROPERTY_SEQUENCE_NUMBER, Long.toString(sequenceNumber));
+
+        final Message payload;
+        if (keyframe || lastPublishedData == null || sequenceNumber % deltaKeyframeInterval == 0) {
+            payload = newData;
+            keyframeSequenceNumber = sequenceNumber;
+        } else {
+            // the published data is always built from the data builder, so only the fields modified since the last publication have to be considered
+            final List<Descriptors.FieldDescriptor> changedFields = ProtoBufDeltaProcessor.computeDirtyFields(lastPublishedData, newData);
+            payload = ProtoBufDeltaProcessor.extractDelta(newData, changedFields);
+            userProperties.put(USER_PROPERTY_DELTA_FIELD_MASK, ProtoBufDeltaProcessor.generateFieldMask(changedFields));
+        }
+
+        publisher.publish(Event.newBuilder().setPayload(Any.pack(payload)).build(), userProperties, true);
+        lastPublishedData = newData;
+    }
+
+    /**
+     * Publishes the last published data again as full update. Remotes call this method in delta mode after detecting
+     * a lost update, since the following deltas can only be applied on top of a full update.
+     * <p>
+     * Since all remotes receive the full update, only one full update is published per detected gap:
+     * requests are skipped if a full update was already published after the delta revealing the gap,
+     * e.g. when several remotes connected at once request a full update on the same delta.
+     *
+     * @param sequenceNumber the sequence number of the delta which could not be applied by the remote.
+     *
+     * @throws CouldNotPerformException if the publication fails.
+     * @throws InterruptedException     if the thread was externally interrupted.
+     */
+    @RPCMethod(priority = RPCMethod.Priority.HIGH)
+    public void requestDeltaKeyframe(final long sequenceNumber) throws CouldNotPerformException, InterruptedException {
+        manageLock.lockWriteInterruptibly(this);
+        try {
+            // without previous publication the next update is a full update anyway.
+            if (!deltaPublishing || lastPublishedData == null || !isActive()) {
+                return;
+            }
+
+            // the remote receives the full update published after the delta anyway.
+            if (keyframeSequenceNumber > sequenceNumber) {
+                return;
+            }
+            publishDataUpdate(lastPublishedData, true);
+        } finally {
+            manageLock.unlockWrite(this);
+        }
+    }
+
+    /**
+     * Enables or disables the delta mode for publishing data updates.
+     * In delta mode only changed fields are published, which reduces the load for large data types of which only
+     * a few fields change at once. Remotes support both modes and do not need to be configured.
+     *
+     * @param enabled               true to enable the delta mode.
+     * @param deltaKeyframeInterval the number of publications after which the full data is published again.
+     *
+     * @throws InterruptedException is thrown in case the thread was externally interrupted.
+     */
+    protected void setDeltaPublishing(final boolean enabled, final int deltaKeyframeInterval) throws InterruptedException {
+        manageLock.lockWriteInterruptibly(this);
+        try {
+            this.deltaPublishing = enabled;
+            this.deltaKeyframeInterval = Math.max(1, deltaKeyframeInterval);
+            this.lastPublishedData = null;
+        } finally {
+            manageLock.unlockWrite(this);
+        }
+    }
+
+    /**
+     * Enables or disables the coalescing mode for data change notifications.
+     * If enabled, the first notification after an idle period is published directly, further notifications only mark the data as changed
+     * and the latest data is published at most once per {@code notificationInterval}. This reduces the publication load and lock hold time during bulk updates,
+     * e.g. when many small transactions are applied in a row.
+     * <p>
+     * Note: Notifications still pending while the mode is disabled are published immediately.
+     *
+     * @param notificationInterval the minimal interval in milliseconds between two notifications, zero or less disables the coalescing mode.
+     *
+     * @throws CouldNotPerformException is thrown if pending notifications could not be published.
+     * @throws InterruptedException     is thrown in case the thread was externally interrupted.
+     */
+    protected void setNotificationCoalescing(final long notificationInterval) throws CouldNotPerformException, InterruptedException {
+        final RecurrenceEventFilter<Void> previousFilter = notificationFilter;
+
+        if (notificationInterval > 0) {
+            notificationFilter = new RecurrenceEventFilter<Void>(notificationInterval, HashedWheelTimer.getInstance()) {
+                @Override
+                public void relay() throws Exception {
+                    internalNotifyChange();
+                }
+            };
+        } else {
+            notificationFilter = null;
+        }
+
+        // make sure notifications of the previous filter are not lost
+        if (previousFilter != null && previousFilter.isFilterActive()) {
+            previousFilter.cancel();
+            internalNotifyChange();
+        }
+    }
+
+    /**
+     * Enables or disables the transaction id based change detection of the internal data observers.
+     * If enabled, data is only notified to the data observers if its transaction id has changed,
+     * which avoids comparing the whole data on each notification. Otherwise, the timestamp free data content is compared.
+     * <p>
+     * Note: Only enable this mode if each data change of this controller is applied together with a new transaction id, e.g. via {@code updateTransactionId()},
+     * otherwise data changes are not notified to the observers.
+     *
+     * @param enabled true to detect data changes via the transaction id.
+     *
+     * @throws NotAvailableException is thrown if the data type of this controller does not provide a transaction id.
+     */
+    protected void setTransactionIdChangeDetection(final boolean enabled) throws NotAvailableException {
+        if (!enabled) {
+            dataObserver.setChangeDetector(new MessageChangeDetector<>());
+            return;
+        }
+
+        final Descriptors.FieldDescriptor transactionIdField = dataBuilder.getDescriptorForType().findFieldByName(TransactionIdProvider.TRANSACTION_ID_FIELD_NAME);
+        if (transactionIdField == null) {
+            throw new NotAvailableException(TransactionIdProvider.TRANSACTION_ID_FIELD_NAME + " of " + messageClass.getSimpleName());
+        }
+        dataObserver.setChangeDetector(new VersionChangeDetector<M>(data -> (Long) data.getField(transactionIdField)));
+    }
+
+    /**
+     * Returns the number of data change notifications which were actually performed, each of them publishing the data if the controller is active.
+     *
+     * @return the number of performed notifications.
+     */
+    public long getPerformedNotificationCount() {
+        return performedNotificationCounter.get();
+    }
+
+    /**
+     * Returns the number of data change notifications which were merged into other notifications by the coalescing mode.
+     * Notifications still pending are counted as coalesced as well.
+     *
+     * @return the number of coalesced notifications.
+     */
+    public long getCoalescedNotificationCount() {
+        return Math.max(0, requestedNotificationCounter.get() - performedNotificationCounter.get());
+    }
+
+    /**
+     * Returns the number of requested data change notifications, including the coalesced ones.
+     *
+     * @return the number of requested notifications.
+     */
+    public long getRequestedNotificationCount() {
+        return requestedNotificationCounter.get();
+    }
+
+    /**
+     * Returns the number of data updates which were actually published to the remotes.
+     * Notifications performed while the controller is not active or the middleware is not ready are not published.
+     *
+     * @return the number of published notifications.
+     */
+    public long getPublishedNotificationCount() {
+        return publishedNotificationCounter.get();
+    }
+
+    /**
+     * Returns the latencies between requesting a data change notification and performing it.
+     * Coalesced notifications are measured from the oldest request merged into the performed notification.
+     *
+     * @return the histogram of the notification latencies.
+     */
+    public LatencyHistogram getNotificationLatencyHistogram() {
+        return notificationLatencyHistogram;
+    }
+
     /**
      * Called before publishing data via the publisher. Can be implemented by
      * sub classes to update data which can be received by everyone.
@@ -29,6 +29,7 @@ import kotlin.Unit;
 import kotlin.jvm.functions.Function2;
 import org.openbase.jps.core.JPService;
 import org.openbase.jul.communication.config.CommunicatorConfig;
+import org.openbase.jul.communication.data.RPCCall;
 import org.openbase.jul.communication.data.RPCResponse;
 import org.openbase.jul.communication.exception.RPCException;
 import org.openbase.jul.communication.exception.RPCResolvedException;
@@ -44,6 +45,7 @@ import org.openbase.jul.exception.*;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.extension.protobuf.processing.MessageProcessor;
+import org.openbase.jul.extension.protobuf.processing.ProtoBufDeltaProcessor;
 import org.openbase.jul.extension.protobuf.processing.SimpleMessageProcessor;
 import org.openbase.jul.extension.type.iface.TransactionIdProvider;
 import org.openbase.jul.extension.type.processing.ScopeProcessor;
@@ -61,7 +63,9 @@ import org.openbase.type.domotic.state.ConnectionStateType.ConnectionState;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
@@ -123,6 +127,17 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
     private Future<Long> pingTask = null;
     private volatile long transactionId = -1;
 
+    /**
+     * Sequence number of the last data update received in delta mode, guarded by the data update monitor.
+     */
+    private long lastSequenceNumber = -1;
+
+    /**
+     * Flag indicating that an update got lost in delta mode, so deltas are dropped until the next full update is received.
+     * Guarded by the data update monitor.
+     */
+    private boolean deltaResyncPending = false;
+
     private final CommunicatorFactory factory = CommunicatorFactoryImpl.Companion.getInstance();
     private final CommunicatorConfig defaultCommunicatorConfig = DefaultCommunicatorConfig.Companion.getInstance();
 
@@ -273,7 +288,7 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
     private void initSubscriber(final Scope scope, final CommunicatorConfig communicatorConfig) throws CouldNotPerformException {
         try {
             this.subscriber = factory.createSubscriber(ScopeProcessor.concat(scope, AbstractControllerServer.SCOPE_SUFFIX_STATUS), communicatorConfig);
-            this.subscriberWatchDog = new WatchDog(subscriber, "Subscriber[" + ScopeProcessor.generateStringRep(subscriber.getScope()) + "]");
+            this.subscriberWatchDog = new WatchDog(subscriber, "Subscriber[" + ScopeProcessor.generateStringRep(subscriber.getScope()) + "]", HashedWheelTimer.getInstance());
         } catch (CouldNotPerformException ex) {
             throw new CouldNotPerformException("Could not create Subscriber on scope [" + scope + "]!", ex);
         }
@@ -282,7 +297,7 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
     private void initRemoteServer(final Scope scope, final CommunicatorConfig communicatorConfig) throws CouldNotPerformException {
         try {
             this.rpcClient = factory.createRPCClient(ScopeProcessor.concat(scope, AbstractControllerServer.SCOPE_SUFFIX_CONTROL), communicatorConfig);
-            this.rpcClientWatchDog = new WatchDog(rpcClient, "RPCClient[" + ScopeProcessor.generateStringRep(rpcClient.getScope()) + "]");
+            this.rpcClientWatchDog = new WatchDog(rpcClient, "RPCClient[" + ScopeProcessor.generateStringRep(rpcClient.getScope()) + "]", HashedWheelTimer.getInstance());
             this.subscriberWatchDog.addObserver(middlewareReadyObserver);
             this.subscriberWatchDog.addObserver(middlewareFailureObserver);
             this.rpcClientWatchDog.addObserver(middlewareFailureObserver);
@@ -516,11 +531,13 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
             if (subscriberWatchDog != null) {
                 subscriberWatchDog.shutdown();
                 subscriberWatchDog = null;
+                subscriber.shutdown();
                 subscriber = null;
             }
             if (rpcClientWatchDog != null) {
                 rpcClientWatchDog.shutdown();
                 rpcClientWatchDog = null;
+                rpcClient.shutdown();
                 rpcClient = null;
             }
         } catch (CouldNotPerformException ex) {
@@ -980,6 +997,74 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
         });
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @param calls {@inheritDoc}
+     *
+     * @return {@inheritDoc}
+     */
+    @Override
+    public List<Future<RPCResponse<?>>> callMethodsAsync(final List<RPCCall<?>> calls) {
+        final List<CompletableFuture<RPCResponse<?>>> callFutures = new ArrayList<>();
+        for (int i = 0; i < calls.size(); i++) {
+            callFutures.add(new CompletableFuture<>());
+        }
+
+        try {
+            waitForMiddleware(1000, TimeUnit.SECONDS);
+            validateMiddleware();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            callFutures.forEach(future -> future.completeExceptionally(ex));
+            return new ArrayList<>(callFutures);
+        } catch (CouldNotPerformException ex) {
+            callFutures.forEach(future -> future.completeExceptionally(ex));
+            return new ArrayList<>(callFutures);
+        }
+
+        GlobalCachedExecutorService.execute(() -> {
+            final List<Future<RPCResponse<Object>>> internalCallFutures = new ArrayList<>();
+            try {
+                logger.debug("Calling " + calls.size() + " methods async on scope: " + ScopeProcessor.generateStringRep(rpcClient.getScope()));
+
+                if (!isConnected()) {
+                    try {
+                        waitForConnectionState(CONNECTED, CONNECTION_TIMEOUT);
+                    } catch (TimeoutException ex) {
+                        throw new CouldNotPerformException("Cannot not call " + calls.size() + " async methods on [" + this + "] in connectionState[" + connectionState + "]", ex);
+                    }
+                }
+                rpcClientWatchDog.waitForServiceActivation();
+
+                // all calls are answered by the same response so waiting for them one after another does not delay any result
+                internalCallFutures.addAll(rpcClient.callMethods(calls));
+                final long deadline = System.currentTimeMillis() + RPCUtils.RPC_TIMEOUT;
+                for (int i = 0; i < callFutures.size(); i++) {
+                    try {
+                        callFutures.get(i).complete(internalCallFutures.get(i).get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS));
+                    } catch (ExecutionException ex) {
+                        if (ex.getCause() instanceof RPCException) {
+                            callFutures.get(i).completeExceptionally(new RPCResolvedException("Remote call failed!", (RPCException) ex.getCause()));
+                        } else {
+                            callFutures.get(i).completeExceptionally(ex.getCause());
+                        }
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                internalCallFutures.forEach(future -> future.cancel(true));
+                callFutures.forEach(future -> future.completeExceptionally(ex));
+            } catch (CouldNotPerformException | java.util.concurrent.TimeoutException ex) {
+                internalCallFutures.forEach(future -> future.cancel(true));
+                final CouldNotPerformException exception = new CouldNotPerformException("Could not call " + calls.size() + " remote methods on Scope[" + ScopeProcessor.generateStringRep(rpcClient.getScope()) + "].", ex);
+                callFutures.forEach(future -> future.completeExceptionally(exception));
+            }
+        });
+
+        return new ArrayList<>(callFutures);
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -1062,8 +1147,8 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
             if (event.hasPayload()) {
                 try {
                     dataUpdate = event.getPayload().unpack(getDataClass());
-                } catch (InvalidProtocolBufferException e) {
-                    throw new CouldNotPerformException("Event data does not match " + getDataClass().getSimpleName(), e);
+                } catch (InvalidProtocolBufferException ex) {
+                    throw new CouldNotPerformException("Received data of unexpected type!. Expected [" + getDataClass().getSimpleName() + "]", ex);
                 }
             }
 
@@ -1082,19 +1167,13 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
 
                 // reset transaction id because controller will start at 0 again after reconnect.
                 transactionId = 0;
+                lastSequenceNumber = -1;
+                deltaResyncPending = false;
                 setConnectionState(CONNECTING);
 
                 return dataUpdate;
             } else {
-                // received correct data
-                try {
-                    dataUpdate = messageProcessor.process(event.getPayload().unpack(getDataClass()));
-                } catch (CouldNotPerformException ex) {
-                    throw new CouldNotPerformException("Could not process message", ex);
-                } catch (InvalidProtocolBufferException ex) {
-                    throw new CouldNotPerformException("Received data of unexpected type!. Expected [" + getDataClass().getSimpleName() + "]", ex);
-                }
-
+                // skip outdated events before processing them
                 try {
                     if (!validateAndUpdateEventTimestamp(userProperties)) {
                         logger.debug("Skip event on scope[" + getScopeStringRep() + "] because event seems to be outdated!");
@@ -1104,12 +1183,96 @@ public abstract class AbstractRemoteClient<M extends Message> implements RPCRemo
                     ExceptionPrinter.printHistory("Data message does not contain valid creation timestamp on scope " + getScopeStringRep(), ex, logger);
                 }
 
+                // received correct data, the payload was already unpacked above
+                if (userProperties.containsKey(AbstractControllerServer.USER_PROPERTY_SEQUENCE_NUMBER)) {
+                    dataUpdate = applyDeltaUpdate(dataUpdate, userProperties);
+                    if (dataUpdate == null) {
+                        return data;
+                    }
+                }
+
+                // deltas are processed after being merged since they do not contain the full data
+                try {
+                    dataUpdate = messageProcessor.process(dataUpdate);
+                } catch (CouldNotPerformException ex) {
+                    throw new CouldNotPerformException("Could not process message", ex);
+                }
+
                 applyDataUpdate(dataUpdate);
                 return dataUpdate;
             }
         }
     }
 
+    /**
+     * Merge a data update published in delta mode into the current data.
+     * Updates without field mask contain the full data and are returned as they are.
+     * If an update was lost, the delta can not be applied so all deltas are dropped until the next full update arrives,
+     * which is requested from the controller. Since the full update is published on the same scope as the deltas,
+     * deltas already covered by it can not be applied on top of it.
+     *
+     * @param dataUpdate     the received full or partial data.
+     * @param userProperties the user properties containing the sequence number and the field mask.
+     *
+     * @return the merged data or null if the update was skipped.
+     *
+     * @throws CouldNotPerformException if the delta could not be applied.
+     * @throws InterruptedException     if the thread was externally interrupted.
+     */
+    private M applyDeltaUpdate(final M dataUpdate, final Map<String, String> userProperties) throws CouldNotPerformException, InterruptedException {
+        final long sequenceNumber;
+        try {
+            sequenceNumber = Long.parseLong(userProperties.get(AbstractControllerServer.USER_PROPERTY_SEQUENCE_NUMBER));
+        } catch (NumberFormatException ex) {
+            throw new CouldNotPerformException("Sequence number of event on scope " + getScopeStringRep() + " is not a number!", ex);
+        }
+
+        final String fieldMask = userProperties.get(AbstractControllerServer.USER_PROPERTY_DELTA_FIELD_MASK);
+
+        // full data update, following deltas are applied on top of it
+        if (fieldMask == null) {
+            lastSequenceNumber = sequenceNumber;
+            deltaResyncPending = false;
+            return dataUpdate;
+        }
+
+        // skip deltas which are already covered by the current data
+        if (sequenceNumber <= lastSequenceNumber) {
+            logger.debug("Skip outdated delta " + sequenceNumber + " on scope[" + getScopeStringRep() + "]");
+            return null;
+        }
+
+        // deltas received before the requested full update can not be applied
+        if (deltaResyncPending) {
+            return null;
+        }
+
+        // updates got lost so request a full update, following deltas can be applied on top of it
+        if (data == null || sequenceNumber != lastSequenceNumber + 1) {
+            logger.debug("Sequence gap detected on scope[" + getScopeStringRep() + "], expected " + (lastSequenceNumber + 1) + " but received " + sequenceNumber + ". Request full update...");
+            deltaResyncPending = true;
+            requestDeltaKeyframe(sequenceNumber);
+            return null;
+        }
+
+        lastSequenceNumber = sequenceNumber;
+        return ProtoBufDeltaProcessor.applyDelta(data.toBuilder(), dataUpdate, fieldMask).build();
+    }
+
+    /**
+     * Requests the controller to publish a full update. The call is not awaited, if it fails the next regular full update
+     * published after each {@code deltaKeyframeInterval} resolves the pending resync.
+     *
+     * @param sequenceNumber the sequence number of the delta which could not be applied.
+     */
+    private void requestDeltaKeyframe(final long sequenceNumber) {
+        try {
+            rpcClient.callMethod(AbstractControllerServer.RPC_REQUEST_DELTA_KEYFRAME, Void.class, sequenceNumber);
+        } catch (RuntimeException ex) {
+            ExceptionPrinter.printHistory("Could not request full update on scope " + getScopeStringRep(), ex, logger, LogLevel.DEBUG);
+        }
+    }
+
     public boolean validateAndUpdateEventTimestamp(final Map<String, String> userProperties) throws CouldNotPerformException {
         if (!userProperties.containsKey(CommunicatorImpl.TIMESTAMP_KEY_MS) || !userProperties.containsKey(CommunicatorImpl.TIMESTAMP_KEY_NANO)) {
             throw new NotAvailableException("Timestamp in MQTT user properties!");
@@ -23,15 +23,21 @@ package org.openbase.jul.communication.controller;
  */
 
 import com.google.protobuf.Message;
+import kotlin.jvm.JvmClassMappingKt;
 import org.openbase.jul.communication.config.CommunicatorConfig;
+import org.openbase.jul.communication.data.RPCCall;
 import org.openbase.jul.communication.data.RPCResponse;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.InitializationException;
 import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.NotSupportedException;
 import org.openbase.jul.exception.TimeoutException;
 import org.openbase.jul.pattern.controller.Remote;
+import org.openbase.jul.schedule.FutureProcessor;
 import org.openbase.type.communication.ScopeType;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -215,4 +221,33 @@ public interface RPCRemote<M extends Message> extends Remote<M> {
      * @return a future instance which gives feedback about the asynchronously method call and when the result is available.
      */
     <R, T extends Object> Future<RPCResponse<R>> callMethodAsync(final String methodName, final Class<R> returnClazz, final T argument);
+
+    /**
+     * Method asynchronously calls all given methods on the main controller by transferring them within a single request.
+     * This saves round trips e.g. if many entries need to be requested at once.
+     * Each call is answered individually, so the failure of one call does not affect the others.
+     * <p>
+     * Note: the default implementation performs each call separately via {@code callMethodAsync}, which only supports calls with at most one argument.
+     *
+     * @param calls the method calls to perform.
+     *
+     * @return a future for each call in the order of the given calls which gives feedback about the call and when its result is available.
+     */
+    default List<Future<RPCResponse<?>>> callMethodsAsync(final List<RPCCall<?>> calls) {
+        final List<Future<RPCResponse<?>>> callFutures = new ArrayList<>(calls.size());
+        for (final RPCCall<?> call : calls) {
+            final Class<?> returnClazz = JvmClassMappingKt.getJavaClass(call.getReturnClazz());
+            switch (call.getParameters().size()) {
+                case 0:
+                    callFutures.add((Future) callMethodAsync(call.getMethodName(), returnClazz));
+                    break;
+                case 1:
+                    callFutures.add((Future) callMethodAsync(call.getMethodName(), returnClazz, call.getParameters().get(0)));
+                    break;
+                default:
+                    callFutures.add(FutureProcessor.canceledFuture(new NotSupportedException(call.getParameters().size() + " arguments", this, "Method[" + call.getMethodName() + "] can only be called with at most one argument!")));
+            }
+        }
+        return callFutures;
+    }
 }
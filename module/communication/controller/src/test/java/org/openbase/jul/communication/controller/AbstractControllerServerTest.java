@@ -435,6 +435,101 @@ public class AbstractControllerServerTest extends MqttIntegrationTest {
         }
     }
 
+    /**
+     * Test if data updates published in delta mode are merged correctly by the remote.
+     *
+     * @throws Exception if any error occurs
+     */
+    @Timeout(10)
+    @Test
+    public void testDeltaNotification() throws Exception {
+        final String scope = "/test/delta";
+
+        communicationService = new AbstractControllerServerImpl(UnitRegistryData.newBuilder().addLocationUnitConfig(UnitConfig.newBuilder().setId("Location0")));
+        communicationService.setDeltaPublishing(true, 3);
+        communicationService.init(scope);
+        communicationService.activate();
+
+        AbstractRemoteClient<UnitRegistryData> remoteService = new AbstractRemoteClientImpl();
+        remoteService.init(scope);
+        remoteService.activate();
+        remoteService.requestData().get();
+
+        // publish enough updates to cover deltas and keyframes
+        for (int i = 1; i <= 7; i++) {
+            try (ClosableDataBuilder<UnitRegistryData.Builder> dataBuilder = communicationService.getDataBuilderInterruptible(this)) {
+                dataBuilder.getInternalBuilder().addLocationUnitConfig(UnitConfig.newBuilder().setId("Location" + i));
+            }
+        }
+
+        // clear a field to validate that removals are transferred as well
+        try (ClosableDataBuilder<UnitRegistryData.Builder> dataBuilder = communicationService.getDataBuilderInterruptible(this)) {
+            dataBuilder.getInternalBuilder().clearLocationUnitConfig().addAgentUnitConfig(UnitConfig.newBuilder().setId("Agent"));
+        }
+
+        final UnitRegistryData expectedData = communicationService.getData();
+        while (!remoteService.getData().equals(expectedData)) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(0, remoteService.getData().getLocationUnitConfigCount());
+        assertEquals("Agent", remoteService.getData().getAgentUnitConfig(0).getId());
+
+        remoteService.shutdown();
+        communicationService.shutdown();
+    }
+
+    /**
+     * Test if bursty data updates are coalesced while the latest data still reaches the remote.
+     *
+     * @throws Exception if any error occurs
+     */
+    @Timeout(10)
+    @Test
+    public void testCoalescingNotification() throws Exception {
+        final String scope = "/test/coalescing";
+        final int updates = 50;
+
+        communicationService = new AbstractControllerServerImpl(UnitRegistryData.newBuilder());
+        communicationService.setNotificationCoalescing(1000);
+        communicationService.init(scope);
+        communicationService.activate();
+
+        AbstractRemoteClient<UnitRegistryData> remoteService = new AbstractRemoteClientImpl();
+        remoteService.init(scope);
+        remoteService.activate();
+        remoteService.requestData().get();
+
+        // wait until the filter is idle
+        Thread.sleep(100);
+
+        for (int i = 0; i < updates; i++) {
+            final long performedNotifications = communicationService.getPerformedNotificationCount();
+            try (ClosableDataBuilder<UnitRegistryData.Builder> dataBuilder = communicationService.getDataBuilderInterruptible(this)) {
+                dataBuilder.getInternalBuilder().addLocationUnitConfig(UnitConfig.newBuilder().setId("Location" + i));
+            }
+
+            // the first notification after an idle period is published directly
+            if (i == 0) {
+                assertEquals(performedNotifications + 1, communicationService.getPerformedNotificationCount(), "Leading notification was delayed!");
+            }
+        }
+
+        // the last update is always published
+        final UnitRegistryData expectedData = communicationService.getData();
+        while (!remoteService.getData().equals(expectedData)) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(updates, remoteService.getData().getLocationUnitConfigCount());
+        assertTrue(communicationService.getCoalescedNotificationCount() > 0, "No notification was coalesced!");
+        assertTrue(communicationService.getPublishedNotificationCount() < communicationService.getRequestedNotificationCount(), "Each notification was published!");
+        assertTrue(communicationService.getNotificationLatencyHistogram().getCount() > 0, "No notification latency recorded!");
+
+        remoteService.shutdown();
+        communicationService.shutdown();
+    }
+
     public static class AbstractControllerServerImpl extends AbstractControllerServer<UnitRegistryData, UnitRegistryData.Builder> {
 
         public AbstractControllerServerImpl(UnitRegistryData.Builder builder) throws InstantiationException {
@@ -20,7 +20,34 @@ package org.openbase.jul.communication.config
  * <http://www.gnu.org/licenses/lgpl-3.0.html>.
  * #L%
  */
+/**
+ * Configuration shared by all communicators connecting to the same broker.
+ *
+ * @param hostname the host of the broker.
+ * @param port the port of the broker.
+ * @param rpcResponseMultiplexing if enabled, an rpc client subscribes once to a reply topic during its activation
+ * and receives all responses on this topic instead of subscribing to a dedicated topic per request.
+ * Note: the rpc server needs to support the response topic of the request to make use of this mode.
+ * @param deliveryGuarantee the guarantee used by publishers and subscribers to deliver events.
+ * Rpc communication is not affected by this setting and is always delivered exactly once.
+ * @param rpcConcurrency the maximal number of requests an rpc server executes in parallel per priority.
+ * @param rpcQueueCapacity the maximal number of requests an rpc server queues per priority.
+ * Further requests are rejected with an error response until the queue has been processed.
+ * @param connectionPoolSize the number of connections opened to the broker. Communicators are assigned to a
+ * connection by the hash of their parent scope, so the load is spread while the order of messages of the
+ * communicators of a controller is preserved. Communicators with different pool sizes use separate pools.
+ */
 data class CommunicatorConfig(
     var hostname: String,
     var port: Int,
-)
+    var rpcResponseMultiplexing: Boolean = false,
+    var deliveryGuarantee: DeliveryGuarantee = DeliveryGuarantee.EXACTLY_ONCE,
+    var rpcConcurrency: Int = DEFAULT_RPC_CONCURRENCY,
+    var rpcQueueCapacity: Int = DEFAULT_RPC_QUEUE_CAPACITY,
+    var connectionPoolSize: Int = 1,
+) {
+    companion object {
+        const val DEFAULT_RPC_CONCURRENCY = 16
+        const val DEFAULT_RPC_QUEUE_CAPACITY = 512
+    }
+}
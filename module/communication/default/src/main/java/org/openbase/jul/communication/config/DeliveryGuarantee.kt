@@ -0,0 +1,44 @@
+package org.openbase.jul.communication.config
+/*-
+ * #%L
+ * JUL Communication Default
+ * %%
+ * Copyright (C) 2015 - 2021 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * Defines how reliable messages of a communicator are delivered.
+ * Higher guarantees require additional handshakes with the broker for each message.
+ */
+enum class DeliveryGuarantee {
+    /**
+     * Fire and forget: messages are sent without any acknowledgement and can be lost.
+     * This is sufficient for high rate status streams where only the latest value matters.
+     */
+    AT_MOST_ONCE,
+
+    /**
+     * Messages are acknowledged and resent if required, so they can be received more than once.
+     */
+    AT_LEAST_ONCE,
+
+    /**
+     * Messages are received exactly once which requires a four step handshake per message.
+     */
+    EXACTLY_ONCE,
+}
@@ -0,0 +1,22 @@
+package org.openbase.jul.communication.data
+
+import kotlin.reflect.KClass
+
+/**
+ * Description of a single method call which is part of a batch call.
+ *
+ * @param methodName the name of the method to call.
+ * @param returnClazz the class of the value returned by the method.
+ * @param parameters the parameters passed to the method.
+ */
+data class RPCCall<RETURN : Any>(
+    val methodName: String,
+    val returnClazz: KClass<RETURN>,
+    val parameters: List<Any> = emptyList(),
+) {
+    constructor(
+        methodName: String,
+        returnClazz: Class<RETURN>,
+        vararg parameters: Any,
+    ) : this(methodName, returnClazz.kotlin, parameters.toList())
+}
@@ -7,6 +7,7 @@ import org.openbase.jul.communication.config.CommunicatorConfig
 import org.openbase.jul.communication.iface.RPCClient
 import org.openbase.jul.exception.NotAvailableException
 import org.openbase.jul.iface.Activatable
+import org.openbase.jul.iface.Shutdownable
 import org.openbase.type.communication.ScopeType.Scope
 import java.util.*
 
@@ -31,10 +32,12 @@ import java.util.*
  * <http://www.gnu.org/licenses/lgpl-3.0.html>.
  * #L%
  */ /**
+ * Note: a communicator shares its connection with other communicators,
+ * so it should be shut down if it is not used anymore in order to release the connection.
  *
  * @author [Divine Threepwood](mailto:divine@openbase.org)
  */
-interface Communicator : Activatable {
+interface Communicator : Activatable, Shutdownable {
     val id: UUID
 
     val scope: Scope
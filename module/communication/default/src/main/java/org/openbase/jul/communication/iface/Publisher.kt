@@ -6,6 +6,7 @@ import org.openbase.jul.communication.iface.Communicator
 import java.lang.InterruptedException
 import org.openbase.jul.communication.iface.RPCCommunicator
 import org.openbase.jul.communication.config.CommunicatorConfig
+import org.openbase.jul.communication.config.DeliveryGuarantee
 import org.openbase.jul.communication.iface.RPCClient
 import org.openbase.jul.exception.CouldNotPerformException
 import org.openbase.type.communication.EventType.Event
@@ -36,6 +37,13 @@ import org.openbase.type.communication.ScopeType.Scope
  * @author [Divine Threepwood](mailto:divine@openbase.org)
  */
 interface Publisher : Communicator {
+
+    /**
+     * The guarantee used to deliver published events, as defined by the communicator config.
+     */
+    val deliveryGuarantee: DeliveryGuarantee
+        get() = config.deliveryGuarantee
+
     /**
      * Send an [Event] to all subscriber.
      *
@@ -47,6 +55,21 @@ interface Publisher : Communicator {
     @Throws(CouldNotPerformException::class, InterruptedException::class)
     fun publish(event: Event, attachTimestamp: Boolean = true): Event
 
+    /**
+     * Send an [Event] with additional user properties to all subscriber.
+     * The user properties are passed to the handlers of the subscriber together with the event.
+     *
+     * Note: publishers not supporting user properties send the event without them.
+     *
+     * @param event the event to send.
+     * @param userProperties additional properties to transmit with the event.
+     * @return modified event with set timing information.
+     * @throws CouldNotPerformException is thrown in case the message could not be sent.
+     * @throws InterruptedException thrown in case the current thread was internally interrupted.
+     */
+    @Throws(CouldNotPerformException::class, InterruptedException::class)
+    fun publish(event: Event, userProperties: Map<String, String>, attachTimestamp: Boolean = true): Event = publish(event, attachTimestamp)
+
     /**
      * Send data (of type T) to all subscriber.
      *
@@ -1,5 +1,6 @@
 package org.openbase.jul.communication.iface
 
+import org.openbase.jul.communication.data.RPCCall
 import org.openbase.jul.communication.data.RPCResponse
 import org.openbase.jul.exception.CouldNotPerformException
 import org.openbase.jul.exception.InvalidStateException
@@ -52,4 +53,19 @@ interface RPCClient : RPCCommunicator {
             parameters = parameters
         )
     }
+
+    /**
+     * Call multiple methods at once. Implementations supporting batch calls transfer all calls within a single
+     * request and receive all results within a single response, which saves round trips if many methods are called.
+     * Each call is still answered individually, so the failure of one call does not affect the others.
+     *
+     * Note: the default implementation calls each method separately.
+     *
+     * @param calls the methods to call.
+     *
+     * @return a future for each call in the order of the given calls.
+     */
+    fun callMethods(calls: List<RPCCall<*>>): List<Future<RPCResponse<Any>>> = calls.map { call ->
+        callMethod(call.methodName, call.returnClazz as KClass<Any>, *call.parameters.toTypedArray())
+    }
 }
@@ -33,6 +33,21 @@ import kotlin.reflect.full.memberFunctions
  */
 interface RPCServer : RPCCommunicator {
 
+    companion object {
+        /**
+         * Name of the pseudo method used to transfer batch calls. The only parameter of a batch request is a batch
+         * request message containing the requests of the single calls, and the result of the batch response is a
+         * batch response message containing their responses.
+         */
+        const val BATCH_METHOD_NAME = "__batch__"
+
+        /**
+         * User property attached to all responses of servers supporting batch requests.
+         * Clients only send batch requests to servers which announced their support, since other servers reject them.
+         */
+        const val BATCH_SUPPORT_PROPERTY = "batch-support"
+    }
+
     fun registerMethod(method: KFunction<*>, instance: Any, priority: RPCMethod.Priority = RPCMethod.Priority.NORMAL)
 
     @Throws(CouldNotPerformException::class)
@@ -4,6 +4,7 @@ import org.openbase.jul.communication.iface.Communicator
 import java.lang.InterruptedException
 import org.openbase.jul.communication.iface.RPCCommunicator
 import org.openbase.jul.communication.config.CommunicatorConfig
+import org.openbase.jul.communication.config.DeliveryGuarantee
 import org.openbase.jul.communication.iface.RPCClient
 import org.openbase.type.communication.EventType.Event
 import java.util.*
@@ -33,6 +34,14 @@ import java.util.*
  * @author [Divine Threepwood](mailto:divine@openbase.org)
  */
 interface Subscriber : Communicator {
+
+    /**
+     * The guarantee requested to receive events, as defined by the communicator config.
+     * Note: events are delivered with the lower guarantee of the publisher and the subscriber.
+     */
+    val deliveryGuarantee: DeliveryGuarantee
+        get() = config.deliveryGuarantee
+
     fun registerDataHandler(callback: (Event) -> Any): UUID
     fun registerDataHandler(callback: (Event, Map<String, String>) -> Any): UUID
     fun removeDataHandler(handlerId: UUID)
@@ -0,0 +1,88 @@
+package org.openbase.jul.communication.mqtt
+
+import org.openbase.jul.exception.CouldNotPerformException
+import org.openbase.type.communication.mqtt.PrimitiveType.Primitive
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType
+import org.openjdk.jmh.annotations.Benchmark
+import org.openjdk.jmh.annotations.BenchmarkMode
+import org.openjdk.jmh.annotations.Fork
+import org.openjdk.jmh.annotations.Measurement
+import org.openjdk.jmh.annotations.Mode
+import org.openjdk.jmh.annotations.OutputTimeUnit
+import org.openjdk.jmh.annotations.Scope
+import org.openjdk.jmh.annotations.Setup
+import org.openjdk.jmh.annotations.State
+import org.openjdk.jmh.annotations.Warmup
+import java.util.concurrent.TimeUnit
+import kotlin.reflect.KClass
+import kotlin.reflect.KFunction
+import kotlin.reflect.full.staticFunctions
+import com.google.protobuf.Any as protoAny
+
+/**
+ * Compares the dispatch of a small rpc method via kotlin reflection, as performed before the invokers were
+ * precompiled, with the method handle based dispatch of the [RPCMethodWrapper].
+ *
+ * Run via `./gradlew :jul.communication.mqtt:jmh`, adding `-prof gc` to the jmh arguments reveals the allocation rate per call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+open class RPCMethodDispatchBenchmark {
+
+    class Service {
+        fun update(value: Double, unitType: UnitType): Double = value + unitType.number
+    }
+
+    private val service = Service()
+    private val function: KFunction<*> = Service::update
+
+    private lateinit var wrapper: RPCMethodWrapper
+    private lateinit var args: List<protoAny>
+
+    private lateinit var legacyParameterParsers: List<(protoAny) -> Any>
+    private lateinit var legacyResultParser: (Any) -> protoAny
+
+    @Setup
+    fun setup() {
+        wrapper = RPCMethodWrapper(function, instance = service)
+        args = listOf(
+            protoAny.pack(Primitive.newBuilder().setDouble(21.5).build()),
+            RPCMethodWrapper.anyToProtoAny(UnitType::class)(UnitType.DEVICE)
+        )
+
+        legacyParameterParsers = listOf(
+            RPCMethodWrapper.protoAnyToAny(Double::class),
+            legacyEnumParser(UnitType::class)
+        )
+        legacyResultParser = RPCMethodWrapper.anyToProtoAny(Double::class)
+    }
+
+    /**
+     * The enum conversion used before, which called the forNumber function via kotlin reflection.
+     */
+    private fun legacyEnumParser(clazz: KClass<*>): (protoAny) -> Any {
+        val forNumberFunction = clazz.staticFunctions.first { function -> function.name == "forNumber" }
+        return { msg ->
+            val unpacked: Primitive = msg.unpack(Primitive::class.java)
+            forNumberFunction.call(unpacked.int)
+                ?: throw CouldNotPerformException("${unpacked.int} is an invalid number for enum ${clazz.simpleName}")
+        }
+    }
+
+    @Benchmark
+    fun reflectionDispatch(): protoAny {
+        var parameters = args
+            .zip(legacyParameterParsers)
+            .map { (parameter, parameterParser) -> parameterParser(parameter) }
+            .toTypedArray()
+        parameters = arrayOf(service, *parameters)
+        return legacyResultParser(function.call(*parameters)!!)
+    }
+
+    @Benchmark
+    fun methodHandleDispatch(): protoAny = wrapper.invoke(args)
+}
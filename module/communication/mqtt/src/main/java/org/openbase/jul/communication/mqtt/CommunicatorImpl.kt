@@ -1,11 +1,15 @@
 package org.openbase.jul.communication.mqtt
 
+import com.hivemq.client.mqtt.datatypes.MqttQos
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties
 import org.openbase.jul.communication.config.CommunicatorConfig
+import org.openbase.jul.communication.config.DeliveryGuarantee
 import org.openbase.jul.communication.iface.Communicator
 import org.openbase.jul.extension.type.processing.ScopeProcessor
 import org.openbase.type.communication.ScopeType.Scope
 import java.util.*
+import java.util.concurrent.atomic.AtomicBoolean
 
 abstract class CommunicatorImpl(
     final override val scope: Scope,
@@ -20,10 +24,65 @@ abstract class CommunicatorImpl(
     }
 
     final override val id: UUID = UUID.randomUUID()
-    val mqttClient: Mqtt5AsyncClient = SharedMqttClient.get(config)
     open val topic: String = ScopeProcessor.generateStringRep(scope)
 
+    private val leased = AtomicBoolean(false)
+
+    /**
+     * The shared connection is leased on first access. It is selected by the parent scope,
+     * so all communicators of a controller share the same connection.
+     */
+    val mqttClient: Mqtt5AsyncClient by lazy {
+        SharedMqttClient.get(config, SharedMqttClient.resolveShardKey(scope)).also { leased.set(true) }
+    }
+
+    /**
+     * Release the shared connection of this communicator.
+     * Note: the communicator should be deactivated before and not be used afterwards.
+     */
+    override fun shutdown() {
+        if (leased.compareAndSet(true, false)) {
+            SharedMqttClient.release(config)
+        }
+    }
+
+    /**
+     * Release the shared connection of this communicator and wait until it is closed, if this was its last lease.
+     * Connections still used by other communicators stay open.
+     */
     override fun waitForShutdown() {
-        SharedMqttClient.waitForShutdown()
+        SharedMqttClient.waitForRelease(config, leased.compareAndSet(true, false))
     }
 }
+
+fun DeliveryGuarantee.toMqttQos(): MqttQos = when (this) {
+    DeliveryGuarantee.AT_MOST_ONCE -> MqttQos.AT_MOST_ONCE
+    DeliveryGuarantee.AT_LEAST_ONCE -> MqttQos.AT_LEAST_ONCE
+    DeliveryGuarantee.EXACTLY_ONCE -> MqttQos.EXACTLY_ONCE
+}
+
+/**
+ * Returns a map view of the user properties which is only built when it is accessed for the first time.
+ * This way one instance can be shared by all handlers of a message while handlers ignoring the user
+ * properties do not cause any conversion.
+ */
+fun Mqtt5UserProperties.toLazyMap(): Map<String, String> = LazyUserPropertyMap(this)
+
+private class LazyUserPropertyMap(userProperties: Mqtt5UserProperties) : AbstractMap<String, String>() {
+
+    private val properties: Map<String, String> by lazy(LazyThreadSafetyMode.PUBLICATION) {
+        userProperties.asList().associate { it.name.toString() to it.value.toString() }
+    }
+
+    override val entries: Set<Map.Entry<String, String>>
+        get() = properties.entries
+
+    override val size: Int
+        get() = properties.size
+
+    override fun isEmpty(): Boolean = properties.isEmpty()
+
+    override fun containsKey(key: String): Boolean = properties.containsKey(key)
+
+    override fun get(key: String): String? = properties[key]
+}
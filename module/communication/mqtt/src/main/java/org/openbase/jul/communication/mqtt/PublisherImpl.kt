@@ -1,6 +1,5 @@
 package org.openbase.jul.communication.mqtt
 
-import com.hivemq.client.mqtt.datatypes.MqttQos
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish
 import org.openbase.jul.communication.config.CommunicatorConfig
 import org.openbase.jul.communication.iface.Publisher
@@ -17,7 +16,7 @@ class PublisherImpl(scope: ScopeType.Scope, config: CommunicatorConfig) : Commun
         mqttClient.publish(
             Mqtt5Publish.builder()
                 .topic(topic)
-                .qos(MqttQos.EXACTLY_ONCE)
+                .qos(deliveryGuarantee.toMqttQos())
                 .payload(event.toByteArray())
                 .attachTimestamp(attachTimestamp)
                 .build()
@@ -25,11 +24,27 @@ class PublisherImpl(scope: ScopeType.Scope, config: CommunicatorConfig) : Commun
         return event
     }
 
+    override fun publish(
+        event: EventType.Event,
+        userProperties: Map<String, String>,
+        attachTimestamp: Boolean,
+    ): EventType.Event {
+        mqttClient.publish(
+            Mqtt5Publish.builder()
+                .topic(topic)
+                .qos(deliveryGuarantee.toMqttQos())
+                .payload(event.toByteArray())
+                .attachUserProperties(userProperties, attachTimestamp)
+                .build()
+        )
+        return event
+    }
+
     override fun publish(event: EventType.Event, scope: Scope, attachTimestamp: Boolean): EventType.Event {
         mqttClient.publish(
             Mqtt5Publish.builder()
                 .topic(ScopeProcessor.generateStringRep(scope))
-                .qos(MqttQos.EXACTLY_ONCE)
+                .qos(deliveryGuarantee.toMqttQos())
                 .payload(event.toByteArray())
                 .attachTimestamp(attachTimestamp)
                 .build()
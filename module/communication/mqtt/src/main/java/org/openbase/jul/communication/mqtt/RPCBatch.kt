@@ -0,0 +1,80 @@
+package org.openbase.jul.communication.mqtt
+
+import com.google.protobuf.ByteString
+import com.google.protobuf.CodedOutputStream
+import com.google.protobuf.InvalidProtocolBufferException
+import com.google.protobuf.Message
+import com.google.protobuf.WireFormat
+import org.openbase.type.communication.mqtt.RequestType.Request
+import org.openbase.type.communication.mqtt.ResponseType.Response
+import com.google.protobuf.Any as protoAny
+
+/**
+ * Message transferred as the only parameter of a [org.openbase.jul.communication.iface.RPCServer.BATCH_METHOD_NAME]
+ * request, which contains the requests of all calls of the batch.
+ *
+ * The message is encoded wire compatible to `message BatchRequest { repeated Request requests = 1; }`.
+ */
+class RPCBatchRequest(val requests: List<Request>) {
+
+    fun toProtoAny(): protoAny = encodeBatch(TYPE_URL, requests)
+
+    companion object {
+        const val TYPE_URL = "type.googleapis.com/org.openbase.jul.communication.mqtt.BatchRequest"
+
+        @Throws(InvalidProtocolBufferException::class)
+        fun parseFrom(any: protoAny): RPCBatchRequest = RPCBatchRequest(decodeBatch(any, TYPE_URL) { Request.parseFrom(it) })
+    }
+}
+
+/**
+ * Message transferred as the result of the response of a batch request, which contains the responses of all calls
+ * of the batch in the order of their requests.
+ *
+ * The message is encoded wire compatible to `message BatchResponse { repeated Response responses = 1; }`.
+ */
+class RPCBatchResponse(val responses: List<Response>) {
+
+    fun toProtoAny(): protoAny = encodeBatch(TYPE_URL, responses)
+
+    companion object {
+        const val TYPE_URL = "type.googleapis.com/org.openbase.jul.communication.mqtt.BatchResponse"
+
+        @Throws(InvalidProtocolBufferException::class)
+        fun parseFrom(any: protoAny): RPCBatchResponse = RPCBatchResponse(decodeBatch(any, TYPE_URL) { Response.parseFrom(it) })
+    }
+}
+
+private const val ENTRIES_FIELD_NUMBER = 1
+
+private fun encodeBatch(typeUrl: String, entries: List<Message>): protoAny {
+    val output = ByteString.newOutput()
+    val codedOutput = CodedOutputStream.newInstance(output)
+    entries.forEach { codedOutput.writeMessage(ENTRIES_FIELD_NUMBER, it) }
+    codedOutput.flush()
+
+    return protoAny.newBuilder()
+        .setTypeUrl(typeUrl)
+        .setValue(output.toByteString())
+        .build()
+}
+
+private fun <T> decodeBatch(any: protoAny, typeUrl: String, parser: (ByteString) -> T): List<T> {
+    if (any.typeUrl != typeUrl) {
+        throw InvalidProtocolBufferException("Expected message of type $typeUrl but got ${any.typeUrl}!")
+    }
+
+    val entries = ArrayList<T>()
+    val input = any.value.newCodedInput()
+    while (true) {
+        val tag = input.readTag()
+        when {
+            tag == 0 -> return entries
+            WireFormat.getTagFieldNumber(tag) == ENTRIES_FIELD_NUMBER
+                    && WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED ->
+                entries.add(parser(input.readBytes()))
+
+            else -> input.skipField(tag)
+        }
+    }
+}
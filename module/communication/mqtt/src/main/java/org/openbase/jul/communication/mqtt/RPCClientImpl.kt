@@ -1,21 +1,30 @@
 package org.openbase.jul.communication.mqtt
 
+import com.hivemq.client.internal.util.AsyncRuntimeException
 import com.hivemq.client.mqtt.datatypes.MqttQos
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish
 import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe
 import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5Unsubscribe
 import org.openbase.jul.communication.config.CommunicatorConfig
+import org.openbase.jul.communication.data.RPCCall
 import org.openbase.jul.communication.data.RPCResponse
 import org.openbase.jul.communication.exception.RPCException
 import org.openbase.jul.communication.exception.RPCResolvedException
 import org.openbase.jul.communication.iface.RPCClient
+import org.openbase.jul.communication.iface.RPCServer
+import org.openbase.jul.exception.CouldNotPerformException
+import org.openbase.jul.exception.InvalidStateException
 import org.openbase.jul.schedule.GlobalCachedExecutorService
+import org.openbase.jul.schedule.SyncObject
 import org.openbase.type.communication.ScopeType
 import org.openbase.type.communication.mqtt.RequestType.Request
 import org.openbase.type.communication.mqtt.ResponseType.Response
 import java.util.*
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
 import kotlin.Any
 import kotlin.reflect.KClass
 import com.google.protobuf.Any as protoAny
@@ -26,9 +35,34 @@ class RPCClientImpl(
 ) : RPCCommunicatorImpl(scope, config), RPCClient {
 
     private val parameterParserMap: HashMap<String, List<(Any) -> protoAny>> = HashMap()
-    private val resultParserMap: HashMap<String, (protoAny) -> Any> = HashMap()
+    private val resultParserMap: HashMap<String, (protoAny) -> Any> = hashMapOf(
+        RPCServer.BATCH_METHOD_NAME to { result: protoAny -> RPCBatchResponse.parseFrom(result) }
+    )
+    @Volatile
     private var active = false
 
+    private val lock = SyncObject("Activation Lock")
+
+    private var activationFuture: Future<out Any>? = null
+
+    /**
+     * Topic on which all responses of this client are received if response multiplexing is enabled.
+     * Each request is answered on a sub topic named by the request id.
+     */
+    val replyTopic: String = "$topic/reply/$id"
+
+    /**
+     * Map request ids to calls waiting for their response.
+     * This map is only used if response multiplexing is enabled.
+     */
+    private val pendingRequestMap: MutableMap<String, PendingRequest> = ConcurrentHashMap()
+
+    /**
+     * Flag is set once the server announced its support of batch requests via [RPCServer.BATCH_SUPPORT_PROPERTY].
+     */
+    @Volatile
+    private var batchSupported = false
+
     override fun <RETURN : Any> callMethod(
         methodName: String,
         return_clazz: KClass<RETURN>,
@@ -38,6 +72,67 @@ class RPCClientImpl(
 
         val request = generateRequest(methodName, *parameters)
         val rpcFuture: CompletableFuture<RPCResponse<RETURN>> = CompletableFuture();
+        sendRequest(request, rpcFuture)
+        return rpcFuture
+    }
+
+    /**
+     * Transfer all calls within a single batch request. The returned futures are completed
+     * as soon as the batch response containing the responses of all calls is received.
+     * As long as the server has not announced its support of batch requests, the calls are transferred individually.
+     */
+    override fun callMethods(calls: List<RPCCall<*>>): List<Future<RPCResponse<Any>>> {
+        val requests = calls.map { call ->
+            lazyRegisterMethod(call.methodName, call.returnClazz, *call.parameters.toTypedArray())
+            generateRequest(call.methodName, *call.parameters.toTypedArray())
+        }
+        val rpcFutures = requests.map { CompletableFuture<RPCResponse<Any>>() }
+
+        if (!batchSupported) {
+            requests.forEachIndexed { index, request -> sendRequest(request, rpcFutures[index]) }
+            return rpcFutures
+        }
+
+        val batchRequest = Request.newBuilder()
+            .setId(generateRequestId())
+            .setMethodName(RPCServer.BATCH_METHOD_NAME)
+            .addParams(RPCBatchRequest(requests).toProtoAny())
+            .build()
+        val batchFuture: CompletableFuture<RPCResponse<RPCBatchResponse>> = CompletableFuture()
+
+        batchFuture.whenComplete { batchResponse, throwable ->
+            if (throwable != null) {
+                rpcFutures.forEach { it.completeExceptionally(throwable) }
+                return@whenComplete
+            }
+
+            val responses = batchResponse.response.responses
+            requests.forEachIndexed { index, request ->
+                try {
+                    if (index >= responses.size) {
+                        throw CouldNotPerformException("Batch response does not contain a response for Method[${request.methodName}]!")
+                    }
+                    completeRPCFuture(
+                        batchResponse.properties,
+                        responses[index],
+                        rpcFutures[index],
+                        request
+                    )
+                } catch (ex: Exception) {
+                    rpcFutures[index].completeExceptionally(ex)
+                }
+            }
+        }
+
+        sendRequest(batchRequest, batchFuture)
+        return rpcFutures
+    }
+
+    private fun <RETURN> sendRequest(request: Request, rpcFuture: CompletableFuture<RPCResponse<RETURN>>) {
+        if (config.rpcResponseMultiplexing) {
+            callMethodMultiplexed(request, rpcFuture)
+            return
+        }
 
         mqttClient.subscribe(
             Mqtt5Subscribe.builder()
@@ -60,16 +155,106 @@ class RPCClientImpl(
                 )
             }
         }
+    }
 
-        return rpcFuture
+    /**
+     * Publish the request with a response topic below the [replyTopic] this client is already subscribed to,
+     * so that no subscription is required per call.
+     */
+    private fun <RETURN> callMethodMultiplexed(
+        request: Request,
+        rpcFuture: CompletableFuture<RPCResponse<RETURN>>,
+    ) {
+        if (!isActive) {
+            rpcFuture.completeExceptionally(InvalidStateException("RPCClient[$topic] is not active!"))
+            return
+        }
+
+        pendingRequestMap[request.id] = PendingRequest(request, rpcFuture as CompletableFuture<RPCResponse<Any>>)
+
+        // make sure the entry is removed if the call is canceled or fails before the response arrives
+        rpcFuture.whenComplete { _, _ -> pendingRequestMap.remove(request.id) }
+
+        // a concurrent deactivation may have already completed all pending requests before this one was registered
+        if (!isActive) {
+            rpcFuture.completeExceptionally(InvalidStateException("RPCClient[$topic] is not active!"))
+            return
+        }
+
+        mqttClient.publish(
+            Mqtt5Publish.builder()
+                .topic(topic)
+                .qos(MqttQos.EXACTLY_ONCE)
+                .payload(request.toByteArray())
+                .responseTopic("$replyTopic/${request.id}")
+                .attachTimestamp()
+                .build()
+        ).whenComplete { _, throwable ->
+            if (throwable != null) {
+                rpcFuture.completeExceptionally(throwable)
+            }
+        }
     }
 
     override fun activate() {
-        active = true
+        synchronized(lock) {
+            if (isActive) {
+                return
+            }
+
+            if (!config.rpcResponseMultiplexing) {
+                active = true
+                return
+            }
+
+            activationFuture = mqttClient.subscribe(
+                Mqtt5Subscribe.builder()
+                    .topicFilter("$replyTopic/#")
+                    .qos(MqttQos.EXACTLY_ONCE)
+                    .build(),
+                { mqtt5Publish: Mqtt5Publish -> handleMultiplexedRPCResponse(mqtt5Publish) },
+                GlobalCachedExecutorService.getInstance().executorService
+            )
+
+            try {
+                activationFuture?.get(ACTIVATION_TIMEOUT, TimeUnit.MILLISECONDS)
+            } catch (e: TimeoutException) {
+                activationFuture?.cancel(true)
+                throw CouldNotPerformException("Could not activate RPCClient", e)
+            } catch (e: AsyncRuntimeException) {
+                activationFuture?.cancel(true)
+                throw CouldNotPerformException("Could not activate RPCClient", e)
+            } catch (e: InterruptedException) {
+                activationFuture?.cancel(true)
+                throw e;
+            }
+            active = true
+        }
     }
 
     override fun deactivate() {
-        active = false
+        synchronized(lock) {
+            active = false
+
+            if (activationFuture == null) {
+                return
+            }
+
+            activationFuture = null
+            mqttClient.unsubscribe(
+                Mqtt5Unsubscribe.builder()
+                    .topicFilter("$replyTopic/#")
+                    .build()
+            )
+
+            // responses of pending requests can not be received anymore
+            pendingRequestMap.values.forEach { pendingRequest ->
+                pendingRequest.rpcFuture.completeExceptionally(
+                    CouldNotPerformException("RPCClient[$topic] was deactivated before Method[${pendingRequest.request.methodName}] returned!")
+                )
+            }
+            pendingRequestMap.clear()
+        }
     }
 
     override fun isActive(): Boolean {
@@ -82,7 +267,7 @@ class RPCClientImpl(
         request: Request,
     ) {
         val response = Response.parseFrom(mqtt5Publish.payloadAsBytes)
-        if (response.error.isEmpty() && response.status != Response.Status.FINISHED) {
+        if (!response.isFinal()) {
             //TODO update timeout for coroutine which checks if server is still active
             return
         }
@@ -93,16 +278,42 @@ class RPCClientImpl(
                 .build()
         )
 
+        completeRPCFuture(mqtt5Publish.userProperties.toLazyMap(), response, rpcFuture, request)
+    }
+
+    private fun handleMultiplexedRPCResponse(mqtt5Publish: Mqtt5Publish) {
+        val response = Response.parseFrom(mqtt5Publish.payloadAsBytes)
+        if (!response.isFinal()) {
+            return
+        }
+
+        // responses of already completed or unknown requests are ignored
+        pendingRequestMap.remove(response.id)
+            ?.let { completeRPCFuture(mqtt5Publish.userProperties.toLazyMap(), response, it.rpcFuture, it.request) }
+    }
+
+    /**
+     * Responses which are neither finished nor contain an error only acknowledge the request.
+     */
+    private fun Response.isFinal(): Boolean = error.isNotEmpty() || status == Response.Status.FINISHED
+
+    private fun <RETURN> completeRPCFuture(
+        properties: Map<String, String>,
+        response: Response,
+        rpcFuture: CompletableFuture<RPCResponse<RETURN>>,
+        request: Request,
+    ) {
+        if (!batchSupported && properties.containsKey(RPCServer.BATCH_SUPPORT_PROPERTY)) {
+            batchSupported = true
+        }
+
         if (response.error.isNotEmpty()) {
             rpcFuture.completeExceptionally(RPCResolvedException(RPCException(response.error)))
         } else {
             rpcFuture.complete(
                 RPCResponse(
                     response = resultParserMap[request.methodName]!!(response.result) as RETURN,
-                    properties = mqtt5Publish
-                        .userProperties
-                        .asList()
-                        .associate { it.name.toString() to it.value.toString() }
+                    properties = properties
                 )
             )
         }
@@ -131,4 +342,9 @@ class RPCClientImpl(
                 .map { (param, parser) -> parser(param) })
             .build()
     }
+
+    private class PendingRequest(
+        val request: Request,
+        val rpcFuture: CompletableFuture<RPCResponse<Any>>,
+    )
 }
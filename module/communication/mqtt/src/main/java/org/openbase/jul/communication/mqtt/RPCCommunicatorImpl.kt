@@ -27,3 +27,19 @@ fun Mqtt5PublishBuilder.Complete.attachTimestamp(attachTimestamp: Boolean = true
         )
     }
 }
+
+fun Mqtt5PublishBuilder.Complete.attachUserProperties(
+    userProperties: Map<String, String>,
+    attachTimestamp: Boolean = true,
+) = also {
+    val builder = Mqtt5UserProperties.builder()
+    userProperties.forEach { (key, value) -> builder.add(key, value) }
+    attachTimestamp.takeIf { it }
+        ?.let {
+            val now = Instant.now()
+            builder
+                .add(CommunicatorImpl.TIMESTAMP_KEY_MS, now.epochSecond.toString())
+                .add(CommunicatorImpl.TIMESTAMP_KEY_NANO, now.nano.toString())
+        }
+    this.userProperties(builder.build())
+}
@@ -1,10 +1,16 @@
 package org.openbase.jul.communication.mqtt
 
+import com.google.protobuf.Internal
 import com.google.protobuf.Message
 import com.google.protobuf.ProtocolMessageEnum
 import org.openbase.jul.annotation.RPCMethod
 import org.openbase.jul.exception.CouldNotPerformException
 import org.openbase.type.communication.mqtt.PrimitiveType.Primitive
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.reflect.InvocationTargetException
+import java.lang.reflect.Modifier
 import java.util.concurrent.Future
 import java.util.concurrent.TimeUnit
 import java.util.concurrent.TimeoutException
@@ -18,7 +24,7 @@ import kotlin.String
 import kotlin.reflect.KClass
 import kotlin.reflect.KFunction
 import kotlin.reflect.full.isSuperclassOf
-import kotlin.reflect.full.staticFunctions
+import kotlin.reflect.jvm.javaMethod
 import com.google.protobuf.Any as protoAny
 
 /**
@@ -107,13 +113,14 @@ class RPCMethodWrapper(private val function: KFunction<*>, val priority: RPCMeth
             }
 
             if (ProtocolMessageEnum::class.isSuperclassOf(clazz)) {
-                val forNumberFunction = clazz.staticFunctions.first { function -> function.name == "forNumber" }
+                // resolve the value map once instead of looking up forNumber for each conversion
+                val valueMap = clazz.java.getMethod("internalGetValueMap").invoke(null) as Internal.EnumLiteMap<*>
                 return { msg ->
                     val unpacked: Primitive = msg.unpack(Primitive::class.java)
                     if (!unpacked.hasInt()) {
                         throw CouldNotPerformException("Arg is not of type Int which is needed to unpack enums!")
                     }
-                    forNumberFunction.call(unpacked.int)
+                    valueMap.findValueByNumber(unpacked.int)
                         ?: throw CouldNotPerformException("${unpacked.int} is an invalid number for enum ${clazz.simpleName}")
                 }
             }
@@ -188,7 +195,7 @@ class RPCMethodWrapper(private val function: KFunction<*>, val priority: RPCMeth
         }
     }
 
-    private var parameterParserList: List<(protoAny) -> Any>
+    private val parameterParsers: Array<(protoAny) -> Any>
 
     init {
         var filteredParameters = function.parameters
@@ -200,28 +207,79 @@ class RPCMethodWrapper(private val function: KFunction<*>, val priority: RPCMeth
         }
 
         try {
-            parameterParserList = filteredParameters
+            parameterParsers = filteredParameters
                 .map { parameter -> protoAnyToAny(parameter.type.classifier as KClass<*>) }
+                .toTypedArray()
         } catch (ex: CouldNotPerformException) {
             throw CouldNotPerformException("Could not register method ${function.name}", ex)
         }
     }
 
+    private val returnsUnit = (if (futureMethod) function.returnType.arguments[0].type?.classifier else function.returnType.classifier)
+        .let { it == Unit::class || it == java.lang.Void::class }
+
+    /**
+     * Method handle resolved once during registration which accepts the parsed parameters as array.
+     * It is not available if the function can not be called via a method handle, e.g. because it is a bound
+     * function reference or a suspend function. In this case the function is called via kotlin reflection.
+     */
+    private val methodHandle: MethodHandle? = resolveMethodHandle()
+
+    private fun resolveMethodHandle(): MethodHandle? {
+        if (function.isSuspend) {
+            return null
+        }
+
+        val method = function.javaMethod ?: return null
+        val static = Modifier.isStatic(method.modifiers)
+
+        // bound function references know their receiver but do not expose it
+        if (!static && !callOnInstance) {
+            return null
+        }
+
+        // fallback to kotlin reflection if the method can not be made accessible, e.g. because its module is not opened
+        if (!method.trySetAccessible()) {
+            return null
+        }
+
+        return try {
+            var handle = MethodHandles.lookup().unreflect(method)
+            if (!static) {
+                handle = handle.bindTo(instance)
+            }
+            handle
+                .asSpreader(Array<Any?>::class.java, parameterParsers.size)
+                .asType(MethodType.methodType(Any::class.java, Array<Any?>::class.java))
+        } catch (ex: Exception) {
+            // fallback to kotlin reflection
+            null
+        }
+    }
+
     fun invoke(args: List<protoAny>): protoAny {
-        if (args.size != parameterParserList.size) {
-            throw CouldNotPerformException("Invalid number of arguments! Expected ${parameterParserList.size} but got ${args.size}")
+        if (args.size != parameterParsers.size) {
+            throw CouldNotPerformException("Invalid number of arguments! Expected ${parameterParsers.size} but got ${args.size}")
         }
 
-        var parameters = args
-            .zip(parameterParserList)
-            .map { (parameter, parameterParser) -> parameterParser(parameter) }
-            .toTypedArray()
-        // prepend instance if necessary for the function call
-        if (callOnInstance) {
-            parameters = arrayOf(instance, *parameters)
+        val parameters = arrayOfNulls<Any>(parameterParsers.size)
+        for (i in parameterParsers.indices) {
+            parameters[i] = parameterParsers[i](args[i])
+        }
+
+        var result = if (methodHandle != null) {
+            try {
+                methodHandle.invoke(parameters) as Any?
+            } catch (ex: Throwable) {
+                // wrap exceptions of the method the same way as reflection calls do
+                throw InvocationTargetException(ex)
+            }
+        } else if (callOnInstance) {
+            function.call(instance, *parameters)
+        } else {
+            function.call(*parameters)
         }
 
-        var result = function.call(*parameters)!!
         if (futureMethod) {
             //TODO: make timeout accessible from RPCUtils?
             try {
@@ -231,6 +289,13 @@ class RPCMethodWrapper(private val function: KFunction<*>, val priority: RPCMeth
                 throw ex
             }
         }
-        return resultParser(result);
+
+        if (result == null) {
+            if (!returnsUnit) {
+                throw CouldNotPerformException("Method ${function.name} returned null!")
+            }
+            result = Unit
+        }
+        return resultParser(result)
     }
 }
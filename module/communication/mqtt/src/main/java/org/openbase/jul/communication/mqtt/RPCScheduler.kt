@@ -0,0 +1,171 @@
+package org.openbase.jul.communication.mqtt
+
+import org.openbase.jul.annotation.RPCMethod
+import org.openbase.jul.exception.printer.ExceptionPrinter
+import org.openbase.jul.exception.printer.LogLevel
+import org.slf4j.Logger
+import org.slf4j.LoggerFactory
+import java.util.*
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Scheduler executing the requests of an rpc server.
+ * Each [priority][RPCMethod.Priority] is processed by a separate lane, so that requests of a high priority never wait
+ * for requests of a lower priority. Each lane queues at most [queueCapacity] requests in order of their arrival
+ * and executes at most [concurrency] of them in parallel on the given executor.
+ * Requests are rejected if the queue of their lane is full or the executor does not accept further workers.
+ *
+ * Note: if no executor is given, all requests are executed directly by the thread scheduling them.
+ *
+ * @param executor the executor used to process the requests.
+ * @param concurrency the maximal number of requests executed in parallel per lane.
+ * @param queueCapacity the maximal number of requests waiting for their execution per lane.
+ */
+class RPCScheduler(
+    private val executor: Executor?,
+    concurrency: Int,
+    queueCapacity: Int,
+) {
+
+    private val logger: Logger = LoggerFactory.getLogger(RPCScheduler::class.java)
+
+    private val lanes: Map<RPCMethod.Priority, Lane> = EnumMap<RPCMethod.Priority, Lane>(RPCMethod.Priority::class.java)
+        .apply { RPCMethod.Priority.values().forEach { put(it, Lane(concurrency.coerceAtLeast(1), queueCapacity.coerceAtLeast(1))) } }
+
+    /**
+     * Schedule the execution of a request.
+     *
+     * @param priority the priority of the request which defines the lane used for the execution.
+     * @param task the task executing the request.
+     *
+     * @return false if the request was rejected because the lane or the executor is overloaded.
+     */
+    fun schedule(priority: RPCMethod.Priority, task: Runnable): Boolean {
+        if (executor == null) {
+            task.run()
+            return true
+        }
+        return lanes[priority]!!.submit(task)
+    }
+
+    /**
+     * Drop all requests waiting for their execution. Requests already executed are not affected.
+     */
+    fun clear() {
+        lanes.values.forEach { it.queue.clear() }
+    }
+
+    /**
+     * Returns the current metrics of the lane processing requests of the given priority.
+     */
+    fun getMetrics(priority: RPCMethod.Priority): Metrics = lanes[priority]!!.metrics()
+
+    /**
+     * Metrics of a scheduler lane.
+     *
+     * @param queueDepth the number of requests currently waiting for their execution.
+     * @param running the number of requests currently executed.
+     * @param executed the number of requests executed since the creation of the scheduler.
+     * @param rejected the number of requests rejected since the creation of the scheduler.
+     * @param averageWaitTime the average time in milliseconds the executed requests waited in the queue.
+     * @param maxWaitTime the maximal time in milliseconds a request waited in the queue.
+     */
+    data class Metrics(
+        val queueDepth: Int,
+        val running: Int,
+        val executed: Long,
+        val rejected: Long,
+        val averageWaitTime: Double,
+        val maxWaitTime: Long,
+    )
+
+    private class QueuedTask(val task: Runnable, val queueTimestamp: Long = System.nanoTime())
+
+    private inner class Lane(private val concurrency: Int, queueCapacity: Int) {
+
+        val queue = ArrayBlockingQueue<QueuedTask>(queueCapacity)
+
+        private val running = AtomicInteger()
+        private val executed = AtomicLong()
+        private val rejected = AtomicLong()
+        private val totalWaitTime = AtomicLong()
+        private val maxWaitTime = AtomicLong()
+
+        fun submit(task: Runnable): Boolean {
+            val queuedTask = QueuedTask(task)
+            if (!queue.offer(queuedTask)) {
+                rejected.incrementAndGet()
+                return false
+            }
+            if (!startWorker() && queue.remove(queuedTask)) {
+                // the task is only rejected if no running worker has taken it in the meantime
+                rejected.incrementAndGet()
+                return false
+            }
+            return true
+        }
+
+        /**
+         * Start an additional worker if requests are queued and the concurrency limit is not reached yet.
+         *
+         * @return false if the executor rejected the worker.
+         */
+        private fun startWorker(): Boolean {
+            while (queue.isNotEmpty()) {
+                val currentlyRunning = running.get()
+                if (currentlyRunning >= concurrency) {
+                    return true
+                }
+                if (running.compareAndSet(currentlyRunning, currentlyRunning + 1)) {
+                    try {
+                        executor!!.execute { processQueue() }
+                    } catch (ex: RejectedExecutionException) {
+                        running.decrementAndGet()
+                        logger.warn("Could not start rpc worker: ${ex.message}")
+                        return false
+                    }
+                    return true
+                }
+            }
+            return true
+        }
+
+        private fun processQueue() {
+            try {
+                while (true) {
+                    val queuedTask = queue.poll() ?: break
+                    val waitTime = System.nanoTime() - queuedTask.queueTimestamp
+                    totalWaitTime.addAndGet(waitTime)
+                    maxWaitTime.accumulateAndGet(waitTime, Math::max)
+                    executed.incrementAndGet()
+                    try {
+                        queuedTask.task.run()
+                    } catch (ex: Exception) {
+                        ExceptionPrinter.printHistory(ex, logger, LogLevel.WARN)
+                    }
+                }
+            } finally {
+                running.decrementAndGet()
+            }
+            // requests may have been queued after the queue was found empty but before this worker finished
+            startWorker()
+        }
+
+        fun metrics(): Metrics {
+            val executedCount = executed.get()
+            return Metrics(
+                queueDepth = queue.size,
+                running = running.get(),
+                executed = executedCount,
+                rejected = rejected.get(),
+                averageWaitTime = if (executedCount == 0L) 0.0 else totalWaitTime.get().toDouble() / executedCount / TimeUnit.MILLISECONDS.toNanos(1),
+                maxWaitTime = TimeUnit.NANOSECONDS.toMillis(maxWaitTime.get()),
+            )
+        }
+    }
+}
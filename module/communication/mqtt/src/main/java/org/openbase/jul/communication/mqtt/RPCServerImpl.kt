@@ -1,5 +1,6 @@
 package org.openbase.jul.communication.mqtt
 
+import com.google.protobuf.InvalidProtocolBufferException
 import com.hivemq.client.internal.util.AsyncRuntimeException
 import com.hivemq.client.mqtt.datatypes.MqttQos
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish
@@ -22,7 +23,6 @@ import org.openbase.type.communication.mqtt.ResponseType
 import org.slf4j.Logger
 import org.slf4j.LoggerFactory
 import java.lang.reflect.InvocationTargetException
-import java.time.Duration
 import java.util.*
 import java.util.concurrent.ExecutionException
 import java.util.concurrent.Future
@@ -38,7 +38,11 @@ class RPCServerImpl(
 
     companion object {
         val NO_DISPATCHER: CoroutineDispatcher? = null
-        val RPC_TIMEOUT: Duration = Duration.ofMinutes(3)
+
+        /**
+         * Announces the support of batch requests to the clients receiving a response.
+         */
+        private val BATCH_SUPPORT_PROPERTIES = mapOf(RPCServer.BATCH_SUPPORT_PROPERTY to true.toString())
     }
 
     private val logger: Logger = LoggerFactory.getLogger(RPCServerImpl::class.simpleName)
@@ -48,7 +52,11 @@ class RPCServerImpl(
 
     private val lock = SyncObject("Activation Lock")
 
-    private var coroutineScope: CoroutineScope? = null
+    /**
+     * Scheduler executing the requests in separate lanes per priority.
+     * If no dispatcher is given, requests are executed on the thread receiving them.
+     */
+    private val scheduler = RPCScheduler(dispatcher?.asExecutor(), config.rpcConcurrency, config.rpcQueueCapacity)
 
     internal fun getActivationFuture(): Future<out Any>? {
         return this.activationFuture
@@ -66,24 +74,19 @@ class RPCServerImpl(
                 return
             }
 
-            coroutineScope?.cancel()
-            coroutineScope = dispatcher?.let { CoroutineScope(dispatcher) }
-
             activationFuture = mqttClient.subscribe(
                 Mqtt5Subscribe.builder().topicFilter(topic).qos(MqttQos.EXACTLY_ONCE).build(), { mqtt5Publish ->
 
                     // Note: this is a wrapper for the usage of a shared client
                     //       which may remain subscribed even if deactivate is called
                     if (isActive) {
-                        when (getPriority(mqtt5Publish)) {
-                            org.openbase.jul.annotation.RPCMethod.Priority.HIGH -> handleRemoteCall(mqtt5Publish)
-                            else -> {
-                                coroutineScope?.ensureActive();
-                                coroutineScope?.launch {
-                                    withTimeout(RPC_TIMEOUT.toMillis()) {
-                                        handleRemoteCall(mqtt5Publish)
-                                    }
-                                } ?: handleRemoteCall(mqtt5Publish)
+                        val request = RequestType.Request.parseFrom(mqtt5Publish.payloadAsBytes)
+                        if (request.methodName == RPCServer.BATCH_METHOD_NAME) {
+                            handleBatch(mqtt5Publish, request)
+                        } else {
+                            val priority = resolvePriority(request)
+                            if (!scheduler.schedule(priority) { handleRemoteCall(mqtt5Publish, request) }) {
+                                publishResponse(mqtt5Publish, buildRejectionResponse(request, priority))
                             }
                         }
                     }
@@ -111,8 +114,8 @@ class RPCServerImpl(
             mqttClient.unsubscribe(
                 Mqtt5Unsubscribe.builder().topicFilter(topic).build()
             )
-            coroutineScope?.cancel()
-            coroutineScope = null
+            // requests not yet started can not be answered anymore
+            scheduler.clear()
         }
     }
 
@@ -124,40 +127,109 @@ class RPCServerImpl(
         methods[method.name] = RPCMethodWrapper(method, priority = priority, instance = instance);
     }
 
-    private fun handleRemoteCall(mqtt5Publish: Mqtt5Publish) {
-        val responseBuilder = ResponseType.Response.newBuilder()
-        val request = RequestType.Request.parseFrom(mqtt5Publish.payloadAsBytes)
+    /**
+     * Resolve the priority of a request.
+     * Calls of unknown methods are answered immediately with an error and are therefore treated as high priority.
+     */
+    private fun resolvePriority(request: RequestType.Request): RPCMethod.Priority =
+        methods[request.methodName]?.priority ?: RPCMethod.Priority.HIGH
+
+    /**
+     * Returns the current metrics of the lane executing requests of the given priority,
+     * e.g. to monitor the queue depth and the time requests wait for their execution.
+     */
+    fun getSchedulerMetrics(priority: RPCMethod.Priority): RPCScheduler.Metrics = scheduler.getMetrics(priority)
+
+    private fun handleRemoteCall(mqtt5Publish: Mqtt5Publish, request: RequestType.Request) {
+        acknowledgeRemoteCall(mqtt5Publish, request)
+
+        //TODO open thread to send PROGRESSING message periodically
+        publishResponse(mqtt5Publish, invokeMethod(request))
+    }
 
+    private fun acknowledgeRemoteCall(mqtt5Publish: Mqtt5Publish, request: RequestType.Request) {
         // make sure that the request id is a valid uuid so that request
         // collisions are unlikely
-        responseBuilder.id = UUID.fromString(request.id).toString()
-        val requestTopic = topic + "/" + responseBuilder.id
-        val mqttResponseBuilder = Mqtt5Publish.builder().topic(requestTopic).qos(MqttQos.EXACTLY_ONCE)
+        UUID.fromString(request.id)
 
-        responseBuilder.status = ResponseType.Response.Status.ACKNOWLEDGED
-        responseBuilder.id = request.id
-        mqttClient.publish(
-            mqttResponseBuilder.payload(responseBuilder.build().toByteArray()).attachTimestamp().build()
+        publishResponse(
+            mqtt5Publish, ResponseType.Response.newBuilder()
+                .setId(request.id)
+                .setStatus(ResponseType.Response.Status.ACKNOWLEDGED)
+                .build()
         )
+    }
 
-        if (request.methodName !in methods) {
-            responseBuilder.status = ResponseType.Response.Status.FINISHED;
-            val ex = NotAvailableException("Method ${request.methodName}")
-            responseBuilder.error = ex.stackTraceToString()
-
-            mqttClient.publish(
-                mqttResponseBuilder.payload(responseBuilder.build().toByteArray()).attachTimestamp().build()
+    /**
+     * Handle a batch request as defined by [RPCServer.BATCH_METHOD_NAME]. The calls of the batch are executed one
+     * after another, but each of them is scheduled in the lane of its own priority as if it was requested separately.
+     * Rejected calls are answered with an error, and the batch is answered once all of its calls are finished.
+     */
+    private fun handleBatch(mqtt5Publish: Mqtt5Publish, request: RequestType.Request) {
+        val calls = try {
+            if (request.paramsCount != 1) {
+                throw InvalidProtocolBufferException("Batch request contains ${request.paramsCount} parameters instead of one batch message!")
+            }
+            RPCBatchRequest.parseFrom(request.getParams(0)).requests
+        } catch (ex: InvalidProtocolBufferException) {
+            publishResponse(
+                mqtt5Publish, ResponseType.Response.newBuilder()
+                    .setId(request.id)
+                    .setStatus(ResponseType.Response.Status.FINISHED)
+                    .setError(CouldNotPerformException("Invalid batch request!", ex).stackTraceToString())
+                    .build()
             )
-            return;
+            return
         }
 
-        val method = methods[request.methodName]!!;
+        try {
+            acknowledgeRemoteCall(mqtt5Publish, request)
+        } catch (ex: IllegalArgumentException) {
+            ExceptionPrinter.printHistory(CouldNotPerformException("Invalid batch request id!", ex), logger, LogLevel.WARN)
+            return
+        }
+        scheduleBatchCalls(mqtt5Publish, request, calls, ArrayList(calls.size))
+    }
+
+    /**
+     * Schedule the next call of a batch which is not answered yet, or answer the batch if all calls are finished.
+     */
+    private fun scheduleBatchCalls(
+        mqtt5Publish: Mqtt5Publish,
+        request: RequestType.Request,
+        calls: List<RequestType.Request>,
+        responses: MutableList<ResponseType.Response>,
+    ) {
+        while (responses.size < calls.size) {
+            val call = calls[responses.size]
+            val priority = resolvePriority(call)
+            val scheduled = scheduler.schedule(priority) {
+                responses.add(invokeMethod(call))
+                scheduleBatchCalls(mqtt5Publish, request, calls, responses)
+            }
+            if (scheduled) {
+                return
+            }
+            responses.add(buildRejectionResponse(call, priority))
+        }
+        publishResponse(mqtt5Publish, buildBatchResponse(request, responses))
+    }
+
+    /**
+     * Invoke the method of the request and return the finished response containing its result or error.
+     */
+    private fun invokeMethod(request: RequestType.Request): ResponseType.Response {
+        val responseBuilder = ResponseType.Response.newBuilder()
+            .setId(request.id)
+            .setStatus(ResponseType.Response.Status.FINISHED)
+
+        val method = methods[request.methodName]
+            ?: return responseBuilder
+                .setError(NotAvailableException("Method ${request.methodName}").stackTraceToString())
+                .build()
 
-        //TODO open thread to send PROGRESSING message periodically
-        responseBuilder.status = ResponseType.Response.Status.FINISHED
         try {
-            val result = method.invoke(request.paramsList)
-            responseBuilder.result = result
+            responseBuilder.result = method.invoke(request.paramsList)
         } catch (ex: Exception) {
             val targetException = when (ex) {
                 is InvocationTargetException, is ExecutionException -> {
@@ -174,14 +246,53 @@ class RPCServerImpl(
             }
             responseBuilder.error = targetException.stackTraceToString()
         }
+        return responseBuilder.build()
+    }
+
+    /**
+     * Build the response of a batch request. The response of each call is collected in the batch response message
+     * which is the result of the batch response as defined by [RPCServer.BATCH_METHOD_NAME].
+     */
+    private fun buildBatchResponse(
+        request: RequestType.Request,
+        responses: List<ResponseType.Response>,
+    ): ResponseType.Response = ResponseType.Response.newBuilder()
+        .setId(request.id)
+        .setStatus(ResponseType.Response.Status.FINISHED)
+        .setResult(RPCBatchResponse(responses).toProtoAny())
+        .build()
 
+    /**
+     * Build the error response of a request rejected because the server is overloaded.
+     */
+    private fun buildRejectionResponse(request: RequestType.Request, priority: RPCMethod.Priority): ResponseType.Response {
+        val ex = CouldNotPerformException("Method ${request.methodName} rejected because the ${priority.name.lowercase()} priority lane of RPCServer[$topic] is overloaded!")
+        logger.warn(ex.message)
+
+        return ResponseType.Response.newBuilder()
+            .setId(request.id)
+            .setStatus(ResponseType.Response.Status.FINISHED)
+            .setError(ex.stackTraceToString())
+            .build()
+    }
+
+    private fun publishResponse(mqtt5Publish: Mqtt5Publish, response: ResponseType.Response) {
         mqttClient.publish(
-            mqttResponseBuilder.payload(responseBuilder.build().toByteArray()).attachTimestamp().build()
+            Mqtt5Publish.builder()
+                .topic(resolveResponseTopic(mqtt5Publish, response.id))
+                .qos(MqttQos.EXACTLY_ONCE)
+                .payload(response.toByteArray())
+                .attachUserProperties(BATCH_SUPPORT_PROPERTIES)
+                .build()
         )
     }
 
-    private fun getPriority(mqtt5Publish: Mqtt5Publish): RPCMethod.Priority {
-        val request = RequestType.Request.parseFrom(mqtt5Publish.payloadAsBytes)
-        return methods[request.methodName]?.priority ?: RPCMethod.Priority.HIGH
-    }
+    /**
+     * Clients using response multiplexing define the topic on which they expect the response,
+     * otherwise the response is published on a sub topic named by the request id.
+     */
+    private fun resolveResponseTopic(mqtt5Publish: Mqtt5Publish, requestId: String): String =
+        mqtt5Publish.responseTopic
+            .map { it.toString() }
+            .orElse("$topic/$requestId")
 }
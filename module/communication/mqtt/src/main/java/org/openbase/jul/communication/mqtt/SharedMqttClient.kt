@@ -15,52 +15,186 @@ import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5UnsubscribeBuilder
 import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.unsuback.Mqtt5UnsubAck
 import org.openbase.jul.communication.config.CommunicatorConfig
 import org.openbase.jul.iface.Shutdownable
+import org.openbase.jul.schedule.GlobalScheduledExecutorService
+import org.openbase.type.communication.ScopeType.Scope
 import java.util.*
 import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executor
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
 import java.util.function.Consumer
 
-// TODO:
-//  * Implement sharing correctly:
-//    * Count instances accessing and disconnect if none is anymore
-//    * save connecting future and make accessible
+/**
+ * Provides the connections to the mqtt brokers which are shared by all communicators of this process.
+ *
+ * Each broker is accessed via a pool of connections whose size is defined by the [CommunicatorConfig.connectionPoolSize].
+ * The connection used by a communicator is selected by the hash of its parent scope, see [resolveShardKey]. This way
+ * all communicators of a controller, e.g. its status publisher and its rpc server, share one connection and the
+ * order of their messages is preserved, e.g. a data update can not overtake the rpc response which caused it.
+ * Communicators lease the connection via [get] and need to [release] it if they are not used anymore.
+ * Once all leases of a pool are released, its connections are closed after a short delay which avoids reconnecting
+ * if communicators are just recreated.
+ */
 object SharedMqttClient : Shutdownable {
 
-    private var sharedClients: MutableMap<CommunicatorConfig, Mqtt5AsyncClient> = mutableMapOf()
+    /**
+     * Time in milliseconds connections are kept open after their last lease was released.
+     */
+    private const val RELEASE_DELAY = 5000L
+
+    /**
+     * Connections are shared per broker and pool size so that communicators with different settings
+     * still use the same connections.
+     */
+    private val connectionPools: MutableMap<PoolKey, ConnectionPool> = mutableMapOf()
 
     init {
         Shutdownable.registerShutdownHook(this)
     }
 
+    /**
+     * Resolve the key used to select the connection of a communicator, which is the string representation of its parent scope.
+     * The scopes of the communicators of a controller only differ in their last element, e.g. `/status` and `/ctrl`.
+     *
+     * @param scope the scope of the communicator.
+     *
+     * @return the key to pass to [get].
+     */
+    fun resolveShardKey(scope: Scope): String = scope.componentList.dropLast(1).joinToString(separator = "/", prefix = "/")
+
+    /**
+     * Lease the connection to the broker of the given config which is used to transfer the messages of the given shard.
+     * Each call has to be followed by a call of [release] once the connection is not needed anymore.
+     *
+     * @param communicatorConfig the config defining the broker.
+     * @param shardKey the key used to select the connection of the pool, see [resolveShardKey].
+     *
+     * @return the leased connection.
+     */
     @Synchronized
     fun get(
         communicatorConfig: CommunicatorConfig,
-    ) = sharedClients.getOrPut(communicatorConfig) {
-        MqttClient.builder()
-            .identifier(UUID.randomUUID().toString())
-            .serverHost(communicatorConfig.hostname)
-            .serverPort(communicatorConfig.port)
-            .useMqttVersion5()
-            .automaticReconnectWithDefaultConfig()
-            .buildAsync()
-            .let { Mqtt5ClientWrapper(it) }
-            .also { it.connect() }
+        shardKey: String,
+    ): Mqtt5AsyncClient = connectionPools
+        .getOrPut(PoolKey(communicatorConfig)) {
+            ConnectionPool(List(communicatorConfig.connectionPoolSize.coerceAtLeast(1)) { connect(communicatorConfig) })
+        }
+        .also { it.leases++ }
+        .clients
+        .let { clients -> clients[Math.floorMod(shardKey.hashCode(), clients.size)] }
+
+    /**
+     * Lease the first connection to the broker of the given config.
+     */
+    fun get(communicatorConfig: CommunicatorConfig): Mqtt5AsyncClient = get(communicatorConfig, "")
+
+    /**
+     * Release a connection leased via [get]. The connections of the pool are closed if no leases are left.
+     *
+     * @param communicatorConfig the config defining the broker.
+     */
+    @Synchronized
+    fun release(communicatorConfig: CommunicatorConfig) {
+        val brokerKey = PoolKey(communicatorConfig)
+        val connectionPool = connectionPools[brokerKey] ?: return
+
+        connectionPool.leases = (connectionPool.leases - 1).coerceAtLeast(0)
+        if (connectionPool.leases > 0) {
+            return
+        }
+
+        try {
+            GlobalScheduledExecutorService.schedule(Runnable { closeIfUnused(brokerKey, connectionPool) }, RELEASE_DELAY, TimeUnit.MILLISECONDS)
+        } catch (ex: RejectedExecutionException) {
+            // executor is already shutting down, so close the connections right away
+            closeIfUnused(brokerKey, connectionPool)
+        }
     }
 
+    @Synchronized
+    private fun closeIfUnused(brokerKey: PoolKey, connectionPool: ConnectionPool) {
+        // skip if leased again in the meantime or if the pool was already closed
+        if (connectionPool.leases > 0 || connectionPools[brokerKey] !== connectionPool) {
+            return
+        }
+        connectionPools.remove(brokerKey)
+        connectionPool.clients
+            .filter { it.isConnected() }
+            .forEach { it.disconnect() }
+    }
+
+    private fun connect(communicatorConfig: CommunicatorConfig) = MqttClient.builder()
+        .identifier(UUID.randomUUID().toString())
+        .serverHost(communicatorConfig.hostname)
+        .serverPort(communicatorConfig.port)
+        .useMqttVersion5()
+        .automaticReconnectWithDefaultConfig()
+        .buildAsync()
+        .let { Mqtt5ClientWrapper(it) }
+        .also { it.connect() }
+
+    /**
+     * Disconnect the connections of all pools and wait until they are closed.
+     */
     @Synchronized
     fun waitForShutdown() =
-        sharedClients.values
-            .filter { (it as Mqtt5ClientWrapper).isConnected() }
+        connectionPools.values
+            .flatMap { it.clients }
+            .filter { it.isConnected() }
             .map { it.disconnect() }
             .map { it.get() }
-            .run { sharedClients.clear() }
+            .run { connectionPools.clear() }
+
+    /**
+     * Release a connection leased via [get] and, if no leases are left, disconnect the connections of its pool right
+     * away and wait until they are closed. Connections still leased by other communicators stay open.
+     * Pools of other brokers or pool sizes are not affected.
+     *
+     * @param communicatorConfig the config defining the pool.
+     * @param leased flag defines if the caller still holds a lease which is released by this call.
+     */
+    @Synchronized
+    fun waitForRelease(communicatorConfig: CommunicatorConfig, leased: Boolean = true) {
+        val brokerKey = PoolKey(communicatorConfig)
+        val connectionPool = connectionPools[brokerKey] ?: return
+
+        if (leased) {
+            connectionPool.leases = (connectionPool.leases - 1).coerceAtLeast(0)
+        }
+        if (connectionPool.leases > 0) {
+            return
+        }
+
+        connectionPools.remove(brokerKey)
+        connectionPool.clients
+            .filter { it.isConnected() }
+            .map { it.disconnect() }
+            .forEach { it.get() }
+    }
 
     @Synchronized
     override fun shutdown(): Unit =
-        sharedClients.values
-            .filter { (it as Mqtt5ClientWrapper).isConnected() }
+        connectionPools.values
+            .flatMap { it.clients }
+            .filter { it.isConnected() }
             .onEach { it.disconnect() }
-            .run { sharedClients.clear() }
+            .run { connectionPools.clear() }
+
+    private data class PoolKey(val hostname: String, val port: Int, val poolSize: Int) {
+        constructor(communicatorConfig: CommunicatorConfig) : this(
+            communicatorConfig.hostname,
+            communicatorConfig.port,
+            communicatorConfig.connectionPoolSize.coerceAtLeast(1)
+        )
+    }
+
+    /**
+     * The connections to a broker and the number of leases on them.
+     */
+    private class ConnectionPool(val clients: List<Mqtt5ClientWrapper>) {
+        var leases = 0
+    }
 
     /**
      * Wrapper around an MQTT client to enable sharing.
@@ -73,8 +207,9 @@ object SharedMqttClient : Shutdownable {
 
         /**
          * Map topics to the number of times subscribed to.
+         * Counters are updated atomically per topic, so subscriptions of different topics do not block each other.
          */
-        private val subscriptionsCounterMap: MutableMap<String, Int> = mutableMapOf()
+        private val subscriptionsCounterMap: ConcurrentHashMap<String, Int> = ConcurrentHashMap()
 
         fun isConnected() = internalClient.config.state.isConnected
 
@@ -84,30 +219,23 @@ object SharedMqttClient : Shutdownable {
          * @param topic the topic
          * @return if this is the first subscription to this topic
          */
-        @Synchronized
-        private fun increaseTopicCounter(topic: MqttTopicFilter): Boolean = topic
-            .toString()
-            .also { subscriptionsCounterMap[it] = subscriptionsCounterMap.getOrPut(it) { 0 } + 1 }
-            .let { subscriptionsCounterMap[it] == 1 }
+        private fun increaseTopicCounter(topic: MqttTopicFilter): Boolean =
+            subscriptionsCounterMap.merge(topic.toString(), 1, Int::plus) == 1
 
         /**
          * Decrease the counter for the number of subscriptions on a topic.
          *
          * @param topicFilter the topic
-         * @return true if there are still subscriptions on this topic after decreasing the counter
+         * @return true if there are no subscriptions left on this topic after decreasing the counter
          */
-        @Synchronized
-        private fun decreaseTopicCounter(topicFilter: MqttTopicFilter): Boolean = topicFilter
-            .toString()
-            .let { topic ->
-                subscriptionsCounterMap[topic]
-                    .let { it == null || it == 0 }
-                    .also { if (it) return true }
-
-                subscriptionsCounterMap[topic] = subscriptionsCounterMap[topic]!!.dec()
-                (subscriptionsCounterMap[topic] == 0)
-                    .also { if (it) subscriptionsCounterMap.remove(topic) }
+        private fun decreaseTopicCounter(topicFilter: MqttTopicFilter): Boolean {
+            var lastSubscription = true
+            subscriptionsCounterMap.computeIfPresent(topicFilter.toString()) { _, counter ->
+                lastSubscription = counter <= 1
+                if (lastSubscription) null else counter - 1
             }
+            return lastSubscription
+        }
 
         override fun getConfig() = internalClient.config
 
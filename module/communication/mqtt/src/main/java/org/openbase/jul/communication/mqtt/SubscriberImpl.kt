@@ -1,7 +1,6 @@
 package org.openbase.jul.communication.mqtt
 
 import com.hivemq.client.internal.util.AsyncRuntimeException
-import com.hivemq.client.mqtt.datatypes.MqttQos
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish
 import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe
 import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5Unsubscribe
@@ -50,20 +49,16 @@ class SubscriberImpl(
             activationFuture = mqttClient.subscribe(
                 Mqtt5Subscribe.builder()
                     .topicFilter(topic)
-                    .qos(MqttQos.EXACTLY_ONCE)
+                    .qos(deliveryGuarantee.toMqttQos())
                     .build(),
                 { mqtt5Publish: Mqtt5Publish ->
                     // Note: this is a wrapper for the usage of a shared client
                     //       which may remain subscribed even if deactivate is called
                     if (isActive) {
-                        mqtt5Publish.userProperties
+                        // parse once and share the lazily converted user properties between all handlers
                         val event = Event.parseFrom(mqtt5Publish.payloadAsBytes)
-                        callbackMap.values.forEach { function ->
-                            function(
-                                event,
-                                mqtt5Publish.userProperties.asList()
-                                    .associate { it.name.toString() to it.value.toString() })
-                        }
+                        val userProperties = mqtt5Publish.userProperties.toLazyMap()
+                        callbackMap.values.forEach { function -> function(event, userProperties) }
                     }
                 },
                 GlobalCachedExecutorService.getInstance().executorService
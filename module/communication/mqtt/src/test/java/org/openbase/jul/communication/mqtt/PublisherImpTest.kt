@@ -9,6 +9,7 @@ import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.TestInstance
 import org.junit.jupiter.api.Timeout
 import org.openbase.jul.communication.config.CommunicatorConfig
+import org.openbase.jul.communication.config.DeliveryGuarantee
 import org.openbase.jul.extension.type.processing.ScopeProcessor
 import org.openbase.type.communication.EventType.Event
 import org.openbase.type.communication.mqtt.PrimitiveType.Primitive
@@ -22,7 +23,7 @@ class PublisherImpTest {
 
     init {
         mockkObject(SharedMqttClient)
-        every { SharedMqttClient.get(any()) } returns mqttClient
+        every { SharedMqttClient.get(any(), any()) } returns mqttClient
 
         every { mqttClient.publish(any()) } returns CompletableFuture()
     }
@@ -58,4 +59,33 @@ class PublisherImpTest {
             )
         }
     }
+
+    @Test
+    @Timeout(value = 30)
+    fun `test publish with configured delivery guarantee`() {
+        val expectedData = Primitive.newBuilder()
+            .setString("Hello World")
+            .build()
+        val expectedEvent = Event.newBuilder()
+            .setPayload(protoAny.pack(expectedData))
+            .build()
+
+        val topic = "/test/publish/fire_and_forget"
+        val publisher = PublisherImpl(
+            ScopeProcessor.generateScope(topic),
+            CommunicatorConfig("localhost", 1234, deliveryGuarantee = DeliveryGuarantee.AT_MOST_ONCE)
+        )
+
+        publisher.publish(expectedData, false)
+
+        verify(exactly = 1) {
+            mqttClient.publish(
+                Mqtt5Publish.builder()
+                    .topic(topic)
+                    .qos(MqttQos.AT_MOST_ONCE)
+                    .payload(expectedEvent.toByteArray())
+                    .build()
+            )
+        }
+    }
 }
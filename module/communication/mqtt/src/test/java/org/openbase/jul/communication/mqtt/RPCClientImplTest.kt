@@ -1,6 +1,8 @@
 package org.openbase.jul.communication.mqtt
 
 import com.hivemq.client.mqtt.datatypes.MqttQos
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish
 import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe
@@ -15,8 +17,10 @@ import org.junit.jupiter.api.Test
 import org.junit.jupiter.params.ParameterizedTest
 import org.junit.jupiter.params.provider.EnumSource
 import org.openbase.jul.communication.config.CommunicatorConfig
+import org.openbase.jul.communication.data.RPCCall
 import org.openbase.jul.communication.data.RPCResponse
 import org.openbase.jul.communication.exception.RPCResolvedException
+import org.openbase.jul.communication.iface.RPCServer
 import org.openbase.jul.exception.CouldNotPerformException
 import org.openbase.jul.extension.type.processing.ScopeProcessor
 import org.openbase.jul.schedule.GlobalCachedExecutorService
@@ -24,6 +28,7 @@ import org.openbase.type.communication.mqtt.RequestType.Request
 import org.openbase.type.communication.mqtt.ResponseType.Response
 import java.util.concurrent.CompletableFuture
 import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executor
 import java.util.concurrent.Future
 import java.util.function.BiConsumer
 import java.util.function.Consumer
@@ -35,7 +40,7 @@ internal class RPCClientImplTest {
 
     init {
         mockkObject(SharedMqttClient)
-        every { SharedMqttClient.get(any()) } returns mqttClient
+        every { SharedMqttClient.get(any(), any()) } returns mqttClient
     }
 
     private val mqttSubscribeSlot = slot<Mqtt5Subscribe>()
@@ -104,6 +109,50 @@ internal class RPCClientImplTest {
         }
     }
 
+    @Test
+    @Timeout(value = 30)
+    fun `test batch is only used once the server announced its support`() {
+        val batchRemote = spyk(
+            RPCClientImpl(ScopeProcessor.generateScope(baseTopic), CommunicatorConfig("localhost", 1000)),
+            recordPrivateCalls = true
+        )
+        every { batchRemote.generateRequestId() } returns requestId
+
+        val resultProto = RPCMethodWrapper.anyToProtoAny(Int::class)(expectedResult)
+        val singleResponse = Response.newBuilder()
+            .setId(requestId)
+            .setStatus(Response.Status.FINISHED)
+            .setResult(resultProto)
+            .build()
+        val batchSupportProperties = Mqtt5UserProperties.of(Mqtt5UserProperty.of(RPCServer.BATCH_SUPPORT_PROPERTY, "true"))
+
+        // calls are transferred individually as long as the server did not announce its support
+        val calls = listOf(RPCCall(methodName, Int::class, args.toList()), RPCCall(methodName, Int::class, args.toList()))
+        val singleFutures = batchRemote.callMethods(calls)
+        verify(exactly = 2) { mqttClient.subscribe(any(), any(), any<Executor>()) }
+
+        val singlePublish = mockk<Mqtt5Publish>(relaxed = true)
+        every { singlePublish.payloadAsBytes } returns singleResponse.toByteArray()
+        every { singlePublish.userProperties } returns batchSupportProperties
+        callbackSlot.captured.accept(singlePublish)
+        singleFutures.last().get().response shouldBe expectedResult
+
+        // following calls are transferred within a single batch request
+        val batchFutures = batchRemote.callMethods(calls)
+        verify(exactly = 3) { mqttClient.subscribe(any(), any(), any<Executor>()) }
+
+        val batchPublish = mockk<Mqtt5Publish>(relaxed = true)
+        every { batchPublish.payloadAsBytes } returns Response.newBuilder()
+            .setId(requestId)
+            .setStatus(Response.Status.FINISHED)
+            .setResult(RPCBatchResponse(listOf(singleResponse, singleResponse)).toProtoAny())
+            .build()
+            .toByteArray()
+        every { batchPublish.userProperties } returns batchSupportProperties
+        callbackSlot.captured.accept(batchPublish)
+        batchFutures.forEach { it.get().response shouldBe expectedResult }
+    }
+
     @Nested
     inner class TestAfterSubscriptionCallback {
 
@@ -231,4 +280,95 @@ internal class RPCClientImplTest {
             }
         }
     }
+
+    @Nested
+    inner class TestResponseMultiplexing {
+
+        private val multiplexingRemote = spyk(
+            RPCClientImpl(
+                ScopeProcessor.generateScope(baseTopic),
+                CommunicatorConfig("localhost", 1000, rpcResponseMultiplexing = true)
+            ),
+            recordPrivateCalls = true
+        )
+
+        private var mqtt5Publish = mockk<Mqtt5Publish>(relaxed = true)
+        private var response = Response.newBuilder().setId(requestId)
+
+        init {
+            every { multiplexingRemote.generateRequestId() } returns requestId
+            every { mqtt5Publish.payloadAsBytes } answers { response.build().toByteArray() }
+        }
+
+        @BeforeEach
+        @Timeout(30)
+        fun activate() {
+            every {
+                mqttClient.subscribe(
+                    capture(mqttSubscribeSlot),
+                    capture(callbackSlot),
+                    GlobalCachedExecutorService.getInstance().executorService
+                )
+            } returns CompletableFuture.completedFuture(null)
+
+            multiplexingRemote.activate()
+        }
+
+        @AfterEach
+        @Timeout(30)
+        fun deactivate() {
+            multiplexingRemote.deactivate()
+        }
+
+        @Test
+        @Timeout(value = 30)
+        fun `test single subscription on activation`() {
+            mqttSubscribeSlot.captured shouldBe Mqtt5Subscribe.builder()
+                .topicFilter("${multiplexingRemote.replyTopic}/#")
+                .qos(MqttQos.EXACTLY_ONCE)
+                .build()
+
+            multiplexingRemote.callMethod(methodName, expectedResult::class, *args)
+            multiplexingRemote.callMethod(methodName, expectedResult::class, *args)
+
+            verify(exactly = 1) { mqttClient.subscribe(any(), any(), any<Executor>()) }
+            verify(exactly = 0) { mqttClient.unsubscribe(any()) }
+        }
+
+        @Test
+        @Timeout(value = 30)
+        fun `test request contains response topic`() {
+            multiplexingRemote.callMethod(methodName, expectedResult::class, *args)
+
+            mqttPublishSlot.captured.topic.toString() shouldBe "$baseTopic/rpc"
+            mqttPublishSlot.captured.responseTopic.get().toString() shouldBe "${multiplexingRemote.replyTopic}/$requestId"
+        }
+
+        @Test
+        @Timeout(value = 30)
+        fun `test response is correlated by request id`() {
+            val rpcFuture = multiplexingRemote.callMethod(methodName, expectedResult::class, *args)
+
+            response.status = Response.Status.ACKNOWLEDGED
+            callbackSlot.captured.accept(mqtt5Publish)
+            rpcFuture.isDone shouldBe false
+
+            response.status = Response.Status.FINISHED
+            response.result = RPCMethodWrapper.anyToProtoAny(expectedResult::class)(expectedResult)
+            callbackSlot.captured.accept(mqtt5Publish)
+
+            rpcFuture.isDone shouldBe true
+            rpcFuture.get().response shouldBe expectedResult
+        }
+
+        @Test
+        @Timeout(value = 30)
+        fun `test pending calls fail on deactivation`() {
+            val rpcFuture = multiplexingRemote.callMethod(methodName, expectedResult::class, *args)
+
+            multiplexingRemote.deactivate()
+
+            shouldThrow<ExecutionException> { rpcFuture.get() }
+        }
+    }
 }
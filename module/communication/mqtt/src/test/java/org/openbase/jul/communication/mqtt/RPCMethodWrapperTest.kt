@@ -2,6 +2,7 @@ package org.openbase.jul.communication.mqtt
 
 import io.kotest.assertions.throwables.shouldThrow
 import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeInstanceOf
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.TestInstance
 import org.junit.jupiter.api.Timeout
@@ -9,6 +10,7 @@ import org.openbase.jul.exception.CouldNotPerformException
 import org.openbase.type.communication.mqtt.PrimitiveType.Primitive
 import org.openbase.type.communication.mqtt.ResponseType
 import org.openbase.type.domotic.unit.UnitTemplateType
+import java.lang.reflect.InvocationTargetException
 import kotlin.Any
 import com.google.protobuf.Any as protoAny
 
@@ -64,6 +66,7 @@ internal class RPCMethodWrapperTest {
         fun `no args return`(): Double = returnValue
         fun `args no return`(arg: Double) { receivedArg = arg }
         fun `args return`(value: Double): Double = value + returnValue
+        fun `args throw`(value: Double): Double = throw CouldNotPerformException("Invalid value $value")
     }
 
     @Test
@@ -98,6 +101,30 @@ internal class RPCMethodWrapperTest {
         shouldThrow<CouldNotPerformException> { RPCMethodWrapper(FunctionProvider::`no args no return`).invoke(emptyList()) }
     }
 
+    @Test
+    @Timeout(value = 30)
+    fun `test invoke rpc method with class function and args`() {
+        val returnValue = 12.5
+        val arg = 3.25
+        val argProto: protoAny = protoAny.pack(Primitive.newBuilder().setDouble(arg).build())
+        val instance = FunctionProvider(returnValue = returnValue)
+        val wrapper = RPCMethodWrapper(FunctionProvider::`args return`, instance = instance)
+
+        // invoke multiple times to validate that the precompiled invoker can be reused
+        repeat(3) {
+            wrapper.invoke(listOf(argProto)).unpack(Primitive::class.java).double shouldBe returnValue + arg
+        }
+
+        RPCMethodWrapper(FunctionProvider::`args no return`, instance = instance).invoke(listOf(argProto)) shouldBe protoAny.getDefaultInstance()
+        instance.receivedArg shouldBe arg
+
+        // exceptions of the method are wrapped as on reflection calls
+        val exception = shouldThrow<InvocationTargetException> {
+            RPCMethodWrapper(FunctionProvider::`args throw`, instance = instance).invoke(listOf(argProto))
+        }
+        exception.cause.shouldBeInstanceOf<CouldNotPerformException>()
+    }
+
     @Test
     @Timeout(value = 30)
     fun `test invoke rpc method errors`() {
@@ -0,0 +1,125 @@
+package org.openbase.jul.communication.mqtt
+
+import io.kotest.matchers.longs.shouldBeGreaterThanOrEqual
+import io.kotest.matchers.shouldBe
+import org.junit.jupiter.api.AfterAll
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.TestInstance
+import org.junit.jupiter.api.Timeout
+import org.openbase.jul.annotation.RPCMethod
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+internal class RPCSchedulerTest {
+
+    private val executor = Executors.newCachedThreadPool()
+
+    @AfterAll
+    fun shutdownExecutor() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `test requests are rejected if the queue is full`() {
+        val scheduler = RPCScheduler(executor, concurrency = 1, queueCapacity = 1)
+        val blockingTaskStarted = CountDownLatch(1)
+        val releaseBlockingTask = CountDownLatch(1)
+        val queuedTaskExecuted = CountDownLatch(1)
+
+        scheduler.schedule(RPCMethod.Priority.NORMAL) {
+            blockingTaskStarted.countDown()
+            releaseBlockingTask.await()
+        } shouldBe true
+        blockingTaskStarted.await()
+
+        // the lane executes one request at a time and queues only one more
+        scheduler.schedule(RPCMethod.Priority.NORMAL) { queuedTaskExecuted.countDown() } shouldBe true
+        scheduler.schedule(RPCMethod.Priority.NORMAL) {} shouldBe false
+
+        scheduler.getMetrics(RPCMethod.Priority.NORMAL).apply {
+            queueDepth shouldBe 1
+            running shouldBe 1
+            rejected shouldBe 1L
+        }
+
+        releaseBlockingTask.countDown()
+        queuedTaskExecuted.await(10, TimeUnit.SECONDS) shouldBe true
+
+        scheduler.getMetrics(RPCMethod.Priority.NORMAL).apply {
+            executed shouldBe 2L
+            maxWaitTime shouldBeGreaterThanOrEqual 0
+        }
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `test high priority requests do not wait for normal ones`() {
+        val scheduler = RPCScheduler(executor, concurrency = 1, queueCapacity = 10)
+        val releaseBlockingTask = CountDownLatch(1)
+        val highPriorityTaskExecuted = CountDownLatch(1)
+
+        scheduler.schedule(RPCMethod.Priority.NORMAL) { releaseBlockingTask.await() }
+        scheduler.schedule(RPCMethod.Priority.HIGH) { highPriorityTaskExecuted.countDown() }
+
+        highPriorityTaskExecuted.await(10, TimeUnit.SECONDS) shouldBe true
+        releaseBlockingTask.countDown()
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `test high priority requests are bounded by their own lane`() {
+        val scheduler = RPCScheduler(executor, concurrency = 1, queueCapacity = 1)
+        val blockingTaskStarted = CountDownLatch(1)
+        val releaseBlockingTask = CountDownLatch(1)
+
+        scheduler.schedule(RPCMethod.Priority.HIGH) {
+            blockingTaskStarted.countDown()
+            releaseBlockingTask.await()
+        } shouldBe true
+        blockingTaskStarted.await()
+
+        scheduler.schedule(RPCMethod.Priority.HIGH) {} shouldBe true
+        scheduler.schedule(RPCMethod.Priority.HIGH) {} shouldBe false
+
+        // the normal lane is not affected by the overloaded high priority lane
+        scheduler.schedule(RPCMethod.Priority.NORMAL) {} shouldBe true
+
+        scheduler.getMetrics(RPCMethod.Priority.HIGH).apply {
+            queueDepth shouldBe 1
+            running shouldBe 1
+            rejected shouldBe 1L
+        }
+        releaseBlockingTask.countDown()
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `test requests are rejected if the executor is overloaded`() {
+        val rejectingExecutor = Executor { throw RejectedExecutionException("overloaded") }
+        val scheduler = RPCScheduler(rejectingExecutor, concurrency = 1, queueCapacity = 1)
+
+        scheduler.schedule(RPCMethod.Priority.NORMAL) {} shouldBe false
+
+        scheduler.getMetrics(RPCMethod.Priority.NORMAL).apply {
+            queueDepth shouldBe 0
+            running shouldBe 0
+            rejected shouldBe 1L
+        }
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `test direct execution without executor`() {
+        val scheduler = RPCScheduler(null, concurrency = 1, queueCapacity = 1)
+        var executed = 0
+
+        repeat(3) { scheduler.schedule(RPCMethod.Priority.NORMAL) { executed++ } shouldBe true }
+
+        executed shouldBe 3
+    }
+}
@@ -1,6 +1,7 @@
 package org.openbase.jul.communication.mqtt
 
 import com.hivemq.client.mqtt.datatypes.MqttQos
+import com.hivemq.client.mqtt.datatypes.MqttTopic
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish
 import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.Test
 import org.openbase.jul.communication.config.CommunicatorConfig
 import org.openbase.jul.communication.exception.RPCException
 import org.openbase.jul.communication.exception.RPCResolvedException
+import org.openbase.jul.communication.iface.RPCServer
 import org.openbase.jul.exception.CouldNotPerformException
 import org.openbase.jul.exception.ExceptionProcessor
 import org.openbase.jul.exception.NotAvailableException
@@ -21,6 +23,7 @@ import org.openbase.jul.extension.type.processing.ScopeProcessor
 import org.openbase.jul.schedule.GlobalCachedExecutorService
 import org.openbase.type.communication.mqtt.RequestType.Request
 import org.openbase.type.communication.mqtt.ResponseType.Response
+import java.util.*
 import java.util.concurrent.CompletableFuture
 import java.util.function.Consumer
 
@@ -46,7 +49,7 @@ internal class RPCServerImplTest {
 
     init {
         mockkObject(SharedMqttClient)
-        every { SharedMqttClient.get(any()) } returns mqttClient
+        every { SharedMqttClient.get(any(), any()) } returns mqttClient
 
         rpcServer = RPCServerImpl(
             ScopeProcessor.generateScope(baseTopic),
@@ -152,6 +155,7 @@ internal class RPCServerImplTest {
         private fun simulateMethodCall(
             methodName: String,
             id: String = "00000000-0000-0000-0000-000000000001",
+            responseTopic: String? = null,
             vararg parameter: Any,
         ) {
             val argsAsProtoAny = parameter
@@ -159,14 +163,20 @@ internal class RPCServerImplTest {
                 .zip(parameter)
                 .map { (toProtoAny, arg) -> toProtoAny(arg) }
 
-            val request = Request.newBuilder()
-                .setId(id)
-                .setMethodName(methodName)
-                .addAllParams(argsAsProtoAny)
-                .build()
+            simulateRequest(
+                Request.newBuilder()
+                    .setId(id)
+                    .setMethodName(methodName)
+                    .addAllParams(argsAsProtoAny)
+                    .build(),
+                responseTopic
+            )
+        }
 
+        private fun simulateRequest(request: Request, responseTopic: String? = null) {
             val clientRequest = mockk<Mqtt5Publish>()
             every { clientRequest.payloadAsBytes } answers { request.toByteArray() }
+            every { clientRequest.responseTopic } returns Optional.ofNullable(responseTopic?.let { MqttTopic.of(it) })
 
             callback.accept(clientRequest)
         }
@@ -193,6 +203,25 @@ internal class RPCServerImplTest {
                 .build()
         }
 
+        @Test
+        @Timeout(value = 30)
+        fun `test response on requested topic`() {
+            val responseTopic = "$baseTopic/rpc/reply/client/$requestId"
+            simulateMethodCall(
+                methodName = Adder::add.name,
+                responseTopic = responseTopic,
+                parameter = validArgs
+            )
+
+            mqttPublishSlot.takeLast(2).forEach { publish ->
+                publish.topic.toString() shouldBe responseTopic
+            }
+
+            val actualResponse = Response.parseFrom(mqttPublishSlot.last().payloadAsBytes)
+            actualResponse.id shouldBe requestId
+            actualResponse.status shouldBe Response.Status.FINISHED
+        }
+
         @Test
         @Timeout(value = 30)
         fun `test unknown method request`() {
@@ -275,5 +304,51 @@ internal class RPCServerImplTest {
             val expectedResultProto = RPCMethodWrapper.anyToProtoAny(Int::class)(expectedResult)
             actualResponse.result shouldBe expectedResultProto
         }
+
+        @Test
+        @Timeout(value = 30)
+        fun `test batch request`() {
+            val intToProtoAny = RPCMethodWrapper.anyToProtoAny(Int::class)
+            val validRequest = Request.newBuilder()
+                .setId("00000000-0000-0000-0000-000000000002")
+                .setMethodName(Adder::add.name)
+                .addAllParams(validArgs.map(intToProtoAny))
+                .build()
+            val invalidRequest = Request.newBuilder()
+                .setId("00000000-0000-0000-0000-000000000003")
+                .setMethodName(Adder::add.name)
+                .addAllParams(invalidArgs.map(intToProtoAny))
+                .build()
+
+            simulateRequest(
+                Request.newBuilder()
+                    .setId(requestId)
+                    .setMethodName(RPCServer.BATCH_METHOD_NAME)
+                    .addParams(RPCBatchRequest(listOf(validRequest, invalidRequest)).toProtoAny())
+                    .build()
+            )
+
+            val lastPublish = mqttPublishSlot.last()
+            lastPublish.topic.toString() shouldBe "$baseTopic/rpc/$requestId"
+            lastPublish.userProperties.asList()
+                .any { it.name.toString() == RPCServer.BATCH_SUPPORT_PROPERTY } shouldBe true
+
+            val actualResponse = Response.parseFrom(lastPublish.payloadAsBytes)
+            actualResponse.id shouldBe requestId
+            actualResponse.status shouldBe Response.Status.FINISHED
+            actualResponse.error.isEmpty() shouldBe true
+
+            // each call is answered individually
+            val responses = RPCBatchResponse.parseFrom(actualResponse.result).responses
+            responses.size shouldBe 2
+
+            responses[0].id shouldBe validRequest.id
+            responses[0].error.isEmpty() shouldBe true
+            responses[0].result shouldBe intToProtoAny(adder.add(validArgs[0], validArgs[1]))
+
+            responses[1].id shouldBe invalidRequest.id
+            val error = RPCResolvedException.resolveRPCException(RPCException(responses[1].error))
+            error.shouldBeTypeOf<CouldNotPerformException>()
+        }
     }
 }
@@ -5,10 +5,17 @@ import com.hivemq.client.mqtt.datatypes.MqttQos
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish
 import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe
 import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5Unsubscribe
+import io.kotest.matchers.ints.shouldBeGreaterThan
+import io.kotest.matchers.ints.shouldBeLessThanOrEqual
+import io.kotest.matchers.collections.shouldNotContain
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
+import io.kotest.matchers.types.shouldNotBeSameInstanceAs
 import org.junit.jupiter.api.Test
 import org.junit.jupiter.api.Timeout
 
 import org.openbase.jul.communication.config.CommunicatorConfig
+import org.openbase.jul.extension.type.processing.ScopeProcessor
 
 internal class SharedMqttClientTest : AbstractIntegrationTest() {
 
@@ -50,4 +57,78 @@ internal class SharedMqttClientTest : AbstractIntegrationTest() {
         client.waitForShutdown()
         client.shutdown()
     }
+
+    @Test
+    @Timeout(value = 30)
+    fun `connections should be pooled per shard key`() {
+        val config = CommunicatorConfig(brokerHost, brokerPort, connectionPoolSize = 4)
+        val client = SharedMqttClient
+        val shardKeys = (0 until 20).map { "/pool/controller/$it" }
+
+        // the same shard key is always assigned to the same connection
+        client.get(config, shardKeys[0]) shouldBeSameInstanceAs client.get(config, shardKeys[0])
+
+        // different shard keys are spread over the pool
+        val connections = shardKeys.map { client.get(config, it) }.toSet()
+        connections.size shouldBeGreaterThan 1
+        connections.size shouldBeLessThanOrEqual 4
+
+        repeat(shardKeys.size + 2) { client.release(config) }
+        client.waitForRelease(config, leased = false)
+        client.shutdown()
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `connections should stay open while leased by others`() {
+        val config = CommunicatorConfig(brokerHost, brokerPort)
+        val client = SharedMqttClient
+
+        val connection = client.get(config)
+        client.get(config) shouldBeSameInstanceAs connection
+
+        // the connection is still leased by the second communicator, so the pool is kept
+        client.waitForRelease(config)
+        client.get(config) shouldBeSameInstanceAs connection
+
+        // the pool is closed with its last lease
+        client.waitForRelease(config)
+        client.waitForRelease(config)
+        client.get(config) shouldNotBeSameInstanceAs connection
+
+        client.waitForShutdown()
+        client.shutdown()
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `communicators of a controller should share a connection`() {
+        val statusScope = ScopeProcessor.generateScope("/pool/controller/status")
+        val controlScope = ScopeProcessor.generateScope("/pool/controller/ctrl")
+
+        SharedMqttClient.resolveShardKey(statusScope) shouldBe "/pool/controller"
+        SharedMqttClient.resolveShardKey(statusScope) shouldBe SharedMqttClient.resolveShardKey(controlScope)
+    }
+
+    @Test
+    @Timeout(value = 30)
+    fun `pools should be separated by their size`() {
+        val smallPoolConfig = CommunicatorConfig(brokerHost, brokerPort, connectionPoolSize = 1)
+        val largePoolConfig = CommunicatorConfig(brokerHost, brokerPort, connectionPoolSize = 4)
+        val client = SharedMqttClient
+
+        val smallPoolConnection = client.get(smallPoolConfig, "/pool/controller")
+        val largePoolConnections = (0 until 20).map { client.get(largePoolConfig, "/pool/controller/$it") }.toSet()
+
+        // the pool size is not defined by the first config connecting to the broker
+        largePoolConnections.size shouldBeGreaterThan 1
+        largePoolConnections shouldNotContain smallPoolConnection
+
+        // shutting down one pool does not affect the other one
+        client.waitForRelease(smallPoolConfig)
+        client.get(largePoolConfig, "/pool/controller/0") shouldBeSameInstanceAs client.get(largePoolConfig, "/pool/controller/0")
+
+        client.waitForShutdown()
+        client.shutdown()
+    }
 }
@@ -7,6 +7,7 @@ import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe
 import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5Unsubscribe
 import io.kotest.matchers.shouldBe
 import io.kotest.matchers.shouldNotBe
+import io.kotest.matchers.types.shouldBeSameInstanceAs
 import io.mockk.*
 import org.junit.jupiter.api.*
 import org.junit.jupiter.api.Test
@@ -26,7 +27,7 @@ class SubscriberImplTest {
 
     init {
         mockkObject(SharedMqttClient)
-        every { SharedMqttClient.get(any()) } returns mqttClient
+        every { SharedMqttClient.get(any(), any()) } returns mqttClient
 
         every { mqttClient.publish(any()) } returns CompletableFuture.completedFuture(null)
     }
@@ -163,5 +164,33 @@ class SubscriberImplTest {
             // validate callback was not executed
             receivedEvents.size shouldBe 1
         }
+
+        @Test
+        @Timeout(value = 30)
+        fun `test user properties are shared between handlers`() {
+            val event = Event.newBuilder()
+                .setPayload(protoAny.pack(Primitive.newBuilder().setString("Payload").build()))
+                .build()
+            val receivedProperties: MutableList<Map<String, String>> = mutableListOf()
+
+            val handlerIds = listOf(
+                subscriber.registerDataHandler { _, userProperties -> receivedProperties.add(userProperties) },
+                subscriber.registerDataHandler { _, userProperties -> receivedProperties.add(userProperties) }
+            )
+
+            callback.accept(
+                Mqtt5Publish.builder()
+                    .topic(topic)
+                    .payload(event.toByteArray())
+                    .attachTimestamp()
+                    .build()
+            )
+
+            receivedProperties.size shouldBe 2
+            receivedProperties[0] shouldBeSameInstanceAs receivedProperties[1]
+            receivedProperties[0].keys shouldBe setOf(CommunicatorImpl.TIMESTAMP_KEY_MS, CommunicatorImpl.TIMESTAMP_KEY_NANO)
+
+            handlerIds.forEach { subscriber.removeDataHandler(it) }
+        }
     }
 }
@@ -0,0 +1,107 @@
+package org.openbase.jul.extension.protobuf;
+
+/*-
+ * #%L
+ * JUL Extension Protobuf
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.jul.pattern.HashChangeDetector;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the change detection strategies on large registry messages.
+ * Each benchmark checks a freshly built but unchanged message against the latest notified one,
+ * which is the common case of a controller republishing its data.
+ * <p>
+ * Run via {@code ./gradlew :jul.extension.protobuf:jmh}.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageChangeDetectionBenchmark {
+
+    @Param({"100", "10000"})
+    public int unitCount;
+
+    private UnitRegistryData latestData;
+    private UnitRegistryData.Builder dataBuilder;
+
+    private HashChangeDetector<UnitRegistryData> legacyChangeDetector;
+    private MessageChangeDetector<UnitRegistryData> messageChangeDetector;
+    private MessageChangeDetector<UnitRegistryData> hashOnlyMessageChangeDetector;
+
+    @Setup
+    public void setup() {
+        dataBuilder = UnitRegistryData.newBuilder();
+        for (int i = 0; i < unitCount; i++) {
+            dataBuilder.addLocationUnitConfig(UnitConfig.newBuilder().setId("unit-" + i));
+        }
+        latestData = dataBuilder.build();
+
+        // the strategy used before the change detection was pluggable
+        legacyChangeDetector = new HashChangeDetector<>(value -> MessageChangeDetector.removeTimestamps(value.toBuilder()).build().hashCode(), false);
+        messageChangeDetector = new MessageChangeDetector<>();
+        hashOnlyMessageChangeDetector = new MessageChangeDetector<>(false);
+
+        // prime the detectors with the latest data
+        legacyHashing();
+        messageChangeDetection();
+        hashOnlyMessageChangeDetection();
+    }
+
+    @Benchmark
+    public boolean legacyHashing() {
+        try {
+            return legacyChangeDetector.hasChanged(latestData, dataBuilder.build());
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    @Benchmark
+    public boolean messageChangeDetection() {
+        return messageChangeDetector.hasChanged(latestData, dataBuilder.build());
+    }
+
+    @Benchmark
+    public boolean hashOnlyMessageChangeDetection() {
+        return hashOnlyMessageChangeDetector.hasChanged(latestData, dataBuilder.build());
+    }
+
+}
@@ -0,0 +1,164 @@
+package org.openbase.jul.extension.protobuf;
+
+/*-
+ * #%L
+ * JUL Extension Protobuf
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.Message.Builder;
+import org.openbase.jul.pattern.ChangeDetector;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Change detector for protobuf messages which ignores changes of timestamps.
+ * Currently for efficiency reasons the timestamp of messages in repeated fields is still considered.
+ * <p>
+ * Messages are compared via their timestamp free fingerprint. Since protobuf messages memoize their hash code,
+ * the fingerprint of the latest message is only hashed once. Message types which do not contain any timestamp
+ * are used as fingerprint directly, so no copy of the message is created at all.
+ * Fingerprints with equal hashes are additionally compared via equals, so a hash collision never drops a real update.
+ *
+ * @param <M> the message type to compare.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class MessageChangeDetector<M extends Message> implements ChangeDetector<M> {
+
+    public static final String TIMESTAMP_MESSAGE_NAME = "Timestamp";
+
+    /**
+     * Caches for each message type if it contains any timestamp to remove.
+     */
+    private static final Map<Descriptor, Boolean> TIMESTAMP_TYPE_MAP = new ConcurrentHashMap<>();
+
+    private final boolean exactMatchFallback;
+
+    private M fingerprintedMessage;
+    private Message fingerprint;
+
+    /**
+     * Creates a new change detector with enabled exact match fallback.
+     */
+    public MessageChangeDetector() {
+        this(true);
+    }
+
+    /**
+     * Creates a new change detector.
+     *
+     * @param exactMatchFallback if true fingerprints with equal hashes are compared via equals.
+     */
+    public MessageChangeDetector(final boolean exactMatchFallback) {
+        this.exactMatchFallback = exactMatchFallback;
+    }
+
+    @Override
+    public boolean hasChanged(final M latestValue, final M value) {
+        if (latestValue == null) {
+            fingerprintedMessage = value;
+            fingerprint = computeFingerprint(value);
+            return true;
+        }
+
+        final Message latestFingerprint = latestValue == fingerprintedMessage ? fingerprint : computeFingerprint(latestValue);
+        final Message valueFingerprint = latestValue == value ? latestFingerprint : computeFingerprint(value);
+
+        final boolean changed = latestFingerprint.hashCode() != valueFingerprint.hashCode()
+                || (exactMatchFallback && !latestFingerprint.equals(valueFingerprint));
+
+        // cache the fingerprint of the message which is expected to be the latest value of the next notification.
+        fingerprintedMessage = changed ? value : latestValue;
+        fingerprint = changed ? valueFingerprint : latestFingerprint;
+        return changed;
+    }
+
+    /**
+     * Computes the timestamp free fingerprint of the given message.
+     *
+     * @param message the message to compute the fingerprint for.
+     *
+     * @return the message itself if it does not contain any timestamp, otherwise a copy without timestamps.
+     */
+    public static Message computeFingerprint(final Message message) {
+        if (!containsTimestamp(message.getDescriptorForType())) {
+            return message;
+        }
+        return removeTimestamps(message.toBuilder()).build();
+    }
+
+    /**
+     * Recursively clear timestamp messages from a builder. For efficiency repeated fields are ignored.
+     *
+     * @param builder the builder from which all timestamps are cleared
+     *
+     * @return the updated builder
+     */
+    public static Builder removeTimestamps(final Builder builder) {
+        final Descriptor descriptorForType = builder.getDescriptorForType();
+        for (final FieldDescriptor field : descriptorForType.getFields()) {
+
+            // if the field is not repeated, a message and a timestamp it is cleared
+            if (!field.isRepeated() && field.getType() == FieldDescriptor.Type.MESSAGE) {
+                if (field.getMessageType().getName().equals(TIMESTAMP_MESSAGE_NAME)) {
+                    builder.clearField(field);
+                } else {
+
+                    // skip checking recursively if the field is not even initialized or can not contain any timestamp
+                    if (builder.hasField(field) && containsTimestamp(field.getMessageType())) {
+                        removeTimestamps(builder.getFieldBuilder(field));
+                    }
+                }
+            }
+        }
+        return builder;
+    }
+
+    private static boolean containsTimestamp(final Descriptor descriptor) {
+        final Boolean containsTimestamp = TIMESTAMP_TYPE_MAP.get(descriptor);
+        if (containsTimestamp != null) {
+            return containsTimestamp;
+        }
+        return TIMESTAMP_TYPE_MAP.computeIfAbsent(descriptor, type -> containsTimestamp(type, new HashSet<>()));
+    }
+
+    private static boolean containsTimestamp(final Descriptor descriptor, final Set<Descriptor> visitedDescriptors) {
+        // recursive message types are only visited once
+        if (!visitedDescriptors.add(descriptor)) {
+            return false;
+        }
+
+        for (final FieldDescriptor field : descriptor.getFields()) {
+            if (field.isRepeated() || field.getType() != FieldDescriptor.Type.MESSAGE) {
+                continue;
+            }
+            if (field.getMessageType().getName().equals(TIMESTAMP_MESSAGE_NAME) || containsTimestamp(field.getMessageType(), visitedDescriptors)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
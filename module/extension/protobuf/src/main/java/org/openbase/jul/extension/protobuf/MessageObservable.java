@@ -22,27 +22,26 @@ package org.openbase.jul.extension.protobuf;
  * #L%
  */
 
-import com.google.protobuf.Descriptors;
 import com.google.protobuf.Message;
 import com.google.protobuf.Message.Builder;
 import org.openbase.jul.pattern.ObservableImpl;
 
 /**
- * This class computes the hashCode to check if the observed value has changed invariant of
- * its timestamp.
+ * This observable skips notifications of messages whose content has not changed, invariant of their timestamps.
  * Currently for efficiency reasons the timestamp of messages in repeated fields is still considered.
  *
  * @param <M> the type which is notified by this observable
  * @param <S> the source type of this observable
  * @author <a href="mailto:pleminoq@openbase.org">Tamino Huxohl</a>
+ * @see MessageChangeDetector
  */
 public class MessageObservable<S, M extends Message> extends ObservableImpl<S, M> {
 
-    public static final String TIMESTAMP_MESSAGE_NAME = "Timestamp";
+    public static final String TIMESTAMP_MESSAGE_NAME = MessageChangeDetector.TIMESTAMP_MESSAGE_NAME;
 
     public MessageObservable(final S source) {
         super(source);
-        this.setHashGenerator((M value) -> removeTimestamps(value.toBuilder()).build().hashCode());
+        this.setChangeDetector(new MessageChangeDetector<>());
     }
 
     /**
@@ -52,22 +51,6 @@ public class MessageObservable<S, M extends Message> extends ObservableImpl<S, M
      * @return the updated builder
      */
     public Builder removeTimestamps(final Builder builder) {
-        final Descriptors.Descriptor descriptorForType = builder.getDescriptorForType();
-        for (final Descriptors.FieldDescriptor field : descriptorForType.getFields()) {
-
-            // if the field is not repeated, a message and a timestamp it is cleared
-            if (!field.isRepeated() && field.getType() == Descriptors.FieldDescriptor.Type.MESSAGE) {
-                if (field.getMessageType().getName().equals(TIMESTAMP_MESSAGE_NAME)) {
-                    builder.clearField(field);
-                } else {
-
-                    // skip checking recursively if the field is not even initialized
-                    if (builder.hasField(field)) {
-                        removeTimestamps(builder.getFieldBuilder(field));
-                    }
-                }
-            }
-        }
-        return builder;
+        return MessageChangeDetector.removeTimestamps(builder);
     }
 }
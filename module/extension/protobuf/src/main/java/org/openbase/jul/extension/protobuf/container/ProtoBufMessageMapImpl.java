@@ -32,15 +32,24 @@ import org.openbase.jul.exception.NotAvailableException;
 import org.openbase.jul.extension.protobuf.BuilderSyncSetup;
 import org.openbase.jul.pattern.ObservableImpl;
 import org.openbase.jul.pattern.Observer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Map of identifiable messages which is synchronized with a repeated field of the given builder.
+ * <p>
+ * The position of each entry within the repeated field is tracked so that modifications only update the affected field elements instead of rewriting the whole field.
+ * Multiple modifications can be combined by a batch (see {@link #startBatch()} and {@link #finishBatch()}) so that the builder is only synchronized once at the end of the batch.
  *
  * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
  * @param <KEY>
@@ -60,12 +69,37 @@ public class ProtoBufMessageMapImpl<KEY extends Comparable<KEY>, M extends Abstr
 
     private final Descriptors.FieldDescriptor fieldDescriptor;
 
+    /**
+     * Index of each key within the repeated field and the inverted list to resolve the key stored at a field position.
+     * Both are guarded by the builder setup.
+     */
+    private final Map<KEY, Integer> fieldIndexMap;
+    private final List<KEY> fieldKeyList;
+
+    /**
+     * Keys modified since the last builder synchronization.
+     */
+    private final Set<KEY> pendingKeySet;
+
+    /**
+     * Generated method of the builder class which removes a single element of the repeated field, resolved on first use.
+     */
+    private Class<?> removeFieldMethodOwner;
+    private Method removeFieldMethod;
+    private boolean fullSyncRequired;
+    private int batchCounter;
+
     public ProtoBufMessageMapImpl(final BuilderSyncSetup<SIB> builderSetup, final Descriptors.FieldDescriptor fieldDescriptor) {
         this.builderSetup = builderSetup;
         this.fieldDescriptor = fieldDescriptor;
+        this.fieldIndexMap = new HashMap<>();
+        this.fieldKeyList = new ArrayList<>();
+        this.pendingKeySet = new LinkedHashSet<>();
+        this.fullSyncRequired = true;
+        this.batchCounter = 0;
         this.observable = new ObservableImpl<>();
         this.observer = (source, data) -> {
-            syncBuilder();
+            syncBuilder(data.getId());
             observable.notifyObservers(source, data);
         };
     }
@@ -89,7 +123,7 @@ public class ProtoBufMessageMapImpl<KEY extends Comparable<KEY>, M extends Abstr
             oldValue.removeObserver(observer);
         }
         value.addObserver(observer);
-        syncBuilder();
+        syncBuilder(key);
         return oldValue;
     }
 
@@ -103,24 +137,29 @@ public class ProtoBufMessageMapImpl<KEY extends Comparable<KEY>, M extends Abstr
         IdentifiableMessage<KEY, M, MB> removedValue = super.remove(key);
         if (removedValue != null) {
             removedValue.removeObserver(observer);
-            syncBuilder();
+            syncBuilder((KEY) key);
         }
         return removedValue;
     }
 
     @Override
     public void putAll(Map<? extends KEY, ? extends IdentifiableMessage<KEY, M, MB>> valueMap) {
-        for (Entry<? extends KEY, ? extends IdentifiableMessage<KEY, M, MB>> entry : valueMap.entrySet()) {
-            if (entry.getValue() == null) {
-                continue;
-            }
-            IdentifiableMessage<KEY, M, MB> oldValue = super.put(entry.getKey(), entry.getValue());
-            if (oldValue != null) {
-                oldValue.removeObserver(observer);
+        startBatch();
+        try {
+            for (Entry<? extends KEY, ? extends IdentifiableMessage<KEY, M, MB>> entry : valueMap.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                IdentifiableMessage<KEY, M, MB> oldValue = super.put(entry.getKey(), entry.getValue());
+                if (oldValue != null) {
+                    oldValue.removeObserver(observer);
+                }
+                entry.getValue().addObserver(observer);
+                syncBuilder(entry.getKey());
             }
-            entry.getValue().addObserver(observer);
+        } finally {
+            finishBatch();
         }
-        syncBuilder();
     }
 
     @Override
@@ -129,6 +168,42 @@ public class ProtoBufMessageMapImpl<KEY extends Comparable<KEY>, M extends Abstr
             value.removeObserver(observer);
         }
         super.clear();
+        synchronized (builderSetup) {
+            pendingKeySet.clear();
+            fullSyncRequired = true;
+        }
+        syncBuilder();
+    }
+
+    /**
+     * Starts a batch during which all modifications are only recorded.
+     * The builder is synchronized once the last started batch is finished via {@link #finishBatch()}.
+     * Batches can be nested.
+     */
+    public void startBatch() {
+        synchronized (builderSetup) {
+            batchCounter++;
+        }
+    }
+
+    /**
+     * Finishes a batch started via {@link #startBatch()} and synchronizes all modifications recorded during the batch with the builder.
+     */
+    public void finishBatch() {
+        synchronized (builderSetup) {
+            if (batchCounter == 0) {
+                logger.warn("Batch of " + this.getClass().getSimpleName() + " finished without being started!");
+                return;
+            }
+            batchCounter--;
+        }
+        syncBuilder();
+    }
+
+    private void syncBuilder(final KEY key) {
+        synchronized (builderSetup) {
+            pendingKeySet.add(key);
+        }
         syncBuilder();
     }
 
@@ -137,6 +212,9 @@ public class ProtoBufMessageMapImpl<KEY extends Comparable<KEY>, M extends Abstr
             return;
         }
         synchronized (builderSetup) {
+            if (batchCounter > 0 || (!fullSyncRequired && pendingKeySet.isEmpty())) {
+                return;
+            }
             try {
                 builderSetup.lockWriteInterruptibly(this);
             } catch (InterruptedException ex) {
@@ -145,16 +223,111 @@ public class ProtoBufMessageMapImpl<KEY extends Comparable<KEY>, M extends Abstr
             }
             try {
                 SIB builder = builderSetup.getBuilder();
-                builder.clearField(fieldDescriptor);
-                for (IdentifiableMessage<KEY, M, MB> value : values()) {
-                    builder.addRepeatedField(fieldDescriptor, value.getMessage());
+
+                // the field index is only valid as long as the repeated field was not modified by anyone else
+                if (fullSyncRequired || builder.getRepeatedFieldCount(fieldDescriptor) != fieldKeyList.size()) {
+                    builder.clearField(fieldDescriptor);
+                    fieldIndexMap.clear();
+                    fieldKeyList.clear();
+                    for (Entry<KEY, IdentifiableMessage<KEY, M, MB>> entry : entrySet()) {
+                        addField(builder, entry.getKey(), entry.getValue());
+                    }
+                } else {
+                    syncFields(builder);
                 }
+                pendingKeySet.clear();
+                fullSyncRequired = false;
             } finally {
                 builderSetup.unlockWrite(NotificationStrategy.AFTER_LAST_RELEASE);
             }
         }
     }
 
+    private void syncFields(final SIB builder) {
+
+        // removed entries are replaced by the last field element so only the moved element needs to be reindexed.
+        boolean removed = false;
+        for (KEY key : pendingKeySet) {
+            if (containsKey(key)) {
+                continue;
+            }
+            final Integer index = fieldIndexMap.remove(key);
+            if (index == null) {
+                continue;
+            }
+            final int lastIndex = fieldKeyList.size() - 1;
+            final KEY lastKey = fieldKeyList.remove(lastIndex);
+            if (index != lastIndex) {
+                builder.setRepeatedField(fieldDescriptor, index, builder.getRepeatedField(fieldDescriptor, lastIndex));
+                fieldKeyList.set(index, lastKey);
+                fieldIndexMap.put(lastKey, index);
+            }
+            removed = true;
+        }
+
+        // the moved elements are still stored at the end of the field, so they are removed once for all removals.
+        if (removed) {
+            truncateField(builder, fieldKeyList.size());
+        }
+
+        for (KEY key : pendingKeySet) {
+            final IdentifiableMessage<KEY, M, MB> value = super.get(key);
+            if (value == null) {
+                continue;
+            }
+            final Integer index = fieldIndexMap.get(key);
+            if (index != null) {
+                builder.setRepeatedField(fieldDescriptor, index, value.getMessage());
+            } else {
+                addField(builder, key, value);
+            }
+        }
+    }
+
+    /**
+     * Removes all elements of the repeated field behind the given size.
+     * The reflection api of protobuf does not support the removal of single elements, therefore the generated remove method of the builder is used.
+     * If it is not available, the field is cleared and only the remaining elements are added again.
+     */
+    private void truncateField(final SIB builder, final int size) {
+        final Method removeMethod = resolveRemoveFieldMethod(builder);
+        if (removeMethod != null) {
+            try {
+                for (int index = builder.getRepeatedFieldCount(fieldDescriptor) - 1; index >= size; index--) {
+                    removeMethod.invoke(builder, index);
+                }
+                return;
+            } catch (IllegalAccessException | InvocationTargetException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not remove elements of Field[" + fieldDescriptor.getName() + "]!", ex), logger, LogLevel.WARN);
+            }
+        }
+
+        final Object[] remainingElements = ((List<?>) builder.getField(fieldDescriptor)).subList(0, size).toArray();
+        builder.clearField(fieldDescriptor);
+        for (final Object element : remainingElements) {
+            builder.addRepeatedField(fieldDescriptor, element);
+        }
+    }
+
+    private Method resolveRemoveFieldMethod(final SIB builder) {
+        if (removeFieldMethodOwner != builder.getClass()) {
+            removeFieldMethodOwner = builder.getClass();
+            final String fieldName = fieldDescriptor.getJsonName();
+            try {
+                removeFieldMethod = removeFieldMethodOwner.getMethod("remove" + Character.toUpperCase(fieldName.charAt(0)) + fieldName.substring(1), int.class);
+            } catch (NoSuchMethodException ex) {
+                removeFieldMethod = null;
+            }
+        }
+        return removeFieldMethod;
+    }
+
+    private void addField(final SIB builder, final KEY key, final IdentifiableMessage<KEY, M, MB> value) {
+        fieldIndexMap.put(key, fieldKeyList.size());
+        fieldKeyList.add(key);
+        builder.addRepeatedField(fieldDescriptor, value.getMessage());
+    }
+
     public void addObserver(Observer<Object, IdentifiableMessage<KEY, M, MB>> observer) {
         observable.addObserver(observer);
     }
@@ -0,0 +1,189 @@
+package org.openbase.jul.extension.protobuf.processing;
+
+/*
+ * #%L
+ * JUL Extension Protobuf
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageOrBuilder;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.NotAvailableException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Processor to compute and apply deltas between two messages of the same type.
+ * A delta consists of a field mask naming all top level fields which have changed
+ * and a partial message only containing the values of these fields.
+ * Fields which are part of the mask but not set in the partial message have been cleared.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class ProtoBufDeltaProcessor {
+
+    /**
+     * Separator used to concatenate the field names of a field mask.
+     */
+    public static final String FIELD_MASK_SEPARATOR = ",";
+
+    /**
+     * Compute all top level fields which differ between the given messages.
+     *
+     * @param base   the message the delta refers to.
+     * @param update the updated message.
+     *
+     * @return a list of descriptors of all changed fields.
+     */
+    public static List<FieldDescriptor> computeChangedFields(final MessageOrBuilder base, final MessageOrBuilder update) {
+        final List<FieldDescriptor> changedFieldList = new ArrayList<>();
+        for (final FieldDescriptor field : update.getDescriptorForType().getFields()) {
+            if (field.isRepeated()) {
+                if (base.getRepeatedFieldCount(field) != update.getRepeatedFieldCount(field) || !base.getField(field).equals(update.getField(field))) {
+                    changedFieldList.add(field);
+                }
+                continue;
+            }
+
+            if (base.hasField(field) != update.hasField(field) || !Objects.equals(base.getField(field), update.getField(field))) {
+                changedFieldList.add(field);
+            }
+        }
+        return changedFieldList;
+    }
+
+    /**
+     * Compute all top level fields of the given update which were modified since the given base was built from the same builder.
+     * Since protobuf builders reuse the values of unmodified fields when building a message, message, string, bytes and repeated fields
+     * are considered as dirty if their value was replaced, so they are compared by their identity instead of their content.
+     * Fields set to an equal value are therefore reported as well, while the content of large fields is never compared.
+     *
+     * @param base   the message the delta refers to.
+     * @param update the updated message built from the same builder as the base.
+     *
+     * @return a list of descriptors of all dirty fields.
+     */
+    public static List<FieldDescriptor> computeDirtyFields(final MessageOrBuilder base, final MessageOrBuilder update) {
+        final List<FieldDescriptor> dirtyFieldList = new ArrayList<>();
+        for (final FieldDescriptor field : update.getDescriptorForType().getFields()) {
+            if (!field.isRepeated() && base.hasField(field) != update.hasField(field)) {
+                dirtyFieldList.add(field);
+                continue;
+            }
+
+            final Object baseValue = base.getField(field);
+            final Object updateValue = update.getField(field);
+            if (baseValue == updateValue) {
+                continue;
+            }
+
+            switch (field.getJavaType()) {
+                case MESSAGE:
+                case STRING:
+                case BYTE_STRING:
+                    dirtyFieldList.add(field);
+                    break;
+                default:
+                    // repeated fields are lists while boxed scalars are cheap to compare
+                    if (field.isRepeated() || !baseValue.equals(updateValue)) {
+                        dirtyFieldList.add(field);
+                    }
+            }
+        }
+        return dirtyFieldList;
+    }
+
+    /**
+     * Create a partial message which only contains the values of the given fields.
+     *
+     * @param update the message to extract the values from.
+     * @param fields the fields to extract.
+     *
+     * @return the partial message.
+     */
+    public static Message extractDelta(final Message update, final Collection<FieldDescriptor> fields) {
+        final Message.Builder deltaBuilder = update.newBuilderForType();
+        for (final FieldDescriptor field : fields) {
+            if (field.isRepeated() || update.hasField(field)) {
+                deltaBuilder.setField(field, update.getField(field));
+            }
+        }
+        return deltaBuilder.build();
+    }
+
+    /**
+     * Generate the string representation of a field mask.
+     *
+     * @param fields the fields of the mask.
+     *
+     * @return the field names separated by {@link #FIELD_MASK_SEPARATOR}.
+     */
+    public static String generateFieldMask(final Collection<FieldDescriptor> fields) {
+        final StringBuilder fieldMask = new StringBuilder();
+        for (final FieldDescriptor field : fields) {
+            if (fieldMask.length() > 0) {
+                fieldMask.append(FIELD_MASK_SEPARATOR);
+            }
+            fieldMask.append(field.getName());
+        }
+        return fieldMask.toString();
+    }
+
+    /**
+     * Apply a delta on the given builder. All fields named by the mask are replaced by the values of the delta
+     * or cleared if not set in the delta.
+     *
+     * @param builder   the builder to update.
+     * @param delta     the partial message containing the new values.
+     * @param fieldMask the field mask as generated by {@link #generateFieldMask(Collection)}.
+     * @param <MB>      the type of the builder.
+     *
+     * @return the updated builder.
+     *
+     * @throws CouldNotPerformException if the mask contains unknown fields.
+     */
+    public static <MB extends Message.Builder> MB applyDelta(final MB builder, final Message delta, final String fieldMask) throws CouldNotPerformException {
+        if (fieldMask.isEmpty()) {
+            return builder;
+        }
+
+        try {
+            for (final String fieldName : fieldMask.split(FIELD_MASK_SEPARATOR)) {
+                final FieldDescriptor field = builder.getDescriptorForType().findFieldByName(fieldName);
+                if (field == null) {
+                    throw new NotAvailableException("Field[" + fieldName + "] of " + builder.getDescriptorForType().getName());
+                }
+
+                if (field.isRepeated() || delta.hasField(field)) {
+                    builder.setField(field, delta.getField(field));
+                } else {
+                    builder.clearField(field);
+                }
+            }
+        } catch (CouldNotPerformException | IllegalArgumentException ex) {
+            throw new CouldNotPerformException("Could not apply delta on " + builder.getDescriptorForType().getName() + "!", ex);
+        }
+        return builder;
+    }
+}
@@ -21,21 +21,24 @@ package org.openbase.jul.extension.protobuf.processing;
  * <http://www.gnu.org/licenses/lgpl-3.0.html>.
  * #L%
  */
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonIOException;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import com.google.protobuf.AbstractMessage;
 import com.google.protobuf.Message;
 import com.google.protobuf.Message.Builder;
 import com.googlecode.protobuf.format.JsonFormat;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
-import org.apache.commons.io.FileUtils;
+import java.nio.charset.StandardCharsets;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.CouldNotTransformException;
 import org.openbase.jul.processing.FileProcessor;
@@ -60,8 +63,7 @@ import org.openbase.jul.processing.FileProcessor;
 public class ProtoBufFileProcessor<DT, M extends AbstractMessage, MB extends M.Builder<MB>> implements FileProcessor<DT> {
 
     private static final String UTF_8 = "UTF-8";
-    private final JsonParser parser;
-    private final Gson gson;
+    private static final String INDENT = "  ";
     private final JsonFormat jsonFormat;
     private final TypeToMessageTransformer<DT, M, MB> transformer;
 
@@ -76,15 +78,13 @@ public class ProtoBufFileProcessor<DT, M extends AbstractMessage, MB extends M.B
 
     public ProtoBufFileProcessor(final TypeToMessageTransformer<DT, M, MB> transformer) {
         this.transformer = transformer;
-        this.parser = new JsonParser();
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
         this.jsonFormat = new JsonFormat();
     }
 
     @Override
     public DT deserialize(final File file, final DT data) throws CouldNotPerformException {
-        try {
-            jsonFormat.merge(new FileInputStream(file), Charset.forName(UTF_8), transformer.transform(data).newBuilderForType());
+        try (InputStream inputStream = new FileInputStream(file)) {
+            jsonFormat.merge(inputStream, Charset.forName(UTF_8), transformer.transform(data).newBuilderForType());
             return data;
         } catch (IOException ex) {
             throw new CouldNotPerformException("Could not deserialize " + file + " into " + data + "!", ex);
@@ -94,25 +94,105 @@ public class ProtoBufFileProcessor<DT, M extends AbstractMessage, MB extends M.B
     @Override
     public File serialize(final DT data, final File file) throws CouldNotPerformException {
         try {
-            String jsonString = jsonFormat.printToString(transformer.transform(data));
+            final Message message = transformer.transform(data);
+            return writeContent(outputStream -> write(message, outputStream), file);
+        } catch (CouldNotPerformException ex) {
+            throw new CouldNotPerformException("Could not serialize " + transformer + " into " + file + "!", ex);
+        }
+    }
+
+    /**
+     * Serializes the given data into pretty printed json.
+     *
+     * @param data the data to serialize.
+     * @return the utf-8 encoded json content.
+     * @throws CouldNotPerformException is thrown if the data could not be serialized.
+     */
+    @Override
+    public byte[] serializeContent(final DT data) throws CouldNotPerformException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            write(transformer.transform(data), outputStream);
+        } catch (IOException | IllegalStateException ex) {
+            throw new CouldNotPerformException("Could not serialize " + transformer + "!", ex);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Writes the given message as pretty printed json into the given stream.
+     * The message is printed by {@link JsonFormat}, whose compact output is pretty printed by gson token by token without building a json tree.
+     *
+     * @param message the message to write.
+     * @param outputStream the stream to write to.
+     * @throws IOException is thrown if the stream could not be written.
+     */
+    private void write(final Message message, final OutputStream outputStream) throws IOException {
+        final ByteArrayOutputStream jsonStream = new ByteArrayOutputStream();
+        jsonFormat.print(message, jsonStream, StandardCharsets.UTF_8);
 
-            // format
-            JsonElement el = parser.parse(jsonString);
-            jsonString = gson.toJson(el);
+        final JsonReader reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(jsonStream.toByteArray()), StandardCharsets.UTF_8));
+        reader.setLenient(true);
 
-            //write
-            FileUtils.writeStringToFile(file, jsonString, UTF_8);
-            return file;
-        } catch (IOException | JsonIOException | JsonSyntaxException ex) {
-            throw new CouldNotPerformException("Could not serialize " + transformer + " into " + file + "!", ex);
+        final JsonWriter writer = new JsonWriter(new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)));
+
+        // same setup as used by the gson pretty printer to keep the file format stable.
+        writer.setLenient(true);
+        writer.setIndent(INDENT);
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+
+        prettyPrint(reader, writer);
+        writer.flush();
+    }
+
+    private static void prettyPrint(final JsonReader reader, final JsonWriter writer) throws IOException {
+        while (true) {
+            switch (reader.peek()) {
+                case BEGIN_OBJECT:
+                    reader.beginObject();
+                    writer.beginObject();
+                    break;
+                case END_OBJECT:
+                    reader.endObject();
+                    writer.endObject();
+                    break;
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    writer.beginArray();
+                    break;
+                case END_ARRAY:
+                    reader.endArray();
+                    writer.endArray();
+                    break;
+                case NAME:
+                    writer.name(reader.nextName());
+                    break;
+                case STRING:
+                    writer.value(reader.nextString());
+                    break;
+                case NUMBER:
+                    // keep the number representation of json format.
+                    writer.jsonValue(reader.nextString());
+                    break;
+                case BOOLEAN:
+                    writer.value(reader.nextBoolean());
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    writer.nullValue();
+                    break;
+                case END_DOCUMENT:
+                    return;
+            }
         }
     }
 
     @Override
     public DT deserialize(File file) throws CouldNotPerformException {
         MB builder = transformer.newBuilderForType();
-        try {
-            jsonFormat.merge(new FileInputStream(file), Charset.forName(UTF_8), builder);
+        try (InputStream inputStream = new FileInputStream(file)) {
+            jsonFormat.merge(inputStream, Charset.forName(UTF_8), builder);
             return transformer.transform((M) builder.build());
         } catch (IOException | CouldNotPerformException ex) {
             throw new CouldNotPerformException("Could not deserialize " + file + " into " + builder + "!", ex);
@@ -0,0 +1,83 @@
+package org.openbase.jul.extension.protobuf;
+
+/*-
+ * #%L
+ * JUL Extension Protobuf
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.Test;
+import org.openbase.jul.pattern.HashChangeDetector;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.state.PowerStateType.PowerState;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.dal.ColorableLightDataType.ColorableLightData;
+import org.openbase.type.timing.TimestampType.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class MessageChangeDetectorTest {
+
+    @Test
+    public void testTimestampChangesAreIgnored() {
+        final PowerState powerState1 = PowerState.newBuilder().setTimestamp(Timestamp.newBuilder().setTime(20)).setValue(PowerState.State.ON).build();
+        final PowerState powerState2 = PowerState.newBuilder().setTimestamp(Timestamp.newBuilder().setTime(100)).setValue(PowerState.State.ON).build();
+        final PowerState powerState3 = PowerState.newBuilder().setTimestamp(Timestamp.newBuilder().setTime(100)).setValue(PowerState.State.OFF).build();
+
+        final ColorableLightData data1 = ColorableLightData.newBuilder().setPowerState(powerState1).build();
+        final ColorableLightData data2 = ColorableLightData.newBuilder().setPowerState(powerState2).build();
+        final ColorableLightData data3 = ColorableLightData.newBuilder().setPowerState(powerState3).build();
+
+        final MessageChangeDetector<ColorableLightData> changeDetector = new MessageChangeDetector<>();
+        assertTrue(changeDetector.hasChanged(null, data1));
+        assertFalse(changeDetector.hasChanged(data1, data2), "Only the timestamp has changed");
+        assertTrue(changeDetector.hasChanged(data1, data3), "The power state has changed");
+
+        // messages without timestamps are used as fingerprint directly
+        final Timestamp timestamp = Timestamp.newBuilder().setTime(20).build();
+        assertSame(timestamp, MessageChangeDetector.computeFingerprint(timestamp));
+    }
+
+    @Test
+    public void testRepeatedFieldChanges() {
+        final UnitRegistryData registryData = UnitRegistryData.newBuilder().addLocationUnitConfig(UnitConfig.newBuilder().setId("1")).build();
+
+        final MessageChangeDetector<UnitRegistryData> changeDetector = new MessageChangeDetector<>();
+        assertTrue(changeDetector.hasChanged(null, registryData));
+        assertFalse(changeDetector.hasChanged(registryData, registryData.toBuilder().build()));
+        assertTrue(changeDetector.hasChanged(registryData, registryData.toBuilder().addLocationUnitConfig(UnitConfig.newBuilder().setId("2")).build()));
+    }
+
+    @Test
+    public void testHashCollisionIsDetected() throws Exception {
+        // all values share the same hash, so only the exact match fallback can detect the change.
+        final HashChangeDetector<String> changeDetector = new HashChangeDetector<>(value -> 0);
+        assertTrue(changeDetector.hasChanged(null, "A"));
+        assertFalse(changeDetector.hasChanged("A", "A"));
+        assertTrue(changeDetector.hasChanged("A", "B"));
+
+        final HashChangeDetector<String> hashOnlyChangeDetector = new HashChangeDetector<>(value -> 0, false);
+        assertFalse(hashOnlyChangeDetector.hasChanged("A", "B"));
+    }
+}
@@ -0,0 +1,119 @@
+package org.openbase.jul.extension.protobuf.container;
+
+/*
+ * #%L
+ * JUL Extension Protobuf
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openbase.jps.core.JPService;
+import org.openbase.jps.exception.JPServiceException;
+import org.openbase.jul.extension.protobuf.BuilderSyncSetup;
+import org.openbase.jul.extension.protobuf.IdentifiableMessage;
+import org.openbase.type.domotic.registry.UnitRegistryDataType.UnitRegistryData;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class ProtoBufMessageMapImplTest {
+
+    private UnitRegistryData.Builder builder;
+    private ProtoBufMessageMapImpl<String, UnitConfig, UnitConfig.Builder, UnitRegistryData.Builder> messageMap;
+
+    @BeforeAll
+    @Timeout(30)
+    public static void setUpClass() throws JPServiceException {
+        JPService.setupJUnitTestMode();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        final FieldDescriptor fieldDescriptor = UnitRegistryData.getDescriptor().findFieldByNumber(UnitRegistryData.LOCATION_UNIT_CONFIG_FIELD_NUMBER);
+        builder = UnitRegistryData.newBuilder();
+        messageMap = new ProtoBufMessageMapImpl<>(new BuilderSyncSetup<>(builder, lock.readLock(), lock.writeLock(), () -> {
+        }), fieldDescriptor);
+    }
+
+    @Test
+    @Timeout(10)
+    public void testIncrementalBuilderSync() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            messageMap.put(createEntry("Unit" + i, "Alias" + i));
+        }
+        assertEquals(new HashSet<>(Arrays.asList("Unit0", "Unit1", "Unit2", "Unit3", "Unit4")), getSyncedIds());
+
+        // remove an entry in the middle of the field
+        messageMap.remove("Unit1");
+        assertEquals(new HashSet<>(Arrays.asList("Unit0", "Unit2", "Unit3", "Unit4")), getSyncedIds());
+
+        // update an entry
+        messageMap.put(createEntry("Unit4", "UpdatedAlias"));
+        assertEquals(4, builder.getLocationUnitConfigCount());
+        for (UnitConfig unitConfig : builder.getLocationUnitConfigList()) {
+            assertEquals(unitConfig.getId().equals("Unit4") ? "UpdatedAlias" : unitConfig.getId().replace("Unit", "Alias"), unitConfig.getAlias(0));
+        }
+
+        // remove the last entry and the first one
+        messageMap.remove("Unit4");
+        messageMap.remove("Unit0");
+        assertEquals(new HashSet<>(Arrays.asList("Unit2", "Unit3")), getSyncedIds());
+    }
+
+    @Test
+    @Timeout(10)
+    public void testBatchSync() throws Exception {
+        messageMap.put(createEntry("Unit0", "Alias0"));
+
+        messageMap.startBatch();
+        messageMap.put(createEntry("Unit1", "Alias1"));
+        messageMap.put(createEntry("Unit2", "Alias2"));
+        messageMap.remove("Unit0");
+
+        // builder is not synchronized until the batch is finished
+        assertEquals(1, builder.getLocationUnitConfigCount());
+        assertEquals("Unit0", builder.getLocationUnitConfig(0).getId());
+
+        messageMap.finishBatch();
+        assertEquals(new HashSet<>(Arrays.asList("Unit1", "Unit2")), getSyncedIds());
+    }
+
+    private Set<String> getSyncedIds() {
+        assertEquals(messageMap.size(), builder.getLocationUnitConfigCount(), "Repeated field size does not match the map size!");
+        return builder.getLocationUnitConfigList().stream().map(UnitConfig::getId).collect(Collectors.toSet());
+    }
+
+    private IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> createEntry(final String id, final String alias) throws Exception {
+        return new IdentifiableMessage<>(UnitConfig.newBuilder().setId(id).addAlias(alias).build());
+    }
+}
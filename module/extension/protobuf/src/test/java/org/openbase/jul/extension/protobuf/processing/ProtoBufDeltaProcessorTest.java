@@ -0,0 +1,107 @@
+package org.openbase.jul.extension.protobuf.processing;
+
+/*-
+ * #%L
+ * JUL Extension Protobuf
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+import java.util.List;
+
+/**
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class ProtoBufDeltaProcessorTest {
+
+    @Test
+    @Timeout(10)
+    public void testDeltaOfChangedField() throws CouldNotPerformException {
+        final UnitConfig base = UnitConfig.newBuilder().setId("1").addAlias("a").build();
+        final UnitConfig update = UnitConfig.newBuilder().setId("1").addAlias("a").addAlias("b").build();
+
+        final List<FieldDescriptor> changedFields = ProtoBufDeltaProcessor.computeChangedFields(base, update);
+        Assertions.assertEquals(1, changedFields.size());
+        Assertions.assertEquals(UnitConfig.ALIAS_FIELD_NUMBER, changedFields.get(0).getNumber());
+
+        final UnitConfig delta = (UnitConfig) ProtoBufDeltaProcessor.extractDelta(update, changedFields);
+        Assertions.assertFalse(delta.hasId());
+
+        final String fieldMask = ProtoBufDeltaProcessor.generateFieldMask(changedFields);
+        Assertions.assertEquals(update, ProtoBufDeltaProcessor.applyDelta(base.toBuilder(), delta, fieldMask).build());
+    }
+
+    @Test
+    @Timeout(10)
+    public void testDeltaOfClearedFields() throws CouldNotPerformException {
+        final UnitConfig base = UnitConfig.newBuilder().setId("1").addAlias("a").build();
+        final UnitConfig update = UnitConfig.newBuilder().build();
+
+        final List<FieldDescriptor> changedFields = ProtoBufDeltaProcessor.computeChangedFields(base, update);
+        Assertions.assertEquals(2, changedFields.size());
+
+        final UnitConfig delta = (UnitConfig) ProtoBufDeltaProcessor.extractDelta(update, changedFields);
+        final String fieldMask = ProtoBufDeltaProcessor.generateFieldMask(changedFields);
+        Assertions.assertEquals(update, ProtoBufDeltaProcessor.applyDelta(base.toBuilder(), delta, fieldMask).build());
+    }
+
+    @Test
+    @Timeout(10)
+    public void testEmptyDelta() throws CouldNotPerformException {
+        final UnitConfig base = UnitConfig.newBuilder().setId("1").addAlias("a").build();
+
+        final List<FieldDescriptor> changedFields = ProtoBufDeltaProcessor.computeChangedFields(base, base);
+        Assertions.assertTrue(changedFields.isEmpty());
+
+        final String fieldMask = ProtoBufDeltaProcessor.generateFieldMask(changedFields);
+        Assertions.assertEquals(base, ProtoBufDeltaProcessor.applyDelta(base.toBuilder(), UnitConfig.getDefaultInstance(), fieldMask).build());
+    }
+
+    @Test
+    @Timeout(10)
+    public void testDirtyFieldsOfSameBuilder() throws CouldNotPerformException {
+        final UnitConfig.Builder builder = UnitConfig.newBuilder().setId("1").addAlias("a");
+        final UnitConfig base = builder.clone().build();
+
+        Assertions.assertTrue(ProtoBufDeltaProcessor.computeDirtyFields(base, builder.clone().build()).isEmpty());
+
+        builder.addAlias("b");
+        final UnitConfig update = builder.clone().build();
+
+        final List<FieldDescriptor> dirtyFields = ProtoBufDeltaProcessor.computeDirtyFields(base, update);
+        Assertions.assertEquals(1, dirtyFields.size());
+        Assertions.assertEquals(UnitConfig.ALIAS_FIELD_NUMBER, dirtyFields.get(0).getNumber());
+
+        final UnitConfig delta = (UnitConfig) ProtoBufDeltaProcessor.extractDelta(update, dirtyFields);
+        final String fieldMask = ProtoBufDeltaProcessor.generateFieldMask(dirtyFields);
+        Assertions.assertEquals(update, ProtoBufDeltaProcessor.applyDelta(base.toBuilder(), delta, fieldMask).build());
+    }
+
+    @Test
+    @Timeout(10)
+    public void testUnknownFieldInMask() {
+        Assertions.assertThrows(CouldNotPerformException.class, () -> ProtoBufDeltaProcessor.applyDelta(UnitConfig.newBuilder(), UnitConfig.getDefaultInstance(), "unknown_field"));
+    }
+}
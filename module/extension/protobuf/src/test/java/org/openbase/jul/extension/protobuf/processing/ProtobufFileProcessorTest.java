@@ -22,17 +22,26 @@ package org.openbase.jul.extension.protobuf.processing;
  * #L%
  */
 
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
 import com.google.protobuf.ByteString;
+import com.googlecode.protobuf.format.JsonFormat;
 import org.junit.jupiter.api.Test;
+import org.openbase.jul.processing.FileProcessor;
 import org.openbase.type.domotic.authentication.LoginCredentialsType.LoginCredentials;
 import org.openbase.type.domotic.authentication.LoginCredentialsType.LoginCredentials.Builder;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+import org.openbase.type.domotic.unit.UnitTemplateType.UnitTemplate.UnitType;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.util.Arrays;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 /**
  * @author <a href="mailto:pleminoq@openbase.org">Tamino Huxohl</a>
@@ -53,6 +62,46 @@ public class ProtobufFileProcessorTest {
         assertEquals(loginCredentials, fileProcessor.deserialize(testFile));
     }
 
+    @Test
+    public void testSerializationFormat() throws Exception {
+        final ProtoBufFileProcessor<LoginCredentials, LoginCredentials, Builder> fileProcessor = new ProtoBufFileProcessor<>(LoginCredentials.newBuilder());
+
+        final File testFile = File.createTempFile("serializationFormat", ".json");
+        testFile.deleteOnExit();
+        final LoginCredentials loginCredentials = LoginCredentials.newBuilder()
+                .setId("<user & id>")
+                .setCredentials(ByteString.copyFrom(hash("12345678"))).build();
+        fileProcessor.serialize(loginCredentials, testFile);
+
+        // the file format has to match the former gson pretty printing to avoid changes of existing databases
+        final String expected = new GsonBuilder().setPrettyPrinting().create().toJson(JsonParser.parseString(new JsonFormat().printToString(loginCredentials)));
+        assertEquals(expected, new String(Files.readAllBytes(testFile.toPath()), StandardCharsets.UTF_8));
+        assertEquals(loginCredentials, fileProcessor.deserialize(testFile));
+    }
+
+    @Test
+    public void testStreamedSerialization() throws Exception {
+        final ProtoBufFileProcessor<UnitConfig, UnitConfig, UnitConfig.Builder> fileProcessor = new ProtoBufFileProcessor<>(UnitConfig.newBuilder());
+
+        final File testFile = File.createTempFile("streamedSerialization", ".json");
+        testFile.deleteOnExit();
+        final UnitConfig unitConfig = UnitConfig.newBuilder()
+                .setId("unit_id")
+                .setUnitType(UnitType.COLORABLE_LIGHT)
+                .setUnitHostId("host \"id\"")
+                .addAlias("Light-1")
+                .addAlias("Light-2").build();
+        fileProcessor.serialize(unitConfig, testFile);
+
+        // the file is streamed directly but still matches the in memory serialization and the former gson pretty printing
+        final byte[] content = Files.readAllBytes(testFile.toPath());
+        final String expected = new GsonBuilder().setPrettyPrinting().create().toJson(JsonParser.parseString(new JsonFormat().printToString(unitConfig)));
+        assertEquals(expected, new String(content, StandardCharsets.UTF_8));
+        assertArrayEquals(fileProcessor.serializeContent(unitConfig), content);
+        assertFalse(FileProcessor.getTempFile(testFile.toPath().toAbsolutePath()).toFile().exists(), "Temporary file not removed!");
+        assertEquals(unitConfig, fileProcessor.deserialize(testFile));
+    }
+
     private byte[] hash(String toHash) throws Exception {
         byte[] key = toHash.getBytes(StandardCharsets.UTF_16);
         String HASH_ALGORITHM = "SHA-256";
@@ -1,5 +1,6 @@
 plugins {
     id("org.openbase.jul")
+    id("me.champeau.jmh")
 }
 
 dependencies {
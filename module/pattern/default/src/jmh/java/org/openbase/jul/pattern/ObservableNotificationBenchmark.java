@@ -0,0 +1,74 @@
+package org.openbase.jul.pattern;
+
+/*
+ * #%L
+ * JUL Pattern Default
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the synchronous notification of an observable with a different number of registered observers.
+ * <p>
+ * Run via {@code ./gradlew :jul.pattern.default:jmh}, adding {@code -prof gc} to the jmh arguments reveals the allocation rate per notification.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObservableNotificationBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int observerCount;
+
+    private ObservableImpl<Object, Integer> observable;
+    private int value;
+    private long notificationCounter;
+
+    @Setup
+    public void setup() {
+        observable = new ObservableImpl<>(false, this);
+        for (int i = 0; i < observerCount; i++) {
+            observable.addObserver((source, data) -> notificationCounter += data);
+        }
+    }
+
+    @Benchmark
+    public boolean notifyObservers() throws CouldNotPerformException {
+        return observable.notifyObservers(value++);
+    }
+}
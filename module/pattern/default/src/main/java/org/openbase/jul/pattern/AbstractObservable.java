@@ -24,12 +24,12 @@ package org.openbase.jul.pattern;
 
 import org.openbase.jul.exception.*;
 import org.openbase.jul.exception.MultiException.ExceptionStack;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionException;
 
 /**
@@ -47,8 +47,45 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
 
     private static final boolean DEFAULT_UNCHANGED_VALUE_FILTER = true;
 
+    /**
+     * Notifications taking longer than this time in milliseconds are logged in debug mode.
+     */
+    private static final long NOTIFICATION_TIME_WARNING_THRESHOLD = 500;
+
+    private static final Observer[] EMPTY_OBSERVERS = new Observer[0];
+
     protected final boolean unchangedValueFilter;
-    protected final List<Observer<S, T>> observers;
+
+    /**
+     * Immutable array of all registered observers. The array is replaced on each registration change,
+     * so notifications can iterate the current array without locking or copying it.
+     */
+    private volatile Observer<S, T>[] observerArray;
+
+    /**
+     * Read only view of all registered observers.
+     *
+     * @deprecated the observers are managed internally, use {@link #addObserver(Observer)} and {@link #removeObserver(Observer)} to modify them.
+     * This view is kept for compatibility and throws an {@code UnsupportedOperationException} on any modification.
+     */
+    @Deprecated
+    protected final List<Observer<S, T>> observers = new AbstractList<Observer<S, T>>() {
+        @Override
+        public Observer<S, T> get(final int index) {
+            return observerArray[index];
+        }
+
+        @Override
+        public int size() {
+            return observerArray.length;
+        }
+
+        @Override
+        public Iterator<Observer<S, T>> iterator() {
+            // iterate a snapshot to never fail on concurrent registration changes.
+            return Arrays.asList(observerArray).iterator();
+        }
+    };
     private final Object OBSERVER_LOCK = new Object() {
         @Override
         public String toString() {
@@ -68,11 +105,20 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
             return "NotificationProgressLock";
         }
     };
-    protected int latestValueHash;
-    private boolean notificationInProgress = false;
+
+    /**
+     * The latest notified value, only tracked if the unchanged value filter is enabled.
+     */
+    private T latestValue;
+    private volatile boolean notificationInProgress = false;
+
+    /**
+     * Number of threads waiting until the ongoing notification is finished, guarded by the {@code NOTIFICATION_PROGRESS_LOCK}.
+     */
+    private volatile int notificationWaiterCount = 0;
     private S source;
     private ExecutorService executorService;
-    private HashGenerator<T> hashGenerator;
+    private ChangeDetector<T> changeDetector;
 
     private boolean shutdownInitiated = false;
 
@@ -112,10 +158,10 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
      * @param source               the responsible source of the value notifications.
      */
     public AbstractObservable(final boolean unchangedValueFilter, final S source) {
-        this.observers = new ArrayList<>();
+        this.observerArray = emptyObservers();
         this.unchangedValueFilter = unchangedValueFilter;
         this.source = source;
-        this.hashGenerator = new HashGenerator<T>() {
+        this.changeDetector = new HashChangeDetector<>(new HashGenerator<T>() {
             @Override
             public int computeHash(T value) throws CouldNotPerformException {
                 try {
@@ -124,7 +170,7 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
                     throw new FatalImplementationErrorException("Observable has changed during hash computation in notification! Set a HashGenerator for the observable to control the hash computation yourself!", this, ex);
                 }
             }
-        };
+        });
     }
 
     /**
@@ -135,11 +181,14 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
     @Override
     public void addObserver(final Observer<S, T> observer) {
         synchronized (OBSERVER_LOCK) {
-            if (observers.contains(observer)) {
+            final Observer<S, T>[] currentObservers = observerArray;
+            if (indexOf(currentObservers, observer) != -1) {
                 LOGGER.warn("Skip observer registration. Observer[" + observer + "] is already registered!");
                 return;
             }
-            observers.add(observer);
+            final Observer<S, T>[] newObservers = Arrays.copyOf(currentObservers, currentObservers.length + 1);
+            newObservers[currentObservers.length] = observer;
+            observerArray = newObservers;
         }
     }
 
@@ -151,7 +200,14 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
     @Override
     public void removeObserver(final Observer<S, T> observer) {
         synchronized (OBSERVER_LOCK) {
-            observers.remove(observer);
+            final Observer<S, T>[] currentObservers = observerArray;
+            final int index = indexOf(currentObservers, observer);
+            if (index == -1) {
+                return;
+            }
+            final Observer<S, T>[] newObservers = Arrays.copyOf(currentObservers, currentObservers.length - 1);
+            System.arraycopy(currentObservers, index + 1, newObservers, index, currentObservers.length - index - 1);
+            observerArray = newObservers;
         }
     }
 
@@ -171,8 +227,22 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
      */
     public void reset() {
         synchronized (OBSERVER_LOCK) {
-            observers.clear();
+            observerArray = emptyObservers();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S, T> Observer<S, T>[] emptyObservers() {
+        return (Observer<S, T>[]) EMPTY_OBSERVERS;
+    }
+
+    private static int indexOf(final Observer<?, ?>[] observers, final Observer<?, ?> observer) {
+        for (int i = 0; i < observers.length; i++) {
+            if (observers[i].equals(observer)) {
+                return i;
+            }
         }
+        return -1;
     }
 
     /**
@@ -183,7 +253,7 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
      * done by computing its hash value. Therefore, if the observable is a collection, and it is changed
      * while notifying a concurrent modification exception can occur. To avoid this compute the
      * observable hash yourself by setting a hash generator.
-     * If this method is interrupted a rollback is done by resetting the latestHashValue. Thus, the observable
+     * If this method is interrupted a rollback is done by restoring the latest notified value. Thus, the observable
      * has not changed and false is returned.
      *
      * @param observable the value which is notified
@@ -205,7 +275,7 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
      * done by computing its hash value. Therefore, if the observable is a collection, and it is changed
      * while notifying a concurrent modification exception can occur. To avoid this compute the
      * observable hash yourself by setting a hash generator.
-     * If this method is interrupted a rollback is done by resetting the latestHashValue. Thus, the observable
+     * If this method is interrupted a rollback is done by restoring the latest notified value. Thus, the observable
      * has not changed and false is returned.
      * <p>
      * Note: In case the given observable is null this notification will be ignored.
@@ -221,23 +291,20 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
     public boolean notifyObservers(final S source, final T observable) throws MultiException, CouldNotPerformException {
         try {
             synchronized (NOTIFICATION_MESSAGE_LOCK) {
-                long wholeTime = System.currentTimeMillis();
                 if (observable == null) {
                     LOGGER.debug("Skip notification because observable is null!");
                     return false;
                 }
 
-                ExceptionStack exceptionStack = null;
-                final Map<Observer<S, T>, Future<Void>> notificationFutureList = new HashMap<>();
+                // notification times are only measured if they can be logged.
+                final boolean timed = LOGGER.isDebugEnabled();
+                final long wholeTime = timed ? System.currentTimeMillis() : 0;
 
-                final ArrayList<Observer<S, T>> tempObserverList;
+                ExceptionStack exceptionStack = null;
 
                 try {
-                    synchronized (NOTIFICATION_PROGRESS_LOCK) {
-                        notificationInProgress = true;
-                    }
-                    final int observableHash = hashGenerator.computeHash(observable);
-                    if (unchangedValueFilter && isValueAvailable() && observableHash == latestValueHash) {
+                    notificationInProgress = true;
+                    if (unchangedValueFilter && !changeDetector.hasChanged(latestValue, observable) && isValueAvailable()) {
                         if (LOGGER.isDebugEnabled()) {
                             LOGGER.trace("Skip notification because {} has not been changed!", this);
                         }
@@ -245,33 +312,33 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
                     }
 
                     applyValueUpdate(observable);
-                    final int lastHashValue = latestValueHash;
-                    latestValueHash = observableHash;
-
-                    synchronized (OBSERVER_LOCK) {
-                        tempObserverList = new ArrayList<>(observers);
+                    final T lastValue = latestValue;
+                    if (unchangedValueFilter) {
+                        latestValue = observable;
                     }
 
-                    for (final Observer<S, T> observer : tempObserverList) {
+                    // the array is never modified, so it can be iterated without any further synchronization.
+                    final Observer<S, T>[] currentObservers = observerArray;
+
+                    for (final Observer<S, T> observer : currentObservers) {
 
                         // skip ongoing notifications if shutdown was initiated or the thread was interrupted.
                         if (shutdownInitiated || Thread.currentThread().isInterrupted()) {
-                            latestValueHash = lastHashValue;
+                            latestValue = lastValue;
                             return false;
                         }
 
                         if (executorService == null) {
 
                             // synchronous notification
-                            long time = System.currentTimeMillis();
+                            final long time = timed ? System.currentTimeMillis() : 0;
                             try {
                                 observer.update(source, observable);
-                                time = System.currentTimeMillis() - time;
-                                if (time > 500) {
-                                    LOGGER.debug("Notification to observer[{}] took: {}ms", observer, time);
+                                if (timed && System.currentTimeMillis() - time > NOTIFICATION_TIME_WARNING_THRESHOLD) {
+                                    LOGGER.debug("Notification to observer[{}] took: {}ms", observer, System.currentTimeMillis() - time);
                                 }
                             } catch (InterruptedException ex) {
-                                latestValueHash = lastHashValue;
+                                latestValue = lastValue;
                                 Thread.currentThread().interrupt();
                                 return false;
                             } catch (Exception ex) {
@@ -283,11 +350,18 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
                             }
                         } else {
                             try {
-                                // asynchronous notification
-                                notificationFutureList.put(observer, executorService.submit(() -> {
-                                    observer.update(source, observable);
-                                    return null;
-                                }));
+                                // asynchronous notification, failed updates are reported by the executing thread since the notification is not awaited.
+                                executorService.submit(() -> {
+                                    try {
+                                        observer.update(source, observable);
+                                    } catch (InterruptedException ex) {
+                                        Thread.currentThread().interrupt();
+                                    } catch (Exception ex) {
+                                        if (!ExceptionProcessor.isCausedBySystemShutdown(ex)) {
+                                            ExceptionPrinter.printHistory(new CouldNotPerformException("Observer[" + observer.getClass().getSimpleName() + "] update failed!", ex), LOGGER);
+                                        }
+                                    }
+                                });
                             } catch (RejectedExecutionException ex) {
                                 exceptionStack = MultiException.push(observer, new CouldNotPerformException("Observer[" + observer.getClass().getSimpleName() + "] update failed!", new InvalidStateException("Executor service seems to be busy or offline.")), exceptionStack);
                             }
@@ -295,30 +369,16 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
                     }
                 } finally {
                     assert observable != null;
-                    synchronized (NOTIFICATION_PROGRESS_LOCK) {
-                        notificationInProgress = false;
-                        NOTIFICATION_PROGRESS_LOCK.notifyAll();
+                    notificationInProgress = false;
+
+                    // only take the monitor if someone is waiting for the notification to finish.
+                    if (notificationWaiterCount > 0) {
+                        synchronized (NOTIFICATION_PROGRESS_LOCK) {
+                            NOTIFICATION_PROGRESS_LOCK.notifyAll();
+                        }
                     }
                 }
 
-
-                // handle exception printing for async variant
-                // todo: Many notifications are failing if enabled. There seems to be any lock issue
-//            if (executorService != null) {
-//                for (final Entry<Observer<S, T>, Future<Void>> notificationFuture : notificationFutureList.entrySet()) {
-//                    try {
-//                        notificationFuture.getValue().get(1, TimeUnit.SECONDS);
-//                    } catch (InterruptedException ex) {
-//                        Thread.currentThread().interrupt();
-//                        return true;
-//                    } catch (Exception ex) {
-//                        if(!ExceptionProcessor.isCausedBySystemShutdown(ex)) {
-//                            exceptionStack = MultiException.push(notificationFuture.getKey(), new CouldNotPerformException("Observer[" + notificationFuture.getKey().getClass().getSimpleName() + "] update failed!", ex), exceptionStack);
-//                        }
-//                    }
-//                }
-//            }
-
                 MultiException.checkAndThrow(() -> {
                     // limit exception method length because notified data can be huge.
                     String stringRep = observable.toString();
@@ -328,9 +388,8 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
                     return "Could not notify Data[" + stringRep + "] to all observer!";
                 }, exceptionStack);
 
-                wholeTime = System.currentTimeMillis() - wholeTime;
-                if (wholeTime > 500) {
-                    LOGGER.debug("Notification on observable[{}] took: {}ms", observable.getClass().getName(), wholeTime);
+                if (timed && System.currentTimeMillis() - wholeTime > NOTIFICATION_TIME_WARNING_THRESHOLD) {
+                    LOGGER.debug("Notification on observable[{}] took: {}ms", observable.getClass().getName(), System.currentTimeMillis() - wholeTime);
                 }
                 return true;
             }
@@ -364,8 +423,26 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
         this.executorService = executorService;
     }
 
+    /**
+     * Method configures the hash generator used to detect unchanged values.
+     * Values with the same hash are additionally compared via equals, so hash collisions never drop an update.
+     *
+     * @param hashGenerator the generator used to compute the value hashes.
+     */
     public void setHashGenerator(HashGenerator<T> hashGenerator) {
-        this.hashGenerator = hashGenerator;
+        setChangeDetector(new HashChangeDetector<>(hashGenerator));
+    }
+
+    /**
+     * Method configures the strategy used to detect unchanged values, which are skipped if the unchanged value filter is enabled.
+     * By default the values are compared by their hash code.
+     *
+     * @param changeDetector the change detector to use.
+     */
+    public void setChangeDetector(final ChangeDetector<T> changeDetector) {
+        synchronized (NOTIFICATION_MESSAGE_LOCK) {
+            this.changeDetector = changeDetector;
+        }
     }
 
     /**
@@ -379,9 +456,14 @@ public abstract class AbstractObservable<S, T> implements Observable<S, T> {
 
     public void waitUntilNotificationIsFinished() throws InterruptedException {
         synchronized (NOTIFICATION_PROGRESS_LOCK) {
-            // wait for ongoing notification.
-            if (notificationInProgress) {
-                NOTIFICATION_PROGRESS_LOCK.wait();
+            notificationWaiterCount++;
+            try {
+                // wait for ongoing notification.
+                if (notificationInProgress) {
+                    NOTIFICATION_PROGRESS_LOCK.wait();
+                }
+            } finally {
+                notificationWaiterCount--;
             }
         }
     }
@@ -0,0 +1,49 @@
+package org.openbase.jul.pattern;
+
+/*
+ * #%L
+ * JUL Pattern Default
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.jul.exception.CouldNotPerformException;
+
+/**
+ * Strategy used by an observable with enabled unchanged value filter to decide if a value has to be notified.
+ * <p>
+ * Note: Change detectors are only accessed by one notification at a time, so implementations can cache state of the latest notified value.
+ *
+ * @param <T> the type of the values to compare.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public interface ChangeDetector<T> {
+
+    /**
+     * Method checks if the given value has changed compared to the latest notified value.
+     *
+     * @param latestValue the value notified before or null if no value was notified yet.
+     * @param value       the value to notify.
+     *
+     * @return true if the value has to be notified.
+     *
+     * @throws CouldNotPerformException is thrown if the values could not be compared.
+     */
+    boolean hasChanged(final T latestValue, final T value) throws CouldNotPerformException;
+}
@@ -0,0 +1,84 @@
+package org.openbase.jul.pattern;
+
+/*
+ * #%L
+ * JUL Pattern Default
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.jul.exception.CouldNotPerformException;
+
+/**
+ * Change detector comparing the hashes of the values computed by a {@code HashGenerator}.
+ * <p>
+ * The hash of the latest notified value is remembered, so each value is only hashed once as long as it is not modified.
+ * If the exact match fallback is enabled, values with the same hash are additionally compared via equals,
+ * so a hash collision never drops a real update.
+ *
+ * @param <T> the type of the values to compare.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class HashChangeDetector<T> implements ChangeDetector<T> {
+
+    private final HashGenerator<T> hashGenerator;
+    private final boolean exactMatchFallback;
+
+    private T hashedValue;
+    private int hashedValueHash;
+
+    /**
+     * Creates a new hash based change detector with enabled exact match fallback.
+     *
+     * @param hashGenerator the generator used to compute the hashes.
+     */
+    public HashChangeDetector(final HashGenerator<T> hashGenerator) {
+        this(hashGenerator, true);
+    }
+
+    /**
+     * Creates a new hash based change detector.
+     *
+     * @param hashGenerator      the generator used to compute the hashes.
+     * @param exactMatchFallback if true values with equal hashes are compared via equals.
+     */
+    public HashChangeDetector(final HashGenerator<T> hashGenerator, final boolean exactMatchFallback) {
+        this.hashGenerator = hashGenerator;
+        this.exactMatchFallback = exactMatchFallback;
+    }
+
+    @Override
+    public boolean hasChanged(final T latestValue, final T value) throws CouldNotPerformException {
+
+        // the hash of the latest value is cached from its own notification, which is important in case the same instance was modified in the meantime.
+        final boolean latestValueHashed = latestValue != null && latestValue == hashedValue;
+        final int latestHash = latestValueHashed ? hashedValueHash : (latestValue != null ? hashGenerator.computeHash(latestValue) : 0);
+
+        final int hash = hashGenerator.computeHash(value);
+
+        final boolean changed = latestValue == null || latestHash != hash || (exactMatchFallback && !latestValue.equals(value));
+
+        // cache the hash of the value which is expected to be the latest value of the next notification.
+        if (changed || !latestValueHashed) {
+            hashedValue = changed ? value : latestValue;
+            hashedValueHash = changed ? hash : latestHash;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,53 @@
+package org.openbase.jul.pattern;
+
+/*
+ * #%L
+ * JUL Pattern Default
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Change detector comparing the versions of the values, e.g. a transaction id or a sequence number.
+ * <p>
+ * This is the cheapest way to detect changes but requires that each modification of a value is reflected by a new version.
+ *
+ * @param <T> the type of the values to compare.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class VersionChangeDetector<T> implements ChangeDetector<T> {
+
+    private final ToLongFunction<T> versionProvider;
+
+    /**
+     * Creates a new version based change detector.
+     *
+     * @param versionProvider function resolving the version of a value.
+     */
+    public VersionChangeDetector(final ToLongFunction<T> versionProvider) {
+        this.versionProvider = versionProvider;
+    }
+
+    @Override
+    public boolean hasChanged(final T latestValue, final T value) {
+        return latestValue == null || versionProvider.applyAsLong(latestValue) != versionProvider.applyAsLong(value);
+    }
+}
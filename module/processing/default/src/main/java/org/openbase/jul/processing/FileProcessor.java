@@ -23,12 +23,139 @@ package org.openbase.jul.processing;
  */
 
 import org.openbase.jul.exception.CouldNotPerformException;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  *
  * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
  */
 public interface FileProcessor<A> extends Processor<A, File> {
+
+    String TEMP_FILE_PREFIX = ".";
+    String TEMP_FILE_SUFFIX = ".tmp";
+
     A deserialize(File file) throws CouldNotPerformException;
+
+    /**
+     * Serializes the given data into the content which would be written by {@link #serialize(Object, Object)} without touching any file.
+     * The content can be used to detect changes without reading the file again and can be written via {@link #writeContent(byte[], File)}.
+     *
+     * @param data the data to serialize.
+     * @return the serialized content or null if the processor does not support in memory serialization.
+     * @throws CouldNotPerformException is thrown if the data could not be serialized.
+     */
+    default byte[] serializeContent(final A data) throws CouldNotPerformException {
+        return null;
+    }
+
+    /**
+     * Writes the given content into the file.
+     * The content is first written into a temporary file next to the target which then replaces the target file atomically,
+     * so that an interrupted write never leaves a corrupted file behind.
+     *
+     * @param content the content to write.
+     * @param file the target file.
+     * @return the target file.
+     * @throws CouldNotPerformException is thrown if the content could not be written.
+     */
+    default File writeContent(final byte[] content, final File file) throws CouldNotPerformException {
+        return writeContent(outputStream -> outputStream.write(content), file);
+    }
+
+    /**
+     * Streams the content provided by the given writer into the file.
+     * The content is first written into a temporary file next to the target which then replaces the target file atomically,
+     * so that an interrupted write never leaves a corrupted file behind.
+     *
+     * @param contentWriter the writer which streams the content.
+     * @param file the target file.
+     * @return the target file.
+     * @throws CouldNotPerformException is thrown if the content could not be written.
+     */
+    default File writeContent(final ContentWriter contentWriter, final File file) throws CouldNotPerformException {
+        final Path target = file.toPath().toAbsolutePath();
+        final Path tempFile = getTempFile(target);
+        try {
+            if (target.getParent() != null) {
+                Files.createDirectories(target.getParent());
+            }
+
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                final OutputStream outputStream = new BufferedOutputStream(Channels.newOutputStream(channel));
+                contentWriter.write(outputStream);
+                outputStream.flush();
+                channel.force(true);
+            }
+
+            // keep the permissions of the file to replace
+            if (Files.exists(target)) {
+                try {
+                    Files.setPosixFilePermissions(tempFile, Files.getPosixFilePermissions(target));
+                } catch (UnsupportedOperationException ex) {
+                    // permissions are not supported by the file system
+                }
+            }
+
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return file;
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(tempFile);
+            } catch (IOException exx) {
+                // cleanup is best effort
+            }
+            throw new CouldNotPerformException("Could not write content into " + file + "!", ex);
+        }
+    }
+
+    /**
+     * Returns the temporary file used to write the given target file.
+     *
+     * @param target the file to write.
+     * @return the hidden temporary file next to the target.
+     */
+    static Path getTempFile(final Path target) {
+        return target.resolveSibling(TEMP_FILE_PREFIX + target.getFileName() + TEMP_FILE_SUFFIX);
+    }
+
+    /**
+     * Checks if the given file is a temporary file of an atomic write.
+     * Such files are only left behind if a write was interrupted e.g. by a system crash and can be safely deleted,
+     * since the target file was not replaced in this case.
+     *
+     * @param file the file to check.
+     * @return true if the file is a temporary file.
+     */
+    static boolean isTempFile(final File file) {
+        return file.getName().startsWith(TEMP_FILE_PREFIX) && file.getName().endsWith(TEMP_FILE_SUFFIX);
+    }
+
+    /**
+     * Streams content into a file, see {@link #writeContent(ContentWriter, File)}.
+     */
+    @FunctionalInterface
+    interface ContentWriter {
+
+        /**
+         * Writes the content into the given stream.
+         *
+         * @param outputStream the stream to write to, which is flushed and closed by the caller.
+         * @throws IOException is thrown if the content could not be written.
+         */
+        void write(OutputStream outputStream) throws IOException;
+    }
 }
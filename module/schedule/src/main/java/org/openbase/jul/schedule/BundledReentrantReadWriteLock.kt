@@ -1,18 +1,7 @@
 package org.openbase.jul.schedule
 
-import org.openbase.jps.core.JPService
-import org.openbase.jul.exception.CouldNotPerformException
-import org.openbase.jul.exception.FatalImplementationErrorException
-import org.openbase.jul.exception.ShutdownInProgressException
-import org.openbase.jul.exception.StackTracePrinter
-import org.openbase.jul.exception.StackTracePrinter.detectDeadLocksAndPrintStackTraces
-import org.openbase.jul.exception.StackTracePrinter.printAllStackTraces
-import org.openbase.jul.exception.printer.ExceptionPrinter
-import org.openbase.jul.exception.printer.LogLevel
-import org.openbase.jul.schedule.BundledReentrantReadWriteLock
 import org.slf4j.LoggerFactory
 import java.util.concurrent.TimeUnit
-import java.util.concurrent.TimeoutException
 import java.util.concurrent.locks.ReentrantReadWriteLock
 
 /*
@@ -43,36 +32,43 @@ import java.util.concurrent.locks.ReentrantReadWriteLock
  * The unlock us performed in revise order.
  *
  *
- * Note: When auto lock release is enabled, than the locks are auto released when locked to long by on consumer. Additionally an FatalImplementationErrorException is thrown in this case.
+ * Note: Locks held longer than [DEFAULT_LOCK_TIMEOUT] are reported via a FatalImplementationErrorException.
+ * The hold time is sampled by the [LockHoldMonitor], so acquiring and releasing the lock never touches any scheduler.
+ * If the [LockMetrics] are enabled, wait and hold times are additionally recorded per consumer.
  *
  * @author [Divine Threepwood](mailto:divine@openbase.org)
  */
-class BundledReentrantReadWriteLock(
+class BundledReentrantReadWriteLock private constructor(
     private val primaryLock: ReentrantReadWriteLock,
     private val secondaryLock: ReentrantReadWriteLock,
     private val independentPrimaryReadAccess: Boolean,
     private val holder: Any,
+    private val monitorSlot: LockHoldMonitor.Slot,
+    private val lockTracker: LockHoldTracker,
 ) : ReadWriteLock {
     protected val logger = LoggerFactory.getLogger(BundledReentrantReadWriteLock::class.java)
-    private val readLockTimeout: Timeout
-    private val writeLockTimeout: Timeout
-    private var readLockConsumer: Any? = null
-        set(value) {
-            field = value
-            if (JPService.debugMode()) {
-                readStacktrace = Thread.currentThread().stackTrace
-            }
-        }
-    private var writeLockConsumer: Any? = null
-        set(value) {
-            field = value
-            if (JPService.debugMode()) {
-                writeStacktrace = Thread.currentThread().stackTrace
-            }
-        }
 
-    private var readStacktrace: Array<StackTraceElement>? = null
-    private var writeStacktrace: Array<StackTraceElement>? = null
+    /**
+     * Constructor creates a new bundled lock.
+     *
+     * @param primaryLock                  the more important lock used e.g. for configure or manage an instance.
+     * @param secondaryLock                a less important lock maybe used for frequently by notification purpose with is locked in advance.
+     * @param independentPrimaryReadAccess flag defines if the primary read lock is independent from the secondary lock. If true, read action will not lock the secondary lock.
+     * @param holder                       the instance holding the locks.
+     */
+    constructor(
+        primaryLock: ReentrantReadWriteLock,
+        secondaryLock: ReentrantReadWriteLock,
+        independentPrimaryReadAccess: Boolean,
+        holder: Any,
+    ) : this(
+        primaryLock,
+        secondaryLock,
+        independentPrimaryReadAccess,
+        holder,
+        LockHoldMonitor.Slot(primaryLock, holder, DEFAULT_LOCK_TIMEOUT).also { LockHoldMonitor.register(it) },
+        LockHoldTracker(lockName(holder))
+    )
 
     /**
      * Constructor creates a new bundled lock.
@@ -90,6 +86,7 @@ class BundledReentrantReadWriteLock(
 
     /**
      * Kind of copy constructor which returns a new clone of the given lock.
+     * The clone shares the lock hold monitoring of the given lock, so creating a clone is cheap.
      *
      *
      * Note: The timed lock limitation is just a procedure to avoid a blocking system in case external components are buggy.
@@ -103,38 +100,22 @@ class BundledReentrantReadWriteLock(
         lock: BundledReentrantReadWriteLock,
         independentPrimaryReadAccess: Boolean,
         holder: Any,
-    ) : this(lock.primaryLock, lock.secondaryLock, independentPrimaryReadAccess, holder)
+    ) : this(lock.primaryLock, lock.secondaryLock, independentPrimaryReadAccess, holder, lock.monitorSlot, lock.lockTracker)
 
     /**
-     * Constructor creates a new bundled lock.
+     * Returns a lock operating on the same locks which uses the given consumer as default consumer.
+     * In case the consumer is the holder of this lock, this instance is returned, otherwise a lightweight clone is
+     * created which shares the locks and the lock hold monitoring of this instance.
      *
-     * @param primaryLock                  the more important lock used e.g. for configure or manage an instance.
-     * @param secondaryLock                a less important lock maybe used for frequently by notification purpose with is locked in advance.
-     * @param independentPrimaryReadAccess flag defines if the primary read lock is independent from the secondary lock. If true, read action will not lock the secondary lock.
-     * @param holder                       the instance holding the locks.
+     * @param consumer the default consumer of the returned lock.
+     *
+     * @return a lock operating on the same locks.
      */
-    init {
-        readLockTimeout = object : Timeout(DEFAULT_LOCK_TIMEOUT) {
-            override fun expired() {
-                readStacktrace?.also { StackTracePrinter.printStackTrace(it, logger, LogLevel.ERROR) }
-                detectDeadLocksAndPrintStackTraces(logger)
-                StackTracePrinter.printStackTrace(readStacktrace, logger, LogLevel.ERROR)
-                FatalImplementationErrorException(
-                    this,
-                    TimeoutException("ReadLock of " + holder + " was locked for more than " + DEFAULT_LOCK_TIMEOUT / 1000 + " sec! Last access by Consumer[" + readLockConsumer + "]!")
-                )
-            }
-        }
-        writeLockTimeout = object : Timeout(DEFAULT_LOCK_TIMEOUT) {
-            override fun expired() {
-                writeStacktrace?.also { StackTracePrinter.printStackTrace(it, logger, LogLevel.ERROR) }
-                detectDeadLocksAndPrintStackTraces(logger)
-                FatalImplementationErrorException(
-                    this,
-                    TimeoutException("WriteLock of " + holder + " was locked for more than " + DEFAULT_LOCK_TIMEOUT / 1000 + " sec by Consumer[" + writeLockConsumer + "]!")
-                )
-            }
+    fun forConsumer(consumer: Any): BundledReentrantReadWriteLock {
+        if (consumer === holder) {
+            return this
         }
+        return BundledReentrantReadWriteLock(this, independentPrimaryReadAccess, consumer)
     }
 
     override fun lockRead() {
@@ -142,16 +123,13 @@ class BundledReentrantReadWriteLock(
     }
 
     override fun lockRead(consumer: Any) {
+        val waitStart = lockTracker.beginWait()
         //logger.debug("order lockRead by {}", consumer);
         if (!independentPrimaryReadAccess) {
             secondaryLock.readLock().lock()
         }
         primaryLock.readLock().lock()
-        readLockConsumer = consumer
-        if (JPService.debugMode()) {
-            readStacktrace = Thread.currentThread().stackTrace
-        }
-        restartReadLockTimeout()
+        readLocked(consumer, waitStart)
         //logger.debug("lockRead by {}", consumer);
     }
 
@@ -160,6 +138,7 @@ class BundledReentrantReadWriteLock(
 
     @Throws(InterruptedException::class)
     override fun lockReadInterruptibly(consumer: Any) {
+        val waitStart = lockTracker.beginWait()
         //logger.debug("order lockRead by {}", consumer);
         if (!independentPrimaryReadAccess) {
             secondaryLock.readLock().lockInterruptibly()
@@ -173,19 +152,18 @@ class BundledReentrantReadWriteLock(
             }
             throw ex
         }
-        readLockConsumer = consumer
-        restartReadLockTimeout()
+        readLocked(consumer, waitStart)
         //logger.debug("lockRead by {}", consumer);
     }
 
     override fun tryLockRead(): Boolean = tryLockRead(holder)
 
-    override fun tryLockRead(consumer: Any): Boolean =
-        if (independentPrimaryReadAccess) {
+    override fun tryLockRead(consumer: Any): Boolean {
+        val waitStart = lockTracker.beginWait()
+        return if (independentPrimaryReadAccess) {
             val primarySuccess = primaryLock.readLock().tryLock()
             if (primarySuccess) {
-                readLockConsumer = consumer
-                restartReadLockTimeout()
+                readLocked(consumer, waitStart)
             }
             primarySuccess
         } else {
@@ -193,8 +171,7 @@ class BundledReentrantReadWriteLock(
             if (secondarySuccess) {
                 val primarySuccess = primaryLock.readLock().tryLock()
                 if (primarySuccess) {
-                    readLockConsumer = consumer
-                    restartReadLockTimeout()
+                    readLocked(consumer, waitStart)
                 } else {
                     secondaryLock.readLock().unlock()
                 }
@@ -203,17 +180,18 @@ class BundledReentrantReadWriteLock(
                 false
             }
         }
+    }
 
     @Throws(InterruptedException::class)
     override fun tryLockRead(time: Long, unit: TimeUnit): Boolean = tryLockRead(time, unit, holder)
 
     @Throws(InterruptedException::class)
-    override fun tryLockRead(time: Long, unit: TimeUnit, consumer: Any): Boolean =
-        if (independentPrimaryReadAccess) {
+    override fun tryLockRead(time: Long, unit: TimeUnit, consumer: Any): Boolean {
+        val waitStart = lockTracker.beginWait()
+        return if (independentPrimaryReadAccess) {
             val result = primaryLock.readLock().tryLock(time, unit)
             if (result) {
-                readLockConsumer = consumer
-                restartReadLockTimeout()
+                readLocked(consumer, waitStart)
             }
             result
         } else {
@@ -221,8 +199,7 @@ class BundledReentrantReadWriteLock(
             if (secondarySuccess) {
                 val primarySuccess = primaryLock.readLock().tryLock(time, unit)
                 if (primarySuccess) {
-                    readLockConsumer = consumer
-                    restartReadLockTimeout()
+                    readLocked(consumer, waitStart)
                 } else {
                     secondaryLock.readLock().unlock()
                 }
@@ -231,30 +208,29 @@ class BundledReentrantReadWriteLock(
                 false
             }
         }
+    }
 
     override fun unlockRead() = unlockRead(holder)
 
     override fun unlockRead(consumer: Any) {
         //logger.debug("order unlockRead by {}", consumer);
-        if (readLockConsumer === consumer) {
-            readLockConsumer = "Unknown"
-        }
-        readLockTimeout.cancel()
+        lockTracker.readReleased(primaryLock.readHoldCount - 1)
         primaryLock.readLock().unlock()
         if (!independentPrimaryReadAccess) {
             secondaryLock.readLock().unlock()
         }
+        monitorSlot.readUnlocked(consumer)
         //logger.debug("unlockRead by {}", consumer);
     }
 
     override fun lockWrite() = lockWrite(holder)
 
     override fun lockWrite(consumer: Any) {
+        val waitStart = lockTracker.beginWait()
         //logger.debug("order lockWrite by {}", consumer);
         secondaryLock.writeLock().lock()
         primaryLock.writeLock().lock()
-        writeLockConsumer = consumer
-        restartWriteLockTimeout()
+        writeLocked(consumer, waitStart)
         //logger.debug("lockWrite by {}", consumer);
     }
 
@@ -263,6 +239,7 @@ class BundledReentrantReadWriteLock(
 
     @Throws(InterruptedException::class)
     override fun lockWriteInterruptibly(consumer: Any) {
+        val waitStart = lockTracker.beginWait()
         //logger.debug("order lockWrite by {}", consumer);
         secondaryLock.writeLock().lockInterruptibly()
         try {
@@ -272,18 +249,17 @@ class BundledReentrantReadWriteLock(
             secondaryLock.writeLock().unlock()
             throw ex
         }
-        writeLockConsumer = consumer
-        restartWriteLockTimeout()
+        writeLocked(consumer, waitStart)
         //logger.debug("lockWrite by {}", consumer);
     }
 
     override fun tryLockWrite(consumer: Any): Boolean {
+        val waitStart = lockTracker.beginWait()
         val secondarySuccess = secondaryLock.writeLock().tryLock()
         if (secondarySuccess) {
             val primarySuccess = primaryLock.writeLock().tryLock()
             if (primarySuccess) {
-                readLockConsumer = consumer
-                restartReadLockTimeout()
+                writeLocked(consumer, waitStart)
             } else {
                 secondaryLock.writeLock().unlock()
             }
@@ -297,12 +273,12 @@ class BundledReentrantReadWriteLock(
 
     @Throws(InterruptedException::class)
     override fun tryLockWrite(time: Long, unit: TimeUnit, consumer: Any): Boolean {
+        val waitStart = lockTracker.beginWait()
         val secondarySuccess = secondaryLock.writeLock().tryLock(time, unit)
         if (secondarySuccess) {
             val primarySuccess = primaryLock.writeLock().tryLock(time, unit)
             if (primarySuccess) {
-                readLockConsumer = consumer
-                restartReadLockTimeout()
+                writeLocked(consumer, waitStart)
             } else {
                 secondaryLock.writeLock().unlock()
             }
@@ -317,41 +293,23 @@ class BundledReentrantReadWriteLock(
 
     override fun unlockWrite(consumer: Any) {
         //logger.debug("order write unlock by {}", consumer);
-        writeLockTimeout.cancel()
+        if (primaryLock.isWriteLockedByCurrentThread) {
+            lockTracker.writeReleased(primaryLock.writeHoldCount - 1)
+        }
         primaryLock.writeLock().unlock()
         secondaryLock.writeLock().unlock()
-        writeLockConsumer = "Unknown"
+        monitorSlot.writeUnlocked()
         //logger.debug("write unlocked by {}", consumer);
     }
 
-    private fun restartReadLockTimeout() {
-        try {
-            readLockTimeout.restart()
-        } catch (ex: ShutdownInProgressException) {
-            // skip restart
-        } catch (ex: CouldNotPerformException) {
-            ExceptionPrinter.printHistory(
-                "Could not setup builder read lock fallback timeout!",
-                ex,
-                logger,
-                LogLevel.WARN
-            )
-        }
+    private fun readLocked(consumer: Any, waitStart: Long) {
+        monitorSlot.readLocked(consumer)
+        lockTracker.readAcquired(waitStart, consumer, primaryLock.readHoldCount)
     }
 
-    private fun restartWriteLockTimeout() {
-        try {
-            writeLockTimeout.restart()
-        } catch (ex: ShutdownInProgressException) {
-            // skip restart
-        } catch (ex: CouldNotPerformException) {
-            ExceptionPrinter.printHistory(
-                "Could not setup builder write lock fallback timeout!",
-                ex,
-                logger,
-                LogLevel.WARN
-            )
-        }
+    private fun writeLocked(consumer: Any, waitStart: Long) {
+        monitorSlot.writeLocked(consumer)
+        lockTracker.writeAcquired(waitStart, consumer, primaryLock.writeHoldCount)
     }
 
     val isPrimaryWriteLockHeldByCurrentThread: Boolean
@@ -363,5 +321,11 @@ class BundledReentrantReadWriteLock(
 
     companion object {
         val DEFAULT_LOCK_TIMEOUT = TimeUnit.MINUTES.toMillis(1)
+
+        /**
+         * Bundled locks are reported by the class of their holder.
+         */
+        private fun lockName(holder: Any): String =
+            holder.javaClass.simpleName.ifEmpty { holder.javaClass.name } + ".BundledLock"
     }
 }
@@ -0,0 +1,390 @@
+package org.openbase.jul.schedule;
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.jul.exception.NotAvailableException;
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.iface.Shutdownable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Timer which schedules tasks on a hashed timing wheel.
+ * <p>
+ * Scheduling and cancelling a task are O(1) operations which only enqueue the task. A single ticker thread
+ * moves new tasks into the buckets of the wheel, purges cancelled tasks and hands over expired tasks to an executor,
+ * so the execution of a task never blocks the ticker.
+ * <p>
+ * Tasks are executed with the precision of the configured tick duration, which makes this timer a good fit for
+ * the large amount of timeouts restarted again and again, but not for tasks requiring exact timing.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class HashedWheelTimer implements Shutdownable {
+
+    /**
+     * The default tick duration in milliseconds.
+     */
+    public static final long DEFAULT_TICK_DURATION = 10;
+
+    /**
+     * The default number of buckets of the wheel.
+     */
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    private static HashedWheelTimer instance;
+
+    private final long tickDuration;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Executor executor;
+    private final long startTime;
+    private final Thread ticker;
+
+    private final Queue<TimerHandle> pendingHandles = new ConcurrentLinkedQueue<>();
+    private final Queue<TimerHandle> cancelledHandles = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean shutdown = false;
+    private long tick = 0;
+
+    /**
+     * Creates a new timer with the default tick duration and wheel size, executing all tasks on the {@code GlobalCachedExecutorService}.
+     */
+    public HashedWheelTimer() {
+        this(DEFAULT_TICK_DURATION, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, GlobalCachedExecutorService.getInstance().getExecutorService());
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param tickDuration the duration of a tick, which defines the precision of the timer.
+     * @param timeUnit     the time unit of the tick duration.
+     * @param wheelSize    the number of buckets of the wheel, which is rounded up to the next power of two.
+     * @param executor     the executor used to execute all expired tasks.
+     */
+    public HashedWheelTimer(final long tickDuration, final TimeUnit timeUnit, final int wheelSize, final Executor executor) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0");
+        }
+        if (wheelSize <= 0) {
+            throw new IllegalArgumentException("wheelSize must be greater than 0");
+        }
+
+        this.tickDuration = timeUnit.toNanos(tickDuration);
+        this.wheel = new Bucket[wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.executor = executor;
+        this.startTime = System.nanoTime();
+        this.ticker = new Thread(this::tickerLoop, "HashedWheelTimer");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Returns the global timer instance, which is created on first access.
+     *
+     * @return the global timer.
+     */
+    public static synchronized HashedWheelTimer getInstance() {
+        if (instance == null) {
+            instance = new HashedWheelTimer();
+        }
+        return instance;
+    }
+
+    /**
+     * Schedules the given task.
+     *
+     * @param task     the task to execute.
+     * @param delay    the time from now to delay the execution.
+     * @param timeUnit the time unit of the delay.
+     *
+     * @return a future which can be used to cancel the task.
+     *
+     * @throws NotAvailableException      is thrown if the task is null.
+     * @throws RejectedExecutionException is thrown if the timer is already shutdown.
+     */
+    public Future<Void> schedule(final Runnable task, final long delay, final TimeUnit timeUnit) throws NotAvailableException, RejectedExecutionException {
+        if (task == null) {
+            throw new NotAvailableException("task");
+        }
+
+        if (shutdown) {
+            throw new RejectedExecutionException("Timer is shutdown!");
+        }
+
+        final TimerHandle handle = new TimerHandle(task, System.nanoTime() - startTime + timeUnit.toNanos(Math.max(0, delay)));
+        pendingHandles.add(handle);
+        return handle;
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        ticker.interrupt();
+    }
+
+    private void tickerLoop() {
+        while (!shutdown) {
+            final long deadline = tickDuration * (tick + 1);
+
+            // wait for next tick
+            final long sleepTime = deadline - (System.nanoTime() - startTime);
+            if (sleepTime > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepTime);
+                } catch (InterruptedException ex) {
+                    if (shutdown) {
+                        break;
+                    }
+                    continue;
+                }
+            }
+
+            try {
+                purgeCancelledHandles();
+                transferPendingHandles();
+                wheel[(int) (tick & mask)].expire(deadline);
+            } catch (RuntimeException ex) {
+                ExceptionPrinter.printHistory("Timer tick failed!", ex, LOGGER);
+            }
+            tick++;
+        }
+
+        // cancel all remaining tasks
+        for (final Bucket bucket : wheel) {
+            bucket.cancelAll();
+        }
+        TimerHandle handle;
+        while ((handle = pendingHandles.poll()) != null) {
+            handle.cancel(false);
+        }
+    }
+
+    private void purgeCancelledHandles() {
+        TimerHandle handle;
+        while ((handle = cancelledHandles.poll()) != null) {
+            if (handle.bucket != null) {
+                handle.bucket.remove(handle);
+            }
+        }
+    }
+
+    private void transferPendingHandles() {
+        TimerHandle handle;
+        while ((handle = pendingHandles.poll()) != null) {
+            if (handle.state.get() != TimerHandle.STATE_PENDING) {
+                continue;
+            }
+
+            final long calculatedTick = handle.deadline / tickDuration;
+            handle.remainingRounds = (calculatedTick - tick) / wheel.length;
+
+            // make sure tasks scheduled in the past are executed with the current tick
+            wheel[(int) (Math.max(calculatedTick, tick) & mask)].add(handle);
+        }
+    }
+
+    private void execute(final TimerHandle handle) {
+        try {
+            executor.execute(handle::run);
+        } catch (RejectedExecutionException ex) {
+            handle.finish();
+            if (!shutdown) {
+                ExceptionPrinter.printHistory("Could not execute expired task!", ex, LOGGER);
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of handles which is only accessed by the ticker thread.
+     */
+    private final class Bucket {
+
+        private TimerHandle head;
+        private TimerHandle tail;
+
+        private void add(final TimerHandle handle) {
+            handle.bucket = this;
+            if (head == null) {
+                head = tail = handle;
+            } else {
+                tail.next = handle;
+                handle.prev = tail;
+                tail = handle;
+            }
+        }
+
+        private void remove(final TimerHandle handle) {
+            if (handle.prev != null) {
+                handle.prev.next = handle.next;
+            } else {
+                head = handle.next;
+            }
+            if (handle.next != null) {
+                handle.next.prev = handle.prev;
+            } else {
+                tail = handle.prev;
+            }
+            handle.prev = null;
+            handle.next = null;
+            handle.bucket = null;
+        }
+
+        private void expire(final long deadline) {
+            TimerHandle handle = head;
+            while (handle != null) {
+                final TimerHandle next = handle.next;
+                if (handle.state.get() != TimerHandle.STATE_PENDING) {
+                    remove(handle);
+                } else if (handle.remainingRounds <= 0 && handle.deadline <= deadline) {
+                    remove(handle);
+                    if (handle.state.compareAndSet(TimerHandle.STATE_PENDING, TimerHandle.STATE_EXPIRED)) {
+                        execute(handle);
+                    }
+                } else {
+                    handle.remainingRounds--;
+                }
+                handle = next;
+            }
+        }
+
+        private void cancelAll() {
+            TimerHandle handle = head;
+            while (handle != null) {
+                final TimerHandle next = handle.next;
+                remove(handle);
+                handle.cancel(false);
+                handle = next;
+            }
+        }
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    private final class TimerHandle implements Future<Void> {
+
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+        private final CountDownLatch doneLatch = new CountDownLatch(1);
+        private volatile Throwable failure;
+
+        // only accessed by the ticker thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private TimerHandle prev;
+        private TimerHandle next;
+
+        private TimerHandle(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        private void run() {
+            try {
+                task.run();
+            } catch (Throwable ex) {
+                failure = ex;
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            doneLatch.countDown();
+        }
+
+        @Override
+        public boolean cancel(final boolean mayInterruptIfRunning) {
+            if (!state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                return false;
+            }
+            finish();
+
+            // the handle is removed from its bucket by the ticker thread
+            cancelledHandles.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return doneLatch.getCount() == 0;
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            doneLatch.await();
+            return report();
+        }
+
+        @Override
+        public Void get(final long timeout, final TimeUnit timeUnit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!doneLatch.await(timeout, timeUnit)) {
+                throw new TimeoutException();
+            }
+            return report();
+        }
+
+        private Void report() throws ExecutionException {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.openbase.jul.schedule;
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@code ReentrantReadWriteLock} which records its wait and hold times into the {@code LockStatistics} of the given name if the {@code LockMetrics} are enabled.
+ * <p>
+ * Since the lock is a drop-in replacement of the {@code ReentrantReadWriteLock}, existing lock fields can be instrumented without touching their usages.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class InstrumentedReentrantReadWriteLock extends ReentrantReadWriteLock {
+
+    private final LockHoldTracker tracker;
+    private final InstrumentedReadLock readLock;
+    private final InstrumentedWriteLock writeLock;
+
+    /**
+     * Creates a new non-fair lock.
+     *
+     * @param name the name used to report the lock statistics.
+     */
+    public InstrumentedReentrantReadWriteLock(final String name) {
+        this(name, false);
+    }
+
+    /**
+     * Creates a new lock.
+     *
+     * @param name the name used to report the lock statistics.
+     * @param fair true if the lock should use a fair ordering policy.
+     */
+    public InstrumentedReentrantReadWriteLock(final String name, final boolean fair) {
+        super(fair);
+        this.tracker = new LockHoldTracker(name);
+        this.readLock = new InstrumentedReadLock(this);
+        this.writeLock = new InstrumentedWriteLock(this);
+    }
+
+    /**
+     * Builds the name of a lock owned by an instance of the given class.
+     * Anonymous classes do not provide a simple name, therefore their full class name is used instead.
+     *
+     * @param ownerClass the class of the instance owning the lock.
+     * @param lockName   the name of the lock field.
+     *
+     * @return the lock name used to report the lock statistics.
+     */
+    public static String getLockName(final Class<?> ownerClass, final String lockName) {
+        return (ownerClass.getSimpleName().isEmpty() ? ownerClass.getName() : ownerClass.getSimpleName()) + "." + lockName;
+    }
+
+    @Override
+    public ReentrantReadWriteLock.ReadLock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public ReentrantReadWriteLock.WriteLock writeLock() {
+        return writeLock;
+    }
+
+    private static class InstrumentedReadLock extends ReentrantReadWriteLock.ReadLock {
+
+        private final InstrumentedReentrantReadWriteLock lock;
+
+        private InstrumentedReadLock(final InstrumentedReentrantReadWriteLock lock) {
+            super(lock);
+            this.lock = lock;
+        }
+
+        @Override
+        public void lock() {
+            final long waitStart = lock.tracker.beginWait();
+            super.lock();
+            if (waitStart != 0) {
+                lock.tracker.readAcquired(waitStart, null, lock.getReadHoldCount());
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            final long waitStart = lock.tracker.beginWait();
+            super.lockInterruptibly();
+            if (waitStart != 0) {
+                lock.tracker.readAcquired(waitStart, null, lock.getReadHoldCount());
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            final long waitStart = lock.tracker.beginWait();
+            final boolean success = super.tryLock();
+            if (success && waitStart != 0) {
+                lock.tracker.readAcquired(waitStart, null, lock.getReadHoldCount());
+            }
+            return success;
+        }
+
+        @Override
+        public boolean tryLock(final long timeout, final TimeUnit unit) throws InterruptedException {
+            final long waitStart = lock.tracker.beginWait();
+            final boolean success = super.tryLock(timeout, unit);
+            if (success && waitStart != 0) {
+                lock.tracker.readAcquired(waitStart, null, lock.getReadHoldCount());
+            }
+            return success;
+        }
+
+        @Override
+        public void unlock() {
+            if (LockMetrics.isEnabled()) {
+                lock.tracker.readReleased(lock.getReadHoldCount() - 1);
+            }
+            super.unlock();
+        }
+    }
+
+    private static class InstrumentedWriteLock extends ReentrantReadWriteLock.WriteLock {
+
+        private final InstrumentedReentrantReadWriteLock lock;
+
+        private InstrumentedWriteLock(final InstrumentedReentrantReadWriteLock lock) {
+            super(lock);
+            this.lock = lock;
+        }
+
+        @Override
+        public void lock() {
+            final long waitStart = lock.tracker.beginWait();
+            super.lock();
+            if (waitStart != 0) {
+                lock.tracker.writeAcquired(waitStart, null, lock.getWriteHoldCount());
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            final long waitStart = lock.tracker.beginWait();
+            super.lockInterruptibly();
+            if (waitStart != 0) {
+                lock.tracker.writeAcquired(waitStart, null, lock.getWriteHoldCount());
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            final long waitStart = lock.tracker.beginWait();
+            final boolean success = super.tryLock();
+            if (success && waitStart != 0) {
+                lock.tracker.writeAcquired(waitStart, null, lock.getWriteHoldCount());
+            }
+            return success;
+        }
+
+        @Override
+        public boolean tryLock(final long timeout, final TimeUnit unit) throws InterruptedException {
+            final long waitStart = lock.tracker.beginWait();
+            final boolean success = super.tryLock(timeout, unit);
+            if (success && waitStart != 0) {
+                lock.tracker.writeAcquired(waitStart, null, lock.getWriteHoldCount());
+            }
+            return success;
+        }
+
+        @Override
+        public void unlock() {
+            if (LockMetrics.isEnabled() && isHeldByCurrentThread()) {
+                lock.tracker.writeReleased(lock.getWriteHoldCount() - 1);
+            }
+            super.unlock();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.openbase.jul.schedule;
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free histogram to record latencies in nanoseconds.
+ * <p>
+ * Values are counted in log-linear buckets, similar to an HDR histogram: each power of two is split into {@code SUB_BUCKET_COUNT} linear sub buckets,
+ * so each recorded value is covered with a relative error of at most 12.5% while the memory footprint stays constant.
+ * Recording a value is a single atomic increment and never allocates.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records the given latency.
+     *
+     * @param nanos the latency in nanoseconds. Negative values are recorded as zero.
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the value count.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of all recorded values.
+     *
+     * @param timeUnit the time unit of the returned value.
+     *
+     * @return the total latency.
+     */
+    public long getTotal(final TimeUnit timeUnit) {
+        return timeUnit.convert(sum.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the mean of all recorded values.
+     *
+     * @param timeUnit the time unit of the returned value.
+     *
+     * @return the mean latency or 0 if nothing was recorded yet.
+     */
+    public double getMean(final TimeUnit timeUnit) {
+        final long currentCount = count.sum();
+        if (currentCount == 0) {
+            return 0d;
+        }
+        return (double) sum.sum() / currentCount / TimeUnit.NANOSECONDS.convert(1, timeUnit);
+    }
+
+    /**
+     * Returns the maximal recorded value.
+     *
+     * @param timeUnit the time unit of the returned value.
+     *
+     * @return the maximal latency.
+     */
+    public long getMax(final TimeUnit timeUnit) {
+        return timeUnit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the value below which the given percentage of all recorded values fall.
+     * The returned value is the upper bound of the bucket containing the percentile and never exceeds the maximal recorded value.
+     *
+     * @param percentile the percentile between 0 and 100.
+     * @param timeUnit   the time unit of the returned value.
+     *
+     * @return the latency of the percentile or 0 if nothing was recorded yet.
+     */
+    public long getPercentile(final double percentile, final TimeUnit timeUnit) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+
+        if (total == 0) {
+            return 0;
+        }
+
+        final long threshold = Math.max(1, (long) Math.ceil(total * Math.min(100d, Math.max(0d, percentile)) / 100d));
+        long counted = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counted += buckets.get(i);
+            if (counted >= threshold) {
+                return timeUnit.convert(Math.min(bucketUpperBound(i), max.get()), TimeUnit.NANOSECONDS);
+            }
+        }
+        return timeUnit.convert(max.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Resets all recorded values.
+     * Values recorded concurrently to the reset may be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        final long subBucket = index % SUB_BUCKET_COUNT;
+        final long upperBound = ((SUB_BUCKET_COUNT + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+
+        // the last bucket would overflow
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+}
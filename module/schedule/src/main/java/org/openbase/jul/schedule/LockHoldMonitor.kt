@@ -0,0 +1,268 @@
+package org.openbase.jul.schedule
+
+import org.openbase.jps.core.JPService
+import org.openbase.jul.exception.FatalImplementationErrorException
+import org.openbase.jul.exception.StackTracePrinter
+import org.openbase.jul.exception.StackTracePrinter.detectDeadLocksAndPrintStackTraces
+import org.openbase.jul.exception.printer.ExceptionPrinter
+import org.openbase.jul.exception.printer.LogLevel
+import org.slf4j.LoggerFactory
+import java.lang.ref.WeakReference
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.locks.ReentrantReadWriteLock
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+/**
+ * Sampling monitor to detect locks which are held longer than expected.
+ *
+ * Lock acquisitions only record a timestamp in the [Slot] of the lock, while a single sweeper task scans all registered slots periodically.
+ * Therefore, locking and unlocking never touch any scheduler.
+ * Since the slots are only weakly referenced, they are automatically removed from the monitor once their lock is not used anymore.
+ *
+ * @author [Divine Threepwood](mailto:divine@openbase.org)
+ */
+object LockHoldMonitor {
+
+    /**
+     * The interval in milliseconds in which all registered slots are scanned.
+     */
+    val SWEEP_INTERVAL = TimeUnit.SECONDS.toMillis(5)
+
+    private val logger = LoggerFactory.getLogger(LockHoldMonitor::class.java)
+    private val slots = ConcurrentLinkedQueue<WeakReference<Slot>>()
+    private var sweeperTask: Future<*>? = null
+    private var sweeperGeneration = 0
+
+    /**
+     * The timer used to schedule the sweeper or null to schedule it on the [GlobalScheduledExecutorService].
+     * By default, the sweeper shares the global [HashedWheelTimer] with all other timer based watchdogs.
+     * Changing the timer restarts a running sweeper.
+     */
+    @Volatile
+    var hashedWheelTimer: HashedWheelTimer? = HashedWheelTimer.getInstance()
+        @Synchronized
+        set(value) {
+            field = value
+            if (sweeperTask != null) {
+                sweeperTask?.cancel(false)
+                sweeperTask = null
+                startSweeper()
+            }
+        }
+
+    /**
+     * Registers the given slot so that it is scanned by the sweeper.
+     *
+     * @param slot the slot to monitor.
+     */
+    fun register(slot: Slot) {
+        slots.add(WeakReference(slot))
+        startSweeper()
+    }
+
+    @Synchronized
+    private fun startSweeper() {
+        if (sweeperTask != null) {
+            return
+        }
+
+        try {
+            val timer = hashedWheelTimer
+            sweeperGeneration++
+            if (timer == null) {
+                sweeperTask = GlobalScheduledExecutorService.scheduleAtFixedRate(
+                    { sweep() },
+                    SWEEP_INTERVAL,
+                    SWEEP_INTERVAL,
+                    TimeUnit.MILLISECONDS
+                )
+            } else {
+                scheduleSweep(timer, sweeperGeneration)
+            }
+        } catch (ex: Exception) {
+            // skip monitoring if the scheduler is not available, e.g. during system shutdown.
+            sweeperTask = null
+            ExceptionPrinter.printHistory("Could not start lock hold monitor!", ex, logger, LogLevel.DEBUG)
+        }
+    }
+
+    /**
+     * Timer tasks only run once, so each sweep schedules the next one as long as the sweeper was not restarted meanwhile.
+     */
+    private fun scheduleSweep(timer: HashedWheelTimer, generation: Int) {
+        sweeperTask = timer.schedule(
+            {
+                sweep()
+                rescheduleSweep(timer, generation)
+            },
+            SWEEP_INTERVAL,
+            TimeUnit.MILLISECONDS
+        )
+    }
+
+    @Synchronized
+    private fun rescheduleSweep(timer: HashedWheelTimer, generation: Int) {
+        if (sweeperTask == null || generation != sweeperGeneration) {
+            return
+        }
+
+        try {
+            scheduleSweep(timer, generation)
+        } catch (ex: Exception) {
+            // skip monitoring if the timer is not available, e.g. during system shutdown.
+            sweeperTask = null
+            ExceptionPrinter.printHistory("Could not reschedule lock hold monitor!", ex, logger, LogLevel.DEBUG)
+        }
+    }
+
+    private fun sweep() {
+        val now = System.nanoTime()
+        val iterator = slots.iterator()
+        while (iterator.hasNext()) {
+            val slot = iterator.next().get()
+            if (slot == null) {
+                iterator.remove()
+                continue
+            }
+            try {
+                slot.check(now)
+            } catch (ex: Exception) {
+                ExceptionPrinter.printHistory("Could not check lock hold time!", ex, logger, LogLevel.WARN)
+            }
+        }
+    }
+
+    /**
+     * The monitoring slot of a lock which is shared by all bundled locks operating on the same primary lock.
+     *
+     * @param primaryLock the lock to monitor.
+     * @param holder      the instance holding the lock.
+     * @param lockTimeout the time in milliseconds a lock is allowed to be held until an error is reported.
+     */
+    class Slot(
+        private val primaryLock: ReentrantReadWriteLock,
+        private val holder: Any,
+        private val lockTimeout: Long,
+    ) {
+
+        /**
+         * Timestamp of the last read lock acquisition in nanoseconds or 0 if the read lock is not held.
+         */
+        @Volatile
+        private var readLockTimestamp = 0L
+
+        /**
+         * Timestamp of the last write lock acquisition in nanoseconds or 0 if the write lock is not held.
+         */
+        @Volatile
+        private var writeLockTimestamp = 0L
+
+        @Volatile
+        private var readLockConsumer: Any? = null
+
+        @Volatile
+        private var writeLockConsumer: Any? = null
+
+        @Volatile
+        private var readStacktrace: Array<StackTraceElement>? = null
+
+        @Volatile
+        private var writeStacktrace: Array<StackTraceElement>? = null
+
+        // only accessed by the sweeper
+        private var reportedReadLockTimestamp = 0L
+        private var reportedWriteLockTimestamp = 0L
+
+        fun readLocked(consumer: Any) {
+            readLockConsumer = consumer
+            if (JPService.debugMode()) {
+                readStacktrace = Thread.currentThread().stackTrace
+            }
+            readLockTimestamp = System.nanoTime()
+        }
+
+        fun readUnlocked(consumer: Any) {
+            if (readLockConsumer === consumer) {
+                readLockConsumer = "Unknown"
+            }
+
+            // other consumers may still hold the read lock
+            if (primaryLock.readLockCount == 0) {
+                readLockTimestamp = 0L
+            }
+        }
+
+        fun writeLocked(consumer: Any) {
+            writeLockConsumer = consumer
+            if (JPService.debugMode()) {
+                writeStacktrace = Thread.currentThread().stackTrace
+            }
+            writeLockTimestamp = System.nanoTime()
+        }
+
+        fun writeUnlocked() {
+            // the write lock is reentrant, so only reset the slot if it is fully released.
+            if (!primaryLock.isWriteLocked) {
+                writeLockTimestamp = 0L
+                writeLockConsumer = "Unknown"
+            }
+        }
+
+        internal fun check(now: Long) {
+            val timeout = TimeUnit.MILLISECONDS.toNanos(lockTimeout)
+
+            val readTimestamp = readLockTimestamp
+            if (readTimestamp != 0L
+                && readTimestamp != reportedReadLockTimestamp
+                && now - readTimestamp > timeout
+                && primaryLock.readLockCount > 0
+            ) {
+                reportedReadLockTimestamp = readTimestamp
+                readStacktrace?.also { StackTracePrinter.printStackTrace(it, logger, LogLevel.ERROR) }
+                detectDeadLocksAndPrintStackTraces(logger)
+                FatalImplementationErrorException(
+                    holder,
+                    TimeoutException("ReadLock of " + holder + " was locked for more than " + lockTimeout / 1000 + " sec! Last access by Consumer[" + readLockConsumer + "]!")
+                )
+            }
+
+            val writeTimestamp = writeLockTimestamp
+            if (writeTimestamp != 0L
+                && writeTimestamp != reportedWriteLockTimestamp
+                && now - writeTimestamp > timeout
+                && primaryLock.isWriteLocked
+            ) {
+                reportedWriteLockTimestamp = writeTimestamp
+                writeStacktrace?.also { StackTracePrinter.printStackTrace(it, logger, LogLevel.ERROR) }
+                detectDeadLocksAndPrintStackTraces(logger)
+                FatalImplementationErrorException(
+                    holder,
+                    TimeoutException("WriteLock of " + holder + " was locked for more than " + lockTimeout / 1000 + " sec by Consumer[" + writeLockConsumer + "]!")
+                )
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.openbase.jul.schedule;
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+/**
+ * Tracks the wait and hold times of a single lock and records them into the {@code LockStatistics} of its name.
+ * <p>
+ * All methods return immediately if the {@code LockMetrics} are disabled.
+ * Only the outermost acquisition of a reentrant lock is tracked, so the hold count of the lock has to be passed by the caller.
+ * The release methods have to be called before the lock is actually released, passing the hold count remaining after the release.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+class LockHoldTracker {
+
+    private final String name;
+    private volatile LockStatistics statistics;
+
+    private final ThreadLocal<Hold> readHold = ThreadLocal.withInitial(Hold::new);
+
+    // only accessed by the thread holding the write lock
+    private final Hold writeHold = new Hold();
+
+    LockHoldTracker(final String name) {
+        this.name = name;
+    }
+
+    /**
+     * Should be called before the lock is acquired.
+     *
+     * @return the timestamp to pass to the acquire methods or 0 if the metrics are disabled.
+     */
+    long beginWait() {
+        return LockMetrics.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    void readAcquired(final long waitStart, final Object consumer, final int readHoldCount) {
+        acquired(false, waitStart, consumer, readHoldCount, waitStart == 0 || readHoldCount != 1 ? null : readHold.get());
+    }
+
+    void readReleased(final int readHoldCount) {
+        if (readHoldCount == 0 && LockMetrics.isEnabled()) {
+            released(false, readHold.get());
+        }
+    }
+
+    void writeAcquired(final long waitStart, final Object consumer, final int writeHoldCount) {
+        acquired(true, waitStart, consumer, writeHoldCount, writeHold);
+    }
+
+    void writeReleased(final int writeHoldCount) {
+        if (writeHoldCount == 0 && LockMetrics.isEnabled()) {
+            released(true, writeHold);
+        }
+    }
+
+    private void acquired(final boolean write, final long waitStart, final Object consumer, final int holdCount, final Hold hold) {
+        if (waitStart == 0) {
+            return;
+        }
+
+        final long timestamp = System.nanoTime();
+        getStatistics().recordWait(write, timestamp - waitStart, consumer);
+
+        if (holdCount == 1 && hold != null) {
+            hold.timestamp = timestamp;
+            hold.epoch = LockMetrics.getEpoch();
+            hold.consumer = consumer;
+        }
+    }
+
+    private void released(final boolean write, final Hold hold) {
+        if (hold.timestamp == 0) {
+            return;
+        }
+
+        // holds started before the metrics were re-enabled are outdated.
+        if (hold.epoch == LockMetrics.getEpoch()) {
+            getStatistics().recordHold(write, System.nanoTime() - hold.timestamp, hold.consumer);
+        }
+        hold.timestamp = 0;
+        hold.consumer = null;
+    }
+
+    private LockStatistics getStatistics() {
+        LockStatistics currentStatistics = statistics;
+        if (currentStatistics == null) {
+            currentStatistics = LockMetrics.getStatistics(name);
+            statistics = currentStatistics;
+        }
+        return currentStatistics;
+    }
+
+    private static class Hold {
+        private long timestamp;
+        private long epoch;
+        private Object consumer;
+    }
+}
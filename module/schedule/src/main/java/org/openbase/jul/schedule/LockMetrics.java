@@ -0,0 +1,213 @@
+package org.openbase.jul.schedule;
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.exception.printer.LogLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in instrumentation of the locks provided by this module.
+ * <p>
+ * If enabled, the {@code BundledReentrantReadWriteLock} and the {@code InstrumentedReentrantReadWriteLock} record the time threads wait for and hold the lock
+ * into the {@code LockStatistics} registered by the lock name. The statistics are periodically published to all registered {@code LockMetricsSink}s.
+ * By default, a sink logging the most contended locks is registered.
+ * <p>
+ * If disabled, which is the default, the instrumentation only costs a volatile read per lock operation.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public final class LockMetrics {
+
+    /**
+     * Default report rate in milliseconds.
+     */
+    public static final long DEFAULT_REPORT_RATE = AbstractExecutorService.DEFAULT_REPORT_RATE;
+
+    /**
+     * The number of locks and consumers printed by the logging sink.
+     */
+    public static final int DEFAULT_REPORT_LIMIT = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LockMetrics.class);
+
+    /**
+     * Sink printing the most contended locks and their top holders.
+     */
+    public static final LockMetricsSink LOGGING_SINK = LockMetrics::log;
+
+    private static final Map<String, LockStatistics> STATISTICS_MAP = new ConcurrentHashMap<>();
+    private static final List<LockMetricsSink> SINK_LIST = new CopyOnWriteArrayList<>(Collections.singletonList(LOGGING_SINK));
+
+    private static volatile boolean enabled = false;
+
+    /**
+     * The epoch is increased each time the metrics are enabled, so hold times started before are never recorded.
+     */
+    private static volatile long epoch = 0;
+
+    private static Future<?> reportTask;
+
+    private LockMetrics() {
+    }
+
+    /**
+     * Enables or disables the lock instrumentation and its periodic report with the {@code DEFAULT_REPORT_RATE}.
+     *
+     * @param enabled true to enable the instrumentation.
+     */
+    public static void setEnabled(final boolean enabled) {
+        setEnabled(enabled, DEFAULT_REPORT_RATE, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Enables or disables the lock instrumentation and its periodic report.
+     *
+     * @param enabled    true to enable the instrumentation.
+     * @param reportRate the rate in which the statistics are published to all sinks.
+     * @param timeUnit   the time unit of the report rate.
+     */
+    public static synchronized void setEnabled(final boolean enabled, final long reportRate, final TimeUnit timeUnit) {
+        if (reportTask != null) {
+            reportTask.cancel(false);
+            reportTask = null;
+        }
+
+        if (enabled && !LockMetrics.enabled) {
+            epoch++;
+        }
+        LockMetrics.enabled = enabled;
+
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            reportTask = GlobalScheduledExecutorService.scheduleAtFixedRate(LockMetrics::report, reportRate, reportRate, timeUnit);
+        } catch (Exception ex) {
+            ExceptionPrinter.printHistory("Could not start lock metrics report!", ex, LOGGER, LogLevel.WARN);
+        }
+    }
+
+    /**
+     * @return true if the lock instrumentation is enabled.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the statistics of the locks with the given name. The statistics are created if not available yet.
+     *
+     * @param name the name of the lock.
+     *
+     * @return the statistics.
+     */
+    public static LockStatistics getStatistics(final String name) {
+        return STATISTICS_MAP.computeIfAbsent(name, LockStatistics::new);
+    }
+
+    /**
+     * @return the statistics of all locks used while the metrics were enabled.
+     */
+    public static Collection<LockStatistics> getStatistics() {
+        return Collections.unmodifiableCollection(STATISTICS_MAP.values());
+    }
+
+    /**
+     * Resets all statistics.
+     */
+    public static void reset() {
+        for (final LockStatistics statistics : STATISTICS_MAP.values()) {
+            statistics.reset();
+        }
+    }
+
+    public static void addSink(final LockMetricsSink sink) {
+        SINK_LIST.add(sink);
+    }
+
+    public static void removeSink(final LockMetricsSink sink) {
+        SINK_LIST.remove(sink);
+    }
+
+    /**
+     * Publishes the current statistics to all registered sinks.
+     */
+    public static void report() {
+        final Collection<LockStatistics> statistics = getStatistics();
+        for (final LockMetricsSink sink : SINK_LIST) {
+            try {
+                sink.publish(statistics);
+            } catch (RuntimeException ex) {
+                ExceptionPrinter.printHistory("Could not publish lock metrics to " + sink + "!", ex, LOGGER, LogLevel.WARN);
+            }
+        }
+    }
+
+    private static void log(final Collection<LockStatistics> statistics) {
+        final List<LockStatistics> statisticsList = new ArrayList<>(statistics);
+        statisticsList.sort(Comparator.comparingLong(LockStatistics::getTotalWaitTime).reversed());
+
+        for (final LockStatistics lockStatistics : statisticsList.subList(0, Math.min(DEFAULT_REPORT_LIMIT, statisticsList.size()))) {
+            final StringBuilder topConsumers = new StringBuilder();
+            for (final LockStatistics.ConsumerStatistics consumerStatistics : lockStatistics.getTopConsumers(DEFAULT_REPORT_LIMIT)) {
+                if (topConsumers.length() > 0) {
+                    topConsumers.append(", ");
+                }
+                topConsumers.append(consumerStatistics.getName())
+                        .append(" held ").append(TimeUnit.NANOSECONDS.toMillis(consumerStatistics.getHoldTime())).append("ms")
+                        .append(" waited ").append(TimeUnit.NANOSECONDS.toMillis(consumerStatistics.getWaitTime())).append("ms");
+            }
+            LOGGER.info("Lock[" + lockStatistics.getName() + "]"
+                    + " read wait " + format(lockStatistics.getReadWaitHistogram())
+                    + " read hold " + format(lockStatistics.getReadHoldHistogram())
+                    + " write wait " + format(lockStatistics.getWriteWaitHistogram())
+                    + " write hold " + format(lockStatistics.getWriteHoldHistogram())
+                    + (topConsumers.length() > 0 ? " top holders [" + topConsumers + "]" : ""));
+        }
+    }
+
+    private static String format(final LatencyHistogram histogram) {
+        return "[count:" + histogram.getCount()
+                + " p50:" + histogram.getPercentile(50, TimeUnit.MICROSECONDS) + "us"
+                + " p99:" + histogram.getPercentile(99, TimeUnit.MICROSECONDS) + "us"
+                + " max:" + histogram.getMax(TimeUnit.MICROSECONDS) + "us]";
+    }
+}
@@ -0,0 +1,200 @@
+package org.openbase.jul.schedule;
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wait and hold time statistics of all locks sharing the same name.
+ * <p>
+ * Statistics are created and updated by the {@code LockMetrics} only if the lock metrics are enabled.
+ *
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class LockStatistics {
+
+    /**
+     * The maximal number of consumers tracked separately. All further consumers are summarized as {@code OTHER_CONSUMER}.
+     */
+    public static final int MAX_CONSUMER_COUNT = 128;
+
+    /**
+     * Name of the consumer entry summarizing all consumers exceeding the {@code MAX_CONSUMER_COUNT}.
+     */
+    public static final String OTHER_CONSUMER = "Other";
+
+    private final String name;
+    private final LatencyHistogram readWaitHistogram = new LatencyHistogram();
+    private final LatencyHistogram readHoldHistogram = new LatencyHistogram();
+    private final LatencyHistogram writeWaitHistogram = new LatencyHistogram();
+    private final LatencyHistogram writeHoldHistogram = new LatencyHistogram();
+    private final Map<String, ConsumerStatistics> consumerStatisticsMap = new ConcurrentHashMap<>();
+
+    LockStatistics(final String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getReadWaitHistogram() {
+        return readWaitHistogram;
+    }
+
+    public LatencyHistogram getReadHoldHistogram() {
+        return readHoldHistogram;
+    }
+
+    public LatencyHistogram getWriteWaitHistogram() {
+        return writeWaitHistogram;
+    }
+
+    public LatencyHistogram getWriteHoldHistogram() {
+        return writeHoldHistogram;
+    }
+
+    /**
+     * Returns the total time in nanoseconds threads have waited for any of the locks.
+     *
+     * @return the wait time in nanoseconds.
+     */
+    public long getTotalWaitTime() {
+        return readWaitHistogram.getTotal(TimeUnit.NANOSECONDS) + writeWaitHistogram.getTotal(TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the consumers which have held the locks the longest time, sorted by their total hold time.
+     *
+     * @param limit the maximal number of consumers to return.
+     *
+     * @return a list of the top consumers.
+     */
+    public List<ConsumerStatistics> getTopConsumers(final int limit) {
+        final List<ConsumerStatistics> consumerStatisticsList = new ArrayList<>(consumerStatisticsMap.values());
+        consumerStatisticsList.sort(Comparator.comparingLong(ConsumerStatistics::getHoldTime).reversed());
+        return Collections.unmodifiableList(consumerStatisticsList.subList(0, Math.min(limit, consumerStatisticsList.size())));
+    }
+
+    /**
+     * Resets all statistics.
+     */
+    public void reset() {
+        readWaitHistogram.reset();
+        readHoldHistogram.reset();
+        writeWaitHistogram.reset();
+        writeHoldHistogram.reset();
+        consumerStatisticsMap.clear();
+    }
+
+    void recordWait(final boolean write, final long nanos, final Object consumer) {
+        (write ? writeWaitHistogram : readWaitHistogram).record(nanos);
+        if (consumer != null) {
+            getConsumerStatistics(consumer).waitTime.add(nanos);
+        }
+    }
+
+    void recordHold(final boolean write, final long nanos, final Object consumer) {
+        (write ? writeHoldHistogram : readHoldHistogram).record(nanos);
+        if (consumer != null) {
+            final ConsumerStatistics consumerStatistics = getConsumerStatistics(consumer);
+            consumerStatistics.holdTime.add(nanos);
+            consumerStatistics.holdCount.increment();
+        }
+    }
+
+    private ConsumerStatistics getConsumerStatistics(final Object consumer) {
+        String consumerName = consumerName(consumer);
+        ConsumerStatistics consumerStatistics = consumerStatisticsMap.get(consumerName);
+        if (consumerStatistics != null) {
+            return consumerStatistics;
+        }
+        if (consumerStatisticsMap.size() >= MAX_CONSUMER_COUNT) {
+            consumerName = OTHER_CONSUMER;
+        }
+        return consumerStatisticsMap.computeIfAbsent(consumerName, ConsumerStatistics::new);
+    }
+
+    /**
+     * Consumers are tracked by their class to keep the number of entries bounded and to avoid expensive {@code toString} calls on the lock path.
+     */
+    private static String consumerName(final Object consumer) {
+        if (consumer instanceof String) {
+            return (String) consumer;
+        }
+        final Class<?> consumerClass = consumer.getClass();
+        return consumerClass.getSimpleName().isEmpty() ? consumerClass.getName() : consumerClass.getSimpleName();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + name + "]";
+    }
+
+    /**
+     * Wait and hold times caused by a single consumer.
+     */
+    public static class ConsumerStatistics {
+
+        private final String name;
+        private final LongAdder waitTime = new LongAdder();
+        private final LongAdder holdTime = new LongAdder();
+        private final LongAdder holdCount = new LongAdder();
+
+        private ConsumerStatistics(final String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the total time in nanoseconds the consumer has waited for the lock.
+         */
+        public long getWaitTime() {
+            return waitTime.sum();
+        }
+
+        /**
+         * @return the total time in nanoseconds the consumer has held the lock.
+         */
+        public long getHoldTime() {
+            return holdTime.sum();
+        }
+
+        /**
+         * @return how often the consumer has acquired the lock.
+         */
+        public long getHoldCount() {
+            return holdCount.sum();
+        }
+    }
+}
@@ -67,6 +67,18 @@ public abstract class RecurrenceEventFilter<VALUE> {
      * @param maxFrequency this is the maximum frequency in milliseconds where triggered events are relayed.
      */
     public RecurrenceEventFilter(long maxFrequency) {
+        this(maxFrequency, null);
+    }
+
+    /**
+     * Constructor creates a new {@code RecurrenceEventFilter} instance pre-configured with the given {@code maxFrequency}.
+     * <p>
+     * Filters triggered at high rates should share a {@code HashedWheelTimer} since rescheduling its timeouts is cheaper than rescheduling them on the {@code GlobalScheduledExecutorService}.
+     *
+     * @param maxFrequency this is the maximum frequency in milliseconds where triggered events are relayed.
+     * @param wheelTimer   the timer used to schedule the relay or null to use the {@code GlobalScheduledExecutorService}.
+     */
+    public RecurrenceEventFilter(long maxFrequency, final HashedWheelTimer wheelTimer) {
         this.changeDetected = false;
         this.triggered = false;
         this.latestValue = null;
@@ -79,7 +91,7 @@ public abstract class RecurrenceEventFilter<VALUE> {
             ExceptionPrinter.printHistory(new CouldNotPerformException("Could not access java property!", ex), LOGGER);
         }
 
-        this.timeout = new Timeout(maxFrequency) {
+        this.timeout = new Timeout(maxFrequency, wheelTimer) {
 
             @Override
             public void expired() {
@@ -178,6 +190,34 @@ public abstract class RecurrenceEventFilter<VALUE> {
         }
     }
 
+    /**
+     * Method triggers the filter without relaying the event itself, which allows the caller to handle the event outside of the filter monitor.
+     * If no event was registered within the defined max frequency, the filter period is started and the caller is requested to handle the event directly.
+     * Otherwise the event is filtered and relayed via {@code relay()} after the timeout is reached.
+     *
+     * @return true if the event was not filtered and needs to be handled by the caller, otherwise false.
+     *
+     * @throws CouldNotPerformException is thrown if the timeout could not be set.
+     */
+    public synchronized boolean triggerWithoutRelay() throws CouldNotPerformException {
+        triggered = true;
+        if (timeout.isActive()) {
+            changeDetected = true;
+            return false;
+        }
+
+        changeDetected = false;
+        try {
+            timeout.start();
+        } catch (final ShutdownInProgressException ex) {
+            // just skip trigger when shutdown is in progress
+            return false;
+        } catch (final CouldNotPerformException ex) {
+            throw new CouldNotPerformException("Could not trigger " + this, ex);
+        }
+        return true;
+    }
+
     /**
      * Method cancels depending triggers which were not relayed yet.
      */
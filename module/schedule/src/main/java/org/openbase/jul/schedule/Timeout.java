@@ -54,6 +54,11 @@ public abstract class Timeout {
     private final Object lock = new SyncObject("TimeoutLock");
     private Future timerTask;
 
+    /**
+     * The wheel timer used to schedule this timeout or null if the {@code GlobalScheduledExecutorService} is used.
+     */
+    private volatile HashedWheelTimer wheelTimer;
+
     /**
      * The default time to wait in milliseconds.
      */
@@ -81,6 +86,29 @@ public abstract class Timeout {
         this.defaultWaitTime = defaultWaitTime;
     }
 
+    /**
+     * Constructor creates a new Timeout instance which is scheduled on the given wheel timer instead of the {@code GlobalScheduledExecutorService}.
+     *
+     * @param defaultWaitTime the default timeout in millisecond.
+     * @param wheelTimer      the timer used to schedule this timeout.
+     */
+    public Timeout(final long defaultWaitTime, final HashedWheelTimer wheelTimer) {
+        this.defaultWaitTime = defaultWaitTime;
+        this.wheelTimer = wheelTimer;
+    }
+
+    /**
+     * Method configures the wheel timer used to schedule this timeout.
+     * A wheel timer makes start, cancel and restart cheap for timeouts which are restarted frequently,
+     * but only provides the precision of its tick duration.
+     * The change takes effect with the next start of this timeout.
+     *
+     * @param wheelTimer the timer to use or null to schedule this timeout on the {@code GlobalScheduledExecutorService}.
+     */
+    public void setHashedWheelTimer(final HashedWheelTimer wheelTimer) {
+        this.wheelTimer = wheelTimer;
+    }
+
     /**
      * Returns the currently configured time to wait until the timeout is reached after start.
      *
@@ -199,8 +227,14 @@ public abstract class Timeout {
         try {
             internal_start(waitTime, timeUnit);
         } catch (CouldNotPerformException | RejectedExecutionException ex) {
-            if (ex instanceof RejectedExecutionException && GlobalScheduledExecutorService.getInstance().getExecutorService().isShutdown()) {
-                throw new ShutdownInProgressException("GlobalScheduledExecutorService");
+            if (ex instanceof RejectedExecutionException) {
+                final HashedWheelTimer timer = wheelTimer;
+                if (timer != null && timer.isShutdown()) {
+                    throw new ShutdownInProgressException("HashedWheelTimer");
+                }
+                if (timer == null && GlobalScheduledExecutorService.getInstance().getExecutorService().isShutdown()) {
+                    throw new ShutdownInProgressException("GlobalScheduledExecutorService");
+                }
             }
             throw new CouldNotPerformException("Could not start " + this, ex);
         }
@@ -224,34 +258,46 @@ public abstract class Timeout {
             expired = false;
             startTimestamp = System.currentTimeMillis();
             timeToWait = waitTime;
-            timerTask = GlobalScheduledExecutorService.schedule((Callable<Void>) () -> {
-                synchronized (lock) {
-                    try {
-                        //logger.trace("Wait for timeout TimeOut interrupted.");
-                        if (timerTask.isCancelled()) {
-                            logger.trace("TimeOut was canceled.");
-                            return null;
-                        }
-                        //logger.trace("Expire...");
-                        expired = true;
-                    } finally {
-                        timerTask = null;
-                    }
-                }
+            final HashedWheelTimer timer = wheelTimer;
+            if (timer != null) {
+                timerTask = timer.schedule(this::internal_expire, waitTime, timeUnit);
+            } else {
+                timerTask = GlobalScheduledExecutorService.schedule((Callable<Void>) () -> {
+                    internal_expire();
+                    return null;
+                }, waitTime, timeUnit);
+            }
+        }
+    }
 
-                try {
-                    expired();
-                } catch (InterruptedException ex) {
-                    // just finish task on interruption
-                } catch (Exception ex) {
-                    if(!ExceptionProcessor.isCausedBySystemShutdown(ex)) {
-                        ExceptionPrinter.printHistory(new CouldNotPerformException("Error during timeout handling!", ex), logger, LogLevel.WARN);
-                    }
+    /**
+     * Internal expire routine executed by the scheduled timer task.
+     */
+    private void internal_expire() {
+        synchronized (lock) {
+            try {
+                //logger.trace("Wait for timeout TimeOut interrupted.");
+                if (timerTask.isCancelled()) {
+                    logger.trace("TimeOut was canceled.");
+                    return;
                 }
-                //logger.trace("Worker finished.");
-                return null;
-            }, waitTime, timeUnit);
+                //logger.trace("Expire...");
+                expired = true;
+            } finally {
+                timerTask = null;
+            }
+        }
+
+        try {
+            expired();
+        } catch (InterruptedException ex) {
+            // just finish task on interruption
+        } catch (Exception ex) {
+            if(!ExceptionProcessor.isCausedBySystemShutdown(ex)) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Error during timeout handling!", ex), logger, LogLevel.WARN);
+            }
         }
+        //logger.trace("Worker finished.");
     }
 
     /**
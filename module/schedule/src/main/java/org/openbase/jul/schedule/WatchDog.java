@@ -34,7 +34,8 @@ import org.openbase.jul.pattern.Observer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -60,11 +61,26 @@ public class WatchDog implements Activatable, Shutdownable {
     private final String serviceName;
     private Minder minder;
     private ServiceState serviceState = ServiceState.UNKNOWN;
+    private volatile HashedWheelTimer wheelTimer;
 
     private final ObservableImpl<WatchDog, ServiceState> serviceStateObservable;
 
     public WatchDog(final Activatable service, final String serviceName) throws InstantiationException {
+        this(service, serviceName, null);
+    }
+
+    /**
+     * Creates a new watchdog which schedules its service checks on the given timer.
+     *
+     * @param service     the service to observe.
+     * @param serviceName the name of the service used for logging.
+     * @param wheelTimer  the timer used to schedule the service checks or null to use the {@code GlobalScheduledExecutorService}.
+     *
+     * @throws InstantiationException is thrown if the watchdog could not be created.
+     */
+    public WatchDog(final Activatable service, final String serviceName, final HashedWheelTimer wheelTimer) throws InstantiationException {
         try {
+            this.wheelTimer = wheelTimer;
             this.service = service;
             this.serviceName = serviceName;
             this.serviceStateObservable = new ObservableImpl<>(this);
@@ -91,9 +107,18 @@ public class WatchDog implements Activatable, Shutdownable {
                 return;
             }
             synchronized (STATE_LOCK) {
-                minder = new Minder(serviceName + "WatchDog");
+                minder = new Minder(serviceName + "WatchDog", wheelTimer);
                 logger.trace("Start activation of service: " + serviceName);
-                minder.setFuture(GlobalScheduledExecutorService.scheduleAtFixedRate(minder, 0, getRate(), TimeUnit.MILLISECONDS));
+                if (minder.timer == null) {
+                    minder.setFuture(GlobalScheduledExecutorService.scheduleAtFixedRate(minder, 0, getRate(), TimeUnit.MILLISECONDS));
+                } else {
+                    try {
+                        minder.setFuture(minder.timer.schedule(minder, 0, TimeUnit.MILLISECONDS));
+                    } catch (RejectedExecutionException ex) {
+                        minder = null;
+                        throw new CouldNotPerformException("Could not schedule Service[" + serviceName + "]!", ex);
+                    }
+                }
             }
         }
     }
@@ -129,6 +154,17 @@ public class WatchDog implements Activatable, Shutdownable {
         return minder.isActive();
     }
 
+    /**
+     * Defines the timer used to schedule the service checks, which is applied with the next activation.
+     * <p>
+     * Sharing a {@code HashedWheelTimer} between many watchdogs is cheaper than scheduling all of them on the {@code GlobalScheduledExecutorService}.
+     *
+     * @param wheelTimer the timer to use or null to use the {@code GlobalScheduledExecutorService}.
+     */
+    public void setHashedWheelTimer(final HashedWheelTimer wheelTimer) {
+        this.wheelTimer = wheelTimer;
+    }
+
     public boolean isServiceDone() {
         return minder == null || minder.getFuture() == null || minder.getFuture().isDone();
     }
@@ -188,20 +224,23 @@ public class WatchDog implements Activatable, Shutdownable {
     private class Minder implements Runnable, Shutdownable {
 
         private final String name;
+        private final HashedWheelTimer timer;
         private volatile boolean processing;
-        private ScheduledFuture future;
+        private volatile boolean cancelled;
+        private volatile Future future;
         private final Object FUTURE_LOCK = new SyncObject("FUTURE_LOCK");
 
-        private Minder(String name) {
+        private Minder(String name, HashedWheelTimer timer) {
             this.name = name;
+            this.timer = timer;
             setServiceState(ServiceState.INITIALIZING);
         }
 
-        public ScheduledFuture getFuture() {
+        public Future getFuture() {
             return future;
         }
 
-        public void setFuture(ScheduledFuture future) {
+        public void setFuture(Future future) {
             synchronized (FUTURE_LOCK) {
                 this.future = future;
                 FUTURE_LOCK.notifyAll();
@@ -235,7 +274,7 @@ public class WatchDog implements Activatable, Shutdownable {
                 try {
                     try {
                         waitForInit();
-                        if (future.isCancelled()) {
+                        if (cancelled || future.isCancelled()) {
                             // finish when task was canceled.
                             return;
                         }
@@ -256,7 +295,7 @@ public class WatchDog implements Activatable, Shutdownable {
                                     setServiceState(ServiceState.INTERRUPTED);
                                     throw new InterruptedException();
                                 }
-                                if (future.isCancelled()) {
+                                if (cancelled || future.isCancelled()) {
                                     // interrupt if future was externally canceled.
                                     throw new InterruptedException();
                                 }
@@ -277,6 +316,7 @@ public class WatchDog implements Activatable, Shutdownable {
                          * !!! Do not recover the interrupted state to guarantee a proper shutdown !!!
                          */
                         logger.debug("Minder shutdown initiated of Service[" + serviceName + "]...");
+                        cancelled = true;
                         future.cancel(false);
                     }
                 } catch (Throwable tr) {
@@ -285,6 +325,28 @@ public class WatchDog implements Activatable, Shutdownable {
                 }
             } finally {
                 processing = false;
+                scheduleNext();
+            }
+        }
+
+        /**
+         * Timer tasks only run once, so the minder reschedules itself after each check if it operates on a {@code HashedWheelTimer}.
+         */
+        private void scheduleNext() {
+            if (timer == null || cancelled) {
+                return;
+            }
+
+            try {
+                setFuture(timer.schedule(this, getRate(), TimeUnit.MILLISECONDS));
+            } catch (NotAvailableException | RejectedExecutionException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not reschedule minder of Service[" + serviceName + "]!", ex), logger, LogLevel.WARN);
+                return;
+            }
+
+            // the minder could have been shutdown while rescheduling.
+            if (cancelled) {
+                future.cancel(false);
             }
         }
 
@@ -294,6 +356,7 @@ public class WatchDog implements Activatable, Shutdownable {
 
         @Override
         public void shutdown() {
+            cancelled = true;
             if (future != null) {
                 future.cancel(true);
             }
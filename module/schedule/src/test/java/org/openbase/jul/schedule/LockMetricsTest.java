@@ -0,0 +1,125 @@
+package org.openbase.jul.schedule;
+
+/*
+ * #%L
+ * JUL Schedule
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author <a href="mailto:divine@openbase.org">Divine Threepwood</a>
+ */
+public class LockMetricsTest {
+
+    @AfterEach
+    public void tearDown() {
+        LockMetrics.setEnabled(false);
+        LockMetrics.reset();
+    }
+
+    @Timeout(5)
+    @Test
+    public void testHistogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMax(TimeUnit.MILLISECONDS));
+        assertEquals(50.5, histogram.getMean(TimeUnit.MILLISECONDS), 0.001);
+
+        // buckets guarantee a relative error of at most 12.5%
+        final long p50 = histogram.getPercentile(50, TimeUnit.MICROSECONDS);
+        assertTrue(p50 >= 50000 && p50 <= 50000 * 1.125, "p50 out of range: " + p50);
+        final long p99 = histogram.getPercentile(99, TimeUnit.MICROSECONDS);
+        assertTrue(p99 >= 99000 && p99 <= 100000, "p99 out of range: " + p99);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50, TimeUnit.NANOSECONDS));
+    }
+
+    @Timeout(5)
+    @Test
+    public void testInstrumentedLock() throws Exception {
+        final ReentrantReadWriteLock lock = new InstrumentedReentrantReadWriteLock("LockMetricsTest.instrumentedLock");
+        final LockStatistics statistics = LockMetrics.getStatistics("LockMetricsTest.instrumentedLock");
+
+        // nothing is recorded while disabled
+        lock.writeLock().lock();
+        lock.writeLock().unlock();
+        assertEquals(0, statistics.getWriteWaitHistogram().getCount());
+
+        LockMetrics.setEnabled(true);
+
+        // only the outermost hold is recorded
+        lock.writeLock().lock();
+        lock.writeLock().lock();
+        Thread.sleep(20);
+        lock.writeLock().unlock();
+        lock.writeLock().unlock();
+        assertEquals(2, statistics.getWriteWaitHistogram().getCount());
+        assertEquals(1, statistics.getWriteHoldHistogram().getCount());
+        assertTrue(statistics.getWriteHoldHistogram().getMax(TimeUnit.MILLISECONDS) >= 20);
+
+        lock.readLock().lock();
+        lock.readLock().unlock();
+        assertEquals(1, statistics.getReadWaitHistogram().getCount());
+        assertEquals(1, statistics.getReadHoldHistogram().getCount());
+    }
+
+    @Timeout(5)
+    @Test
+    public void testBundledLockConsumerStatistics() throws Exception {
+        final String consumer = "LockMetricsTest.consumer";
+        final BundledReentrantReadWriteLock lock = new BundledReentrantReadWriteLock(new ReentrantReadWriteLock(), false, this);
+        LockMetrics.setEnabled(true);
+
+        lock.lockWrite(consumer);
+        Thread.sleep(20);
+        lock.unlockWrite(consumer);
+
+        final LockStatistics statistics = LockMetrics.getStatistics("LockMetricsTest.BundledLock");
+        assertEquals(1, statistics.getWriteHoldHistogram().getCount());
+        assertEquals(consumer, statistics.getTopConsumers(1).get(0).getName());
+        assertTrue(statistics.getTopConsumers(1).get(0).getHoldTime() >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Timeout(5)
+    @Test
+    public void testLockName() {
+        assertEquals("LockMetricsTest.lock", InstrumentedReentrantReadWriteLock.getLockName(LockMetricsTest.class, "lock"));
+
+        // anonymous classes do not offer a simple name
+        final Object anonymousOwner = new Object() {
+        };
+        assertEquals(anonymousOwner.getClass().getName() + ".lock", InstrumentedReentrantReadWriteLock.getLockName(anonymousOwner.getClass(), "lock"));
+    }
+}
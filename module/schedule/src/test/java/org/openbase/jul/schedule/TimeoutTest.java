@@ -28,6 +28,9 @@ import org.junit.jupiter.api.Timeout;
 import org.openbase.jps.core.JPService;
 import org.openbase.jps.exception.JPServiceException;
 import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.exception.ShutdownInProgressException;
+
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -97,4 +100,69 @@ public class TimeoutTest {
         timeout.start(50);
 
     }
+
+    /**
+     * Test of a timeout scheduled on the hashed wheel timer.
+     */
+    @Timeout(3)
+    @Test
+    public void testTimerOnHashedWheelTimer() throws Exception {
+        System.out.println("testTimerOnHashedWheelTimer");
+        final Stopwatch stopwatch = new Stopwatch();
+        final long timeToWait = 200;
+        final HashedWheelTimer wheelTimer = new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8, GlobalCachedExecutorService.getInstance().getExecutorService());
+
+        try {
+            // #### Test timeout expire ####
+            org.openbase.jul.schedule.Timeout timeout = new org.openbase.jul.schedule.Timeout(timeToWait, wheelTimer) {
+
+                @Override
+                public void expired() {
+                    try {
+                        stopwatch.stop();
+                    } catch (CouldNotPerformException ex) {
+                        assertTrue(false);
+                    }
+                }
+            };
+
+            timeout.start();
+            assertTrue(timeout.isActive(), "timer was started but is not active!");
+            stopwatch.start();
+            stopwatch.waitForStop();
+            System.out.println("time: " + stopwatch.getTime());
+            assertTrue(Math.abs(stopwatch.getTime() - timeToWait) < 50, "timer to fast or to slow!");
+
+            // #### Test timeout restart ####
+            stopwatch.reset();
+            timeout.start(50);
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(10);
+                timeout.restart(50);
+            }
+            assertTrue(!timeout.isExpired(), "Timeout expired but was restarted!");
+
+            // #### Test timeout cancel ####
+            timeout.cancel();
+            Thread.sleep(100);
+            assertTrue(!timeout.isExpired(), "Timeout expired but was canceled!");
+            try {
+                stopwatch.getEndTime();
+                assertTrue(false);
+            } catch (CouldNotPerformException ex) {
+                // there should be no result because timeout was canceled.
+            }
+
+            // #### Test start after timer shutdown ####
+            wheelTimer.shutdown();
+            try {
+                timeout.start();
+                assertTrue(false);
+            } catch (ShutdownInProgressException ex) {
+                // timer is already shutdown
+            }
+        } finally {
+            wheelTimer.shutdown();
+        }
+    }
 }
@@ -94,6 +94,33 @@ public class WatchDogTest {
         assertFalse(instance.isActive());
     }
 
+    /**
+     * Test if the service is minded when the watchdog is scheduled on a hashed wheel timer.
+     *
+     * @throws java.lang.Exception
+     */
+    @Timeout(5)
+    @Test
+    public void testHashedWheelTimerScheduling() throws Exception {
+        System.out.println("testHashedWheelTimerScheduling");
+        final TestService service = new TestService();
+        final WatchDog instance = new WatchDog(service, "TestService", HashedWheelTimer.getInstance());
+        instance.activate();
+        instance.waitForServiceActivation();
+        assertTrue(instance.isActive());
+        assertTrue(service.isActive());
+
+        // service is reactivated by the next check
+        service.deactivate();
+        while (!service.isActive()) {
+            Thread.sleep(10);
+        }
+
+        instance.deactivate();
+        assertFalse(instance.isActive());
+        assertFalse(service.isActive());
+    }
+
     /**
      * Test of service error handling.
      *
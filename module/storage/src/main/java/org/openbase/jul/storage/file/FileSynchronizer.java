@@ -35,6 +35,9 @@ import org.openbase.jul.processing.FileProcessor;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import org.openbase.jul.exception.InvalidStateException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,12 +54,19 @@ public class FileSynchronizer<D> extends ObservableImpl<FileSynchronizer<D>, D>
         AUTO, CREATE, LOAD, REPLACE
     }
 
+    private static final String CONTENT_HASH_ALGORITHM = "SHA-256";
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final FileProcessor<D> fileProcessor;
     private D data;
     private final File file;
 
+    /**
+     * Hash of the content currently stored in the file or null if the file content is not known yet.
+     */
+    private byte[] contentHash;
+
     /**
      * Creates a new file with the given data and starts the synchronization.
      *
@@ -105,6 +115,7 @@ public class FileSynchronizer<D> extends ObservableImpl<FileSynchronizer<D>, D>
 
     public final D load() throws CouldNotPerformException {
         logger.debug("Load " + file);
+        contentHash = null;
         data = fileProcessor.deserialize(file);
         return data;
     }
@@ -130,21 +141,55 @@ public class FileSynchronizer<D> extends ObservableImpl<FileSynchronizer<D>, D>
             // make sure files are only written in case the content has changed,
             // otherwise skip write because this action is especially critical during shutdown where an interrupted write can cause into corrupted files.
             // Therefore, only write things back that has really changed.
-            try {
-                if (fileProcessor.deserialize(file).equals(data)) {
+            final byte[] content = fileProcessor.serializeContent(data);
+
+            // processor does not support content serialization so compare with the file content.
+            if (content == null) {
+                if (isFileContentEqual(data)) {
                     return file;
                 }
-            } catch (CouldNotPerformException ex) {
-                // in case the file could not be deserialized, we better perform the write back.
+                return fileProcessor.serialize(data, file);
+            }
+
+            // the file content only needs to be read once, afterwards the hash of the last written content is used.
+            final byte[] hash = hash(content);
+            if (contentHash == null ? isFileContentEqual(data) : Arrays.equals(contentHash, hash)) {
+                contentHash = hash;
+                return file;
             }
 
             // perform the file sync.
-            return fileProcessor.serialize(data, file);
+            fileProcessor.writeContent(content, file);
+            contentHash = hash;
+            return file;
         } catch (CouldNotPerformException ex) {
             throw new CouldNotPerformException("Could not save " + data + "!", ex);
         }
     }
 
+    private boolean isFileContentEqual(final D data) {
+
+        // skip the check of new files.
+        if (file.length() == 0) {
+            return false;
+        }
+
+        try {
+            return fileProcessor.deserialize(file).equals(data);
+        } catch (CouldNotPerformException ex) {
+            // in case the file could not be deserialized, we better perform the write back.
+            return false;
+        }
+    }
+
+    private static byte[] hash(final byte[] content) throws CouldNotPerformException {
+        try {
+            return MessageDigest.getInstance(CONTENT_HASH_ALGORITHM).digest(content);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new CouldNotPerformException("Could not hash file content!", ex);
+        }
+    }
+
     public final File save() throws CouldNotPerformException {
         logger.debug("Save " + data + " into " + file);
         return save(data);
@@ -175,6 +220,7 @@ public class FileSynchronizer<D> extends ObservableImpl<FileSynchronizer<D>, D>
             if (!file.delete()) {
                 throw new CouldNotPerformException("Could not delete File[" + file.getAbsolutePath() + "]!");
             }
+            contentHash = null;
         } catch (FileNotFoundException | CouldNotPerformException | NullPointerException ex) {
             throw new CouldNotPerformException("Could not delete database " + file + "!", ex);
         }
@@ -43,6 +43,7 @@ import org.openbase.jul.pattern.ChangeListener;
 import org.openbase.jul.pattern.ObservableImpl;
 import org.openbase.jul.pattern.Observer;
 import org.openbase.jul.pattern.provider.DataProvider;
+import org.openbase.jul.schedule.InstrumentedReentrantReadWriteLock;
 import org.openbase.jul.schedule.RecurrenceEventFilter;
 import org.openbase.jul.storage.registry.plugin.RegistryPlugin;
 import org.openbase.jul.storage.registry.plugin.RegistryPluginPool;
@@ -69,9 +70,9 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
     private final MAP entryMap;
 
     private final Random randomJitter;
-    private final ReentrantReadWriteLock registryLock = new ReentrantReadWriteLock();
-    private final ReentrantReadWriteLock dependingRegistryMapLock = new ReentrantReadWriteLock();
-    private final ReentrantReadWriteLock consistencyCheckLock = new ReentrantReadWriteLock();
+    private final ReentrantReadWriteLock registryLock = new InstrumentedReentrantReadWriteLock(InstrumentedReentrantReadWriteLock.getLockName(getClass(), "registryLock"));
+    private final ReentrantReadWriteLock dependingRegistryMapLock = new InstrumentedReentrantReadWriteLock(InstrumentedReentrantReadWriteLock.getLockName(getClass(), "dependingRegistryMapLock"));
+    private final ReentrantReadWriteLock consistencyCheckLock = new InstrumentedReentrantReadWriteLock(InstrumentedReentrantReadWriteLock.getLockName(getClass(), "consistencyCheckLock"));
     private final Set<Registry> lockedRegistries = new HashSet<>();
     private final List<ConsistencyHandler<KEY, ENTRY, MAP, REGISTRY>> consistencyHandlerList;
     /**
@@ -90,6 +91,13 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
 
     private boolean shutdownInitiated = false;
 
+    /**
+     * Ids of all entries modified since the last successful consistency check.
+     */
+    private final Set<KEY> dirtyEntrySet = new LinkedHashSet<>();
+    private boolean fullConsistencyCheckRequired = true;
+    private boolean incrementalConsistencyCheck = false;
+
     public AbstractRegistry(final MAP entryMap) throws InstantiationException {
         this(entryMap, new RegistryPluginPool<>());
     }
@@ -159,6 +167,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
 
             this.sandbox = sandbox;
             this.sandbox.sync(entryMap);
+            sandbox.setIncrementalConsistencyCheck(incrementalConsistencyCheck);
 
             for (ConsistencyHandler<KEY, ENTRY, MAP, REGISTRY> consistencyHandler : consistencyHandlerList) {
                 this.sandbox.registerConsistencyHandler(consistencyHandler);
@@ -195,6 +204,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                     sandbox.register(entry);
                     pluginPool.beforeRegister(entry);
                     entryMap.put(entry.getId(), entry);
+                    markDirty(entry);
                     pluginPool.afterRegister(entry);
                     finishTransaction();
                 } finally {
@@ -226,6 +236,8 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                     sandbox.load(entry);
                     pluginPool.beforeRegister(entry);
                     entryMap.put(entry.getId(), entry);
+                    // loaded entries are not validated until the next full consistency check.
+                    fullConsistencyCheckRequired = true;
                     pluginPool.afterRegister(entry);
                 } finally {
                     syncSandbox();
@@ -239,6 +251,51 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
         return entry;
     }
 
+    /**
+     * Loads all given entries within one registry lock. In contrast to {@link #load(Identifiable)} called per entry, the sandbox is only synchronized once after all entries are loaded.
+     * Entries are not validated until the next consistency check.
+     *
+     * @param entries the entries to load.
+     *
+     * @return the list of loaded entries.
+     *
+     * @throws CouldNotPerformException is thrown if the registry could not be locked or at least one entry could not be loaded.
+     */
+    public List<ENTRY> loadAll(final Collection<ENTRY> entries) throws CouldNotPerformException {
+        if (entries == null) {
+            throw new NotAvailableException("entries");
+        }
+        logger.debug("Load " + entries.size() + " entries...");
+        final List<ENTRY> loadedEntries = new ArrayList<>(entries.size());
+        ExceptionStack exceptionStack = null;
+        lock();
+        try {
+            try {
+                for (final ENTRY entry : entries) {
+                    try {
+                        if (entryMap.containsKey(entry.getId())) {
+                            throw new CouldNotPerformException("Entry with same Id[" + entry.getId() + "] already registered!");
+                        }
+                        pluginPool.beforeRegister(entry);
+                        entryMap.put(entry.getId(), entry);
+                        pluginPool.afterRegister(entry);
+                        loadedEntries.add(entry);
+                    } catch (CouldNotPerformException ex) {
+                        exceptionStack = MultiException.push(this, new CouldNotPerformException("Could not load " + entry + " in " + this + "!", ex), exceptionStack);
+                    }
+                }
+                // loaded entries are not validated until the next full consistency check.
+                fullConsistencyCheckRequired = true;
+            } finally {
+                syncSandbox();
+            }
+        } finally {
+            unlock();
+        }
+        MultiException.checkAndThrow(() -> "Could not load all entries!", exceptionStack);
+        return loadedEntries;
+    }
+
     /**
      * {@inheritDoc}
      *
@@ -268,7 +325,10 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                     // check if the new message results in an update after consistency checks
                     final boolean changed = !isSandbox() && ((sandbox instanceof MockRegistrySandbox) || !get(entry).equals(sandbox.get(entry)));
                     pluginPool.beforeUpdate(entry);
+                    // entries related to the previous version may be affected as well.
+                    markDirty(entryMap.get(entry.getId()));
                     entryMap.put(entry.getId(), entry);
+                    markDirty(entry);
                     finishTransaction();
                     pluginPool.afterUpdate(entry);
                     // test if the entry has changed at all by this update method
@@ -330,6 +390,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                     // perform removal
                     pluginPool.beforeRemove(entry);
                     sandbox.remove(entry);
+                    markDirty(entry);
                     try {
                         oldEntry = entryMap.remove(entry.getId());
                     } finally {
@@ -513,6 +574,34 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
         }
     }
 
+    /**
+     * Method returns all entries referred by the given keys. Keys of entries which are not registered are skipped.
+     *
+     * @param keys the keys of the entries to resolve.
+     *
+     * @return a map containing the resolved entries.
+     */
+    protected Map<KEY, ENTRY> getEntries(final Collection<KEY> keys) {
+        try {
+            registryLock.readLock().lockInterruptibly();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread interrupted!", ex);
+        }
+        try {
+            final Map<KEY, ENTRY> resultMap = new HashMap<>();
+            for (final KEY key : keys) {
+                final ENTRY entry = entryMap.get(key);
+                if (entry != null) {
+                    resultMap.put(key, entry);
+                }
+            }
+            return resultMap;
+        } finally {
+            registryLock.readLock().unlock();
+        }
+    }
+
     @Override
     public Map<KEY, ENTRY> getEntryMap() {
         try {
@@ -614,6 +703,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
             pluginPool.beforeClear();
             sandbox.clear();
             entryMap.clear();
+            dirtyEntrySet.clear();
             consistent = true;
         } finally {
             unlock();
@@ -658,6 +748,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                 sandbox.replaceInternalMap(map);
                 entryMap.clear();
                 entryMap.putAll(map);
+                fullConsistencyCheckRequired = true;
                 if (finishTransaction && !(this instanceof RemoteRegistry)) {
                     logger.warn("Replace internal map of [" + this + "]");
                     finishTransaction();
@@ -935,6 +1026,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                 throw new NotAvailableException("consistencyHandler");
             }
             consistencyHandlerList.add(consistencyHandler);
+            fullConsistencyCheckRequired = true;
             sandbox.registerConsistencyHandler(consistencyHandler);
         } catch (CouldNotPerformException ex) {
             throw new CouldNotPerformException("Could not register ConsistencyHandler[" + consistencyHandler + "]", ex);
@@ -972,17 +1064,87 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
         }
     }
 
-    @SuppressWarnings("UseSpecificCatch")
+    /**
+     * Enables or disables the incremental consistency check mode.
+     * <p>
+     * If enabled, transactions only pass the modified entries and their related entries to consistency handlers which support incremental checks
+     * (see {@link ConsistencyHandler#isIncrementalCheckSupported()}). All other handlers are still validating all entries.
+     * Loading entries, replacing the internal map or registering further consistency handlers always results in a full consistency check during the next transaction.
+     *
+     * @param enabled true to enable the incremental mode.
+     */
+    public void setIncrementalConsistencyCheck(final boolean enabled) {
+        this.incrementalConsistencyCheck = enabled;
+        this.fullConsistencyCheckRequired = true;
+        if (sandbox instanceof AbstractRegistry) {
+            ((AbstractRegistry) sandbox).setIncrementalConsistencyCheck(enabled);
+        }
+    }
+
+    /**
+     * Method returns if the incremental consistency check mode is enabled.
+     *
+     * @return true if enabled.
+     */
+    public boolean isIncrementalConsistencyCheck() {
+        return incrementalConsistencyCheck;
+    }
+
+    /**
+     * Marks the given entry and all entries declared as related by any incremental consistency handler as dirty
+     * so that they are validated during the next incremental consistency check.
+     *
+     * @param entry the modified entry.
+     *
+     * @throws CouldNotPerformException is thrown if the entry id is not available.
+     */
+    private void markDirty(final ENTRY entry) throws CouldNotPerformException {
+        if (entry == null || !incrementalConsistencyCheck || fullConsistencyCheckRequired) {
+            return;
+        }
+        dirtyEntrySet.add(entry.getId());
+        for (ConsistencyHandler<KEY, ENTRY, MAP, REGISTRY> consistencyHandler : consistencyHandlerList) {
+            if (consistencyHandler.isIncrementalCheckSupported()) {
+                dirtyEntrySet.addAll(consistencyHandler.getRelatedEntryIds(entry.getId(), entry, entryMap, (REGISTRY) this));
+            }
+        }
+    }
+
+    /**
+     * Method validates all registry entries by all registered consistency handlers.
+     *
+     * @return the number of applied modifications.
+     *
+     * @throws CouldNotPerformException is thrown if the registry could not be made consistent.
+     */
     public final int checkConsistency() throws CouldNotPerformException {
+        return checkConsistency(false);
+    }
+
+    /**
+     * Method validates the registry entries by all registered consistency handlers.
+     * If {@code incremental} is true and the incremental mode is enabled only entries marked as dirty are passed to consistency handlers which support incremental checks.
+     *
+     * @param incremental flag to request an incremental consistency check. The flag is ignored in case a full consistency check is required.
+     *
+     * @return the number of applied modifications.
+     *
+     * @throws CouldNotPerformException is thrown if the registry could not be made consistent.
+     */
+    @SuppressWarnings("UseSpecificCatch")
+    protected final int checkConsistency(final boolean incremental) throws CouldNotPerformException {
         int modificationCounter = 0;
 
         if (consistencyHandlerList.isEmpty()) {
             logger.trace("Skip consistency check because no handler are registered.");
+            dirtyEntrySet.clear();
             return modificationCounter;
         }
 
         if (isEmpty()) {
             logger.trace("Skip consistency check because " + getName() + " is empty.");
+            dirtyEntrySet.clear();
+            fullConsistencyCheckRequired = false;
             return modificationCounter;
         }
 
@@ -1012,6 +1174,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
             }
             try {
                 try {
+                    final boolean incrementalCheck = incremental && incrementalConsistencyCheck && !fullConsistencyCheckRequired;
                     try {
                         int iterationCounter = 0;
                         MultiException.ExceptionStack exceptionStack = null, previousExceptionStack = null;
@@ -1081,7 +1244,17 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                                 for (ConsistencyHandler<KEY, ENTRY, MAP, REGISTRY> consistencyHandler : consistencyHandlerList) {
                                     consistencyHandler.reset();
                                     entryValueCopy.clear();
-                                    entryValueCopy.addAll(new ArrayList<>(entryMap.values()));
+                                    if (incrementalCheck && consistencyHandler.isIncrementalCheckSupported()) {
+                                        // only validate entries modified during this transaction, removed entries are skipped.
+                                        for (KEY dirtyEntryId : dirtyEntrySet) {
+                                            final ENTRY dirtyEntry = entryMap.get(dirtyEntryId);
+                                            if (dirtyEntry != null) {
+                                                entryValueCopy.add(dirtyEntry);
+                                            }
+                                        }
+                                    } else {
+                                        entryValueCopy.addAll(entryMap.values());
+                                    }
                                     for (ENTRY entry : entryValueCopy) {
                                         try {
                                             consistencyHandler.processData(entry.getId(), entry, entryMap, (REGISTRY) this);
@@ -1102,6 +1275,11 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                                 consistencyHandlerQueue.offer(ex.getConsistencyHandler());
                                 lastModifiedEntry = ex.getEntry();
 
+                                // the modified entry has to pass all handlers again
+                                if (incrementalCheck) {
+                                    markDirty((ENTRY) ex.getEntry());
+                                }
+
                                 // inform about modifications
                                 try {
                                     if (iterationCounter > (maxConsistencyChecks * 0.9) || JPService.getProperty(JPVerbose.class).getValue() && !JPService.getProperty(JPTestMode.class).getValue()) {
@@ -1112,7 +1290,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                                 } catch (JPNotAvailableException exx) {
                                     ExceptionPrinter.printHistory(new CouldNotPerformException("JPVerbose property could not be loaded!", exx), logger, LogLevel.WARN);
                                 }
-                                pluginPool.afterConsistencyModification((ENTRY) ex.getEntry());
+                                afterConsistencyModification((ENTRY) ex.getEntry());
                                 modificationCounter++;
 
                                 if (iterationCounter > maxConsistencyChecks && MultiException.size(exceptionStack) == 0) {
@@ -1157,6 +1335,8 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                             break;
                         }
                         consistent = true;
+                        dirtyEntrySet.clear();
+                        fullConsistencyCheckRequired = false;
 
                         if (modificationCounter > 0 || consistencyFeedbackEventFilter.isTriggered()) {
                             consistencyFeedbackEventFilter.trigger("100% consistency checks passed of " + this + " after " + modificationCounter + " applied modifications.", true);
@@ -1164,6 +1344,7 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
                         return modificationCounter;
                     } catch (CouldNotPerformException ex) {
                         consistent = false;
+                        fullConsistencyCheckRequired = true;
                         try {
                             if (JPService.getProperty(JPForce.class).getValue()) {
                                 ExceptionPrinter.printHistory(new CouldNotPerformException("Consistency process of " + this + " aborted after " + modificationCounter + " modifications but transaction passed because registry force mode is enabled!", ex), logger, LogLevel.WARN);
@@ -1197,9 +1378,22 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
         pluginPool.afterConsistencyCheck();
     }
 
+    /**
+     * Can be overwritten for further registry actions scheduled after an entry was modified by a consistency handler.
+     * <p>
+     * Don't forget to pass-through the call to the super class. (super.afterConsistencyModification(entry))
+     *
+     * @param entry the modified entry.
+     *
+     * @throws org.openbase.jul.exception.CouldNotPerformException is thrown if any plugin afterConsistencyModification fails.
+     */
+    protected void afterConsistencyModification(final ENTRY entry) throws CouldNotPerformException {
+        pluginPool.afterConsistencyModification(entry);
+    }
+
     protected void finishTransaction() throws CouldNotPerformException {
         try {
-            checkConsistency();
+            checkConsistency(true);
             dependingRegistryObservable.notifyObservers(entryMap);
         } catch (CouldNotPerformException ex) {
             throw ExceptionPrinter.printHistoryAndReturnThrowable(new FatalImplementationErrorException("Registry consistency check failed but sandbox check was successful!", this, ex), logger, LogLevel.ERROR);
@@ -1215,6 +1409,14 @@ public abstract class AbstractRegistry<KEY, ENTRY extends Identifiable<KEY>, MAP
         }
         try {
             sandbox.sync(entryMap);
+
+            // the sandbox takes over the consistency state of this registry.
+            if (sandbox instanceof AbstractRegistry) {
+                final AbstractRegistry<KEY, ENTRY, MAP, REGISTRY, PLUGIN> sandboxRegistry = (AbstractRegistry<KEY, ENTRY, MAP, REGISTRY, PLUGIN>) sandbox;
+                sandboxRegistry.dirtyEntrySet.clear();
+                sandboxRegistry.dirtyEntrySet.addAll(dirtyEntrySet);
+                sandboxRegistry.fullConsistencyCheckRequired = fullConsistencyCheckRequired;
+            }
         } finally {
             registryLock.readLock().unlock();
         }
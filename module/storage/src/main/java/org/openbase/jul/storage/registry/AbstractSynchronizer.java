@@ -40,7 +40,14 @@ import org.openbase.jul.schedule.SyncObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class AbstractSynchronizer<KEY, ENTRY extends Identifiable<KEY>> implements Activatable, Shutdownable {
 
@@ -58,6 +65,17 @@ public abstract class AbstractSynchronizer<KEY, ENTRY extends Identifiable<KEY>>
 
     private boolean initialSync;
 
+    /**
+     * The latest entries reported via the change set mode together with the keys of all entries reported as changed since the last sync,
+     * or null if no changes were reported since the last sync.
+     */
+    private Collection<ENTRY> changeSetEntries;
+    private Set<KEY> changedKeySet;
+    private final SyncObject changeSetLock = new SyncObject("ChangeSetLock");
+    private volatile boolean changeSetMode = false;
+    private volatile boolean fullSyncRequired = false;
+    private volatile int parallelism = 1;
+
     protected final SyncObject synchronizationLock;
 
     public AbstractSynchronizer(final DataProvider dataProvider) throws org.openbase.jul.exception.InstantiationException {
@@ -148,6 +166,65 @@ public abstract class AbstractSynchronizer<KEY, ENTRY extends Identifiable<KEY>>
         }
     }
 
+    /**
+     * Enables or disables the change set mode, which is disabled by default.
+     * In change set mode, the synchronizer is fed via {@link #notifyChanges(Collection, Collection)} instead of diffing all entries on each sync.
+     * The reported entries are synchronized as they are, so only the entries reported as changed are updated without comparing them again,
+     * while new and removed entries are detected by their keys. Syncs without any reported changes are skipped.
+     * <p>
+     * Note: Only enable this mode if all changes of the entries are reported, the initial sync and the first sync after enabling this mode are still based on a full diff.
+     *
+     * @param changeSetMode true to enable the change set mode.
+     */
+    public void setChangeSetMode(final boolean changeSetMode) {
+        this.fullSyncRequired = true;
+        this.changeSetMode = changeSetMode;
+    }
+
+    /**
+     * Reports the latest entries together with the keys of the entries changed by this update, which is considered by the next sync if the change set mode is enabled.
+     * Reported keys are accumulated until the next sync, while only the latest reported entries are synchronized.
+     *
+     * @param entries     all entries of the update.
+     * @param changedKeys the keys of all changed entries.
+     */
+    public void notifyChanges(final Collection<ENTRY> entries, final Collection<KEY> changedKeys) {
+        synchronized (changeSetLock) {
+            changeSetEntries = entries;
+            if (changedKeySet == null) {
+                changedKeySet = new HashSet<>();
+            }
+            changedKeySet.addAll(changedKeys);
+        }
+    }
+
+    /**
+     * Reports the given changes again, if they could not be synchronized. Entries reported in the meantime are kept since they are more recent.
+     */
+    private void restoreChanges(final Collection<ENTRY> entries, final Collection<KEY> changedKeys) {
+        synchronized (changeSetLock) {
+            if (changeSetEntries == null) {
+                changeSetEntries = entries;
+            }
+            if (changedKeySet == null) {
+                changedKeySet = new HashSet<>();
+            }
+            changedKeySet.addAll(changedKeys);
+        }
+    }
+
+    /**
+     * Defines how many entries are registered, updated or removed in parallel during a sync.
+     * Removals are still applied before updates and updates before registrations,
+     * and since each entry is only part of one of those phases, the changes of a single entry are always applied in order.
+     * Make sure the {@code register}, {@code update} and {@code remove} implementations are thread safe before enabling parallelism.
+     *
+     * @param parallelism the maximal number of entries processed in parallel. A value of 1 or less applies all changes sequentially, which is the default.
+     */
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     private void internalSync() throws CouldNotPerformException, InterruptedException {
         synchronized (synchronizationLock) {
 
@@ -166,69 +243,86 @@ public abstract class AbstractSynchronizer<KEY, ENTRY extends Identifiable<KEY>>
             }
 
             try {
-                listDiff.diff(getEntries());
-                int skippedChanges = 0;
+                final Collection<ENTRY> reportedEntries;
+                final Set<KEY> changedKeys;
+                synchronized (changeSetLock) {
+                    reportedEntries = changeSetEntries;
+                    changedKeys = changedKeySet;
+                    changeSetEntries = null;
+                    changedKeySet = null;
+                }
 
-                MultiException.ExceptionStack removeExceptionStack = null;
-                for (ENTRY entry : listDiff.getRemovedValueMap().values()) {
-                    validateSynchronizerState();
-                    try {
-                        removeInternal(entry);
-                    } catch (CouldNotPerformException ex) {
-                        if (ExceptionProcessor.isCausedBySystemShutdown(ex)) {
-                            // in case of a shutdown just exit method as fast as possible...
-                            throw ex;
+                final Collection<ENTRY> removedEntries, updatedEntries, newEntries;
+                final boolean changeSetSync = changeSetMode && !initialSync && !fullSyncRequired && reportedEntries != null;
+                if (changeSetMode && !initialSync && !fullSyncRequired) {
+                    removedEntries = new ArrayList<>();
+                    updatedEntries = new ArrayList<>();
+                    newEntries = new ArrayList<>();
+
+                    // all changes are reported, so there is nothing to do if no changes were reported since the last sync.
+                    if (reportedEntries != null) {
+                        final IdentifiableValueMap<KEY, ENTRY> entryMap = IdentifiableValueMap.fromCollection(reportedEntries);
+                        synchronized (currentEntryMap) {
+                            for (final ENTRY entry : currentEntryMap.values()) {
+                                if (!entryMap.containsKey(entry.getId())) {
+                                    removedEntries.add(entry);
+                                }
+                            }
+                            for (final ENTRY entry : entryMap.values()) {
+                                if (!currentEntryMap.containsKey(entry.getId())) {
+                                    newEntries.add(entry);
+                                } else if (changedKeys.contains(entry.getId())) {
+                                    updatedEntries.add(entry);
+                                }
+                            }
                         }
-                        removeExceptionStack = MultiException.push(this, ex, removeExceptionStack);
                     }
+                } else {
+                    fullSyncRequired = false;
+                    listDiff.diff(getEntries());
+                    removedEntries = listDiff.getRemovedValueMap().values();
+                    updatedEntries = listDiff.getUpdatedValueMap().values();
+                    newEntries = listDiff.getNewValueMap().values();
                 }
 
-                MultiException.ExceptionStack updateExceptionStack = null;
-                for (ENTRY entry : listDiff.getUpdatedValueMap().values()) {
-                    validateSynchronizerState();
-                    try {
-                        if (isSupported(entry)) {
-                            updateInternal(entry);
-                        } else {
-                            removeInternal(entry);
-                            listDiff.getOriginalValueMap().removeValue(entry);
-                        }
-                    } catch (CouldNotPerformException ex) {
-                        if (ExceptionProcessor.isCausedBySystemShutdown(ex)) {
-                            // in case of a shutdown just exit method as fast as possible...
-                            throw ex;
-                        }
-                        updateExceptionStack = MultiException.push(this, ex, updateExceptionStack);
+                final AtomicInteger skippedChanges = new AtomicInteger();
+
+                final MultiException.ExceptionStack removeExceptionStack = apply(removedEntries, entry -> {
+                    removeInternal(entry);
+                });
+
+                final MultiException.ExceptionStack updateExceptionStack = apply(updatedEntries, entry -> {
+                    if (isSupported(entry)) {
+                        updateInternal(entry);
+                    } else {
+                        removeInternal(entry);
                     }
-                }
+                });
 
-                MultiException.ExceptionStack registerExceptionStack = null;
-                for (ENTRY entry : listDiff.getNewValueMap().values()) {
-                    validateSynchronizerState();
-                    try {
-                        if (isSupported(entry)) {
-                            registerInternal(entry);
-                        } else {
-                            skippedChanges++;
-                        }
-                    } catch (CouldNotPerformException ex) {
-                        if (ExceptionProcessor.isCausedBySystemShutdown(ex)) {
-                            // in case of a shutdown just exit method as fast as possible...
-                            throw ex;
-                        }
-                        registerExceptionStack = MultiException.push(this, ex, registerExceptionStack);
+                final MultiException.ExceptionStack registerExceptionStack = apply(newEntries, entry -> {
+                    if (isSupported(entry)) {
+                        registerInternal(entry);
+                    } else {
+                        skippedChanges.incrementAndGet();
                     }
+                });
+
+                // failed changes are only detected again if they are still reported during the next sync.
+                if (changeSetSync && (removeExceptionStack != null || updateExceptionStack != null || registerExceptionStack != null)) {
+                    restoreChanges(reportedEntries, changedKeys);
                 }
 
                 // print changes
                 final int errorCounter = MultiException.size(removeExceptionStack) + MultiException.size(updateExceptionStack) + MultiException.size(registerExceptionStack);
-                final int changeCounter = (listDiff.getChangeCounter() - skippedChanges);
+                final int changeCounter = (removedEntries.size() + updatedEntries.size() + newEntries.size() - skippedChanges.get());
                 if (changeCounter != 0 || errorCounter != 0) {
                     logger.info(changeCounter + " changes synchronized." + (errorCounter == 0 ? "" : " " + errorCounter + (errorCounter == 1 ? " is" : " are") + " skipped."));
                 }
 
                 // sync list diff to what actually happened
-                listDiff.replaceOriginalMap(currentEntryMap);
+                synchronized (currentEntryMap) {
+                    listDiff.replaceOriginalMap(currentEntryMap);
+                }
 
                 // build exception cause chain.
                 MultiException.ExceptionStack exceptionStack = null;
@@ -302,6 +396,85 @@ public abstract class AbstractSynchronizer<KEY, ENTRY extends Identifiable<KEY>>
         }
     }
 
+    /**
+     * Applies the given operation on all entries. Depending on the configured parallelism,
+     * the entries are split into partitions which are processed in parallel.
+     *
+     * @param entries   the entries to process.
+     * @param operation the operation to apply.
+     *
+     * @return the exceptions of all failed operations or null if all operations were successful.
+     *
+     * @throws CouldNotPerformException is thrown if the sync was canceled because of a system shutdown.
+     * @throws InterruptedException     is thrown if the thread was externally interrupted.
+     */
+    private MultiException.ExceptionStack apply(final Collection<ENTRY> entries, final SyncOperation<ENTRY> operation) throws CouldNotPerformException, InterruptedException {
+        final int partitionCount = Math.min(parallelism, entries.size());
+
+        if (partitionCount <= 1) {
+            return applySequentially(entries, operation);
+        }
+
+        final List<List<ENTRY>> partitionList = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitionList.add(new ArrayList<>());
+        }
+        int index = 0;
+        for (final ENTRY entry : entries) {
+            partitionList.get(index++ % partitionCount).add(entry);
+        }
+
+        final List<Future<MultiException.ExceptionStack>> futureList = new ArrayList<>(partitionCount);
+        for (final List<ENTRY> partition : partitionList) {
+            futureList.add(GlobalCachedExecutorService.submit(() -> applySequentially(partition, operation)));
+        }
+
+        MultiException.ExceptionStack exceptionStack = null;
+        try {
+            for (final Future<MultiException.ExceptionStack> future : futureList) {
+                try {
+                    final MultiException.ExceptionStack partitionExceptionStack = future.get();
+                    if (partitionExceptionStack != null) {
+                        if (exceptionStack == null) {
+                            exceptionStack = new MultiException.ExceptionStack();
+                        }
+                        exceptionStack.addAll(partitionExceptionStack);
+                    }
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof CouldNotPerformException) {
+                        throw (CouldNotPerformException) ex.getCause();
+                    }
+                    if (ex.getCause() instanceof InterruptedException) {
+                        throw (InterruptedException) ex.getCause();
+                    }
+                    throw new CouldNotPerformException("Could not apply changes!", ex);
+                }
+            }
+        } finally {
+            for (final Future<MultiException.ExceptionStack> future : futureList) {
+                future.cancel(true);
+            }
+        }
+        return exceptionStack;
+    }
+
+    private MultiException.ExceptionStack applySequentially(final Collection<ENTRY> entries, final SyncOperation<ENTRY> operation) throws CouldNotPerformException, InterruptedException {
+        MultiException.ExceptionStack exceptionStack = null;
+        for (final ENTRY entry : entries) {
+            validateSynchronizerState();
+            try {
+                operation.apply(entry);
+            } catch (CouldNotPerformException ex) {
+                if (ExceptionProcessor.isCausedBySystemShutdown(ex)) {
+                    // in case of a shutdown just exit method as fast as possible...
+                    throw ex;
+                }
+                exceptionStack = MultiException.push(this, ex, exceptionStack);
+            }
+        }
+        return exceptionStack;
+    }
+
     private void validateSynchronizerState() throws ShutdownInProgressException {
         if (shutdown) {
             throw new ShutdownInProgressException(this);
@@ -310,17 +483,23 @@ public abstract class AbstractSynchronizer<KEY, ENTRY extends Identifiable<KEY>>
 
     private void updateInternal(final ENTRY entry) throws CouldNotPerformException, InterruptedException {
         update(entry);
-        this.currentEntryMap.put(entry);
+        synchronized (currentEntryMap) {
+            this.currentEntryMap.put(entry);
+        }
     }
 
     private void registerInternal(final ENTRY entry) throws CouldNotPerformException, InterruptedException {
         register(entry);
-        this.currentEntryMap.put(entry);
+        synchronized (currentEntryMap) {
+            this.currentEntryMap.put(entry);
+        }
     }
 
     private void removeInternal(final ENTRY entry) throws CouldNotPerformException, InterruptedException {
         remove(entry);
-        this.currentEntryMap.removeValue(entry);
+        synchronized (currentEntryMap) {
+            this.currentEntryMap.removeValue(entry);
+        }
     }
 
     public abstract void update(final ENTRY entry) throws CouldNotPerformException, InterruptedException;
@@ -360,4 +539,9 @@ public abstract class AbstractSynchronizer<KEY, ENTRY extends Identifiable<KEY>>
     protected DataProvider getDataProvider() {
         return dataProvider;
     }
+
+    @FunctionalInterface
+    private interface SyncOperation<ENTRY> {
+        void apply(final ENTRY entry) throws CouldNotPerformException, InterruptedException;
+    }
 }
@@ -21,6 +21,8 @@ package org.openbase.jul.storage.registry;
  * <http://www.gnu.org/licenses/lgpl-3.0.html>.
  * #L%
  */
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.iface.Identifiable;
@@ -60,4 +62,32 @@ public interface ConsistencyHandler<KEY, VALUE extends Identifiable<KEY>, MAP ex
      *
      */
     void reset();
+
+    /**
+     * Method declares if this handler supports incremental consistency checks.
+     * Handler which only validate the given entry and do not depend on caches filled by processing all other entries can be checked incrementally.
+     * In this case the registry only passes entries to the handler which have been modified since the last consistency check or which are related to such an entry.
+     *
+     * Entries affecting the consistency of other entries should be declared via {@link #getRelatedEntryIds(Object, Identifiable, Map, Registry)}.
+     *
+     * @return true if the handler can be checked incrementally, otherwise false which results in a full check of all entries.
+     */
+    default boolean isIncrementalCheckSupported() {
+        return false;
+    }
+
+    /**
+     * Method returns the ids of all entries which consistency depends on the given entry.
+     * These entries are checked again in case the given entry is modified.
+     * The method is only called for handlers which support incremental consistency checks.
+     *
+     * @param id the id of the modified entry.
+     * @param entry the modified entry.
+     * @param entryMap the entry map of the underlying registry.
+     * @param registry the underlying registry.
+     * @return a collection of related entry ids.
+     */
+    default Collection<KEY> getRelatedEntryIds(final KEY id, final VALUE entry, final MAP entryMap, final R registry) {
+        return Collections.emptyList();
+    }
 }
@@ -36,6 +36,9 @@ import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.iface.Identifiable;
 import org.openbase.jul.processing.FileProcessor;
 import org.openbase.jul.processing.StringProcessor;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
+import org.openbase.jul.schedule.HashedWheelTimer;
+import org.openbase.jul.schedule.RecurrenceEventFilter;
 import org.openbase.jul.storage.file.FileProvider;
 import org.openbase.jul.storage.file.FileSynchronizer;
 import org.openbase.jul.storage.registry.jp.JPResetDB;
@@ -44,10 +47,21 @@ import org.openbase.jul.storage.registry.plugin.FileRegistryPluginPool;
 import org.openbase.jul.storage.registry.version.DBVersionControl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -60,6 +74,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>, MAP extends Map<KEY, ENTRY>, REGISTRY extends FileSynchronizedRegistry<KEY, ENTRY>> extends AbstractRegistry<KEY, ENTRY, MAP, REGISTRY, FileRegistryPlugin<KEY, ENTRY, REGISTRY>> implements FileSynchronizedRegistry<KEY, ENTRY> {
 
+    /**
+     * The minimal number of files parsed by one load task, smaller databases are parsed by fewer tasks.
+     */
+    private static final int MIN_FILES_PER_LOAD_TASK = 16;
+
     private final File databaseDirectory;
     private final Map<KEY, FileSynchronizer<ENTRY>> fileSynchronizerMap;
 
@@ -75,6 +94,17 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
     private DBVersionControl versionControl;
     private DatabaseState databaseState;
 
+    /**
+     * Ids of all entries which have to be saved and which file names have to be verified during the next save.
+     */
+    private final Set<KEY> dirtyEntrySet = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Ids of all entries updated in write behind mode, whose update is reported to the file registry plugins once they are saved.
+     */
+    private final Set<KEY> deferredUpdateSet = ConcurrentHashMap.newKeySet();
+    private volatile RecurrenceEventFilter<Void> writeBehindFilter;
+
     public FileSynchronizedRegistryImpl(
             final MAP entryMap,
             final File databaseDirectory,
@@ -189,7 +219,35 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
                 fileSynchronizerMapLock.readLock().unlock();
             }
             filePluginPool.beforeUpdate(result, fileSynchronizer);
-            fileSynchronizer.save(result);
+
+            // file registry plugins (e.g. git) expect the change on disk when notified, so in write behind mode they are informed by the save.
+            if (writeBehindFilter != null) {
+                deferredUpdateSet.add(result.getId());
+                markDirty(result.getId());
+                return result;
+            }
+
+            // the entry is marked as dirty so that a failed save or rename is retried during the next save.
+            markDirty(result.getId());
+
+            fileSynchronizerMapLock.writeLock().lockInterruptibly();
+            try {
+                // the synchronizer could have been replaced by a rename of the write behind save in the meantime.
+                fileSynchronizer = fileSynchronizerMap.get(result.getId());
+                if (fileSynchronizer == null) {
+                    logger.debug("Ignore update of concurrently removed entry " + result);
+                    return result;
+                }
+                fileSynchronizer.save(result);
+
+                // apply a changed file name right away, so plugins (e.g. git) are informed about the update and the rename at once.
+                final FileSynchronizer<ENTRY> renamedFileSynchronizer = applyFileNameChange(result.getId(), fileSynchronizer);
+                if (renamedFileSynchronizer != null) {
+                    fileSynchronizer = renamedFileSynchronizer;
+                }
+            } finally {
+                fileSynchronizerMapLock.writeLock().unlock();
+            }
             filePluginPool.afterUpdate(result, fileSynchronizer);
 
             return result;
@@ -214,8 +272,21 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
             }
 
             filePluginPool.beforeRemove(entry, fileSynchronizer);
-            fileSynchronizer.delete();
-            fileSynchronizerMap.remove(entry.getId());
+
+            // the removal is performed under the map lock so that a pending save can not write the entry back afterwards.
+            fileSynchronizerMapLock.writeLock().lockInterruptibly();
+            try {
+                dirtyEntrySet.remove(entry.getId());
+                deferredUpdateSet.remove(entry.getId());
+                // the synchronizer could have been replaced by a rename of the write behind save in the meantime.
+                fileSynchronizer = fileSynchronizerMap.remove(entry.getId());
+                if (fileSynchronizer == null) {
+                    throw new NotAvailableException("FileSynchronizer of " + entry);
+                }
+                fileSynchronizer.delete();
+            } finally {
+                fileSynchronizerMapLock.writeLock().unlock();
+            }
             filePluginPool.afterRemove(entry, fileSynchronizer);
             return removedValue;
         } catch (InterruptedException ex) {
@@ -231,6 +302,8 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
             fileSynchronizerMapLock.writeLock().lockInterruptibly();
             try {
                 fileSynchronizerMap.clear();
+                dirtyEntrySet.clear();
+                deferredUpdateSet.clear();
             } finally {
                 fileSynchronizerMapLock.writeLock().unlock();
             }
@@ -243,7 +316,81 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
     @Override
     protected void afterConsistencyCheck() throws CouldNotPerformException {
         super.afterConsistencyCheck();
-        saveRegistry();
+
+        // in write behind mode all changes are saved by the filter triggered when marking them as dirty.
+        if (writeBehindFilter == null) {
+            saveRegistry();
+        }
+    }
+
+    @Override
+    protected void afterConsistencyModification(final ENTRY entry) throws CouldNotPerformException {
+        super.afterConsistencyModification(entry);
+
+        final FileSynchronizer<ENTRY> fileSynchronizer;
+        try {
+            fileSynchronizerMapLock.readLock().lockInterruptibly();
+            try {
+                fileSynchronizer = fileSynchronizerMap.get(entry.getId());
+            } finally {
+                fileSynchronizerMapLock.readLock().unlock();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+
+        // inform file registry plugins before the save may rename the file of the entry.
+        if (fileSynchronizer != null) {
+            filePluginPool.afterConsistencyModification(entry, fileSynchronizer);
+        }
+        markDirty(entry.getId());
+    }
+
+    private void markDirty(final KEY key) throws CouldNotPerformException {
+        dirtyEntrySet.add(key);
+        final RecurrenceEventFilter<Void> filter = writeBehindFilter;
+        if (filter != null) {
+            filter.triggerDelayed();
+        }
+    }
+
+    /**
+     * Enables or disables the write behind mode.
+     * By default, all changed entries are written at the end of each transaction.
+     * In write behind mode, changed entries are only marked as dirty and saved in batches at most once per interval.
+     * Pending changes are always saved on shutdown.
+     * <p>
+     * Note: File registry plugins (e.g. to commit the database) expect the changed files on disk when they are notified.
+     * Therefore, they are informed about an update once the updated entry is saved.
+     *
+     * @param writeBehindInterval the minimal time in milliseconds between two saves. Zero or less disables the write behind mode.
+     *
+     * @throws MultiException is thrown if pending changes could not be saved while switching the mode.
+     */
+    public void setWriteBehindInterval(final long writeBehindInterval) throws MultiException {
+        final RecurrenceEventFilter<Void> previousFilter = writeBehindFilter;
+
+        if (writeBehindInterval > 0) {
+            writeBehindFilter = new RecurrenceEventFilter<Void>(writeBehindInterval, HashedWheelTimer.getInstance()) {
+                @Override
+                public void relay() {
+                    try {
+                        saveRegistry();
+                    } catch (MultiException ex) {
+                        ExceptionPrinter.printHistory("Could not save changes of " + FileSynchronizedRegistryImpl.this, ex, logger);
+                    }
+                }
+            };
+        } else {
+            writeBehindFilter = null;
+        }
+
+        // make sure changes pending in the previous filter are not lost.
+        if (previousFilter != null && previousFilter.isFilterActive()) {
+            previousFilter.cancel();
+            saveRegistry();
+        }
     }
 
     @Override
@@ -283,6 +430,7 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
 
         File[] listFiles;
 
+        deleteStaleTempFiles();
         listFiles = databaseDirectory.listFiles(fileProvider.getFileFilter());
 
         if (listFiles == null) {
@@ -300,38 +448,66 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
             ExceptionPrinter.printHistory("Could not load " + JPShareDirectory.class.getSimpleName(), ex, logger, LogLevel.WARN);
         }
 
+        // check if entries are writeable otherwise mark db as readonly.
         for (final File file : listFiles) {
-            try {
-                // check if entry is writeable otherwise mark db as readonly.
-                if (!file.canWrite()) {
-                    readOnlyFlag = true;
-                }
+            if (!file.canWrite()) {
+                readOnlyFlag = true;
+            }
+        }
 
-                // init file synchronizer
-                try {
-                    FileSynchronizer<ENTRY> fileSynchronizer = new FileSynchronizer<>(file, fileProcessor);
-                    ENTRY entry = fileSynchronizer.getData();
+        // parse all entries
+        final long parseStartTime = System.currentTimeMillis();
+        final List<LoadResult<ENTRY>> loadResults = parseFiles(listFiles);
 
-                    fileSynchronizerMapLock.writeLock().lockInterruptibly();
+        // register all file synchronizer and load their entries at once
+        final long insertStartTime = System.currentTimeMillis();
+        final List<ENTRY> entries = new ArrayList<>(loadResults.size());
+        try {
+            fileSynchronizerMapLock.writeLock().lockInterruptibly();
+            try {
+                for (final LoadResult<ENTRY> loadResult : loadResults) {
                     try {
-                        fileSynchronizerMap.put(entry.getId(), fileSynchronizer);
-                    } finally {
-                        fileSynchronizerMapLock.writeLock().unlock();
+                        if (loadResult.exception != null) {
+                            throw loadResult.exception;
+                        }
+                        final ENTRY entry = loadResult.fileSynchronizer.getData();
+                        if (fileSynchronizerMap.containsKey(entry.getId())) {
+                            throw new CouldNotPerformException("Could not load " + loadResult.fileSynchronizer.getFile() + " because Entry with same Id[" + entry.getId() + "] already loaded!");
+                        }
+                        fileSynchronizerMap.put(entry.getId(), loadResult.fileSynchronizer);
+                        entries.add(entry);
+                    } catch (CouldNotPerformException ex) {
+                        exceptionStack = MultiException.push(this, ex, exceptionStack);
                     }
-
-                    super.load(entry);
-                } catch (InterruptedException ex) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException(ex);
                 }
+            } finally {
+                fileSynchronizerMapLock.writeLock().unlock();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+
+        try {
+            super.loadAll(entries);
+        } catch (CouldNotPerformException ex) {
+            exceptionStack = MultiException.push(this, ex, exceptionStack);
+        }
+
+        // verify all loaded entries during the next save.
+        for (final ENTRY entry : entries) {
+            try {
+                dirtyEntrySet.add(entry.getId());
             } catch (CouldNotPerformException ex) {
                 exceptionStack = MultiException.push(this, ex, exceptionStack);
             }
         }
+        final long loadEndTime = System.currentTimeMillis();
 
         if (!isEmpty() || MultiException.size(exceptionStack) > 0) {
             logger.info("====== " + size() + (size() == 1 ? " entry" : " entries") + " of " + this + " successfully loaded." + (MultiException.size(exceptionStack) > 0 ? MultiException.size(exceptionStack) + " skipped." : "") + " ======");
         }
+        logger.debug("Parsing of " + listFiles.length + " files of " + this + " took " + (insertStartTime - parseStartTime) + "ms and their registration " + (loadEndTime - insertStartTime) + "ms.");
 
         MultiException.checkAndThrow(() -> "Could not load all registry entries!", exceptionStack);
 
@@ -342,6 +518,75 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
         }
     }
 
+    /**
+     * Removes temporary files left behind by writes which were interrupted e.g. by a system crash.
+     * The entry files itself are still valid in this case because they are only replaced after the temporary file was completely written.
+     */
+    private void deleteStaleTempFiles() {
+        final File[] tempFiles = databaseDirectory.listFiles(FileProcessor::isTempFile);
+        if (tempFiles == null) {
+            return;
+        }
+
+        for (final File tempFile : tempFiles) {
+            if (!tempFile.delete()) {
+                logger.warn("Could not delete stale temporary file " + tempFile.getAbsolutePath() + "!");
+            }
+        }
+    }
+
+    /**
+     * Parses the given files into file synchronizer.
+     * Larger databases are split into chunks which are parsed in parallel by at most one task per available processor.
+     *
+     * @param files the files to parse.
+     *
+     * @return the load results in order of the given files.
+     */
+    private List<LoadResult<ENTRY>> parseFiles(final File[] files) {
+        final int parallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), files.length / MIN_FILES_PER_LOAD_TASK));
+        if (parallelism == 1) {
+            return parseFiles(Arrays.asList(files));
+        }
+
+        final int chunkSize = (files.length + parallelism - 1) / parallelism;
+        final List<Future<List<LoadResult<ENTRY>>>> futures = new ArrayList<>(parallelism);
+        for (int i = 0; i < files.length; i += chunkSize) {
+            final List<File> chunk = Arrays.asList(files).subList(i, Math.min(i + chunkSize, files.length));
+            futures.add(GlobalCachedExecutorService.submit(() -> parseFiles(chunk)));
+        }
+
+        final List<LoadResult<ENTRY>> loadResults = new ArrayList<>(files.length);
+        try {
+            for (final Future<List<LoadResult<ENTRY>>> future : futures) {
+                try {
+                    loadResults.addAll(future.get());
+                } catch (ExecutionException ex) {
+                    loadResults.add(new LoadResult<>(null, new CouldNotPerformException("Could not parse database files!", ex)));
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (final Future<List<LoadResult<ENTRY>>> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+        return loadResults;
+    }
+
+    private List<LoadResult<ENTRY>> parseFiles(final List<File> files) {
+        final List<LoadResult<ENTRY>> loadResults = new ArrayList<>(files.size());
+        for (final File file : files) {
+            try {
+                loadResults.add(new LoadResult<>(new FileSynchronizer<>(file, fileProcessor), null));
+            } catch (CouldNotPerformException ex) {
+                loadResults.add(new LoadResult<>(null, ex));
+            }
+        }
+        return loadResults;
+    }
+
     @Override
     public void saveRegistry() throws MultiException {
 
@@ -359,43 +604,71 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
         logger.debug("Save " + this + " into " + databaseDirectory + "...");
         ExceptionStack exceptionStack = null;
 
+        // take all dirty entries, entries marked in the meantime are saved during the next run.
+        final List<KEY> dirtyKeyList = new ArrayList<>();
+        for (final Iterator<KEY> iterator = dirtyEntrySet.iterator(); iterator.hasNext(); ) {
+            dirtyKeyList.add(iterator.next());
+            iterator.remove();
+        }
+
+        if (dirtyKeyList.isEmpty()) {
+            return;
+        }
+
+        // take all updates which are reported to the plugins after the save.
+        final Set<KEY> deferredUpdateKeySet = new HashSet<>();
+        for (final KEY key : dirtyKeyList) {
+            if (deferredUpdateSet.remove(key)) {
+                deferredUpdateKeySet.add(key);
+            }
+        }
+
+        // resolve entries before locking the synchronizer map to keep the lock order of transactions.
+        final Map<KEY, ENTRY> dirtyEntryMap = getEntries(dirtyKeyList);
+        final Map<KEY, FileSynchronizer<ENTRY>> renamedSynchronizerMap = new HashMap<>();
+        final Map<KEY, FileSynchronizer<ENTRY>> savedSynchronizerMap = new HashMap<>();
+
         try {
             // save all changes.
             fileSynchronizerMapLock.writeLock().lockInterruptibly();
             try {
-                for (FileSynchronizer<ENTRY> fileSynchronizer : new ArrayList<>(fileSynchronizerMap.values())) {
+                for (Entry<KEY, ENTRY> dirtyEntry : dirtyEntryMap.entrySet()) {
+                    final FileSynchronizer<ENTRY> fileSynchronizer = fileSynchronizerMap.get(dirtyEntry.getKey());
+
+                    // skip entries which are not yet synchronized with a file or have been removed after their resolution.
+                    if (fileSynchronizer == null) {
+                        continue;
+                    }
+
                     try {
-                        fileSynchronizer.save();
+                        fileSynchronizer.save(dirtyEntry.getValue());
+                        savedSynchronizerMap.put(dirtyEntry.getKey(), fileSynchronizer);
                     } catch (CouldNotPerformException ex) {
+                        // retry during next save
+                        if (deferredUpdateKeySet.remove(dirtyEntry.getKey())) {
+                            deferredUpdateSet.add(dirtyEntry.getKey());
+                        }
+                        dirtyEntrySet.add(dirtyEntry.getKey());
                         exceptionStack = MultiException.push(this, ex, exceptionStack);
                     }
                 }
 
                 // verify and apply file name changes
-                String generatedFileName;
                 FileSynchronizer<ENTRY> fileSynchronizer;
                 FileSynchronizer<ENTRY> newFileSynchronizer;
-                File newFile;
 
-                for (Entry<KEY, FileSynchronizer<ENTRY>> entry : new ArrayList<>(fileSynchronizerMap.entrySet())) {
-                    fileSynchronizer = entry.getValue();
+                for (KEY key : dirtyEntryMap.keySet()) {
+                    fileSynchronizer = fileSynchronizerMap.get(key);
+                    if (fileSynchronizer == null) {
+                        continue;
+                    }
                     try {
-                        generatedFileName = fileProvider.getFileName(fileSynchronizer.getData());
-                        if (!fileSynchronizer.getFile().getName().equals(generatedFileName)) {
-                            try {
-                                // rename file
-                                newFile = new File(fileSynchronizer.getFile().getParent(), generatedFileName);
-                                if (!fileSynchronizer.getFile().renameTo(newFile)) {
-                                    throw new CouldNotPerformException("Rename failed without explicit error code, please rename file manually after registry shutdown!");
-                                }
-                                newFileSynchronizer = new FileSynchronizer<>(fileSynchronizer.getData(), newFile, FileSynchronizer.InitMode.AUTO, fileProcessor);
-                                fileSynchronizerMap.replace(entry.getKey(), fileSynchronizer, newFileSynchronizer);
-                            } catch (CouldNotPerformException ex) {
-                                exceptionStack = MultiException.push(this, new CouldNotPerformException("Could not apply db Entry[" + fileSynchronizer.getFile().getName() + "] renaming to Entry[" + generatedFileName + "]!", ex), exceptionStack);
-                            }
+                        newFileSynchronizer = applyFileNameChange(key, fileSynchronizer);
+                        if (newFileSynchronizer != null) {
+                            renamedSynchronizerMap.put(key, newFileSynchronizer);
                         }
                     } catch (CouldNotPerformException ex) {
-                        exceptionStack = MultiException.push(this, new CouldNotPerformException("Could not reconstruct filename of db Entry[" + fileSynchronizer.getFile().getName() + "]!", ex), exceptionStack);
+                        exceptionStack = MultiException.push(this, ex, exceptionStack);
                     }
                 }
             } finally {
@@ -406,9 +679,67 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
             throw new RuntimeException(ex);
         }
 
+        // inform file registry plugins (e.g. git) about the new file of renamed entries.
+        for (Entry<KEY, FileSynchronizer<ENTRY>> renamedEntry : renamedSynchronizerMap.entrySet()) {
+            try {
+                filePluginPool.afterUpdate(dirtyEntryMap.get(renamedEntry.getKey()), renamedEntry.getValue());
+            } catch (CouldNotPerformException ex) {
+                exceptionStack = MultiException.push(this, ex, exceptionStack);
+            }
+        }
+
+        // inform file registry plugins about the updates saved in write behind mode, renamed entries are already reported.
+        for (final KEY key : deferredUpdateKeySet) {
+            if (renamedSynchronizerMap.containsKey(key) || !savedSynchronizerMap.containsKey(key)) {
+                continue;
+            }
+            try {
+                filePluginPool.afterUpdate(dirtyEntryMap.get(key), savedSynchronizerMap.get(key));
+            } catch (CouldNotPerformException ex) {
+                exceptionStack = MultiException.push(this, ex, exceptionStack);
+            }
+        }
+
         MultiException.checkAndThrow(() -> "Could not save all registry entries!", exceptionStack);
     }
 
+    /**
+     * Renames the file of the given entry if its generated file name has changed.
+     * Note: The write lock of the synchronizer map has to be held by the caller.
+     *
+     * @param key              the key of the entry.
+     * @param fileSynchronizer the current synchronizer of the entry.
+     *
+     * @return the synchronizer of the renamed file or null if the file name is still valid.
+     *
+     * @throws CouldNotPerformException is thrown if the file name could not be generated or the file could not be renamed.
+     */
+    private FileSynchronizer<ENTRY> applyFileNameChange(final KEY key, final FileSynchronizer<ENTRY> fileSynchronizer) throws CouldNotPerformException {
+        final String generatedFileName;
+        try {
+            generatedFileName = fileProvider.getFileName(fileSynchronizer.getData());
+        } catch (CouldNotPerformException ex) {
+            throw new CouldNotPerformException("Could not reconstruct filename of db Entry[" + fileSynchronizer.getFile().getName() + "]!", ex);
+        }
+
+        if (fileSynchronizer.getFile().getName().equals(generatedFileName)) {
+            return null;
+        }
+
+        try {
+            // rename file
+            final File newFile = new File(fileSynchronizer.getFile().getParent(), generatedFileName);
+            if (!fileSynchronizer.getFile().renameTo(newFile)) {
+                throw new CouldNotPerformException("Rename failed without explicit error code, please rename file manually after registry shutdown!");
+            }
+            final FileSynchronizer<ENTRY> newFileSynchronizer = new FileSynchronizer<>(fileSynchronizer.getData(), newFile, FileSynchronizer.InitMode.AUTO, fileProcessor);
+            fileSynchronizerMap.replace(key, fileSynchronizer, newFileSynchronizer);
+            return newFileSynchronizer;
+        } catch (CouldNotPerformException ex) {
+            throw new CouldNotPerformException("Could not apply db Entry[" + fileSynchronizer.getFile().getName() + "] renaming to Entry[" + generatedFileName + "]!", ex);
+        }
+    }
+
     @Override
     public void checkWriteAccess() throws RejectedException {
 
@@ -446,11 +777,17 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
 
     @Override
     public void shutdown() {
+        final RecurrenceEventFilter<Void> filter = writeBehindFilter;
+        if (filter != null) {
+            filter.cancel();
+        }
+
         try {
             saveRegistry();
         } catch (MultiException ex) {
             ExceptionPrinter.printHistory(new CouldNotPerformException("Final save failed!", ex), logger);
         }
+        syncDatabaseDirectory();
 
         try {
             fileSynchronizerMapLock.writeLock().lockInterruptibly();
@@ -466,6 +803,22 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
         super.shutdown();
     }
 
+    /**
+     * Flushes the directory entries of the database, so that renamed and created files survive a system crash.
+     * This is only a best effort since not all platforms support to sync directories.
+     */
+    private void syncDatabaseDirectory() {
+        if (JPService.testMode() || !databaseDirectory.exists()) {
+            return;
+        }
+
+        try (final FileChannel directoryChannel = FileChannel.open(databaseDirectory.toPath(), StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (IOException ex) {
+            logger.debug("Could not sync " + databaseDirectory + ": " + ex.getMessage());
+        }
+    }
+
     @Override
     public File getDatabaseDirectory() {
         return databaseDirectory;
@@ -493,4 +846,15 @@ public class FileSynchronizedRegistryImpl<KEY, ENTRY extends Identifiable<KEY>,
     public boolean isLocalRegistry() {
         return localRegistryFlag;
     }
+
+    private static class LoadResult<ENTRY> {
+
+        private final FileSynchronizer<ENTRY> fileSynchronizer;
+        private final CouldNotPerformException exception;
+
+        private LoadResult(final FileSynchronizer<ENTRY> fileSynchronizer, final CouldNotPerformException exception) {
+            this.fileSynchronizer = fileSynchronizer;
+            this.exception = exception;
+        }
+    }
 }
@@ -111,6 +111,52 @@ public class ProtoBufFileSynchronizedRegistry<KEY extends Comparable<KEY>, M ext
         super.shutdown();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The message builder is synchronized once after all entries are loaded.
+     *
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    public void loadRegistry() throws CouldNotPerformException {
+        protobufMessageMap.startBatch();
+        try {
+            super.loadRegistry();
+        } finally {
+            protobufMessageMap.finishBatch();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * All modifications of the internal message map are synchronized with the message builder when the registry is unlocked,
+     * so a transaction including its consistency modifications only updates the builder once.
+     *
+     * @throws CouldNotPerformException {@inheritDoc}
+     */
+    @Override
+    protected void lock() throws CouldNotPerformException {
+        super.lock();
+
+        // map is not available during the super class initialization.
+        if (protobufMessageMap != null) {
+            protobufMessageMap.startBatch();
+        }
+    }
+
+    @Override
+    protected void unlock() {
+        try {
+            if (protobufMessageMap != null) {
+                protobufMessageMap.finishBatch();
+            }
+        } finally {
+            super.unlock();
+        }
+    }
+
     /**
      * This method activate the version control unit of the underlying registry
      * db. The version check and db upgrade is automatically performed during
@@ -21,7 +21,9 @@ package org.openbase.jul.storage.registry;
  * <http://www.gnu.org/licenses/lgpl-3.0.html>.
  * #L%
  */
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.FatalImplementationErrorException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
@@ -58,7 +60,36 @@ public class RegistrySandboxImpl<KEY, ENTRY extends Identifiable<KEY>, MAP exten
 
     @Override
     public void replaceInternalMap(Map<KEY, ENTRY> map, boolean finishTransaction) throws CouldNotPerformException {
-        super.replaceInternalMap(cloner.deepCloneMap(map), finishTransaction);
+        super.replaceInternalMap(cloneChangedEntries(map), finishTransaction);
+    }
+
+    /**
+     * Clones the given entries while reusing all clones of this sandbox which are still up to date.
+     * This way a sync only has to clone the entries changed since the last sync.
+     *
+     * @param map the entries to clone.
+     *
+     * @return a map containing a clone of each given entry.
+     *
+     * @throws CouldNotPerformException is thrown if an entry could not be cloned.
+     */
+    private Map<KEY, ENTRY> cloneChangedEntries(final Map<KEY, ENTRY> map) throws CouldNotPerformException {
+        final Map<KEY, ENTRY> currentEntryMap = getEntryMap();
+
+        if (currentEntryMap.isEmpty()) {
+            return cloner.deepCloneMap(map);
+        }
+
+        final Map<KEY, ENTRY> cloneMap = new HashMap<>(map.size());
+        for (final Entry<KEY, ENTRY> entry : map.entrySet()) {
+            final ENTRY currentClone = currentEntryMap.get(entry.getKey());
+            if (currentClone != null && cloner.isCloneUpToDate(currentClone, entry.getValue())) {
+                cloneMap.put(entry.getKey(), currentClone);
+            } else {
+                cloneMap.put(entry.getKey(), cloner.deepCloneEntry(entry.getValue()));
+            }
+        }
+        return cloneMap;
     }
 
     @Override
@@ -94,7 +125,7 @@ public class RegistrySandboxImpl<KEY, ENTRY extends Identifiable<KEY>, MAP exten
     @Override
     protected void finishTransaction() throws CouldNotPerformException {
         try {
-            checkConsistency();
+            checkConsistency(true);
         } catch (CouldNotPerformException ex) {
             throw new CouldNotPerformException("Given transaction is invalid because " + this + " consistency check failed!", ex);
         }
@@ -30,7 +30,9 @@ import org.openbase.jul.pattern.Factory;
 import org.openbase.jul.pattern.Filter;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import static org.openbase.jul.iface.Identifiable.TYPE_FIELD_ID;
 
@@ -47,6 +49,7 @@ public class RegistrySynchronizer<KEY, ENTRY extends Configurable<KEY, CONFIG_M>
     private final Factory<ENTRY, CONFIG_M> factory;
     protected final RemoteRegistry<KEY, CONFIG_M, CONFIG_MB> remoteRegistry;
     private final List<Filter<CONFIG_M>> filterList;
+    private final BiConsumer<Collection<IdentifiableMessage<KEY, CONFIG_M, CONFIG_MB>>, Collection<KEY>> changeSetListener;
 
 
     public RegistrySynchronizer(final SynchronizableRegistry<KEY, ENTRY> localRegistry, final RemoteRegistry<KEY, CONFIG_M, CONFIG_MB> remoteRegistry, final RegistryRemote registryRemote, final Factory<ENTRY, CONFIG_M> factory) throws org.openbase.jul.exception.InstantiationException {
@@ -55,10 +58,29 @@ public class RegistrySynchronizer<KEY, ENTRY extends Configurable<KEY, CONFIG_M>
         this.remoteRegistry = remoteRegistry;
         this.factory = factory;
         this.filterList = new ArrayList<>();
+        this.changeSetListener = this::notifyChanges;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If enabled, the synchronizer is fed with the change sets reported by the remote registry, see {@link RemoteRegistry#setEntryChangeDetector}.
+     *
+     * @param changeSetMode {@inheritDoc}
+     */
+    @Override
+    public void setChangeSetMode(final boolean changeSetMode) {
+        if (changeSetMode) {
+            remoteRegistry.addChangeSetListener(changeSetListener);
+        } else {
+            remoteRegistry.removeChangeSetListener(changeSetListener);
+        }
+        super.setChangeSetMode(changeSetMode);
     }
 
     @Override
     public void shutdown() {
+        remoteRegistry.removeChangeSetListener(changeSetListener);
         super.shutdown();
         synchronized (synchronizationLock) {
             localRegistry.shutdown();
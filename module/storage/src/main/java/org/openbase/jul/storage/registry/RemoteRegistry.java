@@ -29,6 +29,7 @@ import org.openbase.jul.exception.*;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.extension.protobuf.IdentifiableMessage;
 import org.openbase.jul.extension.protobuf.IdentifiableMessageMap;
+import org.openbase.jul.pattern.ChangeDetector;
 import org.openbase.jul.pattern.Observer;
 import org.openbase.jul.pattern.provider.DataProvider;
 import org.openbase.jul.schedule.FutureProcessor;
@@ -38,6 +39,7 @@ import java.io.File;
 import java.util.*;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.*;
+import java.util.function.BiConsumer;
 
 import static org.openbase.jul.iface.Identifiable.TYPE_FIELD_ID;
 
@@ -58,6 +60,13 @@ public class RemoteRegistry<KEY, M extends AbstractMessage, MB extends M.Builder
      */
     private final RegistryRemote<?> registryRemote;
 
+    private final CopyOnWriteArrayList<BiConsumer<Collection<IdentifiableMessage<KEY, M, MB>>, Collection<KEY>>> changeSetListenerList = new CopyOnWriteArrayList<>();
+
+    /**
+     * Detects the changed entries reported to the change set listeners. By default, entries are compared by their identity.
+     */
+    private volatile ChangeDetector<M> entryChangeDetector = (latestEntry, entry) -> latestEntry != entry;
+
     public RemoteRegistry() throws InstantiationException {
         this(null, new HashMap<>());
     }
@@ -76,7 +85,72 @@ public class RemoteRegistry<KEY, M extends AbstractMessage, MB extends M.Builder
     }
 
     public synchronized void notifyRegistryUpdate(final Collection<M> values) throws CouldNotPerformException {
-        replaceInternalMap(new IdentifiableMessageMap<>(values));
+        final IdentifiableMessageMap<KEY, M, MB> entryMap = new IdentifiableMessageMap<>(values);
+
+        // change sets are only computed if requested and passed together with the entries they belong to,
+        // so listeners never combine them with an outdated state of this registry.
+        if (!changeSetListenerList.isEmpty()) {
+            final Set<KEY> changedKeys = computeChangedKeys(entryMap);
+            final Collection<IdentifiableMessage<KEY, M, MB>> entries = Collections.unmodifiableCollection(new ArrayList<>(entryMap.values()));
+            for (final BiConsumer<Collection<IdentifiableMessage<KEY, M, MB>>, Collection<KEY>> listener : changeSetListenerList) {
+                listener.accept(entries, changedKeys);
+            }
+        }
+        replaceInternalMap(entryMap);
+    }
+
+    /**
+     * Computes the keys of all entries which are new or modified compared to the current state of this registry via the entry change detector.
+     * Removed entries are not part of the change set.
+     *
+     * @param entryMap the new state of the registry.
+     *
+     * @return the keys of all new or modified entries.
+     */
+    private Set<KEY> computeChangedKeys(final Map<KEY, IdentifiableMessage<KEY, M, MB>> entryMap) throws CouldNotPerformException {
+        final Map<KEY, IdentifiableMessage<KEY, M, MB>> currentEntryMap = getEntryMap();
+        final ChangeDetector<M> changeDetector = entryChangeDetector;
+        final Set<KEY> changedKeys = new HashSet<>();
+        for (final Map.Entry<KEY, IdentifiableMessage<KEY, M, MB>> entry : entryMap.entrySet()) {
+            final IdentifiableMessage<KEY, M, MB> currentEntry = currentEntryMap.get(entry.getKey());
+            if (currentEntry == null || changeDetector.hasChanged(currentEntry.getMessage(), entry.getValue().getMessage())) {
+                changedKeys.add(entry.getKey());
+            }
+        }
+        return changedKeys;
+    }
+
+    /**
+     * Defines how changed entries are detected for the change set listeners.
+     * By default, entries are compared by their identity, which only detects unchanged entries if their message instances are reused between two updates.
+     * Entries providing a version, e.g. a transaction id, should be compared via a {@code VersionChangeDetector}, so unchanged entries are detected without comparing their content.
+     *
+     * @param entryChangeDetector the change detector to compare the latest and the new message of an entry.
+     */
+    public void setEntryChangeDetector(final ChangeDetector<M> entryChangeDetector) {
+        this.entryChangeDetector = entryChangeDetector;
+    }
+
+    /**
+     * Registers a listener which is informed about all entries and the keys of all new or modified entries of each registry update,
+     * before the update is published to the registry observers.
+     * This can be used to feed the change set mode of a synchronizer, see {@link AbstractSynchronizer#notifyChanges(Collection, Collection)}.
+     * <p>
+     * Note: Change sets are only computed while at least one listener is registered.
+     *
+     * @param listener the listener to register.
+     */
+    public void addChangeSetListener(final BiConsumer<Collection<IdentifiableMessage<KEY, M, MB>>, Collection<KEY>> listener) {
+        changeSetListenerList.addIfAbsent(listener);
+    }
+
+    /**
+     * Removes an already registered change set listener.
+     *
+     * @param listener the listener to remove.
+     */
+    public void removeChangeSetListener(final BiConsumer<Collection<IdentifiableMessage<KEY, M, MB>>, Collection<KEY>> listener) {
+        changeSetListenerList.remove(listener);
     }
 
     public KEY getId(final M entry) throws CouldNotPerformException {
@@ -62,6 +62,15 @@ public class ProtoBufCloner<KEY extends Comparable<KEY>, M extends AbstractMessa
         }
     }
 
+    /**
+     * Since protobuf messages are immutable, clones share the message with their origin.
+     * So a clone is up to date as long as both still refer the same message instance.
+     */
+    @Override
+    public boolean isCloneUpToDate(IdentifiableMessage<KEY, M, MB> clone, IdentifiableMessage<KEY, M, MB> entry) {
+        return clone.getMessage() == entry.getMessage();
+    }
+
     @Override
     public ProtoBufMessageMap<KEY, M, MB> deepCloneRegistryMap(ProtoBufMessageMap<KEY, M, MB> map) throws CouldNotPerformException {
         try {
@@ -40,4 +40,17 @@ public interface RegistryCloner<KEY, ENTRY extends Identifiable<KEY>, MAP extend
     Map<KEY, ENTRY> deepCloneMap(final Map<KEY, ENTRY> map) throws CouldNotPerformException;
 
     ENTRY deepCloneEntry(final ENTRY entry) throws CouldNotPerformException;
+
+    /**
+     * Checks if the given clone still reflects the state of the given entry, so that the clone can be reused instead of cloning the entry again.
+     * The default implementation never reuses clones.
+     *
+     * @param clone the clone created from a previous state of the entry.
+     * @param entry the entry to check.
+     *
+     * @return true if the clone is still up to date.
+     */
+    default boolean isCloneUpToDate(final ENTRY clone, final ENTRY entry) {
+        return false;
+    }
 }
@@ -47,6 +47,17 @@ public interface FileRegistryPlugin<KEY, ENTRY extends Identifiable<KEY>, REGIST
 
     void afterUpdate(final ENTRY entry, final FileSynchronizer fileSynchronizer) throws CouldNotPerformException;
 
+    /**
+     * Method is called after an entry was modified by a consistency handler.
+     * The given synchronizer still refers to the current file of the entry, which is renamed during the next save if its generated file name has changed.
+     *
+     * @param entry            the modified entry.
+     * @param fileSynchronizer the synchronizer of the entry.
+     *
+     * @throws CouldNotPerformException can be thrown in case something went wrong during the plugin routine.
+     */
+    void afterConsistencyModification(final ENTRY entry, final FileSynchronizer fileSynchronizer) throws CouldNotPerformException;
+
     void beforeGet(final KEY key, final FileSynchronizer fileSynchronizer) throws RejectedException;
 
 }
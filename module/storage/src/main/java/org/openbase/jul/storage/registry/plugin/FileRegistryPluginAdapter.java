@@ -60,6 +60,10 @@ public abstract class FileRegistryPluginAdapter<KEY, ENTRY extends Identifiable<
     public void afterUpdate(ENTRY entry, FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
     }
 
+    @Override
+    public void afterConsistencyModification(ENTRY entry, FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
+    }
+
     @Override
     public void beforeGet(KEY key, FileSynchronizer fileSynchronizer) throws RejectedException {
     }
@@ -111,6 +111,17 @@ public class FileRegistryPluginPool<KEY, ENTRY extends Identifiable<KEY>, PLUGIN
         }
     }
 
+    @Override
+    public void afterConsistencyModification(ENTRY entry, FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
+        for (PLUGIN plugin : pluginList) {
+            try {
+                plugin.afterConsistencyModification(entry, fileSynchronizer);
+            } catch (Exception ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not inform RegistryPlugin[" + plugin + "] about consistency modification of Entry[" + entry + "]!", ex), logger, LogLevel.ERROR);
+            }
+        }
+    }
+
     @Override
     public void beforeGet(KEY key, FileSynchronizer fileSynchronizer) throws RejectedException {
         for (PLUGIN plugin : pluginList) {
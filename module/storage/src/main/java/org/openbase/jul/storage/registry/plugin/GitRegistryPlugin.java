@@ -23,8 +23,11 @@ package org.openbase.jul.storage.registry.plugin;
  */
 
 import com.google.protobuf.AbstractMessage;
+import org.eclipse.jgit.api.AddCommand;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.RmCommand;
 import org.eclipse.jgit.api.errors.DetachedHeadException;
+import org.eclipse.jgit.api.errors.EmptyCommitException;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.Ref;
@@ -39,6 +42,9 @@ import org.openbase.jul.exception.RejectedException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
 import org.openbase.jul.exception.printer.LogLevel;
 import org.openbase.jul.extension.protobuf.IdentifiableMessage;
+import org.openbase.jul.schedule.GlobalCachedExecutorService;
+import org.openbase.jul.schedule.HashedWheelTimer;
+import org.openbase.jul.schedule.RecurrenceEventFilter;
 import org.openbase.jul.storage.file.FileSynchronizer;
 import org.openbase.jul.storage.registry.FileSynchronizedRegistry;
 import org.openbase.jul.storage.registry.jp.JPGitRegistryPluginRemoteURL;
@@ -47,6 +53,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * @param <KEY>
@@ -61,6 +70,21 @@ public class GitRegistryPlugin<KEY, M extends AbstractMessage, MB extends M.Buil
     private final Git git;
     private boolean detached;
 
+    /**
+     * Maps the paths of all files changed since the last batch commit to a flag which is true if the file was removed.
+     */
+    private final Map<String, Boolean> pendingChangeMap = new LinkedHashMap<>();
+
+    /**
+     * Maps the ids of all entries changed in batch mode to the path of their file, which is used to detect file renames of the registry.
+     * The path is recorded before each change, so renames of entries which were not changed since startup are detected as well.
+     */
+    private final Map<KEY, String> entryPathMap = new HashMap<>();
+
+    private final Object commitLock = new Object();
+    private volatile RecurrenceEventFilter<Void> commitFilter;
+    private volatile int maxPendingChanges;
+
     public GitRegistryPlugin(final FileSynchronizedRegistry<KEY, IdentifiableMessage<KEY, M, MB>> registry) throws org.openbase.jul.exception.InstantiationException {
         try {
             this.detached = false;
@@ -130,28 +154,200 @@ public class GitRegistryPlugin<KEY, M extends AbstractMessage, MB extends M.Buil
         }
     }
 
+    /**
+     * Enables or disables the batching of commits.
+     * By default, all changes of the database are committed within each registry transaction.
+     * If batching is enabled, only the files touched by the transactions are staged and committed
+     * by a background committer at most once per {@code commitInterval}, or as soon as {@code maxPendingChanges} files are changed.
+     * Pending changes are committed on shutdown.
+     *
+     * @param commitInterval    the minimal time in milliseconds between two batch commits. Zero or less disables the batching.
+     * @param maxPendingChanges the number of changed files which triggers a commit without waiting for the interval. Zero or less disables this limit.
+     *
+     * @throws CouldNotPerformException is thrown if the changes pending in the previous mode could not be committed.
+     */
+    public void setCommitBatching(final long commitInterval, final int maxPendingChanges) throws CouldNotPerformException {
+        final RecurrenceEventFilter<Void> previousFilter = commitFilter;
+
+        this.maxPendingChanges = maxPendingChanges;
+        if (commitInterval > 0) {
+            commitFilter = new RecurrenceEventFilter<Void>(commitInterval, HashedWheelTimer.getInstance()) {
+                @Override
+                public void relay() {
+                    try {
+                        commitPendingChanges(false);
+                    } catch (CouldNotPerformException ex) {
+                        ExceptionPrinter.printHistory("Could not commit database changes of " + registry, ex, logger);
+                    }
+                }
+            };
+        } else {
+            commitFilter = null;
+        }
+
+        // make sure changes pending in the previous mode are not lost.
+        if (previousFilter != null) {
+            previousFilter.cancel();
+            commitPendingChanges(false);
+        }
+    }
+
     @Override
     public void afterRegister(IdentifiableMessage<KEY, M, MB> entry, FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
-        commitAllChanges();
+        commitChange(entry, fileSynchronizer, false);
+    }
+
+    @Override
+    public void beforeUpdate(IdentifiableMessage<KEY, M, MB> entry, FileSynchronizer fileSynchronizer) throws RejectedException {
+        recordPath(entry, fileSynchronizer);
     }
 
     @Override
     public void afterUpdate(IdentifiableMessage<KEY, M, MB> entry, FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
-        commitAllChanges();
+        commitChange(entry, fileSynchronizer, false);
+    }
+
+    @Override
+    public void afterConsistencyModification(IdentifiableMessage<KEY, M, MB> entry, FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
+        // the modification is committed once it is saved, which may rename the file.
+        recordPath(entry, fileSynchronizer);
     }
 
     @Override
     public void afterRemove(IdentifiableMessage<KEY, M, MB> entry, FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
-        commitAllChanges();
+        commitChange(entry, fileSynchronizer, true);
     }
 
-    private void commitAllChanges() throws CouldNotPerformException {
+    /**
+     * Records the current file of the given entry, so that its removal is staged if the registry renames the file.
+     * Only required in batch mode because commits without batching stage the whole working tree.
+     */
+    private void recordPath(final IdentifiableMessage<KEY, M, MB> entry, final FileSynchronizer fileSynchronizer) {
+        if (commitFilter == null) {
+            return;
+        }
+
+        final String path = getRelativePath(fileSynchronizer.getFile());
+        synchronized (pendingChangeMap) {
+            entryPathMap.putIfAbsent(entry.getId(), path);
+        }
+    }
+
+    private void commitChange(final IdentifiableMessage<KEY, M, MB> entry, final FileSynchronizer fileSynchronizer, final boolean removed) throws CouldNotPerformException {
+        final RecurrenceEventFilter<Void> filter = commitFilter;
+
+        if (filter == null) {
+            commitAllChanges();
+            return;
+        }
+
+        if (isCommitSkipped()) {
+            return;
+        }
+
+        final KEY id = entry.getId();
+        final String path = getRelativePath(fileSynchronizer.getFile());
+        final int pendingChanges;
+        synchronized (pendingChangeMap) {
+            final String previousPath = removed ? entryPathMap.remove(id) : entryPathMap.put(id, path);
+
+            // the registry renames the file of an entry if its generated file name changes, so the previous file is removed from the index.
+            if (previousPath != null && !previousPath.equals(path)) {
+                pendingChangeMap.put(previousPath, true);
+            }
+            pendingChangeMap.put(path, removed);
+            pendingChanges = pendingChangeMap.size();
+        }
+
+        if (maxPendingChanges > 0 && pendingChanges >= maxPendingChanges) {
+            GlobalCachedExecutorService.submit(() -> {
+                try {
+                    commitPendingChanges(false);
+                } catch (CouldNotPerformException ex) {
+                    ExceptionPrinter.printHistory("Could not commit database changes of " + registry, ex, logger);
+                }
+                return null;
+            });
+        } else {
+            filter.triggerDelayed();
+        }
+    }
+
+    private String getRelativePath(final File file) {
+        return git.getRepository().getWorkTree().toPath().toAbsolutePath()
+                .relativize(file.toPath().toAbsolutePath())
+                .toString()
+                .replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Commits all changes recorded since the last batch commit.
+     *
+     * @param fullScan if true, the whole working tree is staged as well, which includes files renamed by the registry.
+     *
+     * @throws CouldNotPerformException is thrown if the changes could not be committed. The changes stay pending in this case.
+     */
+    private void commitPendingChanges(final boolean fullScan) throws CouldNotPerformException {
+        synchronized (commitLock) {
+            final Map<String, Boolean> changeMap;
+            synchronized (pendingChangeMap) {
+                changeMap = new LinkedHashMap<>(pendingChangeMap);
+                pendingChangeMap.clear();
+            }
+
+            if ((changeMap.isEmpty() && !fullScan) || isCommitSkipped()) {
+                return;
+            }
+
+            try {
+                final AddCommand addCommand = git.add();
+                final RmCommand rmCommand = git.rm().setCached(true);
+                boolean added = false, removed = false;
+                for (final Map.Entry<String, Boolean> change : changeMap.entrySet()) {
+                    if (change.getValue()) {
+                        rmCommand.addFilepattern(change.getKey());
+                        removed = true;
+                    } else {
+                        addCommand.addFilepattern(change.getKey());
+                        added = true;
+                    }
+                }
+
+                if (added) {
+                    addCommand.call();
+                }
+
+                if (removed) {
+                    rmCommand.call();
+                }
+
+                if (fullScan) {
+                    git.add().addFilepattern(".").call();
+                    git.add().setUpdate(true).addFilepattern(".").call();
+                }
+
+                git.commit().setAllowEmpty(false).setMessage(JPService.getApplicationName() + " committed " + changeMap.size() + " changes.").call();
+            } catch (EmptyCommitException ex) {
+                // nothing to commit
+            } catch (Exception ex) {
+                // keep changes pending so they are part of the next commit.
+                synchronized (pendingChangeMap) {
+                    for (final Map.Entry<String, Boolean> change : changeMap.entrySet()) {
+                        pendingChangeMap.putIfAbsent(change.getKey(), change.getValue());
+                    }
+                }
+                throw new CouldNotPerformException("Could not commit database changes!", ex);
+            }
+        }
+    }
+
+    private boolean isCommitSkipped() {
 
         // Avoid commit in test mode.
         try {
             if (JPService.getProperty(JPTestMode.class).getValue()) {
                 logger.warn("Skip commit because test mode is enabled!");
-                return;
+                return true;
             }
         } catch (JPServiceException ex) {
             ExceptionPrinter.printHistory(new CouldNotPerformException("Could not access java property!", ex), logger);
@@ -160,12 +356,21 @@ public class GitRegistryPlugin<KEY, M extends AbstractMessage, MB extends M.Buil
         // Avoid commit if branch is detached.
         if (detached) {
             logger.info("Skip commit because branch detached!");
+            return true;
+        }
+        return false;
+    }
+
+    private void commitAllChanges() throws CouldNotPerformException {
+
+        if (isCommitSkipped()) {
             return;
         }
 
         try {
-            // add all changes
+            // add all changes including removed and renamed files
             git.add().addFilepattern(".").call();
+            git.add().setUpdate(true).addFilepattern(".").call();
 
             // commit
             git.commit().setMessage(JPService.getApplicationName() + " committed all changes.").call();
@@ -194,6 +399,17 @@ public class GitRegistryPlugin<KEY, M extends AbstractMessage, MB extends M.Buil
         if (git == null) {
             return;
         }
+
+        final RecurrenceEventFilter<Void> filter = commitFilter;
+        if (filter != null) {
+            filter.cancel();
+            try {
+                commitPendingChanges(true);
+            } catch (CouldNotPerformException ex) {
+                ExceptionPrinter.printHistory(new CouldNotPerformException("Could not commit pending changes", ex), logger, LogLevel.ERROR);
+            }
+        }
+
         try {
             git.getRepository().close();
             git.close();
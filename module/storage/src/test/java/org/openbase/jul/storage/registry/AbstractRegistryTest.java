@@ -30,12 +30,14 @@ import org.openbase.jps.exception.JPServiceException;
 import org.openbase.jul.exception.CouldNotPerformException;
 import org.openbase.jul.exception.InstantiationException;
 import org.openbase.jul.exception.printer.ExceptionPrinter;
+import org.openbase.jul.iface.Identifiable;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -137,6 +139,98 @@ public class AbstractRegistryTest {
 
     }
 
+    @Test
+    @Timeout(10)
+    public void testIncrementalConsistencyCheck() throws Exception {
+        final AbstractRegistryImpl registry = new AbstractRegistryImpl();
+        final IncrementalConsistencyHandler consistencyHandler = new IncrementalConsistencyHandler();
+        registry.registerConsistencyHandler(consistencyHandler);
+        registry.setIncrementalConsistencyCheck(true);
+
+        for (int i = 0; i < 10; i++) {
+            registry.register(new TestEntry("Entry" + i, null));
+        }
+
+        // only the new entry and its related parent should be validated
+        consistencyHandler.processedEntryIds.clear();
+        registry.register(new TestEntry("Child", "Entry3"));
+        assertEquals(Arrays.asList("Child", "Entry3"), consistencyHandler.processedEntryIds);
+
+        // removed entries are skipped but their related entries are validated
+        consistencyHandler.processedEntryIds.clear();
+        registry.remove("Child");
+        assertEquals(Collections.singletonList("Entry3"), consistencyHandler.processedEntryIds);
+
+        // explicit checks are still validating all entries
+        consistencyHandler.processedEntryIds.clear();
+        registry.checkConsistency();
+        assertEquals(10, consistencyHandler.processedEntryIds.size());
+    }
+
+    @Test
+    @Timeout(10)
+    public void testLoadAll() throws Exception {
+        final AbstractRegistryImpl registry = new AbstractRegistryImpl();
+        final List<TestEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            entries.add(new TestEntry("Entry" + i, null));
+        }
+        assertEquals(5, registry.loadAll(entries).size());
+        assertEquals(5, registry.size());
+
+        // duplicated entries are skipped but all others are loaded
+        assertThrows(CouldNotPerformException.class, () -> registry.loadAll(Arrays.asList(new TestEntry("Entry0", null), new TestEntry("Entry5", null))));
+        assertEquals(6, registry.size());
+    }
+
+    public static class TestEntry implements Identifiable<String> {
+
+        private final String id;
+        private final String parentId;
+
+        public TestEntry(final String id, final String parentId) {
+            this.id = id;
+            this.parentId = parentId;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        public String getParentId() {
+            return parentId;
+        }
+
+        @Override
+        public String toString() {
+            return "TestEntry[" + id + "]";
+        }
+    }
+
+    public static class IncrementalConsistencyHandler extends AbstractConsistencyHandler<String, TestEntry, Map<String, TestEntry>, Registry<String, TestEntry>> {
+
+        private final List<String> processedEntryIds = new ArrayList<>();
+
+        @Override
+        public void processData(final String id, final TestEntry entry, final Map<String, TestEntry> entryMap, final Registry<String, TestEntry> registry) {
+            processedEntryIds.add(id);
+        }
+
+        @Override
+        public boolean isIncrementalCheckSupported() {
+            return true;
+        }
+
+        @Override
+        public Collection<String> getRelatedEntryIds(final String id, final TestEntry entry, final Map<String, TestEntry> entryMap, final Registry<String, TestEntry> registry) {
+            if (entry.getParentId() == null) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(entry.getParentId());
+        }
+    }
+
     public class AbstractRegistryImpl extends AbstractRegistry {
 
         public AbstractRegistryImpl() throws InstantiationException {
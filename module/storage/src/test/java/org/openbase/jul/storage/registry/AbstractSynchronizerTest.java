@@ -0,0 +1,139 @@
+package org.openbase.jul.storage.registry;
+
+/*-
+ * #%L
+ * JUL Storage
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openbase.jps.core.JPService;
+import org.openbase.jps.exception.JPServiceException;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.extension.protobuf.IdentifiableMessage;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AbstractSynchronizerTest {
+
+    private static final int ENTRY_COUNT = 10;
+
+    @BeforeAll
+    @Timeout(30)
+    public static void setUpClass() throws JPServiceException {
+        JPService.setupJUnitTestMode();
+    }
+
+    @Test
+    @Timeout(10)
+    public void testChangeSetMode() throws Exception {
+        System.out.println("testChangeSetMode");
+
+        final RemoteRegistry<String, UnitConfig, UnitConfig.Builder> remoteRegistry = new RemoteRegistry<>();
+        final TestSynchronizer synchronizer = new TestSynchronizer(remoteRegistry);
+
+        // only changes of the alias count are reported, so unreported changes reveal a full diff.
+        remoteRegistry.setEntryChangeDetector((latestConfig, config) -> latestConfig.getAliasCount() != config.getAliasCount());
+
+        final List<Collection<String>> changeSetList = new ArrayList<>();
+        remoteRegistry.addChangeSetListener((entries, changedKeys) -> changeSetList.add(changedKeys));
+        remoteRegistry.addChangeSetListener(synchronizer::notifyChanges);
+        synchronizer.setChangeSetMode(true);
+
+        try {
+            final List<UnitConfig> configList = new ArrayList<>();
+            for (int i = 0; i < ENTRY_COUNT; i++) {
+                configList.add(UnitConfig.newBuilder().setId(Integer.toString(i)).addAlias("Alias" + i).build());
+            }
+            remoteRegistry.notifyRegistryUpdate(configList);
+            synchronizer.activate();
+            assertEquals(ENTRY_COUNT, synchronizer.registerCounter.get(), "Initial sync incomplete!");
+
+            // modify every entry within a single registry update, but only report every second one.
+            final Set<String> modifiedKeys = new HashSet<>();
+            for (int i = 0; i < ENTRY_COUNT; i++) {
+                if (i % 2 == 0) {
+                    configList.set(i, configList.get(i).toBuilder().addAlias("Modified").build());
+                    modifiedKeys.add(Integer.toString(i));
+                } else {
+                    configList.set(i, configList.get(i).toBuilder().setAlias(0, "Renamed" + i).build());
+                }
+            }
+            remoteRegistry.notifyRegistryUpdate(configList);
+
+            assertEquals(2, changeSetList.size(), "Changes not reported as one batch per registry update!");
+            assertEquals(modifiedKeys, new HashSet<>(changeSetList.get(1)));
+
+            while (synchronizer.updatedKeySet.size() < modifiedKeys.size()) {
+                Thread.sleep(10);
+            }
+
+            // only the reported entries are updated, a full diff would have updated all entries.
+            assertEquals(modifiedKeys, synchronizer.updatedKeySet);
+            assertEquals(0, synchronizer.removeCounter.get());
+        } finally {
+            synchronizer.shutdown();
+            remoteRegistry.shutdown();
+        }
+    }
+
+    private static class TestSynchronizer extends AbstractSynchronizer<String, IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>> {
+
+        private final RemoteRegistry<String, UnitConfig, UnitConfig.Builder> remoteRegistry;
+        private final AtomicInteger registerCounter = new AtomicInteger();
+        private final Set<String> updatedKeySet = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger removeCounter = new AtomicInteger();
+
+        public TestSynchronizer(final RemoteRegistry<String, UnitConfig, UnitConfig.Builder> remoteRegistry) throws org.openbase.jul.exception.InstantiationException {
+            super(remoteRegistry);
+            this.remoteRegistry = remoteRegistry;
+        }
+
+        @Override
+        public void update(final IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> entry) {
+            updatedKeySet.add(entry.getId());
+        }
+
+        @Override
+        public void register(final IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> entry) {
+            registerCounter.incrementAndGet();
+        }
+
+        @Override
+        public void remove(final IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> entry) {
+            removeCounter.incrementAndGet();
+        }
+
+        @Override
+        public List<IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>> getEntries() throws CouldNotPerformException {
+            return remoteRegistry.getEntries();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.openbase.jul.storage.registry;
+
+/*-
+ * #%L
+ * JUL Storage
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.openbase.jps.core.JPService;
+import org.openbase.jps.preset.JPTestMode;
+import org.openbase.jul.exception.CouldNotPerformException;
+import org.openbase.jul.iface.Identifiable;
+import org.openbase.jul.processing.FileProcessor;
+import org.openbase.jul.storage.file.FileProvider;
+import org.openbase.jul.storage.file.FileSynchronizer;
+import org.openbase.jul.storage.registry.plugin.FileRegistryPluginAdapter;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileSynchronizedRegistryImplTest {
+
+    @BeforeAll
+    @Timeout(30)
+    public static void setUpClass() throws Exception {
+        // entries are not saved in test mode.
+        JPService.reset();
+        JPService.registerProperty(JPTestMode.class, false);
+        JPService.parse(new String[0]);
+    }
+
+    @AfterAll
+    @Timeout(30)
+    public static void tearDownClass() throws Exception {
+        JPService.reset();
+        JPService.setupJUnitTestMode();
+    }
+
+    @Test
+    @Timeout(30)
+    public void testDirtyEntrySave(@TempDir final Path databaseDirectory) throws Exception {
+        System.out.println("testDirtyEntrySave");
+
+        final TestFileProcessor fileProcessor = new TestFileProcessor();
+        final FileSynchronizedRegistryImpl<String, TestEntry, HashMap<String, TestEntry>, FileSynchronizedRegistry<String, TestEntry>> registry = createRegistry(databaseDirectory, fileProcessor);
+        try {
+            registry.register(new TestEntry("a", "initial"));
+            registry.register(new TestEntry("b", "initial"));
+
+            // only the updated entry is saved
+            fileProcessor.clearSavedIds();
+            registry.update(new TestEntry("a", "updated"));
+            assertEquals("updated", readValue(databaseDirectory, "a"));
+            assertTrue(fileProcessor.getSavedIds().contains("a"));
+            assertFalse(fileProcessor.getSavedIds().contains("b"), "Unchanged entry was saved!");
+
+            // nothing is saved without changes
+            fileProcessor.clearSavedIds();
+            registry.saveRegistry();
+            assertEquals(Collections.emptyList(), fileProcessor.getSavedIds());
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    public void testWriteBehindSave(@TempDir final Path databaseDirectory) throws Exception {
+        System.out.println("testWriteBehindSave");
+
+        final TestFileProcessor fileProcessor = new TestFileProcessor();
+        final FileSynchronizedRegistryImpl<String, TestEntry, HashMap<String, TestEntry>, FileSynchronizedRegistry<String, TestEntry>> registry = createRegistry(databaseDirectory, fileProcessor);
+
+        // file registry plugins are informed once the update is on disk.
+        final List<String> notifiedValueList = Collections.synchronizedList(new ArrayList<>());
+        registry.registerPlugin(new FileRegistryPluginAdapter<>() {
+            @Override
+            public void afterUpdate(final TestEntry entry, final FileSynchronizer fileSynchronizer) throws CouldNotPerformException {
+                try {
+                    notifiedValueList.add(Files.readString(fileSynchronizer.getFile().toPath(), StandardCharsets.UTF_8));
+                } catch (IOException ex) {
+                    throw new CouldNotPerformException("Could not read " + fileSynchronizer.getFile(), ex);
+                }
+            }
+        });
+
+        try {
+            registry.setWriteBehindInterval(1000);
+            registry.register(new TestEntry("a", "initial"));
+
+            registry.update(new TestEntry("a", "updated"));
+            assertEquals("initial", readValue(databaseDirectory, "a"), "Update was written through!");
+            assertEquals(Collections.emptyList(), notifiedValueList);
+
+            while (!readValue(databaseDirectory, "a").equals("updated")) {
+                Thread.sleep(10);
+            }
+            while (notifiedValueList.isEmpty()) {
+                Thread.sleep(10);
+            }
+            assertEquals(Collections.singletonList("updated"), notifiedValueList);
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    public void testWriteBehindSaveOnShutdown(@TempDir final Path databaseDirectory) throws Exception {
+        System.out.println("testWriteBehindSaveOnShutdown");
+
+        final FileSynchronizedRegistryImpl<String, TestEntry, HashMap<String, TestEntry>, FileSynchronizedRegistry<String, TestEntry>> registry = createRegistry(databaseDirectory, new TestFileProcessor());
+        registry.setWriteBehindInterval(60000);
+        registry.register(new TestEntry("a", "initial"));
+        registry.update(new TestEntry("a", "updated"));
+        assertEquals("initial", readValue(databaseDirectory, "a"), "Update was written through!");
+
+        // pending changes are saved on shutdown
+        registry.shutdown();
+        assertEquals("updated", readValue(databaseDirectory, "a"));
+    }
+
+    private static FileSynchronizedRegistryImpl<String, TestEntry, HashMap<String, TestEntry>, FileSynchronizedRegistry<String, TestEntry>> createRegistry(final Path databaseDirectory, final TestFileProcessor fileProcessor) throws Exception {
+        return new FileSynchronizedRegistryImpl<>(new HashMap<>(), databaseDirectory.toFile(), fileProcessor, new TestFileProvider(), true);
+    }
+
+    private static String readValue(final Path databaseDirectory, final String id) throws IOException {
+        return Files.readString(databaseDirectory.resolve(id + TestFileProvider.FILE_SUFFIX), StandardCharsets.UTF_8);
+    }
+
+    public static class TestEntry implements Identifiable<String> {
+
+        private final String id;
+        private final String value;
+
+        public TestEntry(final String id, final String value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "TestEntry[" + id + "]";
+        }
+    }
+
+    /**
+     * Stores the value of an entry as file content and records the id of each saved entry.
+     */
+    public static class TestFileProcessor implements FileProcessor<TestEntry> {
+
+        private final List<String> savedIdList = Collections.synchronizedList(new ArrayList<>());
+
+        public List<String> getSavedIds() {
+            synchronized (savedIdList) {
+                return new ArrayList<>(savedIdList);
+            }
+        }
+
+        public void clearSavedIds() {
+            savedIdList.clear();
+        }
+
+        @Override
+        public byte[] serializeContent(final TestEntry entry) {
+            savedIdList.add(entry.getId());
+            return entry.getValue().getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public File serialize(final TestEntry entry, final File file) throws CouldNotPerformException {
+            return writeContent(serializeContent(entry), file);
+        }
+
+        @Override
+        public TestEntry deserialize(final File file) throws CouldNotPerformException {
+            try {
+                final String fileName = file.getName();
+                return new TestEntry(fileName.substring(0, fileName.length() - TestFileProvider.FILE_SUFFIX.length()), Files.readString(file.toPath(), StandardCharsets.UTF_8));
+            } catch (IOException ex) {
+                throw new CouldNotPerformException("Could not read " + file, ex);
+            }
+        }
+
+        @Override
+        public TestEntry deserialize(final File file, final TestEntry entry) throws CouldNotPerformException {
+            return deserialize(file);
+        }
+    }
+
+    public static class TestFileProvider implements FileProvider<Identifiable<String>> {
+
+        public static final String FILE_SUFFIX = ".txt";
+
+        @Override
+        public String getFileName(final Identifiable<String> entry) throws CouldNotPerformException {
+            return entry.getId() + FILE_SUFFIX;
+        }
+
+        @Override
+        public String getFileType() {
+            return "txt";
+        }
+
+        @Override
+        public FileFilter getFileFilter() {
+            return file -> file.getName().endsWith(FILE_SUFFIX);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package org.openbase.jul.storage.registry;
+
+/*-
+ * #%L
+ * JUL Storage
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.openbase.jps.core.JPService;
+import org.openbase.jps.exception.JPServiceException;
+import org.openbase.jul.extension.protobuf.IdentifiableMessage;
+import org.openbase.jul.extension.protobuf.container.ProtoBufMessageMap;
+import org.openbase.jul.extension.protobuf.container.ProtoBufMessageMapWrapper;
+import org.openbase.jul.storage.registry.AbstractRegistryTest.TestEntry;
+import org.openbase.jul.storage.registry.clone.ProtoBufCloner;
+import org.openbase.jul.storage.registry.clone.RITSCloner;
+import org.openbase.jul.storage.registry.clone.RegistryCloner;
+import org.openbase.jul.storage.registry.plugin.RegistryPlugin;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class RegistrySandboxImplTest {
+
+    @BeforeAll
+    @Timeout(30)
+    public static void setUpClass() throws JPServiceException {
+        JPService.setupJUnitTestMode();
+    }
+
+    @Test
+    @Timeout(10)
+    public void testSyncReusesUnchangedClones() throws Exception {
+        System.out.println("testSyncReusesUnchangedClones");
+
+        final ProtoBufMessageMap<String, UnitConfig, UnitConfig.Builder> originMap = new ProtoBufMessageMapWrapper<>();
+        originMap.put(createEntry("a", "initial"));
+        originMap.put(createEntry("b", "initial"));
+
+        final RegistrySandboxImpl<String, IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>, ProtoBufMessageMap<String, UnitConfig, UnitConfig.Builder>, Registry<String, IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>>, RegistryPlugin<String, IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>, Registry<String, IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>>>> sandbox = new RegistrySandboxImpl<>(new ProtoBufMessageMapWrapper<>(), new ProtoBufCloner<>(), null);
+        try {
+            sandbox.sync(originMap);
+            final IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> cloneA = sandbox.get("a");
+            final IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> cloneB = sandbox.get("b");
+            assertNotSame(originMap.get("a"), cloneA);
+
+            // only the changed entry is cloned again
+            originMap.put(createEntry("b", "updated"));
+            sandbox.sync(originMap);
+            assertSame(cloneA, sandbox.get("a"), "Clone of unchanged entry was not reused!");
+            assertNotSame(cloneB, sandbox.get("b"), "Clone of changed entry was reused!");
+            assertNotSame(originMap.get("b"), sandbox.get("b"));
+            assertEquals("updated", sandbox.get("b").getMessage().getAlias(0));
+        } finally {
+            sandbox.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    public void testSyncClonesAllEntriesByDefault() throws Exception {
+        System.out.println("testSyncClonesAllEntriesByDefault");
+
+        final Map<String, TestEntry> originMap = new HashMap<>();
+        originMap.put("a", new TestEntry("a", null));
+        originMap.put("b", new TestEntry("b", null));
+
+        // cloners which do not support the up to date check are never reusing clones
+        final RegistryCloner<String, TestEntry, Map<String, TestEntry>> cloner = new RITSCloner<>();
+        assertFalse(cloner.isCloneUpToDate(originMap.get("a"), originMap.get("a")));
+
+        final RegistrySandboxImpl<String, TestEntry, Map<String, TestEntry>, Registry<String, TestEntry>, RegistryPlugin<String, TestEntry, Registry<String, TestEntry>>> sandbox = new RegistrySandboxImpl<>(new HashMap<>(), cloner, null);
+        try {
+            sandbox.sync(originMap);
+            final TestEntry cloneA = sandbox.get("a");
+            assertNotSame(originMap.get("a"), cloneA);
+
+            sandbox.sync(originMap);
+            assertNotSame(cloneA, sandbox.get("a"), "Clone was reused even though the cloner does not support it!");
+            assertNotSame(originMap.get("a"), sandbox.get("a"));
+            assertEquals("a", sandbox.get("a").getId());
+        } finally {
+            sandbox.shutdown();
+        }
+    }
+
+    private static IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> createEntry(final String id, final String alias) throws Exception {
+        return new IdentifiableMessage<>(UnitConfig.newBuilder().setId(id).addAlias(alias).build());
+    }
+}
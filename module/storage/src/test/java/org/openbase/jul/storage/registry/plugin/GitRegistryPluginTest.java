@@ -0,0 +1,175 @@
+package org.openbase.jul.storage.registry.plugin;
+
+/*-
+ * #%L
+ * JUL Storage
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.openbase.jps.core.JPService;
+import org.openbase.jps.preset.JPTestMode;
+import org.openbase.jul.extension.protobuf.IdentifiableMessage;
+import org.openbase.jul.extension.protobuf.processing.ProtoBufFileProcessor;
+import org.openbase.jul.iface.Identifiable;
+import org.openbase.jul.storage.file.FileSynchronizer;
+import org.openbase.jul.storage.registry.FileSynchronizedRegistry;
+import org.openbase.type.domotic.unit.UnitConfigType.UnitConfig;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GitRegistryPluginTest {
+
+    @BeforeAll
+    @Timeout(30)
+    public static void setUpClass() throws Exception {
+        // commits are skipped in test mode.
+        JPService.reset();
+        JPService.registerProperty(JPTestMode.class, false);
+        JPService.parse(new String[0]);
+    }
+
+    @AfterAll
+    @Timeout(30)
+    public static void tearDownClass() throws Exception {
+        JPService.reset();
+        JPService.setupJUnitTestMode();
+    }
+
+    @Test
+    @Timeout(30)
+    public void testBatchCommitOfRenamedEntry(@TempDir final Path tempDirectory) throws Exception {
+        System.out.println("testBatchCommitOfRenamedEntry");
+
+        final File databaseDirectory = setupDatabase(tempDirectory);
+        final FileSynchronizedRegistry<String, IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>> registry = createRegistry(databaseDirectory);
+        final GitRegistryPlugin<String, UnitConfig, UnitConfig.Builder> plugin = new GitRegistryPlugin<>(registry);
+        final ProtoBufFileProcessor<UnitConfig, UnitConfig, UnitConfig.Builder> fileProcessor = new ProtoBufFileProcessor<>(UnitConfig.newBuilder());
+        try (final Git git = Git.open(databaseDirectory)) {
+            plugin.setCommitBatching(50, 0);
+
+            final IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> entry = new IdentifiableMessage<>(UnitConfig.newBuilder().setId("entry").build());
+            final FileSynchronizer<UnitConfig> fileSynchronizer = new FileSynchronizer<>(entry.getMessage(), new File(databaseDirectory, "old.json"), FileSynchronizer.InitMode.CREATE, fileProcessor);
+            plugin.afterRegister(entry, fileSynchronizer);
+            waitUntilClean(git);
+
+            // rename the entry file the same way the registry does during save.
+            final File renamedFile = new File(databaseDirectory, "new.json");
+            assertTrue(fileSynchronizer.getFile().renameTo(renamedFile));
+            plugin.afterUpdate(entry, new FileSynchronizer<>(entry.getMessage(), renamedFile, FileSynchronizer.InitMode.AUTO, fileProcessor));
+            waitUntilClean(git);
+
+            assertEquals(2, countCommits(git), "Unexpected number of batch commits!");
+        } finally {
+            plugin.shutdown();
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    public void testBatchCommitOfEntryRenamedByConsistencyModification(@TempDir final Path tempDirectory) throws Exception {
+        System.out.println("testBatchCommitOfEntryRenamedByConsistencyModification");
+
+        final File databaseDirectory = setupDatabase(tempDirectory);
+        final FileSynchronizedRegistry<String, IdentifiableMessage<String, UnitConfig, UnitConfig.Builder>> registry = createRegistry(databaseDirectory);
+        final GitRegistryPlugin<String, UnitConfig, UnitConfig.Builder> plugin = new GitRegistryPlugin<>(registry);
+        final ProtoBufFileProcessor<UnitConfig, UnitConfig, UnitConfig.Builder> fileProcessor = new ProtoBufFileProcessor<>(UnitConfig.newBuilder());
+        try (final Git git = Git.open(databaseDirectory)) {
+            plugin.setCommitBatching(50, 0);
+
+            // the entry is loaded from the database, so its file is unknown to the plugin.
+            final IdentifiableMessage<String, UnitConfig, UnitConfig.Builder> entry = new IdentifiableMessage<>(UnitConfig.newBuilder().setId("entry").build());
+            final FileSynchronizer<UnitConfig> fileSynchronizer = new FileSynchronizer<>(entry.getMessage(), new File(databaseDirectory, "old.json"), FileSynchronizer.InitMode.CREATE, fileProcessor);
+            git.add().addFilepattern("old.json").call();
+            git.commit().setMessage("load entry").call();
+
+            // rename the entry file the same way the registry does when saving a consistency modification.
+            plugin.afterConsistencyModification(entry, fileSynchronizer);
+            final File renamedFile = new File(databaseDirectory, "new.json");
+            assertTrue(fileSynchronizer.getFile().renameTo(renamedFile));
+            plugin.afterUpdate(entry, new FileSynchronizer<>(entry.getMessage(), renamedFile, FileSynchronizer.InitMode.AUTO, fileProcessor));
+            waitUntilClean(git);
+
+            assertEquals(2, countCommits(git), "Unexpected number of batch commits!");
+        } finally {
+            plugin.shutdown();
+        }
+    }
+
+    /**
+     * Setup a database which tracks a remote so that the initial pull of the plugin succeeds.
+     */
+    private static File setupDatabase(final Path tempDirectory) throws Exception {
+        final File originDirectory = tempDirectory.resolve("origin").toFile();
+        final File databaseDirectory = tempDirectory.resolve("db").toFile();
+        try (final Git origin = Git.init().setDirectory(originDirectory).call()) {
+            origin.commit().setMessage("initial commit").call();
+        }
+        Git.cloneRepository().setURI(originDirectory.toURI().toString()).setDirectory(databaseDirectory).call().close();
+        return databaseDirectory;
+    }
+
+    private static void waitUntilClean(final Git git) throws Exception {
+        while (!git.status().call().isClean()) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static int countCommits(final Git git) throws Exception {
+        int commits = 0;
+        for (final Iterator<RevCommit> iterator = git.log().call().iterator(); iterator.hasNext(); iterator.next()) {
+            commits++;
+        }
+        // ignore the initial commit of the origin
+        return commits - 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <KEY, ENTRY extends Identifiable<KEY>> FileSynchronizedRegistry<KEY, ENTRY> createRegistry(final File databaseDirectory) {
+        return (FileSynchronizedRegistry<KEY, ENTRY>) Proxy.newProxyInstance(
+                FileSynchronizedRegistry.class.getClassLoader(),
+                new Class[]{FileSynchronizedRegistry.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getDatabaseDirectory":
+                            return databaseDirectory;
+                        case "toString":
+                            return "TestRegistry[" + databaseDirectory + "]";
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -22,84 +22,139 @@ package org.openbase.rct.impl;
  * #L%
  */
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.vecmath.Quat4d;
+import javax.vecmath.Vector3d;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Cache storing the transformations of a frame within a circular buffer sorted by time, so that the oldest entry is located at the head.
+ * Timestamps are additionally kept in a primitive array to look up entries via binary search.
+ */
 public class TransformCacheImpl implements TransformCache {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(TransformCacheImpl.class);
+    private static final int INITIAL_CAPACITY = 16;
+
     private final long maxStorageTime;
-    private final List<TransformInternal> storage_ = new LinkedList<>();
+
+    private long[] stamps = new long[INITIAL_CAPACITY];
+    private TransformInternal[] storage = new TransformInternal[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    /**
+     * Guards the storage so that each frame can be read and written concurrently to all other frames.
+     */
+    private final ReentrantReadWriteLock storageLock = new ReentrantReadWriteLock();
+
+    /**
+     * Scratch instances of each thread, so that lookups do not allocate.
+     */
+    private static final ThreadLocal<LookupScratch> LOOKUP_SCRATCH = ThreadLocal.withInitial(LookupScratch::new);
 
     public TransformCacheImpl(long maxStorageTime) {
         this.maxStorageTime = maxStorageTime;
     }
 
-    int findClosest(TransformInternal one, TransformInternal two,
-            long target_time) {
+    /**
+     * @param index the logical index where 0 refers to the oldest entry.
+     *
+     * @return the index within the buffer arrays.
+     */
+    private int physicalIndex(final int index) {
+        return (head + index) % stamps.length;
+    }
+
+    private long stampAt(final int index) {
+        return stamps[physicalIndex(index)];
+    }
+
+    private TransformInternal entryAt(final int index) {
+        return storage[physicalIndex(index)];
+    }
+
+    /**
+     * @param time the time to look up.
+     *
+     * @return the number of entries with a timestamp less or equal to the given time.
+     */
+    private int upperBound(final long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (stampAt(mid) <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Resolves the entries closest to the given time.
+     *
+     * @param closest  array of size two filled with the resolved entries, where the first one is the older one.
+     * @param target_time the time to look up, zero refers to the latest entry.
+     *
+     * @return the number of resolved entries.
+     *
+     * @throws ExtrapolationException is thrown if the lookup would require an extrapolation.
+     */
+    private int findClosest(final TransformInternal[] closest, final long target_time) throws ExtrapolationException {
         // No values stored
-        if (storage_.isEmpty()) {
+        if (size == 0) {
             LOGGER.debug("findClosest() storage is empty");
             return 0;
         }
 
         // If time == 0 return the latest
         if (target_time == 0) {
-            one.replaceWith(storage_.get(0));
-            LOGGER.debug("findClosest() time is zero. Return latest.");
+            closest[0] = entryAt(size - 1);
             return 1;
         }
 
         // One value stored
-        if (storage_.size() == 1) {
-            TransformInternal ts = storage_.get(0);
-            if (ts.stamp == target_time) {
-                one.replaceWith(ts);
-                LOGGER.debug("findClosest() storage has only one entry. Return it.");
+        if (size == 1) {
+            if (stampAt(0) == target_time) {
+                closest[0] = entryAt(0);
                 return 1;
             } else {
-                throw new RuntimeException("Lookup would require extrapolation at time " + target_time + ", but only time " + ts.stamp + " is in the buffer");
+                throw new ExtrapolationException("Lookup would require extrapolation at time " + target_time + ", but only time " + stampAt(0) + " is in the buffer");
             }
         }
 
-        long latest_time = storage_.get(0).stamp;
-        long earliest_time = storage_.get(storage_.size() - 1).stamp;
+        final long latest_time = stampAt(size - 1);
+        final long earliest_time = stampAt(0);
 
         if (target_time == latest_time) {
-            one.replaceWith(storage_.get(0));
-            LOGGER.debug("findClosest() found exact target time. Return it.");
+            closest[0] = entryAt(size - 1);
             return 1;
         } else if (target_time == earliest_time) {
-            one.replaceWith(storage_.get(storage_.size() - 1));
-            LOGGER.debug("findClosest() found exact target time. Return it.");
+            closest[0] = entryAt(0);
             return 1;
         } // Catch cases that would require extrapolation
         else if (target_time > latest_time) {
-            throw new RuntimeException("Lookup would require extrapolation into the future.  Requested time " + target_time + " but the latest data is at time " + latest_time);
+            throw new ExtrapolationException("Lookup would require extrapolation into the future.  Requested time " + target_time + " but the latest data is at time " + latest_time);
         } else if (target_time < earliest_time) {
-            throw new RuntimeException("Lookup would require extrapolation into the future.  Requested time " + target_time + " but the latest data is at time " + earliest_time);
+            throw new ExtrapolationException("Lookup would require extrapolation into the past.  Requested time " + target_time + " but the earliest data is at time " + earliest_time);
         }
 
-        // At least 2 values stored
-        // Find the first value less than the target value
-        int storage_it = -1;
-        for (int i = 0; i < storage_.size(); i++) {
-            if (storage_.get(i).stamp <= target_time) {
-                storage_it = i;
-                break;
-            }
-        }
-
-        // Finally the case were somewhere in the middle Guarenteed no extrapolation :-)
-        LOGGER.debug("findClosest() return the two closest.");
-        one.replaceWith(storage_.get(storage_it)); // Older
-        two.replaceWith(storage_.get(storage_it - 1)); // Newer
+        // At least 2 values stored and the target time is somewhere in the middle, so no extrapolation is needed.
+        final int older = upperBound(target_time) - 1;
+        closest[0] = entryAt(older);
+        closest[1] = entryAt(older + 1);
         return 2;
-
     }
 
+    /**
+     * Interpolates between the given entries.
+     * The output refers to the scratch vectors of the calling thread, which are only valid until the next lookup of this thread.
+     */
     void interpolate(TransformInternal one, TransformInternal two, long time, TransformInternal output) {
         // Check for zero distance case
         if (two.stamp == one.stamp) {
@@ -110,145 +165,185 @@ public class TransformCacheImpl implements TransformCache {
         double ratio = (double) (time - one.stamp)
                 / (double) (two.stamp - one.stamp);
 
-        // Interpolate translation
-        output.translation.interpolate(one.translation, two.translation, ratio);
+        // Interpolate into the scratch instances since the output may still refer to the vectors of a cached entry.
+        final LookupScratch scratch = LOOKUP_SCRATCH.get();
+        scratch.translation.interpolate(one.translation, two.translation, ratio);
+        output.translation = scratch.translation;
 
-        // Interpolate rotation
-        output.rotation.interpolate(one.rotation, two.rotation, ratio);
+        scratch.rotation.interpolate(one.rotation, two.rotation, ratio);
+        output.rotation = scratch.rotation;
 
         output.stamp = one.stamp;
         output.frame_id = one.frame_id;
         output.child_frame_id = one.child_frame_id;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Note: The vectors of the output are shared with the cache or the scratch instances of the calling thread, so they have to be copied to be kept beyond the next lookup.
+     */
     @Override
     public boolean getData(long time, TransformInternal data_out) {
-        TransformInternal p_temp_1 = new TransformInternal();
-        TransformInternal p_temp_2 = new TransformInternal();
+        final TransformInternal[] closest = LOOKUP_SCRATCH.get().closest;
 
-        LOGGER.debug("getData() find closest to time " + time);
+        storageLock.readLock().lock();
         try {
-            int num_nodes = findClosest(p_temp_1, p_temp_2, time);
-            LOGGER.debug("getData() nodes: " + num_nodes);
+            final int num_nodes = findClosest(closest, time);
             if (num_nodes == 0) {
                 LOGGER.error("getData() no transform found");
                 return false;
             } else if (num_nodes == 1) {
-                LOGGER.debug("getData() found exactly one transform");
-                data_out.replaceWith(p_temp_1);
-            } else if (num_nodes == 2) {
-                if (p_temp_1.frame_id == p_temp_2.frame_id) {
-                    LOGGER.debug("getData() found two transforms. Interpolate.");
-                    interpolate(p_temp_1, p_temp_2, time, data_out);
-                } else {
-                    data_out.replaceWith(p_temp_1);
-                }
+                data_out.replaceWith(closest[0]);
+            } else if (closest[0].frame_id == closest[1].frame_id) {
+                interpolate(closest[0], closest[1], time, data_out);
             } else {
-                assert (false);
+                data_out.replaceWith(closest[0]);
             }
-
             return true;
-        } catch (RuntimeException ex) {
-            LOGGER.error("Could not get data. Reason: " + ex.getMessage());
-            LOGGER.debug("Could not get data", ex);
+        } catch (ExtrapolationException ex) {
+            LOGGER.error("Could not get data. Reason: {}", ex.getMessage());
             return false;
+        } finally {
+            storageLock.readLock().unlock();
+            Arrays.fill(closest, null);
         }
     }
 
     @Override
     public boolean insertData(TransformInternal new_data) {
-        LOGGER.debug("insertData(): " + new_data);
-        int storage_it = 0;
-
-        if (!storage_.isEmpty()) {
-            LOGGER.debug("storage is not empty");
-            if (storage_.get(storage_it).stamp > new_data.stamp + maxStorageTime) {
+        storageLock.writeLock().lock();
+        try {
+            if (size != 0 && stampAt(size - 1) > new_data.stamp + maxStorageTime) {
                 LOGGER.error("data too old for insertion");
                 return false;
             }
-        }
 
-        while (storage_it != storage_.size()) {
-            if (storage_.get(storage_it).stamp <= new_data.stamp) {
-                break;
+            if (size == stamps.length) {
+                grow();
             }
-            storage_it++;
-        }
-        if (storage_it >= storage_.size()) {
-            LOGGER.debug("add additional storage entry (storage size:" + storage_it + ")");
-            storage_.add(new_data);
-        } else {
-            LOGGER.debug("set new data to index " + storage_it + " in storage (size:" + storage_.size() + ")");
-            storage_.add(storage_it, new_data);
+
+            // entries with an equal timestamp stay older than the new one.
+            final int index = upperBound(new_data.stamp);
+
+            // move all newer entries one step towards the tail, which is a noop in the usual case of appending the latest data.
+            for (int i = size; i > index; i--) {
+                stamps[physicalIndex(i)] = stampAt(i - 1);
+                storage[physicalIndex(i)] = entryAt(i - 1);
+            }
+            stamps[physicalIndex(index)] = new_data.stamp;
+            storage[physicalIndex(index)] = new_data;
+            size++;
+
+            pruneList();
+            return true;
+        } finally {
+            storageLock.writeLock().unlock();
         }
+    }
 
-        LOGGER.debug("prune list");
-        pruneList();
-        return true;
+    private void grow() {
+        final long[] newStamps = new long[stamps.length * 2];
+        final TransformInternal[] newStorage = new TransformInternal[storage.length * 2];
+        for (int i = 0; i < size; i++) {
+            newStamps[i] = stampAt(i);
+            newStorage[i] = entryAt(i);
+        }
+        stamps = newStamps;
+        storage = newStorage;
+        head = 0;
     }
 
     private void pruneList() {
-        long latest_time = storage_.get(0).stamp;
-        LOGGER.debug("latest time: " + latest_time);
-        LOGGER.debug("max storage time: " + maxStorageTime);
-        LOGGER.debug("storage empty: " + storage_.isEmpty());
-        while (!storage_.isEmpty() && storage_.get(storage_.size() - 1).stamp + maxStorageTime < latest_time) {
-            LOGGER.debug("remove last. stamp: " + storage_.get(storage_.size() - 1).stamp);
-            storage_.remove(storage_.size() - 1);
+        final long latest_time = stampAt(size - 1);
+        while (size != 0 && stampAt(0) + maxStorageTime < latest_time) {
+            storage[head] = null;
+            head = (head + 1) % stamps.length;
+            size--;
         }
     }
 
     @Override
     public void clearList() {
-        storage_.clear();
+        storageLock.writeLock().lock();
+        try {
+            Arrays.fill(storage, null);
+            head = 0;
+            size = 0;
+        } finally {
+            storageLock.writeLock().unlock();
+        }
     }
 
     @Override
     public int getParent(long time) {
-        TransformInternal p_temp_1 = new TransformInternal();
-        TransformInternal p_temp_2 = new TransformInternal();
+        final TransformInternal[] closest = LOOKUP_SCRATCH.get().closest;
+        storageLock.readLock().lock();
         try {
-            int num_nodes = findClosest(p_temp_1, p_temp_2, time);
+            int num_nodes = findClosest(closest, time);
             if (num_nodes == 0) {
                 return 0;
             }
 
-            return p_temp_1.frame_id;
-        } catch (RuntimeException ex) {
+            return closest[0].frame_id;
+        } catch (ExtrapolationException ex) {
             LOGGER.error("Could not get parent", ex);
             return 0;
+        } finally {
+            storageLock.readLock().unlock();
+            Arrays.fill(closest, null);
         }
     }
 
     @Override
     public TimeAndFrameID getLatestTimeAndParent() {
-        if (storage_.isEmpty()) {
-            return new TimeAndFrameID(0, 0);
-        }
+        storageLock.readLock().lock();
+        try {
+            if (size == 0) {
+                return new TimeAndFrameID(0, 0);
+            }
 
-        TransformInternal ts = storage_.get(0);
-        return new TimeAndFrameID(ts.stamp, ts.frame_id);
+            TransformInternal ts = entryAt(size - 1);
+            return new TimeAndFrameID(ts.stamp, ts.frame_id);
+        } finally {
+            storageLock.readLock().unlock();
+        }
     }
 
     @Override
     public int getListLength() {
-        return storage_.size();
+        storageLock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            storageLock.readLock().unlock();
+        }
     }
 
     @Override
     public long getLatestTimestamp() {
-        if (storage_.isEmpty()) {
-            return 0l; // empty list case
+        storageLock.readLock().lock();
+        try {
+            if (size == 0) {
+                return 0l; // empty list case
+            }
+            return stampAt(size - 1);
+        } finally {
+            storageLock.readLock().unlock();
         }
-        return storage_.get(0).stamp;
     }
 
     @Override
     public long getOldestTimestamp() {
-        if (storage_.isEmpty()) {
-            return 0l; // empty list case
+        storageLock.readLock().lock();
+        try {
+            if (size == 0) {
+                return 0l; // empty list case
+            }
+            return stampAt(0);
+        } finally {
+            storageLock.readLock().unlock();
         }
-        return storage_.get(storage_.size() - 1).stamp;
     }
 
     @Override
@@ -258,6 +353,24 @@ public class TransformCacheImpl implements TransformCache {
 
     @Override
     public String toString() {
-        return "TransformCacheImpl[maxStorageTime:" + maxStorageTime + ", storage:" + storage_.size() + "]";
+        return "TransformCacheImpl[maxStorageTime:" + maxStorageTime + ", storage:" + getListLength() + "]";
+    }
+
+    private static class LookupScratch {
+
+        private final TransformInternal[] closest = new TransformInternal[2];
+        private final Vector3d translation = new Vector3d();
+        private final Quat4d rotation = new Quat4d();
+    }
+
+    /**
+     * Signals that a lookup is not covered by the stored data.
+     * The exception is only used internally, so no stacktrace is recorded.
+     */
+    private static class ExtrapolationException extends Exception {
+
+        ExtrapolationException(final String message) {
+            super(message, null, false, false);
+        }
     }
 }
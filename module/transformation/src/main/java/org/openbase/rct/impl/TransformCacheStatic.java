@@ -27,7 +27,7 @@ import org.slf4j.LoggerFactory;
 
 public class TransformCacheStatic implements TransformCache {
 
-    private TransformInternal storage = new TransformInternal();
+    private volatile TransformInternal storage = new TransformInternal();
     private static final Logger LOGGER = LoggerFactory.getLogger(TransformCacheImpl.class);
 
     public TransformCacheStatic() {
@@ -6,9 +6,11 @@ import org.openbase.rct.impl.TransformCache.TimeAndFrameID
 import org.openbase.rct.impl.TransformRequest.FutureTransform
 import org.slf4j.LoggerFactory
 import java.util.*
+import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executors
 import java.util.concurrent.Future
 import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
 import java.util.concurrent.locks.ReentrantLock
 import javax.media.j3d.Transform3D
 import javax.vecmath.Matrix3d
@@ -125,34 +127,62 @@ import kotlin.concurrent.withLock
         }
     }
 
+    /**
+     * Immutable snapshot of all known frames, where each frame number is the index of the frame within the arrays.
+     * Frames are never removed, so a frame number stays valid for all later snapshots.
+     */
+    private class FrameTable(
+        val frameIds: Map<String, Int>,
+        val frames: Array<TransformCache>,
+        val frameIdsReverse: Array<String>,
+    ) {
+        fun withFrame(frameId: String): FrameTable =
+            FrameTable(frameIds + (frameId to frames.size), frames + TransformCacheNull(), frameIdsReverse + frameId)
+
+        fun withCache(frameNumber: Int, cache: TransformCache): FrameTable =
+            FrameTable(frameIds, frames.copyOf().also { it[frameNumber] = cache }, frameIdsReverse)
+    }
+
+    /**
+     * Lock used to serialize modifications of the [frameTable]. Readers never acquire this lock
+     * but access the current snapshot, while the caches of each frame synchronize their data internally.
+     */
     private val transformationFrameMapLock = ReentrantLock()
     private val transformationFrameMapCondition = transformationFrameMapLock.newCondition()
 
-    private val frameIds: MutableMap<String, Int> = HashMap()
-    private val frames: MutableList<TransformCache> = LinkedList()
-    private val frameIdsReverse: MutableList<String> = LinkedList()
-    private val frameAuthority: MutableMap<Int, String> = HashMap()
+    @Volatile
+    private var frameTable = FrameTable(mapOf("NO_PARENT" to 0), arrayOf<TransformCache>(TransformCacheNull()), arrayOf("NO_PARENT"))
+
+    private val frameAuthority: MutableMap<Int, String> = ConcurrentHashMap()
+
+    private data class LookupKey(val targetFrame: String, val sourceFrame: String, val time: Long)
+
+    /**
+     * Result of a former lookup which stays valid as long as none of the frames visited during the lookup received new data.
+     */
+    private class CachedLookup(val transform: Transform, val frameNumbers: IntArray, val frameVersions: LongArray)
+
+    /**
+     * Each frame is stamped with the value of this sequence whenever it receives new data.
+     */
+    private val frameVersionSequence = AtomicLong()
+    private val frameVersionMap: MutableMap<Int, Long> = ConcurrentHashMap()
+    private val lookupCache: MutableMap<LookupKey, CachedLookup> = ConcurrentHashMap()
+    private val lookupCacheHitCounter = AtomicLong()
+    private val lookupCacheMissCounter = AtomicLong()
     private val requests: MutableSet<TransformRequest> = HashSet()
-    private val lctCache: MutableList<TimeAndFrameID> = LinkedList()
     private val executor = Executors.newCachedThreadPool()
 
-    init {
-        transformationFrameMapLock.withLock {
-            frameIds["NO_PARENT"] = 0
-            frames.add(TransformCacheNull())
-            frameIdsReverse.add("NO_PARENT")
-            transformationFrameMapCondition.signalAll()
-        }
-    }
-
     override fun clear() {
-        transformationFrameMapLock.withLock {
-            if (frames.size > 1) {
-                for (f in frames) {
-                    if (f.isValid) {
-                        f.clearList()
-                    }
+        val frames = frameTable.frames
+        if (frames.size > 1) {
+            for ((frameNumber, f) in frames.withIndex()) {
+                if (f.isValid) {
+                    f.clearList()
+                    frameVersionMap[frameNumber] = frameVersionSequence.incrementAndGet()
                 }
+            }
+            transformationFrameMapLock.withLock {
                 transformationFrameMapCondition.signalAll()
             }
         }
@@ -197,99 +227,169 @@ import kotlin.concurrent.withLock
             }
 
             // perform the insertion
-            transformationFrameMapLock.withLock {
-                val frameNumberChild = lookupOrInsertFrameNumber(childNode)
-                var frame = getFrame(frameNumberChild)
-                if (!frame!!.isValid) {
-                    frame = allocateFrame(frameNumberChild, isStatic)
-                }
-                val frameNumberParent = lookupOrInsertFrameNumber(stripped.parentNode)
-                if (frame.insertData(TransformInternal(stripped, frameNumberParent, frameNumberChild))) {
-                    authority?.let { frameAuthority[frameNumberChild] = it }
-                } else {
-                    LOGGER.warn(
-                        """TF_OLD_DATA ignoring data from the past for frame ${stripped.childNode} at time ${stripped.time} according to authority $authority
+            val frameNumberChild = lookupOrInsertFrameNumber(childNode)
+            var frame = getFrame(frameNumberChild)
+            if (!frame!!.isValid) {
+                frame = allocateFrame(frameNumberChild, isStatic)
+            }
+            val frameNumberParent = lookupOrInsertFrameNumber(stripped.parentNode)
+            if (frame.insertData(TransformInternal(stripped, frameNumberParent, frameNumberChild))) {
+                frameVersionMap[frameNumberChild] = frameVersionSequence.incrementAndGet()
+                authority?.let { frameAuthority[frameNumberChild] = it }
+            } else {
+                LOGGER.warn(
+                    """TF_OLD_DATA ignoring data from the past for frame ${stripped.childNode} at time ${stripped.time} according to authority $authority
 Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
-                    )
-                    return false
-                }
-                executor.execute { checkRequests() }
+                )
+                return false
             }
+            executor.execute { checkRequests() }
         }
         return true
     }
 
     private fun lookupOrInsertFrameNumber(frameId: String): Int {
-        var retval = 0
+        frameTable.frameIds[frameId]?.let { return it }
+
         transformationFrameMapLock.withLock {
-            if (!frameIds.containsKey(frameId)) {
-                retval = frames.size
-                frames.add(TransformCacheNull())
-                frameIds[frameId] = retval
-                frameIdsReverse.add(frameId)
-                transformationFrameMapCondition.signalAll()
-            } else {
-                retval = frameIds[frameId]!!
-            }
+            // recheck since the frame could be inserted in the meantime
+            frameTable.frameIds[frameId]?.let { return it }
+
+            val table = frameTable.withFrame(frameId)
+            frameTable = table
+            transformationFrameMapCondition.signalAll()
+            return table.frames.size - 1
         }
-        return retval
     }
 
-    private fun getFrame(frameId: Int): TransformCache? =
-        transformationFrameMapLock.withLock {
-            // @todo check larger values too
-            if (frameId == 0 || frameId > frames.size) {
-                null
-            } else {
-                frames[frameId]
-            }
+    private fun getFrame(frameId: Int): TransformCache? {
+        val frames = frameTable.frames
+        return if (frameId <= 0 || frameId >= frames.size) {
+            null
+        } else {
+            frames[frameId]
         }
+    }
 
     private fun allocateFrame(cfid: Int, isStatic: Boolean): TransformCache {
         transformationFrameMapLock.withLock {
-            if (isStatic) {
-                frames[cfid] = TransformCacheStatic()
+            // another writer could have allocated the frame in the meantime
+            val frame = frameTable.frames[cfid]
+            if (frame.isValid) {
+                return frame
+            }
+
+            val cache = if (isStatic) {
+                TransformCacheStatic()
             } else {
-                frames[cfid] = TransformCacheImpl(cacheTime)
+                TransformCacheImpl(cacheTime)
             }
-            return frames[cfid]
+            frameTable = frameTable.withCache(cfid, cache)
+            return cache
         }
     }
 
     @Throws(TransformerException::class)
     override fun lookupTransform(targetFrame: String, sourceFrame: String, time: Long): Transform {
-        transformationFrameMapLock.withLock {
-            return try {
-                if (targetFrame == sourceFrame) {
-                    val newTime: Long = if (time == 0L) {
-                        val targetId = lookupFrameNumber(targetFrame)
-                        val cache = getFrame(targetId)
-                        if (cache!!.isValid) {
-                            cache.latestTimestamp
-                        } else {
-                            time
-                        }
+        return try {
+            if (targetFrame == sourceFrame) {
+                val newTime: Long = if (time == 0L) {
+                    val targetId = lookupFrameNumber(targetFrame)
+                    val cache = getFrame(targetId)
+                    if (cache!!.isValid) {
+                        cache.latestTimestamp
                     } else {
                         time
                     }
-                    return Transform(Transform3D(), targetFrame, sourceFrame, newTime)
+                } else {
+                    time
                 }
-                lookupTransformNoLock(targetFrame, sourceFrame, time)
-            } catch (ex: TransformerException) {
-                throw TransformerException("Could not lookup transformation", ex)
+                return Transform(Transform3D(), targetFrame, sourceFrame, newTime)
             }
+            lookupTransformCached(targetFrame, sourceFrame, time)
+        } catch (ex: TransformerException) {
+            throw TransformerException("Could not lookup transformation", ex)
         }
     }
 
+    /**
+     * Returns the result of a former lookup of the same frames and time, as long as none of the frames on the path received new data.
+     * Otherwise, the transformation is resolved and cached.
+     */
     @Throws(TransformerException::class)
-    private fun lookupTransformNoLock(targetFrame: String, sourceFrame: String, time: Long): Transform {
+    private fun lookupTransformCached(targetFrame: String, sourceFrame: String, time: Long): Transform {
+        val key = LookupKey(targetFrame, sourceFrame, time)
+        lookupCache[key]?.let { cachedLookup ->
+            if (isValid(cachedLookup)) {
+                lookupCacheHitCounter.incrementAndGet()
+                return copy(cachedLookup.transform)
+            }
+        }
+        lookupCacheMissCounter.incrementAndGet()
+
+        val startVersion = frameVersionSequence.get()
+        val visitedFrames: MutableList<Int> = ArrayList()
+        val transform = lookupTransformNoLock(targetFrame, sourceFrame, time, visitedFrames)
+        val frameNumbers = visitedFrames.distinct().toIntArray()
+        val frameVersions = LongArray(frameNumbers.size) { getFrameVersion(frameNumbers[it]) }
+
+        // skip caching if any frame was modified during the lookup
+        if (frameVersions.all { it <= startVersion }) {
+            if (lookupCache.size >= MAX_LOOKUP_CACHE_SIZE) {
+                lookupCache.clear()
+            }
+            lookupCache[key] = CachedLookup(copy(transform), frameNumbers, frameVersions)
+        }
+        return transform
+    }
+
+    private fun isValid(cachedLookup: CachedLookup): Boolean {
+        for (i in cachedLookup.frameNumbers.indices) {
+            if (getFrameVersion(cachedLookup.frameNumbers[i]) != cachedLookup.frameVersions[i]) {
+                return false
+            }
+        }
+        return true
+    }
+
+    private fun getFrameVersion(frameNumber: Int): Long = frameVersionMap[frameNumber] ?: 0L
+
+    private fun copy(transform: Transform): Transform =
+        transform.copy(transform = Transform3D(transform.transform))
+
+    /**
+     * @return the number of lookups answered by the lookup cache.
+     */
+    fun getLookupCacheHitCount(): Long = lookupCacheHitCounter.get()
+
+    /**
+     * @return the number of lookups which had to resolve the transformation because no valid cache entry was available.
+     */
+    fun getLookupCacheMissCount(): Long = lookupCacheMissCounter.get()
+
+    /**
+     * @return the ratio of lookups answered by the lookup cache, or zero if no lookup was performed so far.
+     */
+    fun getLookupCacheHitRate(): Double {
+        val hits = lookupCacheHitCounter.get()
+        val total = hits + lookupCacheMissCounter.get()
+        return if (total == 0L) 0.0 else hits.toDouble() / total
+    }
+
+    @Throws(TransformerException::class)
+    private fun lookupTransformNoLock(
+        targetFrame: String,
+        sourceFrame: String,
+        time: Long,
+        visitedFrames: MutableList<Int>? = null,
+    ): Transform {
 
         // Identify case does not need to be validated above
         val targetId = validateFrameId("lookupTransform argument target_frame", targetFrame)
         val sourceId = validateFrameId("lookupTransform argument source_frame", sourceFrame)
         val accum = TransformAccumImpl()
         try {
-            walkToTopParent(accum, time, targetId, sourceId)
+            walkToTopParent(accum, time, targetId, sourceId, visitedFrames)
         } catch (ex: TransformerException) {
             throw TransformerException("No matching transform found", ex)
         }
@@ -298,7 +398,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
     }
 
     @Throws(TransformerException::class)
-    private fun walkToTopParent(f: TransformAccum, time: Long, targetId: Int, sourceId: Int) {
+    private fun walkToTopParent(f: TransformAccum, time: Long, targetId: Int, sourceId: Int, visitedFrames: MutableList<Int>? = null) {
         // Short circuit if zero length transform to allow lookups on non
         // existent links
         var time = time
@@ -308,7 +408,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
         }
         // If getting the latest get the latest common time
         if (time == 0L) {
-            time = getLatestCommonTime(targetId, sourceId)
+            time = getLatestCommonTime(targetId, sourceId, visitedFrames)
         }
 
         // Walk the tree to its root from the source frame, accumulating the
@@ -318,6 +418,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
         var depth = 0
         var extrapolationMightHaveOccurred = false
         while (frame != 0) {
+            visitedFrames?.add(frame)
             val cache = getFrame(frame)
             if (!cache!!.isValid) {
                 // There will be no cache for the very root of the tree
@@ -352,6 +453,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
         frame = targetId
         depth = 0
         while (frame != topParent) {
+            visitedFrames?.add(frame)
             val cache = getFrame(frame)
             if (!cache!!.isValid) {
                 throw TransformerException(
@@ -394,7 +496,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
     }
 
     @Throws(TransformerException::class)
-    private fun getLatestCommonTime(targetId: Int, sourceId: Int): Long {
+    private fun getLatestCommonTime(targetId: Int, sourceId: Int, visitedFrames: MutableList<Int>? = null): Long {
         if (sourceId == targetId) {
             val cache = getFrame(sourceId)
             // Set time to latest timestamp of frameid in case of target and
@@ -405,7 +507,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
                 0
             }
         }
-        lctCache.clear()
+        val lctCache: MutableList<TimeAndFrameID> = ArrayList()
 
         // Walk the tree to its root from the source frame, accumulating the
         // list of parent/time as well as the latest time
@@ -414,6 +516,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
         var depth = 0
         var commonTime = Long.MAX_VALUE
         while (frame != 0) {
+            visitedFrames?.add(frame)
             val cache = getFrame(frame)
             if (!cache!!.isValid) {
                 // There will be no cache for the very root of the tree
@@ -452,6 +555,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
         commonTime = Long.MAX_VALUE
         var commonParent = 0
         while (true) {
+            visitedFrames?.add(frame)
             val cache = getFrame(frame)
             if (!cache!!.isValid) {
                 break
@@ -516,23 +620,17 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
 
     @Throws(TransformerException::class)
     private fun lookupFrameString(frameId: Int): String {
-        transformationFrameMapLock.withLock {
-            return if (frameId >= frameIdsReverse.size) {
-                throw TransformerException("Reverse lookup of node ID $frameId failed!")
-            } else {
-                frameIdsReverse[frameId]
-            }
+        val frameIdsReverse = frameTable.frameIdsReverse
+        return if (frameId >= frameIdsReverse.size) {
+            throw TransformerException("Reverse lookup of node ID $frameId failed!")
+        } else {
+            frameIdsReverse[frameId]
         }
     }
 
     @Throws(TransformerException::class)
     private fun lookupFrameNumber(frameId: String): Int {
-        transformationFrameMapLock.withLock {
-            if (!frameIds.containsKey(frameId)) {
-                throw TransformerException("FrameId[$frameId]")
-            }
-            return frameIds[frameId]!!
-        }
+        return frameTable.frameIds[frameId] ?: throw TransformerException("FrameId[$frameId]")
     }
 
     @Throws(TransformerException::class)
@@ -570,7 +668,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
 
     override fun requestTransform(targetFrame: String, sourceFrame: String, time: Long): Future<Transform> {
         val future = FutureTransform()
-        transformationFrameMapLock.withLock {
+        synchronized(requests) {
             if (canTransform(targetFrame, sourceFrame, time)) {
                 try {
                     future.set(lookupTransformNoLock(targetFrame, sourceFrame, time))
@@ -603,7 +701,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
 
     private fun checkRequests() {
         // go through all request and check if they can be answered
-        transformationFrameMapLock.withLock {
+        synchronized(requests) {
             for (request in ArrayList(requests)) {
                 try {
                     // request can be answered. publish the transform through
@@ -628,14 +726,12 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
         if (warnFrameId("canTransform argument source_frame", sourceFrame)) {
             return false
         }
-        transformationFrameMapLock.withLock {
-            return try {
-                val targetId = lookupFrameNumber(targetFrame)
-                val sourceId = lookupFrameNumber(sourceFrame)
-                canTransformNoLock(targetId, sourceId, time)
-            } catch (ex: TransformerException) {
-                false
-            }
+        return try {
+            val targetId = lookupFrameNumber(targetFrame)
+            val sourceId = lookupFrameNumber(sourceFrame)
+            canTransformNoLock(targetId, sourceId, time)
+        } catch (ex: TransformerException) {
+            false
         }
     }
 
@@ -670,42 +766,39 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
     }
 
     override fun getFrameStrings(): Set<String> {
-        transformationFrameMapLock.withLock {
-            val vec: MutableSet<String> = HashSet()
-            for (counter in 1 until frameIdsReverse.size) {
-                vec.add(frameIdsReverse[counter])
-            }
-            return vec
+        val frameIdsReverse = frameTable.frameIdsReverse
+        val vec: MutableSet<String> = HashSet()
+        for (counter in 1 until frameIdsReverse.size) {
+            vec.add(frameIdsReverse[counter])
         }
+        return vec
     }
 
     override fun frameExists(frameId: String): Boolean {
-        transformationFrameMapLock.withLock { return frameIds.containsKey(frameId) }
+        return frameTable.frameIds.containsKey(frameId)
     }
 
     @Throws(TransformerException::class)
     override fun getParent(frameId: String, time: Long): String {
-        transformationFrameMapLock.withLock {
-            return try {
-                val frameNumber = lookupFrameNumber(frameId)
-                val frame = getFrame(frameNumber)
-                if (!frame!!.isValid) {
-                    return ""
-                }
-                val parentId = frame.getParent(time)
-                if (parentId == 0) {
-                    ""
-                } else lookupFrameString(parentId)
-            } catch (ex: TransformerException) {
-                throw TransformerException("Could not resolfe parent transformation!", ex)
-            }
+        return try {
+            val frameNumber = lookupFrameNumber(frameId)
+            val frame = getFrame(frameNumber)
+            if (!frame!!.isValid) {
+                return ""
+            }
+            val parentId = frame.getParent(time)
+            if (parentId == 0) {
+                ""
+            } else lookupFrameString(parentId)
+        } catch (ex: TransformerException) {
+            throw TransformerException("Could not resolfe parent transformation!", ex)
         }
     }
 
     override fun allFramesAsDot(): String {
         var mstream = ""
         mstream += "digraph G {\n"
-        transformationFrameMapLock.withLock {
+        with(frameTable) {
             val temp = TransformInternal()
             if (frames.size == 1) {
                 mstream += "\"no tf data recieved\""
@@ -773,7 +866,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
 
     override fun allFramesAsYAML(): String {
         var mstream = ""
-        transformationFrameMapLock.withLock {
+        with(frameTable) {
             val temp = TransformInternal()
             if (frames.size == 1) {
                 mstream += "[]"
@@ -819,7 +912,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
     }
 
     override fun allFramesAsString(): String {
-        transformationFrameMapLock.withLock { return allFramesAsStringNoLock() }
+        return allFramesAsStringNoLock()
     }
 
     private fun canTransformNoLock(targetId: Int, sourceId: Int, time: Long): Boolean {
@@ -841,7 +934,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
     private fun allFramesAsStringNoLock(): String {
         val temp = TransformInternal()
         var mstring = ""
-        transformationFrameMapLock.withLock {
+        with(frameTable) {
 
             // regular transforms
             LOGGER.debug("frames size: " + frames.size)
@@ -872,6 +965,7 @@ Possible reasons are listed at http://wiki.ros.org/tf/Errors%%20explained"""
 
     companion object {
         private const val MAX_GRAPH_DEPTH = 1000
+        private const val MAX_LOOKUP_CACHE_SIZE = 10000
         private val LOGGER = LoggerFactory.getLogger(TransformerCoreDefault::class.java)
     }
 }
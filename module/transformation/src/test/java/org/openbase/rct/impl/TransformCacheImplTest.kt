@@ -0,0 +1,94 @@
+package org.openbase.rct.impl
+
+import org.junit.jupiter.api.Assertions
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.Timeout
+import javax.vecmath.Quat4d
+import javax.vecmath.Vector3d
+
+/*-
+ * #%L
+ * RCT
+ * %%
+ * Copyright (C) 2015 - 2022 openbase.org
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */   class TransformCacheImplTest {
+
+    private fun generateTransform(x: Double, time: Long) =
+        TransformInternal(Vector3d(x, 0.0, 0.0), Quat4d(0.0, 0.0, 0.0, 1.0), 1, 2, time)
+
+    @Timeout(10)
+    @Test
+    fun testInsertAndLookup() {
+        val cache = TransformCacheImpl(1000)
+
+        // insert out of order and more entries than the initial capacity
+        for (time in 100L downTo 10L step 10) {
+            Assertions.assertTrue(cache.insertData(generateTransform(time.toDouble(), time)))
+        }
+        for (time in 110L..400L step 10) {
+            Assertions.assertTrue(cache.insertData(generateTransform(time.toDouble(), time)))
+        }
+
+        Assertions.assertEquals(40, cache.listLength)
+        Assertions.assertEquals(10, cache.oldestTimestamp)
+        Assertions.assertEquals(400, cache.latestTimestamp)
+
+        val out = TransformInternal()
+
+        // latest
+        Assertions.assertTrue(cache.getData(0, out))
+        Assertions.assertEquals(400.0, out.translation.x, 0.0001)
+
+        // exact match
+        Assertions.assertTrue(cache.getData(10, out))
+        Assertions.assertEquals(10.0, out.translation.x, 0.0001)
+
+        // interpolation
+        Assertions.assertTrue(cache.getData(255, out))
+        Assertions.assertEquals(255.0, out.translation.x, 0.0001)
+
+        // make sure the interpolation did not modify the cached entries
+        Assertions.assertTrue(cache.getData(250, out))
+        Assertions.assertEquals(250.0, out.translation.x, 0.0001)
+
+        // extrapolation
+        Assertions.assertFalse(cache.getData(401, out))
+        Assertions.assertFalse(cache.getData(5, out))
+    }
+
+    @Timeout(10)
+    @Test
+    fun testPruning() {
+        val cache = TransformCacheImpl(100)
+
+        for (time in 0L..1000L step 10) {
+            Assertions.assertTrue(cache.insertData(generateTransform(time.toDouble(), time)))
+        }
+
+        Assertions.assertEquals(900, cache.oldestTimestamp)
+        Assertions.assertEquals(1000, cache.latestTimestamp)
+        Assertions.assertEquals(11, cache.listLength)
+
+        // data older than the storage time is rejected
+        Assertions.assertFalse(cache.insertData(generateTransform(0.0, 850)))
+
+        cache.clearList()
+        Assertions.assertEquals(0, cache.listLength)
+        Assertions.assertFalse(cache.getData(0, TransformInternal()))
+    }
+}
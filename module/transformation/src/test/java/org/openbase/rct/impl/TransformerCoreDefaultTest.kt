@@ -382,6 +382,31 @@ import javax.vecmath.Vector3d
         }
     }
 
+    @Timeout(10)
+    @Test
+    @Throws(TransformerException::class)
+    fun testLookupCacheInvalidation() {
+        val transform = generateDefaultTransform()
+        val core = TransformerCoreDefault(1000)
+        core.setTransform(listOf(transform), false)
+        transform.time = 10
+        core.setTransform(listOf(transform), false)
+
+        // first lookup resolves the transformation, the second one is answered by the cache
+        Assertions.assertEquals(Vector3d(0.0, 1.0, 2.0), core.lookupTransform("foo", "bar", 0).translation)
+        Assertions.assertEquals(Vector3d(0.0, 1.0, 2.0), core.lookupTransform("foo", "bar", 0).translation)
+        Assertions.assertEquals(1, core.getLookupCacheMissCount())
+        Assertions.assertEquals(1, core.getLookupCacheHitCount())
+
+        // new data of a frame on the path invalidates the cached lookup
+        val transform2 = transform.copy(transform = Transform3D(Quat4d(0.0, 1.0, 2.0, 1.0), Vector3d(3.0, 1.0, 2.0), 1.0))
+        transform2.time = 20
+        core.setTransform(listOf(transform2), false)
+        Assertions.assertEquals(Vector3d(3.0, 1.0, 2.0), core.lookupTransform("foo", "bar", 0).translation)
+        Assertions.assertEquals(2, core.getLookupCacheMissCount())
+        Assertions.assertEquals(1.0 / 3.0, core.getLookupCacheHitRate(), 0.0001)
+    }
+
     companion object {
         private val LOGGER = LoggerFactory.getLogger(TransformerCoreDefaultTest::class.java)
     }